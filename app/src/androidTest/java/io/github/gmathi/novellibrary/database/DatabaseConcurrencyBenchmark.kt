@@ -0,0 +1,85 @@
+package io.github.gmathi.novellibrary.database
+
+import android.os.SystemClock
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.github.gmathi.novellibrary.model.database.WebPage
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import kotlin.concurrent.thread
+
+/**
+ * Reads on one thread while another thread holds a long write transaction, like the UI reading the library while
+ * a sync inserts chapters. With write-ahead logging the reads must not wait for the transaction to commit.
+ */
+@RunWith(AndroidJUnit4::class)
+class DatabaseConcurrencyBenchmark {
+
+    companion object {
+        private const val TAG = "DatabaseConcurrency"
+        private const val DATABASE_NAME = "concurrency_benchmark_db"
+        private const val NOVEL_ID = 1L
+        private const val CHAPTERS = 20_000
+    }
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private lateinit var dbHelper: DBHelper
+
+    @Before
+    fun setUp() {
+        context.deleteDatabase(DATABASE_NAME)
+        dbHelper = DBHelper.newInstance(context, DATABASE_NAME)
+        dbHelper.writableDatabase.runTransaction { db ->
+            for (i in 0 until 500) dbHelper.createWebPage(webPage(i), db)
+        }
+    }
+
+    @After
+    fun tearDown() {
+        dbHelper.close()
+        context.deleteDatabase(DATABASE_NAME)
+    }
+
+    @Test
+    fun readsDoNotWaitForWriteTransaction() {
+        val transactionStarted = CountDownLatch(1)
+        var transactionMillis = 0L
+
+        val writer = thread {
+            val start = SystemClock.elapsedRealtime()
+            dbHelper.writableDatabase.runTransaction { db ->
+                transactionStarted.countDown()
+                for (i in 500 until CHAPTERS) dbHelper.createWebPage(webPage(i), db)
+            }
+            transactionMillis = SystemClock.elapsedRealtime() - start
+        }
+
+        transactionStarted.await()
+        val readLatencies = ArrayList<Long>()
+        while (writer.isAlive) {
+            val start = SystemClock.elapsedRealtime()
+            dbHelper.getAllWebPages(NOVEL_ID)
+            readLatencies.add(SystemClock.elapsedRealtime() - start)
+        }
+        writer.join()
+
+        readLatencies.sort()
+        val p50 = readLatencies[readLatencies.size / 2]
+        val max = readLatencies.last()
+        Log.i(TAG, "write transaction: ${transactionMillis}ms, reads: ${readLatencies.size}, p50: ${p50}ms, max: ${max}ms")
+
+        // Reads completed while the transaction was still running, and none of them waited for it.
+        assertTrue("Expected reads during the write transaction", readLatencies.size > 1)
+        assertTrue("A read waited ${max}ms for a ${transactionMillis}ms transaction", max < transactionMillis / 2)
+    }
+
+    private fun webPage(index: Int) = WebPage("https://example.com/chapter-$index", "Chapter $index").apply {
+        novelId = NOVEL_ID
+        orderId = index.toLong()
+    }
+}
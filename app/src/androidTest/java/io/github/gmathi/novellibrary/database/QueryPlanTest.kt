@@ -0,0 +1,88 @@
+package io.github.gmathi.novellibrary.database
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.github.gmathi.novellibrary.model.database.Download
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Runs `EXPLAIN QUERY PLAN` on the hot chapter, settings, download and history queries and fails if one of them scans its
+ * table or sorts its rows instead of searching an index.
+ *
+ * The queries mirror the ones in WebPageHelper, WebPageSettingsHelper, DownloadHelper and RecentHistoryHelper; keep them in sync.
+ */
+@RunWith(AndroidJUnit4::class)
+class QueryPlanTest {
+
+    companion object {
+        private const val DATABASE_NAME = "query_plan_test_db"
+    }
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private lateinit var dbHelper: DBHelper
+
+    private val hotQueries = listOf(
+        // getAllWebPages(novelId)
+        "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE} WHERE ${DBKeys.KEY_NOVEL_ID} = ? ORDER BY ${DBKeys.KEY_ORDER_ID} ASC",
+        // getAllWebPages(novelId, translatorSourceName)
+        "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE} WHERE ${DBKeys.KEY_NOVEL_ID} = ? AND ${DBKeys.KEY_TRANSLATOR_SOURCE_NAME} = ? ORDER BY ${DBKeys.KEY_ORDER_ID} ASC",
+        // getWebPage(novelId, offset)
+        "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE} WHERE ${DBKeys.KEY_NOVEL_ID} = ? ORDER BY ${DBKeys.KEY_ORDER_ID} ASC LIMIT ?, 1",
+        // getWebPage(novelId, translatorSourceName, offset)
+        "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE} WHERE ${DBKeys.KEY_NOVEL_ID} = ? AND ${DBKeys.KEY_TRANSLATOR_SOURCE_NAME} = ? ORDER BY ${DBKeys.KEY_ORDER_ID} ASC LIMIT ?, 1",
+        // getChapterIndex(novelId, translatorSourceName)
+        "SELECT ${DBKeys.KEY_ORDER_ID} FROM ${DBKeys.TABLE_WEB_PAGE} WHERE ${DBKeys.KEY_NOVEL_ID} = ? AND ${DBKeys.KEY_TRANSLATOR_SOURCE_NAME} = ? ORDER BY ${DBKeys.KEY_ORDER_ID} ASC",
+        // getWebPage(chapterIndex, position)
+        "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE} WHERE ${DBKeys.KEY_NOVEL_ID} = ? AND ${DBKeys.KEY_ORDER_ID} = ? ORDER BY ${DBKeys.KEY_ORDER_ID} ASC LIMIT ?, 1",
+        // getWebPageSettingsByRedirectedUrl(redirectUrl)
+        "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE_SETTINGS} WHERE ${DBKeys.KEY_REDIRECT_URL} = ?",
+        // getAllWebPageSettings(novelId)
+        "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE_SETTINGS} WHERE ${DBKeys.KEY_NOVEL_ID} = ?",
+        // getDownloadItemInQueue()
+        "SELECT * FROM ${DBKeys.TABLE_DOWNLOAD} WHERE ${DBKeys.KEY_STATUS} = ${Download.STATUS_IN_QUEUE} LIMIT 1",
+        // getDownloadItemInQueue(novelId)
+        "SELECT * FROM ${DBKeys.TABLE_DOWNLOAD} WHERE ${DBKeys.KEY_STATUS} = ${Download.STATUS_IN_QUEUE} AND ${DBKeys.KEY_NOVEL_ID} = ? LIMIT 1",
+        // getAllDownloadsForNovel(novelId)
+        "SELECT * FROM ${DBKeys.TABLE_DOWNLOAD} WHERE ${DBKeys.KEY_NOVEL_ID} = ?",
+        // hasDownloadsInQueue(novelId)
+        "SELECT COUNT(*) FROM ${DBKeys.TABLE_DOWNLOAD} WHERE ${DBKeys.KEY_NOVEL_ID} = ? AND ${DBKeys.KEY_STATUS} = ${Download.STATUS_IN_QUEUE} LIMIT 1",
+        // getRecentHistory(limit, before)
+        "SELECT ${DBKeys.KEY_VIEWED_AT}, ${DBKeys.KEY_SNAPSHOT} FROM ${DBKeys.TABLE_RECENT_HISTORY} WHERE ${DBKeys.KEY_VIEWED_AT} < ? ORDER BY ${DBKeys.KEY_VIEWED_AT} DESC LIMIT ?",
+    )
+
+    @Before
+    fun setUp() {
+        context.deleteDatabase(DATABASE_NAME)
+        dbHelper = DBHelper.newInstance(context, DATABASE_NAME)
+    }
+
+    @After
+    fun tearDown() {
+        dbHelper.close()
+        context.deleteDatabase(DATABASE_NAME)
+    }
+
+    @Test
+    fun hotQueriesUseIndexes() {
+        val failures = hotQueries.mapNotNull { query ->
+            val plan = queryPlan(query)
+            val bad = plan.filter { it.startsWith("SCAN") || it.contains("TEMP B-TREE") }
+            if (bad.isEmpty()) null else "$query\n    ${plan.joinToString("\n    ")}"
+        }
+        assertTrue("Queries not using an index:\n${failures.joinToString("\n")}", failures.isEmpty())
+    }
+
+    private fun queryPlan(query: String): List<String> {
+        val args = Array(query.count { it == '?' }) { "1" }
+        val plan = ArrayList<String>()
+        dbHelper.readableDatabase.rawQuery("EXPLAIN QUERY PLAN $query", args).use { cursor ->
+            val detail = cursor.getColumnIndexOrThrow("detail")
+            while (cursor.moveToNext()) plan.add(cursor.getString(detail))
+        }
+        return plan
+    }
+}
@@ -1,8 +1,6 @@
 package io.github.gmathi.novellibrary
 
 import android.app.Application
-import android.os.Handler
-import android.os.Looper
 import com.google.firebase.analytics.ktx.analytics
 import com.google.firebase.ktx.Firebase
 import com.google.gson.Gson
@@ -11,8 +9,18 @@ import io.github.gmathi.novellibrary.extension.ExtensionManager
 import io.github.gmathi.novellibrary.model.source.SourceManager
 import io.github.gmathi.novellibrary.network.NetworkHelper
 import io.github.gmathi.novellibrary.model.preference.DataCenter
+import io.github.gmathi.novellibrary.service.ai_tts.AiTtsModelManager
+import io.github.gmathi.novellibrary.service.cache.ChapterTextCache
+import io.github.gmathi.novellibrary.service.cover.CoverStore
+import io.github.gmathi.novellibrary.service.cover.WebpThumbnailer
+import io.github.gmathi.novellibrary.util.Constants
+import io.github.gmathi.novellibrary.util.trace.NoOpTracer
+import io.github.gmathi.novellibrary.util.trace.RecordingTracer
+import io.github.gmathi.novellibrary.util.trace.Tracer
 import kotlinx.serialization.json.Json
+import uy.kohesive.injekt.Injekt
 import uy.kohesive.injekt.api.*
+import java.io.File
 
 class AppModule(val app: Application) : InjektModule {
 
@@ -22,20 +30,27 @@ class AppModule(val app: Application) : InjektModule {
         addSingletonFactory { DataCenter(app) }
         addSingletonFactory { NetworkHelper(app) }
 //        addSingletonFactory { JsoupNetworkHelper(app) }
-        addSingletonFactory { SourceManager(app).also { get<ExtensionManager>().init(it) } }
+        // The extensions are loaded by a deferred startup stage, see NovelLibraryApplication
+        addSingletonFactory { SourceManager(app) }
         addSingletonFactory { ExtensionManager(app) }
         addSingletonFactory { Firebase.analytics }
+        addSingletonFactory { ChapterTextCache() }
+        addSingletonFactory { AiTtsModelManager(app) }
+        // Covers are kept on disk by the store, they skip the HTTP cache
+        addSingletonFactory {
+            CoverStore(
+                File(app.filesDir, Constants.COVERS_DIR),
+                Injekt.get<NetworkHelper>().cloudflareClient.newBuilder().cache(null).build(),
+                WebpThumbnailer(app.resources.displayMetrics.density)
+            )
+        }
+
+        // Release builds record traces only in developer mode (see ChaptersPagerActivity), from the next start on
+        addSingletonFactory<Tracer> {
+            if (BuildConfig.DEBUG || Injekt.get<DataCenter>().isDeveloper) RecordingTracer() else NoOpTracer
+        }
 
         addSingletonFactory { Gson() }
         addSingletonFactory { Json { ignoreUnknownKeys = true } }
-
-        // Asynchronously init expensive components for a faster cold start
-        Handler(Looper.getMainLooper()).post {
-            get<DBHelper>()
-            get<DataCenter>()
-            get<NetworkHelper>()
-//            get<JsoupNetworkHelper>()
-            get<SourceManager>()
-        }
     }
 }
\ No newline at end of file
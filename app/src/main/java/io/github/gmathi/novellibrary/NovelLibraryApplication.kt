@@ -7,6 +7,8 @@ import android.webkit.WebView
 import androidx.appcompat.app.AppCompatDelegate
 import androidx.core.app.NotificationManagerCompat
 import androidx.lifecycle.LifecycleObserver
+import coil.ImageLoader
+import coil.ImageLoaderFactory
 import com.google.android.gms.common.GooglePlayServicesNotAvailableException
 import com.google.android.gms.security.ProviderInstaller
 import com.google.firebase.remoteconfig.FirebaseRemoteConfig
@@ -16,16 +18,22 @@ import com.google.gson.reflect.TypeToken
 import io.github.gmathi.novellibrary.database.DBHelper
 import io.github.gmathi.novellibrary.database.deleteWebPageSettings
 import io.github.gmathi.novellibrary.database.deleteWebPages
+import io.github.gmathi.novellibrary.extension.ExtensionManager
 import io.github.gmathi.novellibrary.model.other.SelectorQuery
+import io.github.gmathi.novellibrary.model.source.SourceManager
 import io.github.gmathi.novellibrary.network.HostNames
 import io.github.gmathi.novellibrary.network.MultiTrustManager
+import io.github.gmathi.novellibrary.network.NetworkHelper
+import io.github.gmathi.novellibrary.service.ai_tts.AiTtsModelManager
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.model.preference.DataCenter
 import io.github.gmathi.novellibrary.util.logging.Logs
 import io.github.gmathi.novellibrary.util.notification.Notifications
+import io.github.gmathi.novellibrary.util.system.AppStartup
 import io.github.gmathi.novellibrary.util.lang.LocaleManager
 import uy.kohesive.injekt.Injekt
 import uy.kohesive.injekt.api.InjektScope
+import uy.kohesive.injekt.api.get
 import uy.kohesive.injekt.injectLazy
 import uy.kohesive.injekt.registry.default.DefaultRegistrar
 import java.io.File
@@ -37,7 +45,7 @@ import javax.net.ssl.HttpsURLConnection
 import javax.net.ssl.SSLContext
 
 
-open class NovelLibraryApplication : Application(), LifecycleObserver {
+open class NovelLibraryApplication : Application(), LifecycleObserver, ImageLoaderFactory {
     companion object {
         private const val TAG = "NovelLibraryApplication"
     }
@@ -49,7 +57,6 @@ open class NovelLibraryApplication : Application(), LifecycleObserver {
         Injekt.importModule(AppModule(this))
 
         AppCompatDelegate.setCompatVectorFromResourcesEnabled(true)
-        cleanupDatabase()
 
         val imagesDir = File(filesDir, "images")
         if (!imagesDir.exists())
@@ -57,24 +64,62 @@ open class NovelLibraryApplication : Application(), LifecycleObserver {
 
         val dataCenter: DataCenter by injectLazy()
 
-        setPreferences(dataCenter)
+        AppStartup.critical("preferences") { setPreferences(dataCenter) }
 
-        try {
-            enableSSLSocket()
-        } catch (e: Exception) {
-            Logs.error(TAG, "enableSSLSocket(): ${e.localizedMessage}", e)
-        }
+        AppStartup.critical("security") {
+            try {
+                enableSSLSocket()
+            } catch (e: Exception) {
+                Logs.error(TAG, "enableSSLSocket(): ${e.localizedMessage}", e)
+            }
 
-        //BugFix for <5.0 devices
-        //https://stackoverflow.com/questions/29916962/javax-net-ssl-sslhandshakeexception-javax-net-ssl-sslprotocolexception-ssl-han
-        updateAndroidSecurityProvider()
+            //BugFix for <5.0 devices
+            //https://stackoverflow.com/questions/29916962/javax-net-ssl-sslhandshakeexception-javax-net-ssl-sslprotocolexception-ssl-han
+            updateAndroidSecurityProvider()
+        }
 
         if (BuildConfig.DEBUG) {
             WebView.setWebContentsDebuggingEnabled(true)
         }
 
-        setRemoteConfig(dataCenter)
         setupNotificationChannels()
+        startDeferredStages(dataCenter)
+    }
+
+    /**
+     * Everything the first screen can do without: opening (and upgrading) the database, loading the extensions and
+     * the rest run in the background, so a cold start doesn't wait for them.
+     */
+    private fun startDeferredStages(dataCenter: DataCenter) {
+        val database = AppStartup.deferred("database") { Injekt.get<DBHelper>().writableDatabase }
+        AppStartup.deferred("database-cleanup", database) { cleanupDatabase() }
+        AppStartup.deferred("network") { Injekt.get<NetworkHelper>() }
+        AppStartup.deferred("extensions") {
+            Injekt.get<ExtensionManager>().init(Injekt.get<SourceManager>())
+        }
+        AppStartup.deferred("remote-config") { setRemoteConfig(dataCenter) }
+        AppStartup.deferred("ai-tts") { prepareAiTts(dataCenter) }
+    }
+
+    /**
+     * Coil's singleton loader, used by the image views and composables, is the one of [NetworkHelper].
+     */
+    override fun newImageLoader(): ImageLoader = Injekt.get<NetworkHelper>().imageLoader
+
+    override fun onTrimMemory(level: Int) {
+        super.onTrimMemory(level)
+        val modelManager: AiTtsModelManager by injectLazy()
+        modelManager.onTrimMemory(level)
+    }
+
+    /**
+     * Unpacks the AI TTS data after an install or update, so the first read-aloud doesn't have to.
+     */
+    private fun prepareAiTts(dataCenter: DataCenter) {
+        if (!dataCenter.useAiTts) return
+        val modelManager: AiTtsModelManager by injectLazy()
+        if (!modelManager.isNativelySupported) return
+        modelManager.prepareEspeakData()
     }
 
     private fun cleanupDatabase() {
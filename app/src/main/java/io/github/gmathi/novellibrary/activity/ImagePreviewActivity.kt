@@ -3,7 +3,7 @@ package io.github.gmathi.novellibrary.activity
 import android.os.Bundle
 import android.view.View
 import androidx.core.content.ContextCompat
-import com.bumptech.glide.Glide
+import coil.load
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.databinding.ActivityImagePreviewBinding
 import io.github.gmathi.novellibrary.util.Constants.FILE_PROTOCOL
@@ -31,9 +31,9 @@ class ImagePreviewActivity : BaseActivity() {
         val filePath = intent.getStringExtra("filePath")
 
         if (networkHelper.isConnectedToNetwork() && url != null)
-            Glide.with(this).load(url).into(binding.previewImageView)
+            binding.previewImageView.load(url)
         else if (filePath != null)
-            Glide.with(this).load(File(filePath.replace(FILE_PROTOCOL, ""))).into(binding.previewImageView)
+            binding.previewImageView.load(File(filePath.replace(FILE_PROTOCOL, "")))
     }
 
 }
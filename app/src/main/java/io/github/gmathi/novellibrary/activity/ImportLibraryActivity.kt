@@ -11,23 +11,28 @@ import androidx.appcompat.view.ActionMode
 import androidx.core.content.ContextCompat
 import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.DividerItemDecoration
+import androidx.work.ExistingWorkPolicy
+import androidx.work.WorkManager
 import com.tingyik90.snackprogressbar.SnackProgressBar
 import com.tingyik90.snackprogressbar.SnackProgressBarManager
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.adapter.GenericAdapter
+import io.github.gmathi.novellibrary.database.addToImportJournal
+import io.github.gmathi.novellibrary.database.clearFinishedImports
+import io.github.gmathi.novellibrary.database.clearImportJournal
+import io.github.gmathi.novellibrary.database.getImportJournal
 import io.github.gmathi.novellibrary.database.getNovelByUrl
-import io.github.gmathi.novellibrary.database.insertNovel
 import io.github.gmathi.novellibrary.databinding.ActivityImportLibraryBinding
 import io.github.gmathi.novellibrary.databinding.ListitemImportListBinding
 import io.github.gmathi.novellibrary.extensions.showEmpty
 import io.github.gmathi.novellibrary.extensions.showError
 import io.github.gmathi.novellibrary.extensions.showLoading
-import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.model.other.ImportListItem
 import io.github.gmathi.novellibrary.network.HostNames
 import io.github.gmathi.novellibrary.network.NetworkHelper
 import io.github.gmathi.novellibrary.network.POST
-import io.github.gmathi.novellibrary.util.Constants
+import io.github.gmathi.novellibrary.service.library_import.ImportEntry
+import io.github.gmathi.novellibrary.service.library_import.ImportStatus
 import io.github.gmathi.novellibrary.util.error.Exceptions.NETWORK_ERROR
 import io.github.gmathi.novellibrary.util.Utils
 import io.github.gmathi.novellibrary.util.network.safeExecute
@@ -35,8 +40,9 @@ import io.github.gmathi.novellibrary.util.system.toast
 import io.github.gmathi.novellibrary.util.view.CustomDividerItemDecoration
 import io.github.gmathi.novellibrary.util.view.extensions.applyFont
 import io.github.gmathi.novellibrary.util.view.setDefaultsNoAnimation
+import io.github.gmathi.novellibrary.worker.LibraryImportWorker
+import io.github.gmathi.novellibrary.worker.libraryImportWorkRequest
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.Job
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 import okhttp3.FormBody
@@ -46,7 +52,6 @@ import org.jsoup.Jsoup
 import org.jsoup.nodes.Document
 import uy.kohesive.injekt.injectLazy
 import java.net.URL
-import java.util.concurrent.atomic.AtomicBoolean
 
 
 class ImportLibraryActivity : BaseActivity(), GenericAdapter.Listener<ImportListItem>, ActionMode.Callback {
@@ -59,8 +64,13 @@ class ImportLibraryActivity : BaseActivity(), GenericAdapter.Listener<ImportList
 
     private var updateSet: HashSet<ImportListItem> = HashSet()
     private var actionMode: ActionMode? = null
-    private var job: Job? = null
-    private val isImporting: AtomicBoolean = AtomicBoolean(false)
+
+    /**
+     * The import journal by novel url, to show how far the import of each novel got.
+     */
+    private var importEntries: Map<String, ImportEntry> = emptyMap()
+    private var snackProgressBarManager: SnackProgressBarManager? = null
+    private var snackProgressBar: SnackProgressBar? = null
 
     private lateinit var binding: ActivityImportLibraryBinding
 
@@ -73,6 +83,7 @@ class ImportLibraryActivity : BaseActivity(), GenericAdapter.Listener<ImportList
         setSupportActionBar(binding.toolbar)
         supportActionBar?.setDisplayHomeAsUpEnabled(true)
         setRecyclerView()
+        observeImport()
 
 
         //From Browser or any other Application which is sending the url for reading list
@@ -203,11 +214,18 @@ class ImportLibraryActivity : BaseActivity(), GenericAdapter.Listener<ImportList
             else removeFromUpdateSet(item)
         }
 
-        if (item.isAlreadyInLibrary) {
+        val importEntry = importEntries[item.novelUrl]
+        if (item.isAlreadyInLibrary || importEntry?.status?.isImported == true || importEntry?.status == ImportStatus.SKIPPED) {
             binding.checkbox.visibility = View.GONE
             binding.title.setTextColor(ContextCompat.getColor(this@ImportLibraryActivity, R.color.Lime))
             binding.subtitle.applyFont(assets).text = getString(R.string.already_in_library)
+        } else if (importEntry?.status == ImportStatus.PENDING) {
+            binding.checkbox.visibility = View.GONE
+            binding.title.setTextColor(ContextCompat.getColor(this@ImportLibraryActivity, R.color.White))
+            binding.subtitle.applyFont(assets).text = getString(R.string.import_pending)
         } else {
+            if (importEntry?.status == ImportStatus.FAILED)
+                binding.subtitle.applyFont(assets).text = getString(R.string.import_failed, importEntry.error ?: "")
             binding.title.setTextColor(ContextCompat.getColor(this@ImportLibraryActivity, R.color.White))
             binding.checkbox.visibility = View.VISIBLE
         }
@@ -228,7 +246,8 @@ class ImportLibraryActivity : BaseActivity(), GenericAdapter.Listener<ImportList
 
     private fun selectAll() {
         adapter.items.forEach {
-            if (!it.isAlreadyInLibrary) addToUpdateSet(it)
+            if (!it.isAlreadyInLibrary && importEntries[it.novelUrl].let { entry -> entry == null || entry.status == ImportStatus.FAILED })
+                addToUpdateSet(it)
         }
         adapter.notifyItemRangeChanged(0, adapter.items.size)
     }
@@ -294,62 +313,82 @@ class ImportLibraryActivity : BaseActivity(), GenericAdapter.Listener<ImportList
 //endregion
 
 
-    @SuppressLint("NotifyDataSetChanged")
+    /**
+     * Adds the selected novels to the import journal and starts the import work, or appends it to the one running.
+     */
     private fun startImport() {
-        if (isImporting.get()) {
-            return
-        }
-        isImporting.set(true)
-
         val novelsToImport = ArrayList(updateSet)
         actionMode?.finish()
+        if (novelsToImport.isEmpty()) return
 
-        val snackProgressBarManager = Utils.createSnackProgressBarManager(findViewById(android.R.id.content), this)
-        val snackProgressBar = SnackProgressBar(
-            SnackProgressBar.TYPE_HORIZONTAL,
-            getString(R.string.importing, getString(R.string.please_wait))
-        ).setAction(getString(R.string.cancel), object : SnackProgressBar.OnActionClickListener {
-                @SuppressLint("NotifyDataSetChanged")
-                override fun onActionClick() {
-                    run {
-                        this@ImportLibraryActivity.job?.cancel()
-                        this@ImportLibraryActivity.adapter.notifyDataSetChanged()
-                        snackProgressBarManager.disable()
-                    }
-                }
-            }).setProgressMax(novelsToImport.count())
-        snackProgressBarManager.show(snackProgressBar, SnackProgressBarManager.LENGTH_INDEFINITE)
-
-        job = lifecycleScope.launch {
-            var progressCnt: Int = 0
-            novelsToImport.asSequence().forEach {
-                snackProgressBarManager.updateTo(snackProgressBar.setMessage(getString(R.string.importing, it.novelName)))
-                try {
-                    withContext(Dispatchers.IO) { importNovelToLibrary(it) }
-                    it.isAlreadyInLibrary = true
-                } catch (e: Exception) {
-                    //Do Nothing
-                }
-                snackProgressBarManager.setProgress(++progressCnt)
+        lifecycleScope.launch {
+            withContext(Dispatchers.IO) {
+                dbHelper.clearFinishedImports()
+                dbHelper.addToImportJournal(novelsToImport.map { ImportEntry(it.novelUrl, it.novelName, it.novelImageUrl) })
             }
-            adapter.notifyDataSetChanged()
-            snackProgressBarManager.disable()
-            isImporting.set(false)
+            WorkManager.getInstance(applicationContext)
+                .enqueueUniqueWork(LibraryImportWorker.UNIQUE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, libraryImportWorkRequest())
+            refreshImportEntries()
         }
     }
 
-    private suspend fun importNovelToLibrary(importListItem: ImportListItem) {
-        val novel = Novel(importListItem.novelName, importListItem.novelUrl, Constants.SourceId.NOVEL_UPDATES)
-        sourceManager.get(Constants.SourceId.NOVEL_UPDATES)?.getNovelDetails(novel)?.let { dbHelper.insertNovel(it) }
+    /**
+     * Shows the progress of the import work, which goes on when the activity is closed.
+     */
+    private fun observeImport() {
+        WorkManager.getInstance(applicationContext).getWorkInfosForUniqueWorkLiveData(LibraryImportWorker.UNIQUE_WORK_NAME).observe(this) { infos ->
+            val info = infos?.firstOrNull { !it.state.isFinished }
+            if (info == null) {
+                snackProgressBarManager?.disable()
+                snackProgressBarManager = null
+                snackProgressBar = null
+            } else {
+                val total = info.progress.getInt(LibraryImportWorker.KEY_TOTAL, 0)
+                val done = info.progress.getInt(LibraryImportWorker.KEY_IMPORTED, 0) +
+                        info.progress.getInt(LibraryImportWorker.KEY_SKIPPED, 0) +
+                        info.progress.getInt(LibraryImportWorker.KEY_FAILED, 0)
+                showImportProgress(total, done)
+            }
+            refreshImportEntries()
+        }
     }
 
-    override fun onBackPressed() {
-        if (isImporting.get()) {
+    private fun showImportProgress(total: Int, done: Int) {
+        val message = getString(R.string.importing, "$done/$total")
+        val manager = snackProgressBarManager
+        val bar = snackProgressBar
+        if (manager != null && bar != null) {
+            manager.updateTo(bar.setProgressMax(maxOf(total, 1)).setMessage(message))
+            manager.setProgress(done)
             return
         }
 
-        super.onBackPressed()
+        val newManager = Utils.createSnackProgressBarManager(findViewById(android.R.id.content), this)
+        val snackProgressBar = SnackProgressBar(SnackProgressBar.TYPE_HORIZONTAL, message)
+            .setAction(getString(R.string.cancel), object : SnackProgressBar.OnActionClickListener {
+                override fun onActionClick() {
+                    WorkManager.getInstance(applicationContext).cancelUniqueWork(LibraryImportWorker.UNIQUE_WORK_NAME)
+                    lifecycleScope.launch {
+                        withContext(Dispatchers.IO) { dbHelper.clearImportJournal() }
+                        refreshImportEntries()
+                    }
+                }
+            }).setProgressMax(maxOf(total, 1))
+        newManager.show(snackProgressBar, SnackProgressBarManager.LENGTH_INDEFINITE)
+        newManager.setProgress(done)
+        snackProgressBarManager = newManager
+        this.snackProgressBar = snackProgressBar
     }
-}
-
 
+    @SuppressLint("NotifyDataSetChanged")
+    private fun refreshImportEntries() {
+        lifecycleScope.launch {
+            val entries = withContext(Dispatchers.IO) { dbHelper.getImportJournal() }
+            importEntries = entries.associateBy { it.novelUrl }
+            adapter.items.forEach { item ->
+                if (importEntries[item.novelUrl]?.status?.isImported == true) item.isAlreadyInLibrary = true
+            }
+            adapter.notifyDataSetChanged()
+        }
+    }
+}
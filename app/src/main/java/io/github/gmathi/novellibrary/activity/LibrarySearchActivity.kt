@@ -19,6 +19,7 @@ import com.afollestad.materialdialogs.lifecycle.lifecycleOwner
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.compose.search.*
 import io.github.gmathi.novellibrary.database.getAllNovels
+import io.github.gmathi.novellibrary.database.searchNovels
 import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.lang.addToLibrarySearchHistory
@@ -26,9 +27,16 @@ import io.github.gmathi.novellibrary.util.system.hideSoftKeyboard
 import io.github.gmathi.novellibrary.util.system.startChaptersActivity
 import io.github.gmathi.novellibrary.util.system.startNovelDetailsActivity
 import io.github.gmathi.novellibrary.util.system.startReaderDBPagerActivity
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.withContext
 
 class LibrarySearchActivity : BaseActivity() {
 
+    companion object {
+        const val SEARCH_DEBOUNCE_MILLIS = 150L
+    }
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         setContent {
@@ -42,17 +50,24 @@ class LibrarySearchActivity : BaseActivity() {
     private fun LibrarySearchScreen() {
         var searchResults by remember { mutableStateOf<List<Novel>>(emptyList()) }
         var allNovels by remember { mutableStateOf<List<Novel>>(emptyList()) }
+        var searchTerm by remember { mutableStateOf("") }
         
         val searchState = rememberPersistentSearchState()
-        var searchHistory by remember { mutableStateOf(dataCenter.loadLibrarySearchHistory()) }
+        val searchHistory by remember { dataCenter.librarySearchHistory.asFlow() }
+            .collectAsState(initial = dataCenter.librarySearchHistory.get())
         val suggestionBuilder = remember(searchHistory) {
             HistorySearchSuggestionsBuilder(searchHistory)
         }
 
-        // Load all novels
-        LaunchedEffect(Unit) {
-            allNovels = dbHelper.getAllNovels()
-            searchResults = allNovels
+        // Search the full-text index as the term changes. A new term cancels the pending search.
+        LaunchedEffect(searchTerm) {
+            if (searchTerm.isBlank()) {
+                if (allNovels.isEmpty()) allNovels = withContext(Dispatchers.IO) { dbHelper.getAllNovels() }
+                searchResults = allNovels
+            } else {
+                delay(SEARCH_DEBOUNCE_MILLIS)
+                searchResults = withContext(Dispatchers.IO) { dbHelper.searchNovels(searchTerm) }
+            }
         }
 
         Surface(
@@ -75,17 +90,8 @@ class LibrarySearchActivity : BaseActivity() {
                         },
                         onSearch = { query ->
                             query.addToLibrarySearchHistory()
-                            searchHistory = dataCenter.loadLibrarySearchHistory()
-                        },
-                        onSearchTermChanged = { term ->
-                            searchResults = if (term.isEmpty()) {
-                                allNovels
-                            } else {
-                                allNovels.filter { novel ->
-                                    novel.name.contains(term, ignoreCase = true)
-                                }
-                            }
                         },
+                        onSearchTermChanged = { term -> searchTerm = term },
                         suggestionBuilder = suggestionBuilder,
                         elevation = 4
                     )
@@ -26,6 +26,7 @@ import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.compose.search.*
 import io.github.gmathi.novellibrary.database.getAllNovelSections
 import io.github.gmathi.novellibrary.database.getAllNovels
+import io.github.gmathi.novellibrary.database.searchNovels
 import io.github.gmathi.novellibrary.database.updateNovelSectionId
 import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.model.other.NovelSectionEvent
@@ -36,6 +37,9 @@ import io.github.gmathi.novellibrary.util.system.hideSoftKeyboard
 import io.github.gmathi.novellibrary.util.system.startChaptersActivity
 import io.github.gmathi.novellibrary.util.system.startNovelDetailsActivity
 import io.github.gmathi.novellibrary.util.system.startReaderDBPagerActivity
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.withContext
 import org.greenrobot.eventbus.EventBus
 
 /**
@@ -88,6 +92,7 @@ fun LibrarySearchScreen(
     
     var searchResults by remember { mutableStateOf<List<Novel>>(emptyList()) }
     var allNovels by remember { mutableStateOf<List<Novel>>(emptyList()) }
+    var searchTerm by remember { mutableStateOf("") }
     
     val searchState = rememberPersistentSearchState()
     val searchHistory = remember { 
@@ -97,11 +102,15 @@ fun LibrarySearchScreen(
         HistorySearchSuggestionsBuilder(searchHistory)
     }
 
-    // Load all novels
-    LaunchedEffect(Unit) {
-        activity?.let {
-            allNovels = it.dbHelper.getAllNovels()
+    // Search the full-text index as the term changes. A new term cancels the pending search.
+    LaunchedEffect(searchTerm) {
+        val dbHelper = activity?.dbHelper ?: return@LaunchedEffect
+        if (searchTerm.isBlank()) {
+            if (allNovels.isEmpty()) allNovels = withContext(Dispatchers.IO) { dbHelper.getAllNovels() }
             searchResults = allNovels
+        } else {
+            delay(LibrarySearchActivity.SEARCH_DEBOUNCE_MILLIS)
+            searchResults = withContext(Dispatchers.IO) { dbHelper.searchNovels(searchTerm) }
         }
     }
 
@@ -126,15 +135,7 @@ fun LibrarySearchScreen(
                     onSearch = { query ->
                         query.addToLibrarySearchHistory()
                     },
-                    onSearchTermChanged = { term ->
-                        searchResults = if (term.isEmpty()) {
-                            allNovels
-                        } else {
-                            allNovels.filter { novel ->
-                                novel.name.contains(term, ignoreCase = true)
-                            }
-                        }
-                    },
+                    onSearchTermChanged = { term -> searchTerm = term },
                     suggestionBuilder = suggestionBuilder,
                     elevation = 4
                 )
@@ -13,7 +13,7 @@ import androidx.fragment.app.Fragment
 import androidx.fragment.app.FragmentTransaction
 import androidx.fragment.app.commit
 import com.afollestad.materialdialogs.MaterialDialog
-import com.bumptech.glide.Glide
+import coil.load
 import com.firebase.ui.auth.IdpResponse
 import com.google.android.material.navigation.NavigationView
 import com.google.android.material.snackbar.Snackbar
@@ -244,10 +244,7 @@ class NavDrawerActivity : BaseActivity(), NavigationView.OnNavigationItemSelecte
     private fun setNewImageInNavigationHeaderView() {
         val randomNumber = Random(Date().time).nextInt(12) + 1 //since we have only 12 images to rotate from.
         val uri = Uri.parse("file:///android_asset/album_arts/$randomNumber.png")
-        Glide.with(this)
-            .asBitmap()
-            .load(uri)
-            .into(newIconsImageView)
+        newIconsImageView.load(uri)
     }
 
 
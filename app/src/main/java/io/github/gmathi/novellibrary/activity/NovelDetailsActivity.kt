@@ -22,9 +22,7 @@ import androidx.core.content.ContextCompat
 import androidx.lifecycle.lifecycleScope
 import com.afollestad.materialdialogs.MaterialDialog
 import com.afollestad.materialdialogs.lifecycle.lifecycleOwner
-import com.bumptech.glide.Glide
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
+import coil.load
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.database.*
 import io.github.gmathi.novellibrary.databinding.ActivityNovelDetailsBinding
@@ -32,16 +30,18 @@ import io.github.gmathi.novellibrary.databinding.ContentNovelDetailsBinding
 import io.github.gmathi.novellibrary.extensions.*
 import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.network.HostNames
+import io.github.gmathi.novellibrary.service.cover.CoverSize
+import io.github.gmathi.novellibrary.service.cover.CoverStore
 import io.github.gmathi.novellibrary.util.*
 import io.github.gmathi.novellibrary.util.error.Exceptions
 import io.github.gmathi.novellibrary.util.logging.Logs
-import io.github.gmathi.novellibrary.util.lang.getGlideUrl
 import io.github.gmathi.novellibrary.util.system.*
 import io.github.gmathi.novellibrary.util.view.*
 import io.github.gmathi.novellibrary.util.view.extensions.applyFont
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import uy.kohesive.injekt.injectLazy
 import kotlin.math.min
 
 
@@ -58,6 +58,8 @@ class NovelDetailsActivity : BaseActivity(), TextViewLinkHandler.OnClickListener
 
     private var retryCounter = 0
 
+    private val coverStore: CoverStore by injectLazy()
+
     private val cloudflareResolverLauncher = registerForActivityResult(
         ActivityResultContracts.StartActivityForResult()
     ) { result ->
@@ -113,14 +115,14 @@ class NovelDetailsActivity : BaseActivity(), TextViewLinkHandler.OnClickListener
         //Download novel details
         lifecycleScope.launch {
             try {
-                val source = sourceManager.get(novel.sourceId) ?: throw Exception(Exceptions.MISSING_SOURCE_ID)
-                val totalStartTime = System.currentTimeMillis()
+                val source = sourceManager.awaitSource(novel.sourceId) ?: throw Exception(Exceptions.MISSING_SOURCE_ID)
                 novel = withContext(Dispatchers.IO) { source.getNovelDetails(novel) }
-                val totalElapsed = System.currentTimeMillis() - totalStartTime
-                Logs.info(TAG, "⏱ [NovelDetails] Total load time for '${novel.name}': ${totalElapsed}ms")
 
                 //Update the novel in library with the new info
-                if (novel.id != -1L) withContext(Dispatchers.IO) { dbHelper.updateNovel(novel) }
+                if (novel.id != -1L) {
+                    withContext(Dispatchers.IO) { dbHelper.updateNovel(novel) }
+                    coverStore.archiveAsync(novel.id, novel.imageUrl)
+                }
                 addNovelToHistory()
                 setupViews()
                 contentBinding.swipeRefreshLayout.isRefreshing = false
@@ -216,7 +218,7 @@ class NovelDetailsActivity : BaseActivity(), TextViewLinkHandler.OnClickListener
 
     private fun setNovelImage() {
         if (!novel.imageUrl.isNullOrBlank()) {
-            Glide.with(this).load(novel.imageUrl?.getGlideUrl()).into(contentBinding.novelDetailsImage)
+            contentBinding.novelDetailsImage.load(coverStore.imageOf(novel.id, novel.imageUrl, CoverSize.DETAILS))
             contentBinding.novelDetailsImage.setOnClickListener {
                 startImagePreviewActivity(
                     novel.imageUrl,
@@ -396,16 +398,13 @@ class NovelDetailsActivity : BaseActivity(), TextViewLinkHandler.OnClickListener
     }
 
     private fun addNovelToHistory() {
-        try {
-            var history = dbHelper.getLargePreference(Constants.LargePreferenceKeys.RVN_HISTORY) ?: "[]"
-            var historyList: ArrayList<Novel> = Gson().fromJson(history, object : TypeToken<ArrayList<Novel>>() {}.type)
-            historyList.removeAll { novel.name == it.name }
-            if (historyList.size > 99) historyList = ArrayList(historyList.take(99))
-            historyList.add(novel)
-            history = Gson().toJson(historyList)
-            dbHelper.createOrUpdateLargePreference(Constants.LargePreferenceKeys.RVN_HISTORY, history)
-        } catch (e: Exception) {
-            dbHelper.deleteLargePreference(Constants.LargePreferenceKeys.RVN_HISTORY)
+        val novel = novel
+        lifecycleScope.launch(Dispatchers.IO) {
+            try {
+                dbHelper.addToRecentHistory(novel)
+            } catch (e: Exception) {
+                Logs.error(TAG, "Unable to add ${novel.url} to the history", e)
+            }
         }
     }
 }
@@ -12,8 +12,8 @@ import android.view.View
 import androidx.annotation.UiThread
 import com.afollestad.materialdialogs.MaterialDialog
 import com.afollestad.materialdialogs.lifecycle.lifecycleOwner
-import com.bumptech.glide.Glide
-import com.bumptech.glide.request.RequestOptions
+import coil.load
+import coil.transform.CircleCropTransformation
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.adapter.GenericAdapter
 import io.github.gmathi.novellibrary.database.*
@@ -26,7 +26,6 @@ import io.github.gmathi.novellibrary.model.other.EventType
 import io.github.gmathi.novellibrary.service.download.DownloadListener
 import io.github.gmathi.novellibrary.service.download.DownloadNovelService
 import io.github.gmathi.novellibrary.util.Utils
-import io.github.gmathi.novellibrary.util.lang.getGlideUrl
 import io.github.gmathi.novellibrary.util.view.setDefaultsNoAnimation
 import io.github.gmathi.novellibrary.util.system.startDownloadNovelService
 
@@ -83,10 +82,7 @@ class NovelDownloadsActivity : BaseActivity(), GenericAdapter.Listener<Long>, Do
         val binding = ListitemDownloadQueueOldBinding.bind(itemView)
         val novel = dbHelper.getNovel(novelId = item)
         if (!novel?.imageUrl.isNullOrBlank()) {
-            Glide.with(this)
-                .load(novel!!.imageUrl!!.getGlideUrl())
-                .apply(RequestOptions.circleCropTransform())
-                .into(binding.novelImageView)
+            binding.novelImageView.load(novel!!.imageUrl) { transformations(CircleCropTransformation()) }
         }
         binding.novelTitleTextView.text = novel?.name
         //val downloadedPages = dbHelper.getDownloadedChapterCount(novel!!.id)
@@ -35,6 +35,7 @@ import io.github.gmathi.novellibrary.activity.settings.reader.ReaderSettingsActi
 import io.github.gmathi.novellibrary.adapter.GenericFragmentStatePagerAdapter
 import io.github.gmathi.novellibrary.adapter.WebPageFragmentPageListener
 import io.github.gmathi.novellibrary.compose.reader.ReaderOverlay
+import io.github.gmathi.novellibrary.database.ChapterIndex
 import io.github.gmathi.novellibrary.database.getAllWebPages
 import io.github.gmathi.novellibrary.database.getWebPage
 import io.github.gmathi.novellibrary.database.getWebPageSettingsByRedirectedUrl
@@ -43,6 +44,7 @@ import io.github.gmathi.novellibrary.fragment.WebPageDBFragment
 import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.model.database.WebPage
 import io.github.gmathi.novellibrary.model.other.ReaderSettingsEvent
+import io.github.gmathi.novellibrary.service.ai_tts.AiTtsModelManager
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.Constants.VOLUME_SCROLL_LENGTH_STEP
 import io.github.gmathi.novellibrary.util.Utils
@@ -62,6 +64,7 @@ import io.github.gmathi.novellibrary.util.system.updateNovelBookmark
 import io.github.gmathi.novellibrary.util.system.updateNovelLastRead
 import io.github.gmathi.novellibrary.viewmodel.ReaderViewModel
 import org.greenrobot.eventbus.EventBus
+import uy.kohesive.injekt.injectLazy
 import java.io.File
 import java.util.Random
 
@@ -90,8 +93,11 @@ class ReaderDBPagerActivity :
     private lateinit var adapter: GenericFragmentStatePagerAdapter
     private lateinit var readerViewModel: ReaderViewModel
 
+    private val aiTtsModelManager: AiTtsModelManager by injectLazy()
+
     private var translatorSourceName: String? = null
     private var webPages: List<WebPage> = ArrayList()
+    private lateinit var chapters: ChapterIndex
 
     /** Compose-observable overlay visibility state */
     private val overlayVisible = mutableStateOf(false)
@@ -123,8 +129,15 @@ class ReaderDBPagerActivity :
         } else
             novel = tempNovel
 
+        // Load the AI TTS voice while the user reads, so read-aloud starts without the model load.
+        if (dataCenter.useAiTts) {
+            val aiTtsPreferences = dataCenter.aiTtsPreferences
+            aiTtsModelManager.prewarm(aiTtsPreferences.voiceId, aiTtsPreferences.kokoroSpeakerId, aiTtsPreferences.kokoroLangCode)
+        }
+
         // Get all WebPages & set view pager
         webPages = dbHelper.getAllWebPages(novel.id, translatorSourceName)
+        chapters = ChapterIndex(novel.id, translatorSourceName, LongArray(webPages.size) { webPages[it].orderId })
         if (dataCenter.japSwipe)
             webPages = webPages.reversed()
 
@@ -319,7 +332,12 @@ class ReaderDBPagerActivity :
     fun checkUrl(url: String): Boolean {
         val webPageSettings = dbHelper.getWebPageSettingsByRedirectedUrl(url) ?: return false
         val webPage = dbHelper.getWebPage(webPageSettings.url) ?: return false
-        val index = dbHelper.getAllWebPages(novel.id, translatorSourceName).indexOf(webPage)
+        val position = chapters.positionOf(webPage.orderId)
+        val index = when {
+            position == -1 -> -1
+            dataCenter.japSwipe -> webPages.lastIndex - position
+            else -> position
+        }.takeIf { webPages.getOrNull(it)?.url == webPage.url } ?: webPages.indexOfFirst { it.url == webPage.url }
         return if (index == -1)
             false
         else {
@@ -19,13 +19,13 @@ import uy.kohesive.injekt.injectLazy
 class AiTtsSettingsActivity : ComponentActivity() {
 
     private val dataCenter: DataCenter by injectLazy()
+    private val modelManager: AiTtsModelManager by injectLazy()
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         enableEdgeToEdge()
 
         val prefs = dataCenter.aiTtsPreferences
-        val modelManager = AiTtsModelManager(this)
         Logs.debug("AiTtsSettings", "onCreate: voiceId='${prefs.voiceId}' speechRate=${prefs.speechRate} pitch=${prefs.pitch} keepScreenOn=${prefs.keepScreenOn}")
 
         var speechRate by mutableFloatStateOf(prefs.speechRate)
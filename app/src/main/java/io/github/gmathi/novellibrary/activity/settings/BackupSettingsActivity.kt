@@ -11,6 +11,7 @@ import androidx.activity.OnBackPressedCallback
 import androidx.activity.result.contract.ActivityResultContracts
 import androidx.annotation.DrawableRes
 import androidx.core.content.ContextCompat
+import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.DividerItemDecoration
 import androidx.work.Data
 import androidx.work.ExistingPeriodicWorkPolicy
@@ -33,15 +34,20 @@ import io.github.gmathi.novellibrary.util.Constants.WORK_KEY_RESULT
 import io.github.gmathi.novellibrary.util.Utils
 import io.github.gmathi.novellibrary.util.lang.launchIO
 import io.github.gmathi.novellibrary.util.lang.launchUI
+import io.github.gmathi.novellibrary.util.logging.Logs
 import io.github.gmathi.novellibrary.util.view.CustomDividerItemDecoration
 import io.github.gmathi.novellibrary.util.view.extensions.applyFont
 import io.github.gmathi.novellibrary.util.view.setDefaults
 import io.github.gmathi.novellibrary.worker.BackupWorker
+import io.github.gmathi.novellibrary.worker.RestoreEngine
+import io.github.gmathi.novellibrary.worker.RestoreWorker
 import io.github.gmathi.novellibrary.worker.oneTimeBackupWorkRequest
 import io.github.gmathi.novellibrary.worker.oneTimeRestoreWorkRequest
 import io.github.gmathi.novellibrary.worker.periodicBackupWorkRequest
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.async
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import java.io.File
 import java.util.UUID
 import java.util.concurrent.atomic.AtomicBoolean
@@ -305,11 +311,52 @@ class BackupSettingsActivity : BaseActivity(), GenericAdapter.Listener<String> {
         if (it.resultCode == Activity.RESULT_OK) {
             val uri = it.data?.data
             if (uri != null) {
-                val workRequest: OneTimeWorkRequest = oneTimeRestoreWorkRequest(
-                    uri, simpleText, database, preferences, files
-                )
-                executeWorkRequest(workRequest)
+                if (simpleText) chooseNovelsToRestore(uri) else startRestore(uri)
+            }
+        }
+    }
+
+    /**
+     * Lets the user choose the novels of the backup's novel list to restore, all of them at first.
+     */
+    private fun chooseNovelsToRestore(uri: Uri) {
+        lifecycleScope.launch {
+            val novels = withContext(Dispatchers.IO) {
+                try {
+                    RestoreEngine.readNovelList(applicationContext, uri)
+                } catch (e: Exception) {
+                    Logs.warning(TAG, "Unable to read the novel list of $uri", e)
+                    emptyList()
+                }
+            }
+            // Nothing to choose from, the restore reports what's wrong with the backup
+            if (novels.isEmpty()) {
+                startRestore(uri)
+                return@launch
+            }
+            MaterialDialog(this@BackupSettingsActivity).show {
+                title(R.string.restore_choose_novels)
+                listItemsMultiChoice(items = novels.map { novel -> novel.name }, initialSelection = novels.indices.toList().toIntArray()) { _, which, _ ->
+                    startRestore(uri, if (which.size == novels.size) null else which.map { index -> novels[index].url })
+                }
+                positiveButton(R.string.restore)
+                negativeButton(R.string.cancel)
+            }
+        }
+    }
+
+    /**
+     * @param novelUrls The novels of the novel list to restore, or null for all of them.
+     */
+    private fun startRestore(uri: Uri, novelUrls: List<String>? = null) {
+        lifecycleScope.launch {
+            val novelUrlsFile = novelUrls?.let { urls ->
+                withContext(Dispatchers.IO) { RestoreWorker.writeNovelUrls(applicationContext, urls) }
             }
+            val workRequest: OneTimeWorkRequest = oneTimeRestoreWorkRequest(
+                uri, simpleText, database, preferences, files, novelUrlsFile
+            )
+            executeWorkRequest(workRequest)
         }
     }
 
@@ -114,11 +114,13 @@ class MainSettingsActivity : BaseActivity(), GenericAdapter.Listener<String> {
     //region OptionsMenu
     override fun onCreateOptionsMenu(menu: Menu?): Boolean {
         menuInflater.inflate(R.menu.menu_settings, menu)
+        menu?.findItem(R.id.action_trace_stats)?.isVisible = BuildConfig.DEBUG || dataCenter.isDeveloper
         return super.onCreateOptionsMenu(menu)
     }
 
     override fun onOptionsItemSelected(item: MenuItem): Boolean {
         if (item.itemId == android.R.id.home) finish()
+        if (item.itemId == R.id.action_trace_stats) startTraceStatsActivity()
         if (item.itemId == R.id.action_report_page) {
             val systemInfo = systemInfo()
             MaterialDialog(this).show {
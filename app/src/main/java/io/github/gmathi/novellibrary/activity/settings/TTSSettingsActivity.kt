@@ -19,8 +19,6 @@ import com.afollestad.materialdialogs.customview.getCustomView
 import com.github.salomonbrys.kotson.fromJson
 import com.google.gson.Gson
 import io.github.gmathi.novellibrary.R
-import io.github.gmathi.novellibrary.model.other.TTSFilter
-import io.github.gmathi.novellibrary.model.other.TTSFilterList
 import io.github.gmathi.novellibrary.model.other.TTSFilterSource
 import io.github.gmathi.novellibrary.model.ui.ListitemSetting
 import io.github.gmathi.novellibrary.service.tts.TTSService
@@ -107,6 +105,17 @@ class TTSSettingsActivity : BaseSettingsActivity<TTSSettingsActivity, TTSSetting
             TTSSetting(R.string.tts_strip_header, R.string.tts_strip_header_description).onBind { _, view, _ ->
                 view.bindSwitch(dataCenter.ttsPreferences.stripHeader) { _, value -> dataCenter.ttsPreferences.stripHeader = value }
             },
+            TTSSetting(R.string.tts_prefetch_chapters, R.string.tts_prefetch_chapters_description).onBind { _, view, _ ->
+                view.currentValue.visibility = View.VISIBLE
+                @SuppressLint("SetTextI18n")
+                view.currentValue.text = dataCenter.ttsPreferences.prefetchChapters.toString()
+                view.root.setOnClickListener {
+                    sliderMenu(view.currentValue, dataCenter.ttsPreferences.prefetchChapters.toFloat(), 0f, 5f, false) { value, closing ->
+                        if (closing) dataCenter.ttsPreferences.prefetchChapters = value.roundToInt()
+                        round(value)
+                    }
+                }
+            },
             TTSSetting(R.string.tts_header_filters, R.string.empty).bindHeader(),
             TTSSetting(R.string.tts_filters, R.string.tts_filters_description).bindChevron { _, _ ->
                 selectFilters()
@@ -255,12 +264,10 @@ class TTSSettingsActivity : BaseSettingsActivity<TTSSettingsActivity, TTSSetting
             customView(R.layout.dialog_checkbox_list, scrollable = true)
             positiveButton(R.string.okay) {
                 if (originalFilters.size != filters.size || !originalFilters.containsAll(filters)) {
-                    dataCenter.ttsPreferences.filters = filters
                     val cache = dataCenter.ttsPreferences.filterCache
+                    dataCenter.ttsPreferences.setFilters(filters, cache)
                     if (!filters.all { id -> cache.containsKey(id) }) {
                         updateFilterSources()
-                    } else {
-                        rebuildEnabledFilters(filters, cache)
                     }
                 }
             }
@@ -314,8 +321,7 @@ class TTSSettingsActivity : BaseSettingsActivity<TTSSettingsActivity, TTSSetting
                         cache[source.id] = Gson().fromJson(it)
                     }
                 }
-                dataCenter.ttsPreferences.filterCache = cache
-                rebuildEnabledFilters(dataCenter.ttsPreferences.filters, cache)
+                dataCenter.ttsPreferences.setFilters(dataCenter.ttsPreferences.filters, cache)
                 withContext(Dispatchers.Main) {
                     dialog.dismiss()
                 }
@@ -323,16 +329,6 @@ class TTSSettingsActivity : BaseSettingsActivity<TTSSettingsActivity, TTSSetting
         }
     }
 
-    private fun rebuildEnabledFilters(filters: List<String>, cache: Map<String, TTSFilterList>) {
-        val list = mutableListOf<TTSFilter>()
-
-        filters.forEach { name ->
-            cache[name]?.let { list.addAll(it.list) }
-        }
-
-        dataCenter.ttsPreferences.filterList = list
-    }
-
     fun sliderMenu(textView: TextView, initVal:Float, min: Float, max: Float, percentage: Boolean = true, callback: (value: Float, closing: Boolean)->Float) {
         var value = initVal
         val dialog = MaterialDialog(this).show {
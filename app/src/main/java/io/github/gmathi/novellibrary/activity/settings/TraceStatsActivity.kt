@@ -0,0 +1,55 @@
+package io.github.gmathi.novellibrary.activity.settings
+
+import android.content.Intent
+import android.os.Bundle
+import androidx.activity.ComponentActivity
+import androidx.activity.compose.setContent
+import androidx.activity.enableEdgeToEdge
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.setValue
+import io.github.gmathi.novellibrary.R
+import io.github.gmathi.novellibrary.compose.developer.TraceStatsScreen
+import io.github.gmathi.novellibrary.compose.theme.NovelLibraryTheme
+import io.github.gmathi.novellibrary.util.trace.NoOpTracer
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import uy.kohesive.injekt.injectLazy
+
+/**
+ * Developer screen showing the p50/p95 of the traced operations, see [Tracer].
+ */
+class TraceStatsActivity : ComponentActivity() {
+
+    private val tracer: Tracer by injectLazy()
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+        enableEdgeToEdge()
+
+        var snapshot by mutableStateOf(tracer.snapshot())
+
+        setContent {
+            NovelLibraryTheme {
+                TraceStatsScreen(
+                    snapshot = snapshot,
+                    isRecording = tracer !== NoOpTracer,
+                    onRefresh = { snapshot = tracer.snapshot() },
+                    onExport = { export() },
+                    onClear = {
+                        tracer.clear()
+                        snapshot = tracer.snapshot()
+                    },
+                    onNavigateBack = { finish() }
+                )
+            }
+        }
+    }
+
+    private fun export() {
+        val intent = Intent(Intent.ACTION_SEND)
+            .setType("application/json")
+            .putExtra(Intent.EXTRA_SUBJECT, getString(R.string.title_activity_trace_stats))
+            .putExtra(Intent.EXTRA_TEXT, tracer.snapshot().toJson())
+        startActivity(Intent.createChooser(intent, getString(R.string.title_activity_trace_stats)))
+    }
+}
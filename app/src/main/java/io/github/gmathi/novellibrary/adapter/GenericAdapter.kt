@@ -1,6 +1,7 @@
 package io.github.gmathi.novellibrary.adapter
 
 import android.annotation.SuppressLint
+import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import android.view.View
 import android.view.ViewGroup
@@ -90,6 +91,28 @@ class GenericAdapter<T>(val items: ArrayList<T>, val layoutResId: Int, val liste
         notifyDataSetChanged()
     }
 
+    /**
+     * Diffs [oldItems], a copy of [items] taken on the main thread, against [newItems]. Rows are the same item when
+     * [sameItem] says so and are rebound when they are no longer equal. Can be called off the main thread.
+     */
+    fun calculateDiff(oldItems: List<T>, newItems: List<T>, sameItem: (T, T) -> Boolean): DiffUtil.DiffResult =
+        DiffUtil.calculateDiff(object : DiffUtil.Callback() {
+            override fun getOldListSize() = oldItems.size
+            override fun getNewListSize() = newItems.size
+            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) = sameItem(oldItems[oldItemPosition], newItems[newItemPosition])
+            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) = oldItems[oldItemPosition] == newItems[newItemPosition]
+        })
+
+    /**
+     * Replaces the items with [newItems], notifying only the changes in [diff], which must have been calculated
+     * against the current items.
+     */
+    fun updateData(newItems: ArrayList<T>, diff: DiffUtil.DiffResult) {
+        items.clear()
+        items.addAll(newItems)
+        diff.dispatchUpdatesTo(this)
+    }
+
     fun addItems(newItems: ArrayList<T>) {
         items.addAll(newItems)
         notifyDataSetChanged()//notifyItemRangeInserted(items.size - newItems.size, items.size)
@@ -463,24 +463,28 @@ open class HtmlCleaner protected constructor() {
             }
         }
 
+        // The queries last put together, and the preference values they were made from
+        private var selectorQueries: List<SelectorQuery> = emptyList()
+        private var selectorQueriesSource: Pair<List<SelectorQuery>, String>? = null
+
         /**
-         * Optimized selector queries with caching
+         * The user's queries, then the downloaded ones, then the defaults. Put together again only when one of the
+         * preferences changed: the downloaded queries are the same instance until then.
          */
+        @Synchronized
         private fun getSelectorQueries(): List<SelectorQuery> {
             val dataCenter: DataCenter by injectLazy()
-            val htmlCleanerSelectorQueries = dataCenter.htmlCleanerSelectorQueries.apply {
-                val userSpecifiedSelectorQueries = dataCenter.userSpecifiedSelectorQueries
-                if (userSpecifiedSelectorQueries.isNotBlank()) {
-                    addAll(
-                        0,
-                        userSpecifiedSelectorQueries.split('\n')
-                            .filter { it.isNotBlank() }
-                            .map { SelectorQuery(it.trim()) }
-                    )
-                }
-                addAll(defaultSelectorQueries)
-            }
-            return htmlCleanerSelectorQueries
+            val htmlCleanerSelectorQueries = dataCenter.htmlCleanerSelectorQueries
+            val userSpecifiedSelectorQueries = dataCenter.userSpecifiedSelectorQueries
+            val source = selectorQueriesSource
+            if (source != null && source.first === htmlCleanerSelectorQueries && source.second == userSpecifiedSelectorQueries)
+                return selectorQueries
+
+            selectorQueries = userSpecifiedSelectorQueries.split('\n')
+                .filter { it.isNotBlank() }
+                .map { SelectorQuery(it.trim()) } + htmlCleanerSelectorQueries + defaultSelectorQueries
+            selectorQueriesSource = htmlCleanerSelectorQueries to userSpecifiedSelectorQueries
+            return selectorQueries
         }
     }
 
@@ -1,27 +1,35 @@
 package io.github.gmathi.novellibrary.compose.common
 
-import android.webkit.CookieManager
 import androidx.compose.foundation.background
 import androidx.compose.foundation.layout.Box
 import androidx.compose.foundation.layout.size
 import androidx.compose.material3.CircularProgressIndicator
 import androidx.compose.material3.MaterialTheme
 import androidx.compose.runtime.Composable
+import androidx.compose.runtime.remember
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.graphics.Shape
 import androidx.compose.ui.layout.ContentScale
 import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.LocalDensity
 import androidx.compose.ui.platform.LocalInspectionMode
 import androidx.compose.ui.unit.Dp
 import androidx.compose.ui.unit.dp
 import coil.compose.SubcomposeAsyncImage
 import coil.request.ImageRequest
-import io.github.gmathi.novellibrary.network.HostNames
-import java.net.URL
+import io.github.gmathi.novellibrary.service.cover.CoverSize
+import io.github.gmathi.novellibrary.service.cover.CoverStore
+import uy.kohesive.injekt.Injekt
+import uy.kohesive.injekt.api.get
 
 /**
- * A reusable composable for loading images from URLs with cookie and header support.
+ * A reusable composable for loading images from URLs. Images go through the app's image loader, which sends the
+ * site cookies and user agent (see [io.github.gmathi.novellibrary.network.NetworkHelper.imageLoader]), and are decoded
+ * at the pixel size of the composable.
+ *
+ * @param novelId When the image is the cover of a library novel, its archived [coverSize] thumbnail is shown instead,
+ * without network access.
  */
 @Composable
 fun URLImage(
@@ -35,6 +43,8 @@ fun URLImage(
     contentScale: ContentScale = ContentScale.Crop,
     showLoadingIndicator: Boolean = true,
     loadingIndicatorSize: Dp = 24.dp,
+    novelId: Long = -1L,
+    coverSize: CoverSize = CoverSize.LIST,
     errorContent: @Composable (() -> Unit)? = null
 ) {
     val actualWidth = width ?: size
@@ -55,29 +65,22 @@ fun URLImage(
         contentAlignment = Alignment.Center
     ) {
         if (!isPreview && !imageUrl.isNullOrBlank()) {
-            val hostName = try {
-                val url = URL(imageUrl)
-                url.host.replace("www.", "").replace("m.", "").trim()
-            } catch (_: Exception) {
-                ""
+            val density = LocalDensity.current
+            val widthPx = with(density) { actualWidth.roundToPx() }
+            val heightPx = with(density) { actualHeight.roundToPx() }
+            val coverStore = remember { Injekt.get<CoverStore>() }
+            val image = coverStore.imageOf(novelId, imageUrl, coverSize)
+            val request = remember(image, widthPx, heightPx) {
+                ImageRequest.Builder(context)
+                    .data(image)
+                    .size(widthPx, heightPx)
+                    .apply { if (image is String) memoryCacheKey(image).diskCacheKey(image) }
+                    .crossfade(true)
+                    .build()
             }
-            
-            val cookies = CookieManager.getInstance().getCookie(imageUrl) 
-                ?: CookieManager.getInstance().getCookie(".$hostName") 
-                ?: ""
-            
+
             SubcomposeAsyncImage(
-                model = ImageRequest.Builder(context)
-                    .data(imageUrl)
-                    .size(actualWidth.value.toInt(), actualHeight.value.toInt())
-                    .crossfade(true)
-                    .apply {
-                        setHeader("User-Agent", HostNames.USER_AGENT)
-                        if (cookies.isNotEmpty()) {
-                            setHeader("Cookie", cookies)
-                        }
-                    }
-                    .build(),
+                model = request,
                 contentDescription = contentDescription,
                 modifier = Modifier.matchParentSize(),
                 contentScale = contentScale,
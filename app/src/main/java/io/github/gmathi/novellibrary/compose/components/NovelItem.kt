@@ -45,7 +45,8 @@ fun NovelItem(
             modifier = Modifier.clip(CircleShape),
             size = 56.dp,
             shape = CircleShape,
-            contentScale = ContentScale.Crop
+            contentScale = ContentScale.Crop,
+            novelId = novel.id
         )
         
         Column(
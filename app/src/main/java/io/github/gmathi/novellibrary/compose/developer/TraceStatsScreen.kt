@@ -0,0 +1,168 @@
+package io.github.gmathi.novellibrary.compose.developer
+
+import androidx.compose.foundation.layout.*
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material.icons.Icons
+import androidx.compose.material.icons.automirrored.filled.ArrowBack
+import androidx.compose.material.icons.filled.Delete
+import androidx.compose.material.icons.filled.Refresh
+import androidx.compose.material.icons.filled.Share
+import androidx.compose.material3.*
+import androidx.compose.runtime.Composable
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.text.font.FontFamily
+import androidx.compose.ui.text.font.FontWeight
+import androidx.compose.ui.tooling.preview.Preview
+import androidx.compose.ui.unit.dp
+import io.github.gmathi.novellibrary.compose.theme.NovelLibraryTheme
+import io.github.gmathi.novellibrary.util.trace.HistogramStats
+import io.github.gmathi.novellibrary.util.trace.OperationStats
+import io.github.gmathi.novellibrary.util.trace.TraceSnapshot
+
+/**
+ * The timings recorded by the tracer, per operation, with its counters and histograms.
+ */
+@OptIn(ExperimentalMaterial3Api::class)
+@Composable
+fun TraceStatsScreen(
+    snapshot: TraceSnapshot,
+    isRecording: Boolean,
+    onRefresh: () -> Unit = {},
+    onExport: () -> Unit = {},
+    onClear: () -> Unit = {},
+    onNavigateBack: () -> Unit = {}
+) {
+    Scaffold(
+        topBar = {
+            TopAppBar(
+                title = { Text("Performance Traces") },
+                navigationIcon = {
+                    IconButton(onClick = onNavigateBack) {
+                        Icon(Icons.AutoMirrored.Filled.ArrowBack, contentDescription = "Back")
+                    }
+                },
+                actions = {
+                    IconButton(onClick = onRefresh) {
+                        Icon(Icons.Default.Refresh, contentDescription = "Refresh")
+                    }
+                    IconButton(onClick = onExport) {
+                        Icon(Icons.Default.Share, contentDescription = "Export as JSON")
+                    }
+                    IconButton(onClick = onClear) {
+                        Icon(Icons.Default.Delete, contentDescription = "Clear")
+                    }
+                }
+            )
+        }
+    ) { paddingValues ->
+        LazyColumn(
+            modifier = Modifier
+                .fillMaxSize()
+                .padding(paddingValues),
+            contentPadding = PaddingValues(16.dp),
+            verticalArrangement = Arrangement.spacedBy(8.dp)
+        ) {
+            if (!isRecording) {
+                item {
+                    Text(
+                        "Traces are only recorded in debug builds and in developer mode, from the start after it was turned on.",
+                        style = MaterialTheme.typography.bodyMedium,
+                        color = MaterialTheme.colorScheme.onSurfaceVariant
+                    )
+                }
+            }
+
+            item { SectionHeader("OPERATIONS (${snapshot.operations.size})") }
+            items(snapshot.operations, key = { "operation:${it.name}" }) { OperationRow(it) }
+
+            if (snapshot.counters.isNotEmpty()) {
+                item { SectionHeader("COUNTERS") }
+                items(snapshot.counters.entries.toList(), key = { "counter:${it.key}" }) { (name, value) ->
+                    StatRow(name, value.toString())
+                }
+            }
+
+            if (snapshot.histograms.isNotEmpty()) {
+                item { SectionHeader("HISTOGRAMS") }
+                items(snapshot.histograms, key = { "histogram:${it.name}" }) { HistogramRow(it) }
+            }
+        }
+    }
+}
+
+@Composable
+private fun SectionHeader(title: String) {
+    Text(
+        title,
+        modifier = Modifier.padding(top = 8.dp),
+        style = MaterialTheme.typography.labelMedium,
+        fontWeight = FontWeight.Bold,
+        color = MaterialTheme.colorScheme.primary
+    )
+}
+
+@Composable
+private fun OperationRow(operation: OperationStats) {
+    Card(
+        modifier = Modifier.fillMaxWidth(),
+        colors = CardDefaults.cardColors(containerColor = MaterialTheme.colorScheme.surfaceContainer)
+    ) {
+        Column(modifier = Modifier.padding(12.dp)) {
+            Row(verticalAlignment = Alignment.CenterVertically) {
+                Text(
+                    operation.name,
+                    modifier = Modifier.weight(1f),
+                    style = MaterialTheme.typography.titleSmall,
+                    fontFamily = FontFamily.Monospace
+                )
+                Text(
+                    if (operation.failures > 0) "${operation.count} runs, ${operation.failures} failed" else "${operation.count} runs",
+                    style = MaterialTheme.typography.bodySmall,
+                    color = if (operation.failures > 0) MaterialTheme.colorScheme.error else MaterialTheme.colorScheme.onSurfaceVariant
+                )
+            }
+            Spacer(Modifier.height(4.dp))
+            Text(
+                "p50 ${millis(operation.p50Millis)}   p95 ${millis(operation.p95Millis)}   max ${millis(operation.maxMillis)}",
+                style = MaterialTheme.typography.bodyMedium,
+                fontFamily = FontFamily.Monospace
+            )
+        }
+    }
+}
+
+@Composable
+private fun HistogramRow(histogram: HistogramStats) {
+    StatRow(histogram.name, "p50 ${histogram.p50}  p95 ${histogram.p95}  max ${histogram.max}  (${histogram.count})")
+}
+
+@Composable
+private fun StatRow(name: String, value: String) {
+    Row(modifier = Modifier.fillMaxWidth(), verticalAlignment = Alignment.CenterVertically) {
+        Text(name, modifier = Modifier.weight(1f), style = MaterialTheme.typography.bodyMedium, fontFamily = FontFamily.Monospace)
+        Text(value, style = MaterialTheme.typography.bodyMedium, fontFamily = FontFamily.Monospace)
+    }
+}
+
+private fun millis(value: Double) = if (value < 10) "%.1fms".format(value) else "%.0fms".format(value)
+
+@Preview
+@Composable
+private fun TraceStatsScreenPreview() {
+    NovelLibraryTheme {
+        TraceStatsScreen(
+            snapshot = TraceSnapshot(
+                operations = listOf(
+                    OperationStats("network.fetch", 120, 3, 240.0, 1830.5, 5210.0),
+                    OperationStats("html.clean", 45, 0, 4.2, 18.0, 31.0)
+                ),
+                counters = mapOf("network.cache_hit" to 12L, "network.success" to 105L),
+                histograms = listOf(HistogramStats("network.response_bytes", 117, 48_213, 310_442, 1_204_551)),
+                spans = emptyList()
+            ),
+            isRecording = true
+        )
+    }
+}
@@ -23,6 +23,7 @@ import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.ViewModelStoreOwner
 import io.github.gmathi.novellibrary.activity.CloudflareResolverActivity
 import io.github.gmathi.novellibrary.util.system.startNovelDetailsActivity
+import io.github.gmathi.novellibrary.viewmodel.MergedSearchState
 import io.github.gmathi.novellibrary.viewmodel.SearchUrlViewModel
 import io.github.gmathi.novellibrary.viewmodel.SearchUrlUiState
 import io.github.gmathi.novellibrary.viewmodel.SearchTermViewModel
@@ -56,14 +57,19 @@ fun SearchScreen(
     val browseNovels by popularMonthViewModel.novels.collectAsState()
     val isSearching by searchTermViewModel.isSearching.collectAsState()
     val sourceStates by searchTermViewModel.sourceStates.collectAsState()
+    val mergedResults by searchTermViewModel.mergedResults.collectAsState()
     var selectedSourceTab by remember { mutableStateOf(0) }
+    // After the tabs of the sources, one lists what they all found when there are several
+    val allSourcesTab = if (sourceStates.size > 1) sourceStates.size else null
+    val lastTab = allSourcesTab ?: (sourceStates.size - 1)
 
     LaunchedEffect(sourceStates.size) {
-        if (selectedSourceTab >= sourceStates.size) selectedSourceTab = 0
+        if (selectedSourceTab > lastTab) selectedSourceTab = 0
     }
     LaunchedEffect(selectedSourceTab, sourceStates.size) {
-        if (sourceStates.isNotEmpty() && selectedSourceTab in sourceStates.indices) {
-            searchTermViewModel.fetchSourceIfNeeded(selectedSourceTab)
+        when (selectedSourceTab) {
+            allSourcesTab -> searchTermViewModel.searchAllIfNeeded()
+            in sourceStates.indices -> searchTermViewModel.fetchSourceIfNeeded(selectedSourceTab)
         }
     }
 
@@ -135,7 +141,7 @@ fun SearchScreen(
                 if (isSearching && sourceStates.isNotEmpty()) {
                     Column(modifier = Modifier.fillMaxSize()) {
                         ScrollableTabRow(
-                            selectedTabIndex = selectedSourceTab.coerceIn(0, (sourceStates.size - 1).coerceAtLeast(0)),
+                            selectedTabIndex = selectedSourceTab.coerceIn(0, lastTab.coerceAtLeast(0)),
                             modifier = Modifier.fillMaxWidth(),
                             containerColor = MaterialTheme.colorScheme.surface,
                             contentColor = MaterialTheme.colorScheme.primary,
@@ -148,9 +154,21 @@ fun SearchScreen(
                                     text = { Text(text = state.sourceName, style = MaterialTheme.typography.titleSmall) }
                                 )
                             }
+                            if (allSourcesTab != null) {
+                                Tab(
+                                    selected = selectedSourceTab == allSourcesTab,
+                                    onClick = { selectedSourceTab = allSourcesTab },
+                                    text = { Text(text = "All", style = MaterialTheme.typography.titleSmall) }
+                                )
+                            }
                         }
                         val currentSource = sourceStates.getOrNull(selectedSourceTab)
-                        if (currentSource != null) {
+                        if (selectedSourceTab == allSourcesTab) {
+                            MergedSearchContent(
+                                state = mergedResults,
+                                onNovelClick = { novel -> activity?.startNovelDetailsActivity(novel, false) }
+                            )
+                        } else if (currentSource != null) {
                             SourceSearchContent(
                                 state = currentSource,
                                 sourceIndex = selectedSourceTab,
@@ -274,6 +292,37 @@ private fun SourceSearchContent(
     }
 }
 
+@Composable
+private fun MergedSearchContent(state: MergedSearchState, onNovelClick: (DbNovel) -> Unit) {
+    when {
+        state.novels.isNotEmpty() -> {
+            LazyColumn(
+                modifier = Modifier.fillMaxSize(),
+                contentPadding = PaddingValues(horizontal = 0.dp, vertical = 0.dp),
+                verticalArrangement = Arrangement.spacedBy(0.dp)
+            ) {
+                itemsIndexed(
+                    items = state.novels,
+                    key = { index, merged -> "merged_${index}_${merged.item.url.hashCode()}" }
+                ) { _, merged ->
+                    SearchTermResultItem(novel = merged.item, onClick = { onNovelClick(merged.item) })
+                }
+                if (state.pendingSourceIds.isNotEmpty()) {
+                    item {
+                        Box(Modifier.fillMaxWidth().padding(16.dp), contentAlignment = Alignment.Center) {
+                            CircularProgressIndicator(modifier = Modifier.size(32.dp))
+                        }
+                    }
+                }
+            }
+        }
+        state.pendingSourceIds.isNotEmpty() -> {
+            Box(Modifier.fillMaxSize(), contentAlignment = Alignment.Center) { CircularProgressIndicator() }
+        }
+        else -> { EmptyState(message = "No novels found", icon = Icons.Filled.SearchOff) }
+    }
+}
+
 @Composable
 private fun BrowseContent(
     uiState: SearchUrlUiState,
@@ -7,6 +7,8 @@ import androidx.compose.material3.darkColorScheme
 import androidx.compose.material3.lightColorScheme
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.SideEffect
+import androidx.compose.runtime.collectAsState
+import androidx.compose.runtime.remember
 import androidx.compose.ui.graphics.Color
 import androidx.compose.ui.graphics.toArgb
 import androidx.compose.ui.platform.LocalView
@@ -96,12 +98,17 @@ fun NovelLibraryTheme(
     content: @Composable () -> Unit
 ) {
     val dataCenter: DataCenter by injectLazy()
-    val useDarkTheme = try {
-        dataCenter.isDarkTheme
-    } catch (e: Exception) {
-        // Fallback to system theme if DataCenter fails
-        darkTheme
+    // Follows the preference, so that toggling it recolors the screens already shown
+    val storedDarkTheme = remember {
+        try {
+            dataCenter.darkTheme.let { it.asFlow() to it.get() }
+        } catch (e: Exception) {
+            null
+        }
     }
+    val useDarkTheme = storedDarkTheme?.let { (changes, initial) ->
+        changes.collectAsState(initial = initial).value
+    } ?: darkTheme // Fallback to system theme if DataCenter fails
     
     val colorScheme = if (useDarkTheme) DarkColorScheme else LightColorScheme
     
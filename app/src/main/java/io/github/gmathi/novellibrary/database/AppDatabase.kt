@@ -51,7 +51,7 @@ abstract class AppDatabase : RoomDatabase() {
     abstract fun largePreferenceDao(): LargePreferenceDao
 
     companion object {
-        const val DB_VERSION = 11
+        const val DB_VERSION = 15
 
         @Volatile
         private var INSTANCE: AppDatabase? = null
@@ -62,15 +62,67 @@ abstract class AppDatabase : RoomDatabase() {
             }
         }
 
+        /**
+         * Room works on the database owned by [DBHelper]: the file is opened (and upgraded) by [DBHelper] first, and
+         * Room's connections use the same WAL journal and connection settings, so both share one write lock and
+         * never see each other's data through a rollback journal.
+         */
         private fun buildDatabase(context: Context): AppDatabase {
+            DBHelper.getInstance(context).writableDatabase
             return Room.databaseBuilder(context, AppDatabase::class.java, DBKeys.DATABASE_NAME)
-                .addMigrations(MIGRATION_10_11)
+                .addMigrations(MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13, MIGRATION_13_14, MIGRATION_14_15)
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .addCallback(object : RoomDatabase.Callback() {
+                    override fun onOpen(db: SupportSQLiteDatabase) {
+                        DBHelper.configureConnection(db::execSQL)
+                    }
+                })
                 // TODO: remove allowMainThreadQueries() once callers are migrated to
                 //  suspend DAO methods (Phase 2 — Hilt migration).
                 .allowMainThreadQueries()
                 .build()
         }
 
+        /**
+         * Migration from version 14 to 15: journal of the novels being imported, which only [DBHelper] reads.
+         */
+        val MIGRATION_14_15 = object : Migration(14, 15) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL(DBKeys.CREATE_TABLE_IMPORT_JOURNAL)
+            }
+        }
+
+        /**
+         * Migration from version 13 to 14: recently viewed history table, which only [DBHelper] reads. [DBHelper]
+         * opens the file first and also moves the old JSON history out of `large_preference`, so this only has to
+         * create the schema.
+         */
+        val MIGRATION_13_14 = object : Migration(13, 14) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL(DBKeys.CREATE_TABLE_RECENT_HISTORY)
+                db.execSQL(DBKeys.CREATE_INDEX_RECENT_HISTORY)
+            }
+        }
+
+        /**
+         * Migration from version 12 to 13: full-text search index over novels and chapter titles.
+         */
+        val MIGRATION_12_13 = object : Migration(12, 13) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                DBKeys.CREATE_SEARCH_INDEX.forEach { db.execSQL(it) }
+                DBKeys.REBUILD_SEARCH_INDEX.forEach { db.execSQL(it) }
+            }
+        }
+
+        /**
+         * Migration from version 11 to 12: indexes for the per-novel chapter, settings and download queries.
+         */
+        val MIGRATION_11_12 = object : Migration(11, 12) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                DBKeys.CREATE_QUERY_INDEXES.forEach { db.execSQL(it) }
+            }
+        }
+
         /**
          * Migration from version 10 to 11.
          *
@@ -0,0 +1,34 @@
+package io.github.gmathi.novellibrary.database
+
+/**
+ * The order ids of a novel's chapters (optionally of a single translator source), sorted, so that a chapter position
+ * can be turned into an order id and back with a binary search instead of an `OFFSET` query or a full chapter list.
+ *
+ * It is a snapshot: build it with [DBHelper.getChapterIndex] when a novel is opened and rebuild it when its chapters
+ * change. A 10k chapter novel takes about 80KB.
+ */
+class ChapterIndex(val novelId: Long, val translatorSourceName: String?, private val orderIds: LongArray) {
+
+    val size: Int
+        get() = orderIds.size
+
+    fun orderIdAt(position: Int): Long? = orderIds.getOrNull(position)
+
+    /**
+     * Position of the first chapter with [orderId], or -1 if there is none.
+     */
+    fun positionOf(orderId: Long): Int {
+        var low = 0
+        var high = orderIds.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (orderIds[mid] < orderId) low = mid + 1 else high = mid
+        }
+        return if (low < orderIds.size && orderIds[low] == orderId) low else -1
+    }
+
+    /**
+     * How many chapters before [position] have the same order id. Always 0 unless a sync left duplicate order ids.
+     */
+    internal fun rankAt(position: Int): Int = position - positionOf(orderIds[position])
+}
@@ -4,16 +4,32 @@ import android.content.ContentValues
 import android.content.Context
 import android.database.DatabaseErrorHandler
 import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteException
 import android.database.sqlite.SQLiteOpenHelper
+import android.os.Build
+import androidx.annotation.VisibleForTesting
 import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.network.HostNames
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.logging.Logs
-
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
+import uy.kohesive.injekt.injectLazy
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+
+/**
+ * The single owner of the library database. All the `DBHelper.*` extension functions and [AppDatabase] go through it.
+ *
+ * The database runs in write-ahead-logging mode: the framework keeps one write connection plus a pool of read
+ * connections, so reads from the UI don't wait for a long write transaction (sync, downloads) to finish and only
+ * writers are serialized.
+ */
 class DBHelper
-private constructor(private val appContext: Context) : SQLiteOpenHelper(
+private constructor(private val appContext: Context, private val databaseName: String = DBKeys.DATABASE_NAME) : SQLiteOpenHelper(
     appContext,
-    DBKeys.DATABASE_NAME,
+    databaseName,
     null,
     DBKeys.DATABASE_VERSION,
     DatabaseErrorHandler { dbObj ->
@@ -21,11 +37,15 @@ private constructor(private val appContext: Context) : SQLiteOpenHelper(
         try {
             dbObj.close()
         } catch (_: Exception) {}
-        appContext.deleteDatabase(DBKeys.DATABASE_NAME)
+        appContext.deleteDatabase(databaseName)
         sInstance = null
     }
 ) {
 
+    init {
+        setWriteAheadLoggingEnabled(true)
+    }
+
     companion object {
         private const val TAG = "DBHelper"
 
@@ -42,9 +62,48 @@ private constructor(private val appContext: Context) : SQLiteOpenHelper(
 
         @Synchronized
         fun refreshInstance(context: Context): DBHelper {
+            sInstance?.close()
             sInstance = DBHelper(context.applicationContext)
             return sInstance!!
         }
+
+        /**
+         * A helper on its own database file, for tests.
+         */
+        @VisibleForTesting
+        internal fun newInstance(context: Context, databaseName: String): DBHelper =
+            DBHelper(context.applicationContext, databaseName)
+
+        private val HEADER_MAGIC = "SQLite format 3\u0000".toByteArray(Charsets.US_ASCII)
+
+        /**
+         * The schema version (`user_version`) of the database file [file], read from its header without opening it,
+         * or null if it isn't a database.
+         */
+        internal fun schemaVersion(file: File): Int? {
+            val header = ByteArray(64)
+            val read = try {
+                file.inputStream().use { it.read(header) }
+            } catch (e: IOException) {
+                return null
+            }
+            if (read < header.size || !header.copyOf(HEADER_MAGIC.size).contentEquals(HEADER_MAGIC)) return null
+            return ByteBuffer.wrap(header, 60, 4).int
+        }
+
+        /**
+         * Connection settings shared by every connection to the library database, including Room's.
+         */
+        internal fun configureConnection(execSQL: (String) -> Unit) {
+            // In WAL mode a commit is durable after the next checkpoint instead of immediately; a crash can lose the
+            // last transactions but never corrupts the database.
+            execSQL("PRAGMA synchronous = NORMAL")
+        }
+    }
+
+    override fun onConfigure(db: SQLiteDatabase) {
+        super.onConfigure(db)
+        configureConnection(db::execSQL)
     }
 
     override fun onCreate(db: SQLiteDatabase) {
@@ -58,9 +117,14 @@ private constructor(private val appContext: Context) : SQLiteOpenHelper(
         db.execSQL(DBKeys.CREATE_TABLE_SOURCE)
         db.execSQL(DBKeys.CREATE_TABLE_NOVEL_SECTION)
         db.execSQL(DBKeys.CREATE_TABLE_LARGE_PREFERENCE)
+        db.execSQL(DBKeys.CREATE_TABLE_RECENT_HISTORY)
+        db.execSQL(DBKeys.CREATE_TABLE_IMPORT_JOURNAL)
 
         db.execSQL(DBKeys.CREATE_INDEX_WEB_PAGE)
         db.execSQL(DBKeys.CREATE_INDEX_WEB_PAGE_SETTINGS)
+        DBKeys.CREATE_QUERY_INDEXES.forEach { db.execSQL(it) }
+        DBKeys.CREATE_SEARCH_INDEX.forEach { db.execSQL(it) }
+        db.execSQL(DBKeys.CREATE_INDEX_RECENT_HISTORY)
 
         insertDefaultValues(db)
     }
@@ -185,6 +249,30 @@ private constructor(private val appContext: Context) : SQLiteOpenHelper(
 //            //version = DBKeys.VER_SOURCES_REFACTOR
 //        }
 
+        if (version == DBKeys.VER_SOURCES_REFACTOR || version == DBKeys.VER_ROOM_MIGRATION) {
+            DBKeys.CREATE_QUERY_INDEXES.forEach { db.execSQL(it) }
+            db.execSQL("ANALYZE")
+            version = DBKeys.VER_QUERY_INDEXES
+        }
+
+        if (version == DBKeys.VER_QUERY_INDEXES) {
+            DBKeys.CREATE_SEARCH_INDEX.forEach { db.execSQL(it) }
+            DBKeys.REBUILD_SEARCH_INDEX.forEach { db.execSQL(it) }
+            version = DBKeys.VER_FULL_TEXT_SEARCH
+        }
+
+        if (version == DBKeys.VER_FULL_TEXT_SEARCH) {
+            db.execSQL(DBKeys.CREATE_TABLE_RECENT_HISTORY)
+            db.execSQL(DBKeys.CREATE_INDEX_RECENT_HISTORY)
+            migrateRecentHistory(db)
+            version = DBKeys.VER_RECENT_HISTORY
+        }
+
+        if (version == DBKeys.VER_RECENT_HISTORY) {
+            db.execSQL(DBKeys.CREATE_TABLE_IMPORT_JOURNAL)
+            version = DBKeys.VER_IMPORT_JOURNAL
+        }
+
 
     }
 
@@ -305,6 +393,70 @@ private constructor(private val appContext: Context) : SQLiteOpenHelper(
         onCreate(db)
     }
 
+    /**
+     * Writes a consistent copy of the database to [destination] for a backup: a single file, without write-ahead log,
+     * holding every transaction committed before the copy started and none of those committed during it.
+     *
+     * The copy is made with `VACUUM INTO`, which reads the database in one read transaction while writers carry on.
+     * Before Android 11 (no `VACUUM INTO`), the database file and its write-ahead log are copied while holding the
+     * write lock instead, and the log is then applied to the copy. Either way the copy has to pass
+     * `PRAGMA integrity_check`.
+     */
+    fun snapshot(destination: File) {
+        deleteSnapshot(destination)
+        var vacuumed = false
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            try {
+                writableDatabase.execSQL("VACUUM INTO ?", arrayOf(destination.path))
+                vacuumed = true
+            } catch (e: SQLiteException) {
+                Logs.warning(TAG, "VACUUM INTO failed, copying the database files instead", e)
+                deleteSnapshot(destination)
+            }
+        }
+        if (!vacuumed) {
+            val dbFile = appContext.getDatabasePath(databaseName)
+            val walFile = File(dbFile.path + "-wal")
+            // No commit, and so no checkpoint, can change either file until the transaction ends.
+            writableDatabase.runTransaction {
+                dbFile.copyTo(destination, overwrite = true)
+                if (walFile.exists()) walFile.copyTo(File(destination.path + "-wal"), overwrite = true)
+            }
+        }
+
+        try {
+            SQLiteDatabase.openDatabase(destination.path, null, SQLiteDatabase.OPEN_READWRITE).use { db ->
+                // Applies the copied log, if any, and leaves a single file
+                db.rawQuery("PRAGMA journal_mode = DELETE", null).use { it.moveToFirst() }
+                // VACUUM can renumber the web_page rowids that the chapter search index is keyed on
+                if (vacuumed) DBKeys.REBUILD_SEARCH_INDEX.forEach { db.execSQL(it) }
+                val result = db.rawQuery("PRAGMA integrity_check", null).use { if (it.moveToFirst()) it.getString(0) else null }
+                if (result != "ok") throw SQLiteException("Database snapshot failed the integrity check: $result")
+            }
+        } catch (e: Exception) {
+            deleteSnapshot(destination)
+            throw e
+        }
+    }
+
+    private fun deleteSnapshot(file: File) {
+        file.delete()
+        File(file.path + "-wal").delete()
+        File(file.path + "-shm").delete()
+        File(file.path + "-journal").delete()
+    }
+
+    /**
+     * Closes every connection and removes the write-ahead log, before the database file is replaced (restore).
+     * The database is opened again on the next access.
+     */
+    fun closeForReplace() {
+        close()
+        val dbFile = appContext.getDatabasePath(databaseName)
+        File(dbFile.path + "-wal").delete()
+        File(dbFile.path + "-shm").delete()
+    }
+
     // Custom Methods
 
     fun cleanupNovelData(novel: Novel) {
@@ -316,9 +468,12 @@ private constructor(private val appContext: Context) : SQLiteOpenHelper(
     }
 }
 
-fun SQLiteDatabase.runTransaction(fn: (SQLiteDatabase) -> Unit) {
+private val tracer: Tracer by injectLazy()
+
+fun SQLiteDatabase.runTransaction(fn: (SQLiteDatabase) -> Unit) = tracer.trace(Tracer.DB_TRANSACTION) {
     try {
-        this.beginTransaction()
+        // IMMEDIATE rather than EXCLUSIVE, readers carry on while the transaction runs.
+        this.beginTransactionNonExclusive()
         fn(this)
         this.setTransactionSuccessful()
     } finally {
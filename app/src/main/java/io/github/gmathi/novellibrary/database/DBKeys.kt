@@ -15,8 +15,12 @@ object DBKeys {
     internal const val VER_SOURCES_REFACTOR = 10
 
     internal const val VER_ROOM_MIGRATION = 11
+    internal const val VER_QUERY_INDEXES = 12
+    internal const val VER_FULL_TEXT_SEARCH = 13
+    internal const val VER_RECENT_HISTORY = 14
+    internal const val VER_IMPORT_JOURNAL = 15
 
-    internal const val DATABASE_VERSION = VER_ROOM_MIGRATION
+    internal const val DATABASE_VERSION = VER_IMPORT_JOURNAL
 
     internal const val DATABASE_NAME = "bnr_db"
 
@@ -36,10 +40,21 @@ object DBKeys {
 
     internal const val TABLE_NOVEL_SECTION = "novel_section"
     internal const val TABLE_LARGE_PREFERENCE = "large_preference"
+    internal const val TABLE_NOVEL_FTS = "novel_fts"
+    internal const val TABLE_WEB_PAGE_FTS = "web_page_fts"
+    internal const val TABLE_RECENT_HISTORY = "recent_history"
+    internal const val TABLE_IMPORT_JOURNAL = "import_journal"
 
     //Index names
     internal const val INDEX_WEB_PAGE = "web_page_url_novel_id_index"
     internal const val INDEX_WEB_PAGE_SETTINGS = "web_page_settings_url_index"
+    internal const val INDEX_WEB_PAGE_NOVEL_ORDER = "web_page_novel_id_order_id_index"
+    internal const val INDEX_WEB_PAGE_NOVEL_SOURCE_ORDER = "web_page_novel_id_source_order_id_index"
+    internal const val INDEX_WEB_PAGE_SETTINGS_NOVEL = "web_page_settings_novel_id_index"
+    internal const val INDEX_WEB_PAGE_SETTINGS_REDIRECT_URL = "web_page_settings_redirect_url_index"
+    internal const val INDEX_DOWNLOAD_NOVEL_STATUS_ORDER = "download_novel_id_status_order_id_index"
+    internal const val INDEX_DOWNLOAD_STATUS = "download_status_index"
+    internal const val INDEX_RECENT_HISTORY_VIEWED_AT = "recent_history_viewed_at_index"
 
     // Common column names
     internal const val KEY_ID = "id"
@@ -76,6 +91,18 @@ object DBKeys {
     // Table novel_genre columns
     internal const val KEY_GENRE_ID = "genre_id"
 
+    // Table novel_fts columns
+    internal const val KEY_GENRES = "genres"
+
+    // Table recent_history columns
+    internal const val KEY_NOVEL_URL = "novel_url"
+    internal const val KEY_VIEWED_AT = "viewed_at"
+    internal const val KEY_SNAPSHOT = "snapshot"
+
+    // Table import_journal columns
+    internal const val KEY_ERROR = "error"
+    internal const val KEY_UPDATED_AT = "updated_at"
+
     //Table download_queue columns
     internal const val KEY_STATUS = "status"
     internal const val KEY_TOTAL_CHAPTERS = "total_chapters"
@@ -189,6 +216,29 @@ object DBKeys {
                     + KEY_VALUE + " TEXT"
                     + ")")
 
+    // recent_history table create statement
+    internal const val CREATE_TABLE_RECENT_HISTORY = (
+            "CREATE TABLE IF NOT EXISTS " + TABLE_RECENT_HISTORY + " ("
+                    + KEY_NOVEL_URL + " TEXT NOT NULL PRIMARY KEY, "
+                    + KEY_VIEWED_AT + " INTEGER NOT NULL, "
+                    + KEY_SNAPSHOT + " TEXT"
+                    + ")")
+
+    // import_journal table create statement
+    internal const val CREATE_TABLE_IMPORT_JOURNAL = (
+            "CREATE TABLE IF NOT EXISTS " + TABLE_IMPORT_JOURNAL + " ("
+                    + KEY_NOVEL_URL + " TEXT NOT NULL PRIMARY KEY, "
+                    + KEY_NAME + " TEXT, "
+                    + KEY_IMAGE_URL + " TEXT, "
+                    + KEY_STATUS + " INTEGER NOT NULL, "
+                    + KEY_ERROR + " TEXT, "
+                    + KEY_ORDER_ID + " INTEGER NOT NULL, "
+                    + KEY_UPDATED_AT + " INTEGER NOT NULL"
+                    + ")")
+
+    internal const val CREATE_INDEX_RECENT_HISTORY = (
+            "CREATE INDEX IF NOT EXISTS $INDEX_RECENT_HISTORY_VIEWED_AT ON $TABLE_RECENT_HISTORY($KEY_VIEWED_AT)"
+            )
 
     // web_page index statement
     internal const val CREATE_INDEX_WEB_PAGE = (
@@ -200,5 +250,56 @@ object DBKeys {
             "CREATE INDEX $INDEX_WEB_PAGE_SETTINGS ON $TABLE_WEB_PAGE_SETTINGS($KEY_URL, $KEY_NOVEL_ID)"
             )
 
+    // Indexes for the per-novel chapter, settings and download queries (chapter lists, reader, TTS, download queue).
+    // The ORDER BY order_id queries read the chapters in index order instead of sorting them.
+    internal val CREATE_QUERY_INDEXES = listOf(
+        "CREATE INDEX IF NOT EXISTS $INDEX_WEB_PAGE_NOVEL_ORDER ON $TABLE_WEB_PAGE($KEY_NOVEL_ID, $KEY_ORDER_ID)",
+        "CREATE INDEX IF NOT EXISTS $INDEX_WEB_PAGE_NOVEL_SOURCE_ORDER ON $TABLE_WEB_PAGE($KEY_NOVEL_ID, $KEY_TRANSLATOR_SOURCE_NAME, $KEY_ORDER_ID)",
+        "CREATE INDEX IF NOT EXISTS $INDEX_WEB_PAGE_SETTINGS_NOVEL ON $TABLE_WEB_PAGE_SETTINGS($KEY_NOVEL_ID)",
+        "CREATE INDEX IF NOT EXISTS $INDEX_WEB_PAGE_SETTINGS_REDIRECT_URL ON $TABLE_WEB_PAGE_SETTINGS($KEY_REDIRECT_URL)",
+        "CREATE INDEX IF NOT EXISTS $INDEX_DOWNLOAD_NOVEL_STATUS_ORDER ON $TABLE_DOWNLOAD($KEY_NOVEL_ID, $KEY_STATUS, $KEY_ORDER_ID)",
+        "CREATE INDEX IF NOT EXISTS $INDEX_DOWNLOAD_STATUS ON $TABLE_DOWNLOAD($KEY_STATUS)"
+    )
+
+    // Full-text search index for the library search. novel_fts has one row per novel (docid = novel id) with its
+    // genre names joined in. web_page_fts has one row per chapter title, with docid = (novel_id << 32) | rowid so
+    // that matches map to novels without reading the rows back. Triggers keep both in sync with every write.
+    // A plain VACUUM can renumber web_page rowids: run REBUILD_SEARCH_INDEX after one.
+    private const val SELECT_NOVEL_SEARCH_ROW = "SELECT n.$KEY_ID, n.$KEY_NAME, n.$KEY_SHORT_DESCRIPTION, n.$KEY_LONG_DESCRIPTION, " +
+            "(SELECT group_concat(g.$KEY_NAME, ' ') FROM $TABLE_NOVEL_GENRE ng JOIN $TABLE_GENRE g ON g.$KEY_ID = ng.$KEY_GENRE_ID WHERE ng.$KEY_NOVEL_ID = n.$KEY_ID) " +
+            "FROM $TABLE_NOVEL n"
+    private const val INSERT_NOVEL_SEARCH_ROW = "INSERT INTO $TABLE_NOVEL_FTS(docid, $KEY_NAME, $KEY_SHORT_DESCRIPTION, $KEY_LONG_DESCRIPTION, $KEY_GENRES) $SELECT_NOVEL_SEARCH_ROW"
+
+    internal val CREATE_SEARCH_INDEX = listOf(
+        "CREATE VIRTUAL TABLE IF NOT EXISTS $TABLE_NOVEL_FTS USING fts4($KEY_NAME, $KEY_SHORT_DESCRIPTION, $KEY_LONG_DESCRIPTION, $KEY_GENRES, tokenize=unicode61)",
+        "CREATE VIRTUAL TABLE IF NOT EXISTS $TABLE_WEB_PAGE_FTS USING fts4($KEY_CHAPTER, tokenize=unicode61)",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_NOVEL_FTS}_insert AFTER INSERT ON $TABLE_NOVEL BEGIN " +
+                "$INSERT_NOVEL_SEARCH_ROW WHERE n.$KEY_ID = NEW.$KEY_ID; END",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_NOVEL_FTS}_update AFTER UPDATE OF $KEY_NAME, $KEY_SHORT_DESCRIPTION, $KEY_LONG_DESCRIPTION ON $TABLE_NOVEL BEGIN " +
+                "DELETE FROM $TABLE_NOVEL_FTS WHERE docid = OLD.$KEY_ID; $INSERT_NOVEL_SEARCH_ROW WHERE n.$KEY_ID = NEW.$KEY_ID; END",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_NOVEL_FTS}_delete AFTER DELETE ON $TABLE_NOVEL BEGIN " +
+                "DELETE FROM $TABLE_NOVEL_FTS WHERE docid = OLD.$KEY_ID; END",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_NOVEL_FTS}_genre_insert AFTER INSERT ON $TABLE_NOVEL_GENRE BEGIN " +
+                "DELETE FROM $TABLE_NOVEL_FTS WHERE docid = NEW.$KEY_NOVEL_ID; $INSERT_NOVEL_SEARCH_ROW WHERE n.$KEY_ID = NEW.$KEY_NOVEL_ID; END",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_NOVEL_FTS}_genre_delete AFTER DELETE ON $TABLE_NOVEL_GENRE BEGIN " +
+                "DELETE FROM $TABLE_NOVEL_FTS WHERE docid = OLD.$KEY_NOVEL_ID; $INSERT_NOVEL_SEARCH_ROW WHERE n.$KEY_ID = OLD.$KEY_NOVEL_ID; END",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_WEB_PAGE_FTS}_insert AFTER INSERT ON $TABLE_WEB_PAGE BEGIN " +
+                "INSERT INTO $TABLE_WEB_PAGE_FTS(docid, $KEY_CHAPTER) VALUES ((NEW.$KEY_NOVEL_ID << 32) | NEW.rowid, NEW.$KEY_CHAPTER); END",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_WEB_PAGE_FTS}_update AFTER UPDATE OF $KEY_CHAPTER, $KEY_NOVEL_ID ON $TABLE_WEB_PAGE BEGIN " +
+                "DELETE FROM $TABLE_WEB_PAGE_FTS WHERE docid = (OLD.$KEY_NOVEL_ID << 32) | OLD.rowid; " +
+                "INSERT INTO $TABLE_WEB_PAGE_FTS(docid, $KEY_CHAPTER) VALUES ((NEW.$KEY_NOVEL_ID << 32) | NEW.rowid, NEW.$KEY_CHAPTER); END",
+        "CREATE TRIGGER IF NOT EXISTS ${TABLE_WEB_PAGE_FTS}_delete AFTER DELETE ON $TABLE_WEB_PAGE BEGIN " +
+                "DELETE FROM $TABLE_WEB_PAGE_FTS WHERE docid = (OLD.$KEY_NOVEL_ID << 32) | OLD.rowid; END"
+    )
+
+    internal val REBUILD_SEARCH_INDEX = listOf(
+        "DELETE FROM $TABLE_NOVEL_FTS",
+        "DELETE FROM $TABLE_WEB_PAGE_FTS",
+        INSERT_NOVEL_SEARCH_ROW,
+        "INSERT INTO $TABLE_WEB_PAGE_FTS(docid, $KEY_CHAPTER) SELECT ($KEY_NOVEL_ID << 32) | rowid, $KEY_CHAPTER FROM $TABLE_WEB_PAGE",
+        "INSERT INTO $TABLE_NOVEL_FTS($TABLE_NOVEL_FTS) VALUES ('optimize')",
+        "INSERT INTO $TABLE_WEB_PAGE_FTS($TABLE_WEB_PAGE_FTS) VALUES ('optimize')"
+    )
+
 
 }
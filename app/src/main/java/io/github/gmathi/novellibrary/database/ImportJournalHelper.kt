@@ -0,0 +1,85 @@
+package io.github.gmathi.novellibrary.database
+
+import android.content.ContentValues
+import android.database.sqlite.SQLiteDatabase
+import io.github.gmathi.novellibrary.service.library_import.ImportEntry
+import io.github.gmathi.novellibrary.service.library_import.ImportJournal
+import io.github.gmathi.novellibrary.service.library_import.ImportStatus
+
+/**
+ * Adds novels to the import journal, after the ones already in it. A novel already in the journal is imported again.
+ */
+fun DBHelper.addToImportJournal(entries: List<ImportEntry>) {
+    this.writableDatabase.runTransaction { db ->
+        val orderId = db.rawQuery("SELECT MAX(${DBKeys.KEY_ORDER_ID}) FROM ${DBKeys.TABLE_IMPORT_JOURNAL}", null).use {
+            if (it.moveToFirst() && !it.isNull(0)) it.getLong(0) + 1 else 0L
+        }
+        val now = System.currentTimeMillis()
+        entries.forEachIndexed { index, entry ->
+            val values = ContentValues()
+            values.put(DBKeys.KEY_NOVEL_URL, entry.novelUrl)
+            values.put(DBKeys.KEY_NAME, entry.name)
+            values.put(DBKeys.KEY_IMAGE_URL, entry.imageUrl)
+            values.put(DBKeys.KEY_STATUS, ImportStatus.PENDING.value)
+            values.putNull(DBKeys.KEY_ERROR)
+            values.put(DBKeys.KEY_ORDER_ID, orderId + index)
+            values.put(DBKeys.KEY_UPDATED_AT, now)
+            db.insertWithOnConflict(DBKeys.TABLE_IMPORT_JOURNAL, null, values, SQLiteDatabase.CONFLICT_REPLACE)
+        }
+    }
+}
+
+/**
+ * The novels of the import journal, in the order they were added.
+ */
+fun DBHelper.getImportJournal(): List<ImportEntry> {
+    val selectQuery = "SELECT ${DBKeys.KEY_NOVEL_URL}, ${DBKeys.KEY_NAME}, ${DBKeys.KEY_IMAGE_URL}, ${DBKeys.KEY_STATUS}, ${DBKeys.KEY_ERROR} " +
+            "FROM ${DBKeys.TABLE_IMPORT_JOURNAL} ORDER BY ${DBKeys.KEY_ORDER_ID}"
+    val list = ArrayList<ImportEntry>()
+    this.readableDatabase.rawQuery(selectQuery, null).use { cursor ->
+        while (cursor.moveToNext()) {
+            list.add(
+                ImportEntry(
+                    novelUrl = cursor.getString(0),
+                    name = cursor.getString(1),
+                    imageUrl = cursor.getString(2),
+                    status = ImportStatus.of(cursor.getInt(3)),
+                    error = cursor.getString(4)
+                )
+            )
+        }
+    }
+    return list
+}
+
+fun DBHelper.updateImportJournal(novelUrl: String, status: ImportStatus, error: String? = null) {
+    val values = ContentValues()
+    values.put(DBKeys.KEY_STATUS, status.value)
+    values.put(DBKeys.KEY_ERROR, error)
+    values.put(DBKeys.KEY_UPDATED_AT, System.currentTimeMillis())
+    this.writableDatabase.update(DBKeys.TABLE_IMPORT_JOURNAL, values, "${DBKeys.KEY_NOVEL_URL} = ?", arrayOf(novelUrl))
+}
+
+/**
+ * Drops the novels whose import is over, keeping the ones an interrupted import still has to finish.
+ */
+fun DBHelper.clearFinishedImports() {
+    this.writableDatabase.delete(
+        DBKeys.TABLE_IMPORT_JOURNAL,
+        "${DBKeys.KEY_STATUS} NOT IN (?, ?)",
+        arrayOf(ImportStatus.PENDING.value.toString(), ImportStatus.DETAILS_IMPORTED.value.toString())
+    )
+}
+
+fun DBHelper.clearImportJournal() {
+    this.writableDatabase.delete(DBKeys.TABLE_IMPORT_JOURNAL, null, null)
+}
+
+/**
+ * The import journal, as the [io.github.gmathi.novellibrary.service.library_import.LibraryImporter] uses it.
+ */
+fun DBHelper.importJournal(): ImportJournal = object : ImportJournal {
+    override fun entries(): List<ImportEntry> = getImportJournal()
+
+    override fun update(novelUrl: String, status: ImportStatus, error: String?) = updateImportJournal(novelUrl, status, error)
+}
@@ -15,6 +15,10 @@ import java.util.*
 
 private const val LOG = "NovelHelper"
 
+// Reused for every row; creating a Gson per novel dominated loading large libraries.
+private val gson = Gson()
+private val metadataType = object : TypeToken<HashMap<String, String?>>() {}.type
+
 fun DBHelper.insertNovel(novel: Novel): Long {
     val novelId = createNovel(novel)
     novel.genres?.forEach {
@@ -33,7 +37,7 @@ fun DBHelper.createNovel(novel: Novel): Long {
     values.put(DBKeys.KEY_NAME, novel.name)
     values.put(DBKeys.KEY_URL, novel.url)
     values.put(DBKeys.KEY_SOURCE_ID, novel.sourceId)
-    values.put(DBKeys.KEY_METADATA, Gson().toJson(novel.metadata))
+    values.put(DBKeys.KEY_METADATA, gson.toJson(novel.metadata))
     values.put(DBKeys.KEY_IMAGE_URL, novel.imageUrl)
     values.put(DBKeys.KEY_RATING, novel.rating)
     values.put(DBKeys.KEY_SHORT_DESCRIPTION, novel.shortDescription)
@@ -77,10 +81,7 @@ fun getNovelFromCursor(cursor: Cursor): Novel {
     val novel = Novel(cursor.getString(cursor.getColumnIndex(DBKeys.KEY_NAME)), cursor.getString(cursor.getColumnIndex(DBKeys.KEY_URL)), cursor.getLong(cursor.getColumnIndex(DBKeys.KEY_SOURCE_ID)))
     novel.id = cursor.getLong(cursor.getColumnIndex(DBKeys.KEY_ID))
     novel.metadata = try {
-        Gson().fromJson(
-            cursor.getString(cursor.getColumnIndex(DBKeys.KEY_METADATA)),
-            object : TypeToken<HashMap<String, String?>>() {}.type
-        ) ?: HashMap()
+        gson.fromJson<HashMap<String, String?>>(cursor.getString(cursor.getColumnIndex(DBKeys.KEY_METADATA)), metadataType) ?: HashMap()
     } catch (e: Exception) {
         HashMap()
     }
@@ -120,6 +121,17 @@ fun DBHelper.getAllNovels(): List<Novel> {
     return list
 }
 
+/**
+ * Calls [action] with every novel, in library order, without holding the whole library in memory.
+ */
+fun DBHelper.forEachNovel(action: (Novel) -> Unit) {
+    val selectQuery = "SELECT * FROM novel ORDER BY ${DBKeys.KEY_ORDER_ID} ASC"
+    Logs.debug(LOG, selectQuery)
+    this.readableDatabase.rawQuery(selectQuery, null).use { cursor ->
+        while (cursor.moveToNext()) action(getNovelFromCursor(cursor))
+    }
+}
+
 fun DBHelper.getAllNovels(novelSectionId: Long): List<Novel> {
     val selectQuery = "SELECT * FROM novel WHERE ${DBKeys.KEY_NOVEL_SECTION_ID} = $novelSectionId ORDER BY ${DBKeys.KEY_ORDER_ID} ASC"
     val list = ArrayList<Novel>()
@@ -141,6 +153,25 @@ fun DBHelper.getAllNovels(novelSectionId: Long): List<Novel> {
     return list
 }
 
+/**
+ * Order id of each bookmarked chapter in the novel section, by novel id, for the library's progress and badges.
+ * One join instead of a chapter lookup per row.
+ */
+fun DBHelper.getBookmarkOrderIds(novelSectionId: Long): Map<Long, Long> {
+    val selectQuery = "SELECT n.${DBKeys.KEY_ID}, w.${DBKeys.KEY_ORDER_ID} FROM ${DBKeys.TABLE_NOVEL} n " +
+            "JOIN ${DBKeys.TABLE_WEB_PAGE} w ON w.${DBKeys.KEY_URL} = n.${DBKeys.KEY_CURRENT_WEB_PAGE_URL} " +
+            "WHERE n.${DBKeys.KEY_NOVEL_SECTION_ID} = ?"
+    val map = HashMap<Long, Long>()
+    try {
+        this.readableDatabase.rawQuery(selectQuery, arrayOf(novelSectionId.toString())).use { cursor ->
+            while (cursor.moveToNext()) map[cursor.getLong(0)] = cursor.getLong(1)
+        }
+    } catch (e: Exception) {
+        Logs.error(LOG, "Error getting bookmarks for section $novelSectionId", e)
+    }
+    return map
+}
+
 fun DBHelper.getNovelId(novelUrl: String): Long {
     var id = -1L
     val selectQuery = "SELECT id FROM ${DBKeys.TABLE_NOVEL} WHERE ${DBKeys.KEY_URL} = ?"
@@ -160,7 +191,7 @@ fun DBHelper.updateNovel(novel: Novel): Long {
     values.put(DBKeys.KEY_NAME, novel.name)
     values.put(DBKeys.KEY_URL, novel.url)
     if (novel.metadata.isNotEmpty())
-        values.put(DBKeys.KEY_METADATA, Gson().toJson(novel.metadata))
+        values.put(DBKeys.KEY_METADATA, gson.toJson(novel.metadata))
     values.put(DBKeys.KEY_IMAGE_URL, novel.imageUrl)
     values.put(DBKeys.KEY_RATING, novel.rating)
     values.put(DBKeys.KEY_SHORT_DESCRIPTION, novel.shortDescription)
@@ -197,7 +228,7 @@ fun DBHelper.updateNovelOrderId(novelId: Long, orderId: Long) {
 fun DBHelper.updateNovelOrderIds(novels: List<Novel>) {
     try {
         val db = this.writableDatabase
-        db.beginTransaction()
+        db.beginTransactionNonExclusive()
         try {
             val values = ContentValues()
             for (i in novels.indices) {
@@ -241,7 +272,7 @@ fun DBHelper.updateNewReleasesCount(novelId: Long, newReleasesCount: Long) {
 fun DBHelper.updateNovelMetaData(novel: Novel, db: SQLiteDatabase? = null) {
     val writableDatabase = db ?: this.writableDatabase
     val values = ContentValues()
-    values.put(DBKeys.KEY_METADATA, Gson().toJson(novel.metadata))
+    values.put(DBKeys.KEY_METADATA, gson.toJson(novel.metadata))
     writableDatabase.update(DBKeys.TABLE_NOVEL, values, DBKeys.KEY_ID + " = ?", arrayOf(novel.id.toString())).toLong()
 }
 
@@ -271,7 +302,7 @@ suspend fun DBHelper.resetNovel(novel: Novel) = coroutineScope {
 
     // Notice: Cannot run getNovelDetails on MainThread
     val sourceManager: SourceManager by injectLazy()
-    val newNovel =  sourceManager.get(novel.sourceId)?.getNovelDetails(novel)
+    val newNovel = sourceManager.awaitSource(novel.sourceId)?.getNovelDetails(novel)
     newNovel?.novelSectionId = novel.novelSectionId
     newNovel?.orderId = novel.orderId
     if (newNovel != null) insertNovel(newNovel)
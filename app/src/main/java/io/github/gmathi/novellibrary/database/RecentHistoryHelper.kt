@@ -0,0 +1,94 @@
+package io.github.gmathi.novellibrary.database
+
+import android.content.ContentValues
+import android.database.sqlite.SQLiteDatabase
+import com.google.gson.Gson
+import com.google.gson.JsonParser
+import io.github.gmathi.novellibrary.model.database.Novel
+import io.github.gmathi.novellibrary.util.Constants
+import io.github.gmathi.novellibrary.util.logging.Logs
+
+private const val LOG = "RecentHistoryHelper"
+
+/**
+ * Number of recently viewed novels kept.
+ */
+const val RECENT_HISTORY_LIMIT = 100
+
+private val gson = Gson()
+
+/**
+ * Moves [novel] to the top of the recently viewed history and drops the entries past [RECENT_HISTORY_LIMIT].
+ */
+fun DBHelper.addToRecentHistory(novel: Novel, viewedAt: Long = System.currentTimeMillis()) {
+    this.writableDatabase.runTransaction { db ->
+        putRecentHistory(db, novel.url, viewedAt, gson.toJson(novel))
+        trimRecentHistory(db)
+    }
+}
+
+/**
+ * One page of the recently viewed history, most recent first. Pass the `viewedAt` of the last entry of a page as
+ * [before] to get the next one.
+ */
+fun DBHelper.getRecentHistory(limit: Int = RECENT_HISTORY_LIMIT, before: Long = Long.MAX_VALUE): List<Pair<Long, Novel>> {
+    val selectQuery = "SELECT ${DBKeys.KEY_VIEWED_AT}, ${DBKeys.KEY_SNAPSHOT} FROM ${DBKeys.TABLE_RECENT_HISTORY} " +
+            "WHERE ${DBKeys.KEY_VIEWED_AT} < ? ORDER BY ${DBKeys.KEY_VIEWED_AT} DESC LIMIT ?"
+    val list = ArrayList<Pair<Long, Novel>>()
+    this.readableDatabase.rawQuery(selectQuery, arrayOf(before.toString(), limit.toString())).use { cursor ->
+        while (cursor.moveToNext()) {
+            try {
+                val novel = gson.fromJson(cursor.getString(1), Novel::class.java) ?: continue
+                list.add(cursor.getLong(0) to novel)
+            } catch (e: Exception) {
+                Logs.warning(LOG, "Skipping unreadable history entry", e)
+            }
+        }
+    }
+    return list
+}
+
+fun DBHelper.clearRecentHistory() {
+    this.writableDatabase.delete(DBKeys.TABLE_RECENT_HISTORY, null, null)
+}
+
+private fun putRecentHistory(db: SQLiteDatabase, novelUrl: String, viewedAt: Long, snapshot: String) {
+    val values = ContentValues()
+    values.put(DBKeys.KEY_NOVEL_URL, novelUrl)
+    values.put(DBKeys.KEY_VIEWED_AT, viewedAt)
+    values.put(DBKeys.KEY_SNAPSHOT, snapshot)
+    db.insertWithOnConflict(DBKeys.TABLE_RECENT_HISTORY, null, values, SQLiteDatabase.CONFLICT_REPLACE)
+}
+
+private fun trimRecentHistory(db: SQLiteDatabase) {
+    db.execSQL(
+        "DELETE FROM ${DBKeys.TABLE_RECENT_HISTORY} WHERE ${DBKeys.KEY_VIEWED_AT} < (" +
+                "SELECT ${DBKeys.KEY_VIEWED_AT} FROM ${DBKeys.TABLE_RECENT_HISTORY} ORDER BY ${DBKeys.KEY_VIEWED_AT} DESC LIMIT 1 OFFSET ${RECENT_HISTORY_LIMIT - 1})"
+    )
+}
+
+/**
+ * Moves the history from the JSON list in `large_preference` (oldest first) to the `recent_history` table. Entries
+ * are copied as they are, one snapshot per row, without parsing them into novels.
+ */
+internal fun migrateRecentHistory(db: SQLiteDatabase) {
+    val history = db.rawQuery(
+        "SELECT ${DBKeys.KEY_VALUE} FROM ${DBKeys.TABLE_LARGE_PREFERENCE} WHERE ${DBKeys.KEY_NAME} = ?",
+        arrayOf(Constants.LargePreferenceKeys.RVN_HISTORY)
+    ).use { if (it.moveToFirst()) it.getString(0) else null }
+
+    if (history != null) {
+        try {
+            val entries = JsonParser.parseString(history).asJsonArray
+            val now = System.currentTimeMillis()
+            entries.forEachIndexed { index, entry ->
+                val url = entry.asJsonObject.get(DBKeys.KEY_URL)?.asString ?: return@forEachIndexed
+                putRecentHistory(db, url, now - (entries.size() - index), entry.toString())
+            }
+            trimRecentHistory(db)
+        } catch (e: Exception) {
+            Logs.error(LOG, "Unable to migrate the recently viewed history", e)
+        }
+    }
+    db.delete(DBKeys.TABLE_LARGE_PREFERENCE, "${DBKeys.KEY_NAME} = ?", arrayOf(Constants.LargePreferenceKeys.RVN_HISTORY))
+}
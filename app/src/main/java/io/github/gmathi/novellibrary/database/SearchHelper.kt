@@ -0,0 +1,37 @@
+package io.github.gmathi.novellibrary.database
+
+import io.github.gmathi.novellibrary.model.database.Novel
+import io.github.gmathi.novellibrary.util.logging.Logs
+
+private const val LOG = "SearchHelper"
+
+private val TERM_SEPARATOR = Regex("[^\\p{L}\\p{N}]+")
+
+/**
+ * Searches the library through the full-text index. Every word of [query] must match the start of a word, and the
+ * novels are ranked by where they matched: name first, then description and genres, then chapter titles; ties keep
+ * the library order.
+ */
+fun DBHelper.searchNovels(query: String): List<Novel> {
+    // Lowercase, so that words like "or" and "not" are not read as operators
+    val terms = query.lowercase().split(TERM_SEPARATOR).filter { it.isNotEmpty() }
+    if (terms.isEmpty()) return emptyList()
+    val anyColumn = terms.joinToString(" ") { "$it*" }
+    val nameColumn = terms.joinToString(" ") { "${DBKeys.KEY_NAME}:$it*" }
+
+    val selectQuery = "SELECT n.*, MIN(r.search_rank) AS search_rank FROM (" +
+            "SELECT docid AS novel_id, 0 AS search_rank FROM ${DBKeys.TABLE_NOVEL_FTS} WHERE ${DBKeys.TABLE_NOVEL_FTS} MATCH ? " +
+            "UNION ALL SELECT docid, 1 FROM ${DBKeys.TABLE_NOVEL_FTS} WHERE ${DBKeys.TABLE_NOVEL_FTS} MATCH ? " +
+            "UNION ALL SELECT docid >> 32, 2 FROM ${DBKeys.TABLE_WEB_PAGE_FTS} WHERE ${DBKeys.TABLE_WEB_PAGE_FTS} MATCH ?" +
+            ") r JOIN ${DBKeys.TABLE_NOVEL} n ON n.${DBKeys.KEY_ID} = r.novel_id " +
+            "GROUP BY n.${DBKeys.KEY_ID} ORDER BY search_rank, n.${DBKeys.KEY_ORDER_ID}"
+    val list = ArrayList<Novel>()
+    try {
+        this.readableDatabase.rawQuery(selectQuery, arrayOf(nameColumn, anyColumn, anyColumn)).use { cursor ->
+            while (cursor.moveToNext()) list.add(getNovelFromCursor(cursor))
+        }
+    } catch (e: Exception) {
+        Logs.error(LOG, "Error searching novels for '$query'", e)
+    }
+    return list
+}
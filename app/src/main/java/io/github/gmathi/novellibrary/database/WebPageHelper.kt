@@ -123,5 +123,46 @@ fun DBHelper.getWebPage(novelId: Long, translatorSourceName: String?, offset: In
     return webPage
 }
 
+/**
+ * Order-id based chapter navigation. These seek on the `(novel_id[, translator_source_name], order_id)` indexes,
+ * whereas the offset lookups above have to step over every chapter before the requested one.
+ */
+private fun chapterFilter(novelId: Long, translatorSourceName: String?): Pair<String, Array<String>> =
+    if (translatorSourceName == null)
+        "${DBKeys.KEY_NOVEL_ID} = ?" to arrayOf(novelId.toString())
+    else
+        "${DBKeys.KEY_NOVEL_ID} = ? AND ${DBKeys.KEY_TRANSLATOR_SOURCE_NAME} = ?" to arrayOf(novelId.toString(), translatorSourceName)
+
+private fun DBHelper.getSingleWebPage(selectQuery: String, args: Array<String>): WebPage? {
+    var webPage: WebPage? = null
+    val cursor = this.readableDatabase.rawQuery(selectQuery, args)
+    if (cursor != null) {
+        if (cursor.moveToFirst()) {
+            webPage = getWebPageFromCursor(cursor)
+        }
+        cursor.close()
+    }
+    return webPage
+}
 
+fun DBHelper.getChapterIndex(novelId: Long, translatorSourceName: String?): ChapterIndex {
+    val (filter, args) = chapterFilter(novelId, translatorSourceName)
+    val selectQuery = "SELECT ${DBKeys.KEY_ORDER_ID} FROM ${DBKeys.TABLE_WEB_PAGE} WHERE $filter ORDER BY ${DBKeys.KEY_ORDER_ID} ASC"
+    val cursor = this.readableDatabase.rawQuery(selectQuery, args)
+    val orderIds = LongArray(cursor.count)
+    cursor.use {
+        var i = 0
+        while (it.moveToNext()) orderIds[i++] = it.getLong(0)
+    }
+    return ChapterIndex(novelId, translatorSourceName, orderIds)
+}
 
+/**
+ * Same chapter as `getWebPage(novelId, translatorSourceName, position)`, found with an index seek.
+ */
+fun DBHelper.getWebPage(chapterIndex: ChapterIndex, position: Int): WebPage? {
+    val orderId = chapterIndex.orderIdAt(position) ?: return null
+    val (filter, args) = chapterFilter(chapterIndex.novelId, chapterIndex.translatorSourceName)
+    val selectQuery = "SELECT * FROM ${DBKeys.TABLE_WEB_PAGE} WHERE $filter AND ${DBKeys.KEY_ORDER_ID} = ? ORDER BY ${DBKeys.KEY_ORDER_ID} ASC LIMIT ?, 1"
+    return getSingleWebPage(selectQuery, args + orderId.toString() + chapterIndex.rankAt(position).toString())
+}
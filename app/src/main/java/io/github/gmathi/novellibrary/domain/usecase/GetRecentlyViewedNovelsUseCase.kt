@@ -1,25 +1,18 @@
 package io.github.gmathi.novellibrary.domain.usecase
 
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
 import io.github.gmathi.novellibrary.database.DBHelper
-import io.github.gmathi.novellibrary.database.getLargePreference
+import io.github.gmathi.novellibrary.database.RECENT_HISTORY_LIMIT
+import io.github.gmathi.novellibrary.database.getRecentHistory
 import io.github.gmathi.novellibrary.model.database.Novel
-import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.logging.Logs
 
 class GetRecentlyViewedNovelsUseCase(
-    private val dbHelper: DBHelper,
-    private val gson: Gson
+    private val dbHelper: DBHelper
 ) {
     
-    operator fun invoke(): List<Novel> {
-        val history = dbHelper.getLargePreference(Constants.LargePreferenceKeys.RVN_HISTORY) ?: "[]"
-        val historyList: ArrayList<Novel> = gson.fromJson(
-            history,
-            object : TypeToken<ArrayList<Novel>>() {}.type
-        )
-        Logs.debug("GetRecentlyViewedNovelsUseCase", "Found ${historyList.size} recently viewed novels\n$historyList")
-        return historyList.asReversed()
+    operator fun invoke(limit: Int = RECENT_HISTORY_LIMIT): List<Novel> {
+        val historyList = dbHelper.getRecentHistory(limit).map { it.second }
+        Logs.debug("GetRecentlyViewedNovelsUseCase", "Found ${historyList.size} recently viewed novels")
+        return historyList
     }
 }
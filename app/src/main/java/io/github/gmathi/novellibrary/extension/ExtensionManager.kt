@@ -70,8 +70,8 @@ class ExtensionManager(
         return null
     }
 
-    fun getAppIconForSource(source: Source, context: Context): Drawable? {
-        val extension = installedExtensions.find { ext -> ext.sources.any { it.id == source.id } }
+    fun getAppIconForSource(sourceId: Long, context: Context): Drawable? {
+        val extension = installedExtensions.find { ext -> ext.sources.any { it.id == sourceId } }
         return extension?.getApplicationIcon(context)
     }
 
@@ -110,18 +110,24 @@ class ExtensionManager(
     private lateinit var sourceManager: SourceManager
 
     /**
-     * Initializes this manager with the given source manager.
+     * Initializes this manager with the given source manager. Called once, off the main thread, by the startup
+     * stages; [SourceManager.isLoaded] turns true when the installed extensions are registered.
      */
-    fun init(sourceManager: SourceManager) {
+    suspend fun init(sourceManager: SourceManager) {
         this.sourceManager = sourceManager
-        initExtensions()
+        try {
+            initExtensions()
+        } finally {
+            // Don't leave the callers of awaitSource() waiting forever if an extension breaks the loader
+            sourceManager.onExtensionsLoaded()
+        }
         ExtensionInstallReceiver(InstallationListener()).register(context)
     }
 
     /**
      * Loads and registers the installed extensions.
      */
-    private fun initExtensions() {
+    private suspend fun initExtensions() {
         val extensions = ExtensionLoader.loadExtensions(context)
 
         installedExtensions = extensions
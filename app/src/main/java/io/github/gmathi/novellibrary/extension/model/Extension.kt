@@ -1,6 +1,6 @@
 package io.github.gmathi.novellibrary.extension.model
 
-import io.github.gmathi.novellibrary.model.source.Source
+import io.github.gmathi.novellibrary.model.source.SourceDescriptor
 
 
 sealed class Extension {
@@ -20,7 +20,7 @@ sealed class Extension {
         override val lang: String,
         override val isNsfw: Boolean,
         val pkgFactory: String?,
-        val sources: List<Source>,
+        val sources: List<SourceDescriptor>,
         val hasUpdate: Boolean = false,
         val isObsolete: Boolean = false,
         val isUnofficial: Boolean = false
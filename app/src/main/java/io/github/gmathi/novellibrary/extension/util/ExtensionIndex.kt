@@ -0,0 +1,137 @@
+package io.github.gmathi.novellibrary.extension.util
+
+import android.content.Context
+import android.content.pm.PackageInfo
+import com.google.gson.Gson
+import io.github.gmathi.novellibrary.util.logging.Logs
+import java.io.File
+
+/**
+ * On-disk index of the installed packages, so that [ExtensionLoader] only has to ask the PackageManager for the
+ * signatures and meta-data of packages that were installed or updated since the last launch.
+ *
+ * Every installed package gets an [Entry] keyed by package name, version code and last update time; packages that
+ * are not extensions are kept too (with [Entry.isExtension] false) so they aren't inspected again either. The trust
+ * and NSFW checks are not cached, they are re-run from the entry on every load. Once an extension has been loaded,
+ * its entry also lists the sources it created.
+ */
+internal class ExtensionIndex private constructor(private val file: File) {
+
+    companion object {
+        private const val TAG = "ExtensionIndex"
+        private const val FILE_NAME = "extension_index.json"
+        private const val FORMAT_VERSION = 1
+
+        @Volatile
+        private var INSTANCE: ExtensionIndex? = null
+
+        fun getInstance(context: Context): ExtensionIndex {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: ExtensionIndex(File(context.noBackupFilesDir, FILE_NAME)).also { INSTANCE = it }
+            }
+        }
+    }
+
+    data class Entry(
+        val pkgName: String,
+        val versionCode: Int,
+        val lastUpdateTime: Long,
+        val isExtension: Boolean,
+        val name: String? = null,
+        val versionName: String? = null,
+        val signatureHash: String? = null,
+        val isNsfw: Boolean = false,
+        val sourceClasses: List<String> = emptyList(),
+        val pkgFactory: String? = null,
+        val sourceDir: String? = null,
+        val lang: String? = null,
+        val sources: List<SourceInfo>? = null
+    ) {
+        fun isCurrent(pkgInfo: PackageInfo) =
+            pkgInfo.versionCode == versionCode && pkgInfo.lastUpdateTime == lastUpdateTime
+    }
+
+    /**
+     * A source created by the extension, recorded the first time the extension is loaded so that the next loads can
+     * register it without creating it.
+     *
+     * @param className The class in [Entry.sourceClasses] that is, or whose factory created, the source.
+     */
+    data class SourceInfo(
+        val id: Long,
+        val name: String,
+        val lang: String,
+        val className: String,
+        val isOnline: Boolean,
+        val isNsfw: Boolean
+    )
+
+    private class Snapshot(val formatVersion: Int, val entries: List<Entry>)
+
+    private val gson = Gson()
+
+    private val entries: MutableMap<String, Entry> by lazy { read() }
+
+    private var dirty = false
+
+    /**
+     * The entry of [pkgInfo]'s package, or null if there is none or the package changed since it was indexed.
+     */
+    @Synchronized
+    fun get(pkgInfo: PackageInfo): Entry? = entries[pkgInfo.packageName]?.takeIf { it.isCurrent(pkgInfo) }
+
+    @Synchronized
+    fun put(entry: Entry) {
+        if (entries.put(entry.pkgName, entry) != entry) dirty = true
+    }
+
+    /**
+     * Replaces [entry] with [transform]'s result, unless the package was re-indexed (updated) in the meantime.
+     */
+    @Synchronized
+    fun update(entry: Entry, transform: (Entry) -> Entry) {
+        val current = entries[entry.pkgName] ?: return
+        if (current.versionCode == entry.versionCode && current.lastUpdateTime == entry.lastUpdateTime) put(transform(current))
+    }
+
+    @Synchronized
+    fun remove(pkgName: String) {
+        if (entries.remove(pkgName) != null) dirty = true
+    }
+
+    /**
+     * Drops the entries of the packages not in [installed].
+     */
+    @Synchronized
+    fun retainAll(installed: Set<String>) {
+        if (entries.keys.retainAll(installed)) dirty = true
+    }
+
+    /**
+     * Writes the index if it changed since it was read or last saved.
+     */
+    @Synchronized
+    fun save() {
+        if (!dirty) return
+        try {
+            val tmp = File(file.parentFile, "$FILE_NAME.tmp")
+            tmp.writeText(gson.toJson(Snapshot(FORMAT_VERSION, entries.values.toList())))
+            if (!tmp.renameTo(file)) throw IllegalStateException("Unable to replace $file")
+            dirty = false
+        } catch (e: Exception) {
+            Logs.error(TAG, "Unable to save the extension index", e)
+        }
+    }
+
+    private fun read(): MutableMap<String, Entry> {
+        if (!file.exists()) return HashMap()
+        return try {
+            val snapshot = gson.fromJson(file.readText(), Snapshot::class.java)
+            if (snapshot?.formatVersion != FORMAT_VERSION) HashMap()
+            else snapshot.entries.associateByTo(HashMap()) { it.pkgName }
+        } catch (e: Exception) {
+            Logs.warning(TAG, "Ignoring unreadable extension index", e)
+            HashMap()
+        }
+    }
+}
@@ -8,6 +8,7 @@ import androidx.core.content.ContextCompat
 import androidx.core.content.ContextCompat.RECEIVER_EXPORTED
 import io.github.gmathi.novellibrary.extension.model.Extension
 import io.github.gmathi.novellibrary.extension.model.LoadResult
+import io.github.gmathi.novellibrary.util.lang.launchIO
 import io.github.gmathi.novellibrary.util.lang.launchNow
 import kotlinx.coroutines.CoroutineStart
 import kotlinx.coroutines.DelicateCoroutinesApi
@@ -75,6 +76,7 @@ internal class ExtensionInstallReceiver(private val listener: Listener) :
                 if (!isReplacing(intent)) {
                     val pkgName = getPackageNameFromIntent(intent)
                     if (pkgName != null) {
+                        launchIO { ExtensionLoader.forgetPackage(context, pkgName) }
                         listener.onPackageUninstalled(pkgName)
                     }
                 }
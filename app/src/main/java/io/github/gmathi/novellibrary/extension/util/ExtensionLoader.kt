@@ -11,10 +11,14 @@ import io.github.gmathi.novellibrary.extension.model.Extension
 import io.github.gmathi.novellibrary.extension.model.LoadResult
 import io.github.gmathi.novellibrary.model.source.CatalogueSource
 import io.github.gmathi.novellibrary.model.source.Source
+import io.github.gmathi.novellibrary.model.source.SourceDescriptor
+import io.github.gmathi.novellibrary.model.source.online.HttpSource
 import io.github.gmathi.novellibrary.model.preference.DataCenter
 import io.github.gmathi.novellibrary.util.lang.Hash
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.async
-import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
 import uy.kohesive.injekt.injectLazy
 
 /**
@@ -46,24 +50,27 @@ internal object ExtensionLoader {
     var trustedSignatures = mutableSetOf<String>() + dataCenter.trustedSignatures + officialSignature
 
     /**
-     * Return a list of all the installed extensions initialized concurrently.
+     * Return a list of all the installed extensions initialized concurrently on the IO dispatcher. Only the packages
+     * that are new or changed since the last launch are inspected, the others come from the [ExtensionIndex].
      *
      * @param context The application context.
      */
-    fun loadExtensions(context: Context): List<LoadResult> {
-        val pkgManager = context.packageManager
-        val installedPkgs = pkgManager.getInstalledPackages(PACKAGE_FLAGS)
-        val extPkgs = installedPkgs.filter { isPackageAnExtension(it) }
+    suspend fun loadExtensions(context: Context): List<LoadResult> = coroutineScope {
+        val index = ExtensionIndex.getInstance(context)
+        // No flags: just names, versions and update times, not the signatures and features of every app
+        val installedPkgs = context.packageManager.getInstalledPackages(0)
+        index.retainAll(installedPkgs.mapTo(HashSet()) { it.packageName })
 
-        if (extPkgs.isEmpty()) return emptyList()
+        val extEntries = installedPkgs.map { pkgInfo ->
+            async(Dispatchers.IO) { index.get(pkgInfo) ?: indexPackage(context, pkgInfo.packageName) }
+        }.awaitAll().filterNotNull().filter { it.isExtension }
 
         // Load each extension concurrently and wait for completion
-        return runBlocking {
-            val deferred = extPkgs.map {
-                async { loadExtension(context, it.packageName, it) }
-            }
-            deferred.map { it.await() }
-        }
+        val results = extEntries.map {
+            async(Dispatchers.IO) { loadExtension(context, it) }
+        }.awaitAll()
+        index.save()
+        results
     }
 
     /**
@@ -71,38 +78,81 @@ internal object ExtensionLoader {
      * contains the required feature flag before trying to load it.
      */
     fun loadExtensionFromPkgName(context: Context, pkgName: String): LoadResult {
-        val pkgInfo = try {
-            context.packageManager.getPackageInfo(pkgName, PACKAGE_FLAGS)
-        } catch (error: PackageManager.NameNotFoundException) {
+        val index = ExtensionIndex.getInstance(context)
+        try {
             // Unlikely, but the package may have been uninstalled at this point
-            return LoadResult.Error(error)
+            val entry = indexPackage(context, pkgName) ?: return LoadResult.Error("Package $pkgName not found")
+            if (!entry.isExtension) {
+                return LoadResult.Error("Tried to load a package that wasn't a extension")
+            }
+            return loadExtension(context, entry)
+        } finally {
+            index.save()
         }
-        if (!isPackageAnExtension(pkgInfo)) {
-            return LoadResult.Error("Tried to load a package that wasn't a extension")
+    }
+
+    /**
+     * Drops an uninstalled package from the [ExtensionIndex].
+     */
+    fun forgetPackage(context: Context, pkgName: String) {
+        ExtensionIndex.getInstance(context).apply {
+            remove(pkgName)
+            save()
         }
-        return loadExtension(context, pkgName, pkgInfo)
     }
 
     /**
-     * Loads an extension given its package name.
+     * Reads what loading an extension needs from the PackageManager and stores it in the [ExtensionIndex].
      *
      * @param context The application context.
-     * @param pkgName The package name of the extension to load.
-     * @param pkgInfo The package info of the extension.
+     * @param pkgName The package name of the application.
+     * @return The new index entry, or null if the package is not installed anymore.
      */
-    private fun loadExtension(context: Context, pkgName: String, pkgInfo: PackageInfo): LoadResult {
+    private fun indexPackage(context: Context, pkgName: String): ExtensionIndex.Entry? {
         val pkgManager = context.packageManager
-
-        val appInfo = try {
-            pkgManager.getApplicationInfo(pkgName, PackageManager.GET_META_DATA)
+        val entry = try {
+            val pkgInfo = pkgManager.getPackageInfo(pkgName, PACKAGE_FLAGS)
+            if (!isPackageAnExtension(pkgInfo)) {
+                ExtensionIndex.Entry(pkgName, pkgInfo.versionCode, pkgInfo.lastUpdateTime, isExtension = false)
+            } else {
+                val appInfo = pkgManager.getApplicationInfo(pkgName, PackageManager.GET_META_DATA)
+                ExtensionIndex.Entry(
+                    pkgName,
+                    pkgInfo.versionCode,
+                    pkgInfo.lastUpdateTime,
+                    isExtension = true,
+                    name = pkgManager.getApplicationLabel(appInfo).toString().substringAfter("NovelLibrary: "),
+                    versionName = pkgInfo.versionName,
+                    signatureHash = getSignatureHash(pkgInfo),
+                    isNsfw = appInfo.metaData?.getInt(METADATA_NSFW) == 1,
+                    sourceClasses = appInfo.metaData?.getString(METADATA_SOURCE_CLASS).orEmpty()
+                        .split(";")
+                        .map { it.trim() }
+                        .filter { it.isNotEmpty() }
+                        .map { if (it.startsWith(".")) pkgInfo.packageName + it else it },
+                    pkgFactory = appInfo.metaData?.getString(METADATA_SOURCE_FACTORY),
+                    sourceDir = appInfo.sourceDir
+                )
+            }
         } catch (error: PackageManager.NameNotFoundException) {
-            // Unlikely, but the package may have been uninstalled at this point
-            return LoadResult.Error(error)
+            null
         }
+        val index = ExtensionIndex.getInstance(context)
+        if (entry != null) index.put(entry) else index.remove(pkgName)
+        return entry
+    }
 
-        val extName = pkgManager.getApplicationLabel(appInfo).toString().substringAfter("NovelLibrary: ")
-        val versionName = pkgInfo.versionName
-        val versionCode = pkgInfo.versionCode
+    /**
+     * Loads an extension from its index entry.
+     *
+     * @param context The application context.
+     * @param entry The index entry of the extension's package.
+     */
+    private fun loadExtension(context: Context, entry: ExtensionIndex.Entry): LoadResult {
+        val pkgName = entry.pkgName
+        val extName = entry.name.orEmpty()
+        val versionName = entry.versionName
+        val versionCode = entry.versionCode
 
         if (versionName.isNullOrEmpty()) {
             val exception = Exception("Missing versionName for extension $extName")
@@ -120,7 +170,7 @@ internal object ExtensionLoader {
             return LoadResult.Error(exception)
         }
 
-        val signatureHash = getSignatureHash(pkgInfo)
+        val signatureHash = entry.signatureHash
 
         if (signatureHash == null) {
             return LoadResult.Error("Package $pkgName isn't signed")
@@ -129,50 +179,32 @@ internal object ExtensionLoader {
             return LoadResult.Untrusted(extension)
         }
 
-        val isNsfw = appInfo.metaData.getInt(METADATA_NSFW) == 1
+        val isNsfw = entry.isNsfw
         if (!loadNsfwSource && isNsfw) {
             return LoadResult.Error("NSFW extension $pkgName not allowed")
         }
 
-        val classLoader = PathClassLoader(appInfo.sourceDir, null, context.classLoader)
-
-        val sources = appInfo.metaData.getString(METADATA_SOURCE_CLASS)!!
-            .split(";")
-            .map {
-                val sourceClass = it.trim()
-                if (sourceClass.startsWith(".")) {
-                    pkgInfo.packageName + sourceClass
-                } else {
-                    sourceClass
-                }
-            }
-            .flatMap {
-                try {
-                    when (val obj = Class.forName(it, false, classLoader).newInstance()) {
-                        is Source -> listOf(obj)
-                        is SourceFactory -> {
-                            if (isSourceNsfw(obj)) {
-                                emptyList()
-                            } else {
-                                obj.createSources()
-                            }
-                        }
-                        else -> throw Exception("Unknown source class type! ${obj.javaClass}")
-                    }
-                } catch (e: Throwable) {
-                    return LoadResult.Error(e)
-                }
+        val cachedSources = entry.sources
+        val sources = if (cachedSources != null) {
+            describeSources(context, entry, cachedSources)
+        } else {
+            try {
+                createSources(context, entry)
+            } catch (e: Throwable) {
+                return LoadResult.Error(e)
             }
-            .filter { !isSourceNsfw(it) }
+        }
 
-        val langs = sources.filterIsInstance<CatalogueSource>()
+        val langs = sources
             .map { it.lang }
+            .filter { it.isNotEmpty() }
             .toSet()
         val lang = when (langs.size) {
             0 -> ""
             1 -> langs.first()
             else -> "all"
         }
+        if (entry.lang != lang) ExtensionIndex.getInstance(context).update(entry) { it.copy(lang = lang) }
 
         val extension = Extension.Installed(
             extName,
@@ -182,12 +214,94 @@ internal object ExtensionLoader {
             lang,
             isNsfw,
             sources = sources,
-            pkgFactory = appInfo.metaData.getString(METADATA_SOURCE_FACTORY),
+            pkgFactory = entry.pkgFactory,
             isUnofficial = signatureHash != officialSignature
         )
         return LoadResult.Success(extension)
     }
 
+    /**
+     * Creates every source of an extension that was never loaded (or was updated) and records them in the
+     * [ExtensionIndex], so that the next loads can use [describeSources].
+     *
+     * @param context The application context.
+     * @param entry The index entry of the extension's package.
+     */
+    private fun createSources(context: Context, entry: ExtensionIndex.Entry): List<SourceDescriptor> {
+        val classLoader = PathClassLoader(entry.sourceDir, null, context.classLoader)
+        val infos = ArrayList<ExtensionIndex.SourceInfo>()
+        var isComplete = true
+
+        val sources = entry.sourceClasses.flatMap { className ->
+            val obj = instantiate(className, classLoader)
+            val isFactoryNsfw = hasNsfwAnnotation(obj)
+            if (obj is SourceFactory && isSourceNsfw(obj)) {
+                // Its sources can't be known without creating them, so this load can't be cached
+                isComplete = false
+                return@flatMap emptyList()
+            }
+            val created = if (obj is SourceFactory) obj.createSources() else listOf(obj as Source)
+            created.mapTo(infos) {
+                ExtensionIndex.SourceInfo(
+                    it.id,
+                    it.name,
+                    (it as? CatalogueSource)?.lang.orEmpty(),
+                    className,
+                    it is HttpSource,
+                    isFactoryNsfw || hasNsfwAnnotation(it)
+                )
+            }
+            created
+        }
+        if (isComplete) ExtensionIndex.getInstance(context).update(entry) { it.copy(sources = infos) }
+
+        return sources
+            .filter { !isSourceNsfw(it) }
+            .map { SourceDescriptor.of(it) }
+    }
+
+    /**
+     * Describes the sources recorded in the index without creating them. The extension's classes are only loaded,
+     * and a source class or factory only instantiated, when one of its sources is first used.
+     *
+     * @param context The application context.
+     * @param entry The index entry of the extension's package.
+     * @param infos The sources recorded in [entry].
+     */
+    private fun describeSources(
+        context: Context,
+        entry: ExtensionIndex.Entry,
+        infos: List<ExtensionIndex.SourceInfo>
+    ): List<SourceDescriptor> {
+        val classLoader by lazy { PathClassLoader(entry.sourceDir, null, context.classLoader) }
+        val created = infos.map { it.className }.distinct().associateWith { className ->
+            lazy {
+                when (val obj = instantiate(className, classLoader)) {
+                    is SourceFactory -> obj.createSources()
+                    else -> listOf(obj as Source)
+                }
+            }
+        }
+
+        return infos
+            .filter { loadNsfwSource || !it.isNsfw }
+            .map { info ->
+                SourceDescriptor(info.id, info.name, info.lang, info.isOnline) {
+                    created.getValue(info.className).value.firstOrNull { it.id == info.id }
+                        ?: throw Exception("${entry.pkgName} doesn't create the source ${info.name} anymore")
+                }
+            }
+    }
+
+    /**
+     * Instantiates a class listed in an extension's meta-data, which must be a [Source] or a [SourceFactory].
+     */
+    private fun instantiate(className: String, classLoader: ClassLoader): Any {
+        val obj = Class.forName(className, false, classLoader).newInstance()
+        if (obj !is Source && obj !is SourceFactory) throw Exception("Unknown source class type! ${obj.javaClass}")
+        return obj
+    }
+
     /**
      * Returns true if the given package is an extension.
      *
@@ -212,13 +326,16 @@ internal object ExtensionLoader {
     }
 
     /**
-     * Checks whether a Source or SourceFactory is annotated with @Nsfw.
+     * Checks whether a Source or SourceFactory is annotated with @Nsfw and NSFW sources are not allowed.
      */
     private fun isSourceNsfw(clazz: Any): Boolean {
-        if (loadNsfwSource) {
-            return false
-        }
+        return !loadNsfwSource && hasNsfwAnnotation(clazz)
+    }
 
+    /**
+     * Checks whether a Source or SourceFactory is annotated with @Nsfw.
+     */
+    private fun hasNsfwAnnotation(clazz: Any): Boolean {
         if (clazz !is Source && clazz !is SourceFactory) {
             return false
         }
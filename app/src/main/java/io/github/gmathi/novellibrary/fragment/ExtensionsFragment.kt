@@ -7,7 +7,8 @@ import android.view.View
 import android.view.ViewGroup
 import androidx.core.content.ContextCompat
 import androidx.recyclerview.widget.DividerItemDecoration
-import com.bumptech.glide.Glide
+import coil.dispose
+import coil.load
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.adapter.GenericAdapter
 import io.github.gmathi.novellibrary.databinding.ContentRecyclerViewBinding
@@ -20,7 +21,6 @@ import io.github.gmathi.novellibrary.extension.model.InstallStep
 import io.github.gmathi.novellibrary.extension.util.getApplicationIcon
 import io.github.gmathi.novellibrary.extensions.showEmpty
 import io.github.gmathi.novellibrary.extensions.showLoading
-import io.github.gmathi.novellibrary.util.lang.getGlideUrl
 import io.github.gmathi.novellibrary.util.system.LocaleHelper
 import io.github.gmathi.novellibrary.util.view.CustomDividerItemDecoration
 import io.github.gmathi.novellibrary.util.view.setDefaults
@@ -91,11 +91,9 @@ class ExtensionsFragment : BaseFragment(), GenericAdapter.Listener<ExtensionItem
         binding.run {
 
             //Image
-            Glide.with(itemView.context).clear(image)
+            image.dispose()
             if (extension is Extension.Available) {
-                Glide.with(itemView.context)
-                    .load(extension.iconUrl.getGlideUrl())
-                    .into(binding.image)
+                binding.image.load(extension.iconUrl)
             } else {
                 extension.getApplicationIcon(itemView.context)?.let { image.setImageDrawable(it) }
             }
@@ -16,8 +16,8 @@ import com.afollestad.materialdialogs.DialogCallback
 import com.afollestad.materialdialogs.MaterialDialog
 import com.afollestad.materialdialogs.lifecycle.lifecycleOwner
 import com.afollestad.materialdialogs.list.listItems
-import com.bumptech.glide.Glide
-import com.bumptech.glide.request.RequestOptions
+import coil.load
+import coil.transform.CircleCropTransformation
 import com.tingyik90.snackprogressbar.SnackProgressBar
 import com.tingyik90.snackprogressbar.SnackProgressBarManager
 import io.github.gmathi.novellibrary.R
@@ -35,9 +35,10 @@ import io.github.gmathi.novellibrary.model.other.NovelEvent
 import io.github.gmathi.novellibrary.model.other.NovelSectionEvent
 import io.github.gmathi.novellibrary.network.sync.NovelSync
 import io.github.gmathi.novellibrary.model.source.online.NovelUpdatesSource
+import io.github.gmathi.novellibrary.service.cover.CoverSize
+import io.github.gmathi.novellibrary.service.cover.CoverStore
 import io.github.gmathi.novellibrary.util.*
 import io.github.gmathi.novellibrary.util.logging.Logs
-import io.github.gmathi.novellibrary.util.lang.getGlideUrl
 import io.github.gmathi.novellibrary.util.system.*
 import io.github.gmathi.novellibrary.util.view.SimpleItemTouchHelperCallback
 import io.github.gmathi.novellibrary.util.view.SimpleItemTouchListener
@@ -47,6 +48,7 @@ import kotlinx.coroutines.*
 import org.greenrobot.eventbus.EventBus
 import org.greenrobot.eventbus.Subscribe
 import org.greenrobot.eventbus.ThreadMode
+import uy.kohesive.injekt.injectLazy
 import java.text.SimpleDateFormat
 import java.util.*
 import kotlin.collections.ArrayList
@@ -65,7 +67,16 @@ class LibraryFragment : BaseFragment(), GenericAdapter.Listener<Novel>, SimpleIt
 
     private lateinit var binding: ContentLibraryBinding
 
+    private val coverStore: CoverStore by injectLazy()
+
     var dataSet: HashSet<Novel> = HashSet()
+
+    // Bookmarked chapter order by novel id, loaded with the novels so that binding a row doesn't query the database.
+    private var bookmarkOrderIds: Map<Long, Long> = emptyMap()
+
+    // Novel ids in the order last loaded from or saved to the database.
+    @Volatile
+    private var savedOrder: List<Long> = emptyList()
     private var actionMode: ActionMode? = null
 
     private var confirmDialog: MaterialDialog? = null
@@ -132,8 +143,23 @@ class LibraryFragment : BaseFragment(), GenericAdapter.Listener<Novel>, SimpleIt
             try {
                 updateOrderIds()
                 val novels = dbHelper.getAllNovels(novelSectionId)
+                val bookmarks = dbHelper.getBookmarkOrderIds(novelSectionId)
+                savedOrder = novels.map { it.id }
+                val oldItems = withContext(Dispatchers.Main) { ArrayList(adapter.items) }
+                val diff = adapter.calculateDiff(oldItems, novels) { old, new -> old.id == new.id }
                 withContext(Dispatchers.Main) {
-                    adapter.updateData(ArrayList(novels))
+                    val oldBookmarks = bookmarkOrderIds
+                    bookmarkOrderIds = bookmarks
+                    if (adapter.items != oldItems) {
+                        // The list was dragged or sorted while diffing
+                        adapter.updateData(ArrayList(novels))
+                    } else {
+                        adapter.updateData(ArrayList(novels), diff)
+                        // A resync can move a bookmarked chapter without changing the novel row
+                        if (oldBookmarks.isNotEmpty()) novels.forEachIndexed { index, novel ->
+                            if (oldBookmarks[novel.id] != bookmarks[novel.id]) adapter.notifyItemChanged(index)
+                        }
+                    }
                     binding.swipeRefreshLayout.isRefreshing = false
                     binding.progressLayout.showContent()
                     if (adapter.items.size == 0) {
@@ -177,10 +203,7 @@ class LibraryFragment : BaseFragment(), GenericAdapter.Listener<Novel>, SimpleIt
         itemBinding.novelImageView.setImageResource(android.R.color.transparent)
 
         if (!item.imageUrl.isNullOrBlank()) {
-            Glide.with(this)
-                .load(item.imageUrl?.getGlideUrl())
-                .apply(RequestOptions.circleCropTransform())
-                .into(itemBinding.novelImageView)
+            itemBinding.novelImageView.load(coverStore.imageOf(item.id, item.imageUrl, CoverSize.LIST)) { transformations(CircleCropTransformation()) }
         }
 
         itemBinding.novelTitleTextView.text = item.name
@@ -254,9 +277,7 @@ class LibraryFragment : BaseFragment(), GenericAdapter.Listener<Novel>, SimpleIt
             startReader(item)
         }
 
-        val bookmarkOrderId = if (item.currentChapterUrl != null) {
-            dbHelper.getWebPage(item.currentChapterUrl!!)?.orderId
-        } else null
+        val bookmarkOrderId = if (item.currentChapterUrl != null) bookmarkOrderIds[item.id] else null
 
         val badgeCount = if (dataCenter.showChaptersLeftBadge) {
             if (bookmarkOrderId == null) item.chaptersCount
@@ -413,7 +434,7 @@ class LibraryFragment : BaseFragment(), GenericAdapter.Listener<Novel>, SimpleIt
                     try {
 
                         val newChaptersList = withContext(Dispatchers.IO) {
-                            val source = sourceManager.get(it.sourceId)
+                            val source = sourceManager.awaitSource(it.sourceId)
                             if (source is NovelUpdatesSource)
                                 source.getUnsortedChapterList(it)
                             else
@@ -474,7 +495,7 @@ class LibraryFragment : BaseFragment(), GenericAdapter.Listener<Novel>, SimpleIt
 
                 try {
                     if (novelToUpdate.sourceId == Constants.SourceId.NOVEL_UPDATES) {
-                        chapters = ArrayList(withContext(Dispatchers.IO) { sourceManager.get(novelToUpdate.sourceId)?.getChapterList(novelToUpdate) } ?: emptyList())
+                        chapters = ArrayList(withContext(Dispatchers.IO) { sourceManager.awaitSource(novelToUpdate.sourceId)?.getChapterList(novelToUpdate) } ?: emptyList())
                     }
                     waitList.add(async {
                         dbHelper.writableDatabase.runTransaction { writableDatabase ->
@@ -604,7 +625,11 @@ class LibraryFragment : BaseFragment(), GenericAdapter.Listener<Novel>, SimpleIt
     private fun updateOrderIds() {
         if (adapter.items.isEmpty()) return
         val items = ArrayList(adapter.items)
+        // Called on every reload and pause, but only a drag or a sort changes the order.
+        val order = items.map { it.id }
+        if (order == savedOrder) return
         dbHelper.updateNovelOrderIds(items)
+        savedOrder = order
     }
 
     @SuppressLint("CheckResult")
@@ -13,6 +13,7 @@ import androidx.compose.ui.platform.ViewCompositionStrategy
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.viewinterop.AndroidView
 import androidx.core.view.GravityCompat
+import androidx.lifecycle.lifecycleScope
 import androidx.viewpager.widget.ViewPager
 import com.google.firebase.analytics.ktx.logEvent
 import com.ogaclejapan.smarttablayout.SmartTabLayout
@@ -26,6 +27,8 @@ import io.github.gmathi.novellibrary.model.source.getPreferenceKey
 import io.github.gmathi.novellibrary.util.analytics.FAC
 import io.github.gmathi.novellibrary.util.lang.addToNovelSearchHistory
 import io.github.gmathi.novellibrary.util.system.hideSoftKeyboard
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
 
 
 class SearchFragment : BaseFragment() {
@@ -34,6 +37,7 @@ class SearchFragment : BaseFragment() {
     private var searchTerm: String? = null
     private var viewPager: ViewPager? = null
     private var tabStrip: SmartTabLayout? = null
+    private var searchJob: Job? = null
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -163,6 +167,7 @@ class SearchFragment : BaseFragment() {
     }
 
     private fun setViewPager() {
+        searchJob?.cancel()
         while (childFragmentManager.backStackEntryCount > 0)
             childFragmentManager.popBackStack()
         searchTerm = null
@@ -188,21 +193,26 @@ class SearchFragment : BaseFragment() {
         searchMode = true
         this.searchTerm = searchTerm
 
-        val sources = sourceManager.getOnlineSources().filter {
-            dataCenter.isSourceEnabled(it.getPreferenceKey())
-        }
+        searchJob?.cancel()
+        searchJob = lifecycleScope.launch {
+            // Right after a cold start the extensions may still be loading, search them all once they are
+            sourceManager.awaitSources()
+            val sources = sourceManager.getOnlineSources {
+                dataCenter.isSourceEnabled(it.getPreferenceKey())
+            }
 
-        val sourceNames = sources.map { it.name }
+            val sourceNames = sources.map { it.name }
 
-        viewPager?.let { vp ->
-            vp.offscreenPageLimit = 2
-            vp.adapter = GenericFragmentStatePagerAdapter(
-                childFragmentManager,
-                sourceNames.toTypedArray(),
-                sourceNames.size,
-                SearchResultsListener(searchTerm, sources)
-            )
-            tabStrip?.setViewPager(vp)
+            viewPager?.let { vp ->
+                vp.offscreenPageLimit = 2
+                vp.adapter = GenericFragmentStatePagerAdapter(
+                    childFragmentManager,
+                    sourceNames.toTypedArray(),
+                    sourceNames.size,
+                    SearchResultsListener(searchTerm, sources)
+                )
+                tabStrip?.setViewPager(vp)
+            }
         }
     }
 
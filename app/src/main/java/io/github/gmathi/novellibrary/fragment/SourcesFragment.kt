@@ -3,31 +3,32 @@ package io.github.gmathi.novellibrary.fragment
 import android.os.Bundle
 import android.view.*
 import androidx.core.content.ContextCompat
+import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.DividerItemDecoration
 import com.afollestad.materialdialogs.MaterialDialog
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.adapter.GenericAdapter
-import io.github.gmathi.novellibrary.database.createOrUpdateLargePreference
+import io.github.gmathi.novellibrary.database.clearRecentHistory
 import io.github.gmathi.novellibrary.databinding.ContentRecyclerViewBinding
 import io.github.gmathi.novellibrary.databinding.ListitemTitleSubtitleWidgetBinding
 import io.github.gmathi.novellibrary.extension.ExtensionManager
+import io.github.gmathi.novellibrary.model.source.SourceDescriptor
 import io.github.gmathi.novellibrary.model.source.getPreferenceKey
-import io.github.gmathi.novellibrary.model.source.online.HttpSource
-import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.view.CustomDividerItemDecoration
 import io.github.gmathi.novellibrary.util.view.extensions.applyFont
 import io.github.gmathi.novellibrary.util.view.setDefaults
+import kotlinx.coroutines.launch
 import uy.kohesive.injekt.Injekt
 import uy.kohesive.injekt.api.get
 
-class SourcesFragment : BaseFragment(), GenericAdapter.Listener<HttpSource> {
+class SourcesFragment : BaseFragment(), GenericAdapter.Listener<SourceDescriptor> {
 
     companion object {
         fun newInstance() = SourcesFragment()
     }
 
     private lateinit var binding: ContentRecyclerViewBinding
-    private lateinit var adapter: GenericAdapter<HttpSource>
+    private lateinit var adapter: GenericAdapter<SourceDescriptor>
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -52,7 +53,7 @@ class SourcesFragment : BaseFragment(), GenericAdapter.Listener<HttpSource> {
         binding.swipeRefreshLayout.isEnabled = false
     }
 
-    override fun bind(item: HttpSource, itemView: View, position: Int) {
+    override fun bind(item: SourceDescriptor, itemView: View, position: Int) {
         val itemBinding = ListitemTitleSubtitleWidgetBinding.bind(itemView)
         itemBinding.widgetChevron.visibility = View.GONE
         itemBinding.widgetSwitch.visibility = View.VISIBLE
@@ -62,7 +63,7 @@ class SourcesFragment : BaseFragment(), GenericAdapter.Listener<HttpSource> {
         itemBinding.icon.visibility = View.GONE
 
 
-        val drawable = Injekt.get<ExtensionManager>().getAppIconForSource(item, itemView.context)
+        val drawable = Injekt.get<ExtensionManager>().getAppIconForSource(item.id, itemView.context)
         if (drawable != null) {
             itemBinding.icon.visibility = View.VISIBLE
             itemBinding.icon.setImageDrawable(drawable)
@@ -80,7 +81,7 @@ class SourcesFragment : BaseFragment(), GenericAdapter.Listener<HttpSource> {
         )
     }
 
-    override fun onItemClick(item: HttpSource, position: Int) {
+    override fun onItemClick(item: SourceDescriptor, position: Int) {
 
     }
 
@@ -95,10 +96,7 @@ class SourcesFragment : BaseFragment(), GenericAdapter.Listener<HttpSource> {
             MaterialDialog(requireActivity()).show {
                 message(text = "Are you sure you want to clear all the recently viewed novels list?")
                 positiveButton(text = "Yes") { dialog ->
-                    dbHelper.createOrUpdateLargePreference(
-                        Constants.LargePreferenceKeys.RVN_HISTORY,
-                        "[]"
-                    )
+                    dbHelper.clearRecentHistory()
                     adapter.updateData(ArrayList())
                     dialog.dismiss()
                 }
@@ -112,6 +110,10 @@ class SourcesFragment : BaseFragment(), GenericAdapter.Listener<HttpSource> {
 
     override fun onResume() {
         super.onResume()
-        adapter.updateData(ArrayList(sourceManager.getOnlineSources()))
+        // Right after a cold start the extensions may still be loading. Listing a source doesn't create it.
+        lifecycleScope.launch {
+            sourceManager.awaitSources()
+            adapter.updateData(ArrayList(sourceManager.getOnlineSourceDescriptors()))
+        }
     }
 }
\ No newline at end of file
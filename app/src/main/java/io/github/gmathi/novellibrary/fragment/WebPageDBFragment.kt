@@ -32,6 +32,8 @@ import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.Constants.FILE_PROTOCOL
 import io.github.gmathi.novellibrary.util.logging.Logs
 import io.github.gmathi.novellibrary.util.lang.getLinkedPagesCompat
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
 import io.github.gmathi.novellibrary.util.view.extensions.setDefaultSettings
 import kotlinx.coroutines.*
 import okhttp3.Cookie
@@ -42,6 +44,7 @@ import org.greenrobot.eventbus.Subscribe
 import org.greenrobot.eventbus.ThreadMode
 import org.jsoup.Jsoup
 import org.jsoup.nodes.Document
+import uy.kohesive.injekt.injectLazy
 import java.io.File
 
 
@@ -57,6 +60,8 @@ class WebPageDBFragment : BaseFragment() {
 
     private lateinit var binding: FragmentReaderBinding
 
+    private val tracer: Tracer by injectLazy()
+
     companion object {
         private const val NOVEL_ID = "novelId"
         private const val WEB_PAGE = "webPage"
@@ -367,10 +372,12 @@ class WebPageDBFragment : BaseFragment() {
                 // Process the document and load it onto the webView
                 doc?.let { doc ->
                     val htmlHelper = HtmlCleaner.getInstance(doc)
-                    htmlHelper.removeJS(doc)
-                    htmlHelper.additionalProcessing(doc)
-                    htmlHelper.setProperHrefUrls(doc)
-                    htmlHelper.toggleTheme(dataCenter.isDarkTheme, doc)
+                    tracer.trace(Tracer.HTML_CLEAN) {
+                        htmlHelper.removeJS(doc)
+                        htmlHelper.additionalProcessing(doc)
+                        htmlHelper.setProperHrefUrls(doc)
+                        htmlHelper.toggleTheme(dataCenter.isDarkTheme, doc)
+                    }
 
                     if (dataCenter.enableClusterPages) {
                         val alreadyDownloadedLinks = ArrayList<String>()
@@ -435,10 +442,12 @@ class WebPageDBFragment : BaseFragment() {
             binding.progressLayout.showLoading()
             binding.readerWebView.settings.javaScriptEnabled = true
             val htmlHelper = HtmlCleaner.getInstance(doc)
-            htmlHelper.removeJS(doc)
-            htmlHelper.additionalProcessing(doc)
-            htmlHelper.setProperHrefUrls(doc)
-            htmlHelper.toggleTheme(dataCenter.isDarkTheme, doc)
+            tracer.trace(Tracer.HTML_CLEAN) {
+                htmlHelper.removeJS(doc)
+                htmlHelper.additionalProcessing(doc)
+                htmlHelper.setProperHrefUrls(doc)
+                htmlHelper.toggleTheme(dataCenter.isDarkTheme, doc)
+            }
 
             if (dataCenter.enableClusterPages) {
                 // Add the content of the links to the doc
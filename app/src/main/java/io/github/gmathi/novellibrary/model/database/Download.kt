@@ -2,9 +2,16 @@ package io.github.gmathi.novellibrary.model.database
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
-@Entity(tableName = "download")
+@Entity(
+    tableName = "download",
+    indices = [
+        Index(name = "download_novel_id_status_order_id_index", value = ["novel_id", "status", "order_id"]),
+        Index(name = "download_status_index", value = ["status"])
+    ]
+)
 data class Download(
     @PrimaryKey @ColumnInfo(name = "web_page_url") val webPageUrl: String,
     @ColumnInfo(name = "name") var novelName: String,
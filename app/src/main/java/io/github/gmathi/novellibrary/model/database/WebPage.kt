@@ -11,7 +11,11 @@ import java.io.Serializable
 
 @Entity(
     tableName = "web_page",
-    indices = [Index(name = "web_page_url_novel_id_index", value = ["url", "novel_id"])]
+    indices = [
+        Index(name = "web_page_url_novel_id_index", value = ["url", "novel_id"]),
+        Index(name = "web_page_novel_id_order_id_index", value = ["novel_id", "order_id"]),
+        Index(name = "web_page_novel_id_source_order_id_index", value = ["novel_id", "translator_source_name", "order_id"])
+    ]
 )
 data class WebPage(
     @PrimaryKey @ColumnInfo(name = "url") var url: String,
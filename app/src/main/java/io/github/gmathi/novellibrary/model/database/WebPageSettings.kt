@@ -14,7 +14,11 @@ import java.io.Serializable
 //Used for Internal Database
 @Entity(
     tableName = "web_page_settings",
-    indices = [Index(name = "web_page_settings_url_index", value = ["url", "novel_id"])]
+    indices = [
+        Index(name = "web_page_settings_url_index", value = ["url", "novel_id"]),
+        Index(name = "web_page_settings_novel_id_index", value = ["novel_id"]),
+        Index(name = "web_page_settings_redirect_url_index", value = ["redirect_url"])
+    ]
 )
 data class WebPageSettings(
     @PrimaryKey @ColumnInfo(name = "url") var url: String,
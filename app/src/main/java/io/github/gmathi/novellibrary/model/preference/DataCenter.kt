@@ -5,13 +5,12 @@ import android.content.Context
 import android.content.SharedPreferences
 import android.graphics.Color
 import androidx.preference.PreferenceManager
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
 import io.github.gmathi.novellibrary.model.other.SelectorQuery
 import io.github.gmathi.novellibrary.model.other.TTSFilter
 import io.github.gmathi.novellibrary.model.other.TTSFilterList
 import io.github.gmathi.novellibrary.network.HostNames
 import io.github.gmathi.novellibrary.network.PREF_DOH_CLOUDFLARE
+import io.github.gmathi.novellibrary.service.library_import.LibraryImporter
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.Constants.DEFAULT_FONT_PATH
 import io.github.gmathi.novellibrary.util.Constants.SYSTEM_DEFAULT
@@ -40,6 +39,7 @@ class DataCenter(context: Context) {
         private const val BACKUP_DATA = "backupData"
         private const val BACKUP_FREQUENCY_HOURS = "backupFrequencyHours"
         private const val LAST_BACKUP_MILLISECONDS = "lastBackupMilliseconds"
+        private const val IMPORT_CONCURRENCY = "importConcurrency"
 
         private const val IS_DARK_THEME = "isDarkTheme"
         private const val LOAD_LIBRARY_SCREEN = "loadLibraryScreen"
@@ -123,7 +123,8 @@ class DataCenter(context: Context) {
     }
 
     private val prefs: SharedPreferences = PreferenceManager.getDefaultSharedPreferences(context)
-    val ttsPreferences = TTSPreferences(context, prefs)
+    private val store = PreferenceStore(prefs)
+    val ttsPreferences = TTSPreferences(context, prefs, store)
     val aiTtsPreferences = AiTtsPreferences(context, prefs)
 
 
@@ -134,40 +135,30 @@ class DataCenter(context: Context) {
         editor.apply()
     }
 
-    fun loadNovelSearchHistory(): ArrayList<String> = Gson().fromJson(prefs.getString(SEARCH_HISTORY_LIST, "[]"), object : TypeToken<ArrayList<String>>() {}.type)
-    fun saveNovelSearchHistory(history: ArrayList<String>) = prefs.edit().putString(SEARCH_HISTORY_LIST, Gson().toJson(history)).apply()
+    val novelSearchHistory = store.json<List<String>>(SEARCH_HISTORY_LIST, emptyList())
+    val librarySearchHistory = store.json<List<String>>(LIBRARY_HISTORY_LIST, emptyList())
 
-    fun loadLibrarySearchHistory(): ArrayList<String> = Gson().fromJson(prefs.getString(LIBRARY_HISTORY_LIST, "[]"), object : TypeToken<ArrayList<String>>() {}.type)
-    fun saveLibrarySearchHistory(history: ArrayList<String>) = prefs.edit().putString(LIBRARY_HISTORY_LIST, Gson().toJson(history)).apply()
+    fun loadNovelSearchHistory(): ArrayList<String> = ArrayList(novelSearchHistory.get())
+    fun saveNovelSearchHistory(history: List<String>) = novelSearchHistory.set(history.toList())
 
+    fun loadLibrarySearchHistory(): ArrayList<String> = ArrayList(librarySearchHistory.get())
+    fun saveLibrarySearchHistory(history: List<String>) = librarySearchHistory.set(history.toList())
 
-    var lockRoyalRoad: Boolean
-        get() = prefs.getBoolean(LOCK_ROYAL_ROAD, true)
-        set(value) = prefs.edit().putBoolean(LOCK_ROYAL_ROAD, value).apply()
 
-    var lockNovelFull: Boolean
-        get() = prefs.getBoolean(LOCK_NOVEL_FULL, true)
-        set(value) = prefs.edit().putBoolean(LOCK_NOVEL_FULL, value).apply()
+    var lockRoyalRoad: Boolean by store.boolean(LOCK_ROYAL_ROAD, true)
 
-    var lockScribble: Boolean
-        get() = prefs.getBoolean(LOCK_SCRIBBLE, true)
-        set(value) = prefs.edit().putBoolean(LOCK_SCRIBBLE, value).apply()
+    var lockNovelFull: Boolean by store.boolean(LOCK_NOVEL_FULL, true)
 
-    var isDarkTheme: Boolean
-        get() = prefs.getBoolean(IS_DARK_THEME, true)
-        set(value) = prefs.edit().putBoolean(IS_DARK_THEME, value).apply()
+    var lockScribble: Boolean by store.boolean(LOCK_SCRIBBLE, true)
 
-    var isDeveloper: Boolean
-        get() = prefs.getBoolean(DEVELOPER, false)
-        set(value) = prefs.edit().putBoolean(DEVELOPER, value).apply()
+    val darkTheme = store.boolean(IS_DARK_THEME, true)
+    var isDarkTheme: Boolean by darkTheme
 
-    var showBackupHint: Boolean
-        get() = prefs.getBoolean(SHOW_BACKUP_HINT, true)
-        set(value) = prefs.edit().putBoolean(SHOW_BACKUP_HINT, value).apply()
+    var isDeveloper: Boolean by store.boolean(DEVELOPER, false)
 
-    var showRestoreHint: Boolean
-        get() = prefs.getBoolean(SHOW_RESTORE_HINT, true)
-        set(value) = prefs.edit().putBoolean(SHOW_RESTORE_HINT, value).apply()
+    var showBackupHint: Boolean by store.boolean(SHOW_BACKUP_HINT, true)
+
+    var showRestoreHint: Boolean by store.boolean(SHOW_RESTORE_HINT, true)
 
     var backupData: ByteArray?
         get() {
@@ -181,33 +172,24 @@ class DataCenter(context: Context) {
         }
         set(value) = prefs.edit().putString(BACKUP_DATA, value?.contentToString()).apply()
 
-    var backupFrequency: Int
-        get() = prefs.getInt(BACKUP_FREQUENCY_HOURS, 0)
-        set(value) = prefs.edit().putInt(BACKUP_FREQUENCY_HOURS, value).apply()
+    /**
+     * How many novels of the same site the library import fetches at a time.
+     */
+    var importConcurrency: Int by store.int(IMPORT_CONCURRENCY, LibraryImporter.DEFAULT_PER_HOST_CONCURRENCY)
+
+    var backupFrequency: Int by store.int(BACKUP_FREQUENCY_HOURS, 0)
 
-    var lastBackup: Long
-        get() = prefs.getLong(LAST_BACKUP_MILLISECONDS, 0)
-        set(value) = prefs.edit().putLong(LAST_BACKUP_MILLISECONDS, value).apply()
+    var lastBackup: Long by store.long(LAST_BACKUP_MILLISECONDS, 0)
 
-    var textSize: Int
-        get() = prefs.getInt(TEXT_SIZE, 0)
-        set(value) = prefs.edit().putInt(TEXT_SIZE, value).apply()
+    var textSize: Int by store.int(TEXT_SIZE, 0)
 
-    var loadLibraryScreen: Boolean
-        get() = prefs.getBoolean(LOAD_LIBRARY_SCREEN, false)
-        set(value) = prefs.edit().putBoolean(LOAD_LIBRARY_SCREEN, value).apply()
+    var loadLibraryScreen: Boolean by store.boolean(LOAD_LIBRARY_SCREEN, false)
 
-    var appVersionCode: Int
-        get() = prefs.getInt(APP_VERSION_CODE, 0)
-        set(value) = prefs.edit().putInt(APP_VERSION_CODE, value).apply()
+    var appVersionCode: Int by store.int(APP_VERSION_CODE, 0)
 
-    var readerMode: Boolean
-        get() = prefs.getBoolean(READER_MODE, false)
-        set(value) = prefs.edit().putBoolean(READER_MODE, value).apply()
+    var readerMode: Boolean by store.boolean(READER_MODE, false)
 
-    var javascriptDisabled: Boolean
-        get() = prefs.getBoolean(JAVASCRIPT, false)
-        set(value) = prefs.edit().putBoolean(JAVASCRIPT, value).apply()
+    var javascriptDisabled: Boolean by store.boolean(JAVASCRIPT, false)
 
     var language: String
         get() = prefs.getString(LANGUAGE, SYSTEM_DEFAULT)!!
@@ -216,54 +198,30 @@ class DataCenter(context: Context) {
             prefs.edit().putString(LANGUAGE, value).commit()
         }
 
-    var fooled: Boolean
-        get() = prefs.getBoolean(FOOLED, false)
-        set(value) = prefs.edit().putBoolean(FOOLED, value).apply()
+    var fooled: Boolean by store.boolean(FOOLED, false)
 
 
-    var japSwipe: Boolean
-        get() = prefs.getBoolean(JAP_SWIPE, true)
-        set(value) = prefs.edit().putBoolean(JAP_SWIPE, value).apply()
+    var japSwipe: Boolean by store.boolean(JAP_SWIPE, true)
 
-    var showReaderScroll: Boolean
-        get() = prefs.getBoolean(SHOW_READER_SCROLL, true)
-        set(value) = prefs.edit().putBoolean(SHOW_READER_SCROLL, value).apply()
+    var showReaderScroll: Boolean by store.boolean(SHOW_READER_SCROLL, true)
 
-    var showChapterComments: Boolean
-        get() = prefs.getBoolean(SHOW_CHAPTER_COMMENTS, false)
-        set(value) = prefs.edit().putBoolean(SHOW_CHAPTER_COMMENTS, value).apply()
+    var showChapterComments: Boolean by store.boolean(SHOW_CHAPTER_COMMENTS, false)
 
-    var enableVolumeScroll: Boolean
-        get() = prefs.getBoolean(ENABLE_VOLUME_SCROLL, true)
-        set(value) = prefs.edit().putBoolean(ENABLE_VOLUME_SCROLL, value).apply()
+    var enableVolumeScroll: Boolean by store.boolean(ENABLE_VOLUME_SCROLL, true)
 
-    var volumeScrollLength: Int
-        get() = prefs.getInt(SCROLL_LENGTH, Constants.VOLUME_SCROLL_LENGTH_DEFAULT)
-        set(value) = prefs.edit().putInt(SCROLL_LENGTH, value).apply()
+    var volumeScrollLength: Int by store.int(SCROLL_LENGTH, Constants.VOLUME_SCROLL_LENGTH_DEFAULT)
 
-    var keepScreenOn: Boolean
-        get() = prefs.getBoolean(KEEP_SCREEN_ON, true)
-        set(value) = prefs.edit().putBoolean(KEEP_SCREEN_ON, value).apply()
+    var keepScreenOn: Boolean by store.boolean(KEEP_SCREEN_ON, true)
 
-    var enableImmersiveMode: Boolean
-        get() = prefs.getBoolean(ENABLE_IMMERSIVE_MODE, true)
-        set(value) = prefs.edit().putBoolean(ENABLE_IMMERSIVE_MODE, value).apply()
+    var enableImmersiveMode: Boolean by store.boolean(ENABLE_IMMERSIVE_MODE, true)
 
-    var showNavbarAtChapterEnd: Boolean
-        get() = prefs.getBoolean(SHOW_NAVBAR_AT_CHAPTER_END, true)
-        set(value) = prefs.edit().putBoolean(SHOW_NAVBAR_AT_CHAPTER_END, value).apply()
+    var showNavbarAtChapterEnd: Boolean by store.boolean(SHOW_NAVBAR_AT_CHAPTER_END, true)
 
-    var keepTextColor: Boolean
-        get() = prefs.getBoolean(KEEP_TEXT_COLOR, false)
-        set(value) = prefs.edit().putBoolean(KEEP_TEXT_COLOR, value).apply()
+    var keepTextColor: Boolean by store.boolean(KEEP_TEXT_COLOR, false)
 
-    var alternativeTextColors: Boolean
-        get() = prefs.getBoolean(ALTERNATIVE_TEXT_COLORS, false)
-        set(value) = prefs.edit().putBoolean(ALTERNATIVE_TEXT_COLORS, value).apply()
+    var alternativeTextColors: Boolean by store.boolean(ALTERNATIVE_TEXT_COLORS, false)
 
-    var limitImageWidth: Boolean
-        get() = prefs.getBoolean(LIMIT_IMAGE_WIDTH, false)
-        set(value) = prefs.edit().putBoolean(LIMIT_IMAGE_WIDTH, value).apply()
+    var limitImageWidth: Boolean by store.boolean(LIMIT_IMAGE_WIDTH, false)
 
     var fontPath: String
         get() {
@@ -276,48 +234,34 @@ class DataCenter(context: Context) {
         }
         set(value) = prefs.edit().putString(FONT_PATH, if (value.isBlank()) DEFAULT_FONT_PATH else value).apply()
 
-    var enableClusterPages: Boolean
-        get() = prefs.getBoolean(ENABLE_CLUSTER_PAGES, false)
-        set(value) = prefs.edit().putBoolean(ENABLE_CLUSTER_PAGES, value).apply()
+    var enableClusterPages: Boolean by store.boolean(ENABLE_CLUSTER_PAGES, false)
 
-    var enableDirectionalLinks: Boolean
-        get() = prefs.getBoolean(DIRECTIONAL_LINKS, false)
-        set(value) = prefs.edit().putBoolean(DIRECTIONAL_LINKS, value).apply()
+    var enableDirectionalLinks: Boolean by store.boolean(DIRECTIONAL_LINKS, false)
 
-    var linkifyText: Boolean
-        get() = prefs.getBoolean("linkifyText", false)
-        set(value) = prefs.edit().putBoolean("linkifyText", value).apply()
+    var linkifyText: Boolean by store.boolean("linkifyText", false)
 
-    var isReaderModeButtonVisible: Boolean
-        get() = prefs.getBoolean(READER_MODE_BUTTON_VISIBILITY, true)
-        set(value) = prefs.edit().putBoolean(READER_MODE_BUTTON_VISIBILITY, value).apply()
+    var isReaderModeButtonVisible: Boolean by store.boolean(READER_MODE_BUTTON_VISIBILITY, true)
 
-    var disableWuxiaDownloads: Boolean
-        get() = prefs.getBoolean(DISABLE_WUXIA_DOWNLOADS, true)
-        set(value) = prefs.edit().putBoolean(DISABLE_WUXIA_DOWNLOADS, value).apply()
+    var disableWuxiaDownloads: Boolean by store.boolean(DISABLE_WUXIA_DOWNLOADS, true)
 
-    var enableNotifications: Boolean
-        get() = prefs.getBoolean(ENABLE_NOTIFICATIONS, true)
-        set(value) = prefs.edit().putBoolean(ENABLE_NOTIFICATIONS, value).apply()
+    var enableNotifications: Boolean by store.boolean(ENABLE_NOTIFICATIONS, true)
 
-    var hasAlreadyDeletedOldChannels: Boolean
-        get() = prefs.getBoolean(HAS_ALREADY_DELETED_OLD_CHANNELS, false)
-        set(value) = prefs.edit().putBoolean(HAS_ALREADY_DELETED_OLD_CHANNELS, value).apply()
+    var hasAlreadyDeletedOldChannels: Boolean by store.boolean(HAS_ALREADY_DELETED_OLD_CHANNELS, false)
 
 
-    var showChaptersLeftBadge: Boolean
-        get() = prefs.getBoolean(SHOW_CHAPTERS_LEFT_BADGE, false)
-        set(value) = prefs.edit().putBoolean(SHOW_CHAPTERS_LEFT_BADGE, value).apply()
+    var showChaptersLeftBadge: Boolean by store.boolean(SHOW_CHAPTERS_LEFT_BADGE, false)
 
     // Verified HostNames management
 
-    fun getVerifiedHosts(): ArrayList<String> =
-        Gson().fromJson(prefs.getString(VERIFIED_HOSTS, Gson().toJson(HostNames.defaultHostNamesList)), object : TypeToken<ArrayList<String>>() {}.type)
+    private val verifiedHosts = store.json<List<String>>(VERIFIED_HOSTS, HostNames.defaultHostNamesList)
+
+    fun getVerifiedHosts(): ArrayList<String> = ArrayList(verifiedHosts.get())
 
     fun saveVerifiedHost(host: String) {
         val hostNames = getVerifiedHosts()
         hostNames.add(host)
-        prefs.edit().putString(VERIFIED_HOSTS, Gson().toJson(hostNames)).apply()
+        // HostNames adds to its list, the store keeps a copy of its own
+        verifiedHosts.set(hostNames.toList())
         HostNames.hostNamesList = hostNames
     }
 
@@ -397,82 +341,49 @@ class DataCenter(context: Context) {
 
     //region Backup
 
-    var lastLocalBackupTimestamp: String
-        get() = prefs.getString(LAST_LOCAL_BACKUP_TIMESTAMP, "N/A") ?: "N/A"
-        set(value) = prefs.edit().putString(LAST_LOCAL_BACKUP_TIMESTAMP, value).apply()
+    var lastLocalBackupTimestamp: String by store.string(LAST_LOCAL_BACKUP_TIMESTAMP, "N/A")
 
-    var lastCloudBackupTimestamp: String
-        get() = prefs.getString(LAST_CLOUD_BACKUP_TIMESTAMP, "N/A") ?: "N/A"
-        set(value) = prefs.edit().putString(LAST_CLOUD_BACKUP_TIMESTAMP, value).apply()
+    var lastCloudBackupTimestamp: String by store.string(LAST_CLOUD_BACKUP_TIMESTAMP, "N/A")
 
-    var lastBackupSize: String
-        get() = prefs.getString(LAST_BACKUP_SIZE, "N/A") ?: "N/A"
-        set(value) = prefs.edit().putString(LAST_BACKUP_SIZE, value).apply()
+    var lastBackupSize: String by store.string(LAST_BACKUP_SIZE, "N/A")
 
     //endregion
 
     //region Google Settings
-    var gdBackupInterval: String
-        get() = prefs.getString(GD_BACKUP_INTERVAL, "Never") ?: "Never"
-        set(value) = prefs.edit().putString(GD_BACKUP_INTERVAL, value).apply()
+    var gdBackupInterval: String by store.string(GD_BACKUP_INTERVAL, "Never")
 
-    var gdAccountEmail: String
-        get() = prefs.getString(GD_ACCOUNT_EMAIL, "-") ?: "-"
-        set(value) = prefs.edit().putString(GD_ACCOUNT_EMAIL, value).apply()
+    var gdAccountEmail: String by store.string(GD_ACCOUNT_EMAIL, "-")
 
-    var gdInternetType: String
-        get() = prefs.getString(GD_INTERNET_TYPE, "WiFi or cellular") ?: "WiFi or cellular"
-        set(value) = prefs.edit().putString(GD_INTERNET_TYPE, value).apply()
+    var gdInternetType: String by store.string(GD_INTERNET_TYPE, "WiFi or cellular")
 
     //endregion
 
-    var dayModeBackgroundColor: Int
-        get() = prefs.getInt(DAY_MODE_BACKGROUND_COLOR, Color.WHITE)
-        set(value) = prefs.edit().putInt(DAY_MODE_BACKGROUND_COLOR, value).apply()
+    var dayModeBackgroundColor: Int by store.int(DAY_MODE_BACKGROUND_COLOR, Color.WHITE)
 
-    var nightModeBackgroundColor: Int
-        get() = prefs.getInt(NIGHT_MODE_BACKGROUND_COLOR, Color.BLACK)
-        set(value) = prefs.edit().putInt(NIGHT_MODE_BACKGROUND_COLOR, value).apply()
+    var nightModeBackgroundColor: Int by store.int(NIGHT_MODE_BACKGROUND_COLOR, Color.BLACK)
 
-    var dayModeTextColor: Int
-        get() = prefs.getInt(DAY_MODE_TEXT_COLOR, Color.BLACK)
-        set(value) = prefs.edit().putInt(DAY_MODE_TEXT_COLOR, value).apply()
+    var dayModeTextColor: Int by store.int(DAY_MODE_TEXT_COLOR, Color.BLACK)
 
-    var nightModeTextColor: Int
-        get() = prefs.getInt(NIGHT_MODE_TEXT_COLOR, Color.WHITE)
-        set(value) = prefs.edit().putInt(NIGHT_MODE_TEXT_COLOR, value).apply()
+    var nightModeTextColor: Int by store.int(NIGHT_MODE_TEXT_COLOR, Color.WHITE)
 
-    var readAloudNextChapter: Boolean
-        get() = prefs.getBoolean(READ_ALOUD_NEXT_CHAPTER, true)
-        set(value) = prefs.edit().putBoolean(READ_ALOUD_NEXT_CHAPTER, value).apply()
+    var readAloudNextChapter: Boolean by store.boolean(READ_ALOUD_NEXT_CHAPTER, true)
 
-    var enableScrollingText: Boolean
-        get() = prefs.getBoolean(SCROLLING_TEXT, true)
-        set(value) = prefs.edit().putBoolean(SCROLLING_TEXT, value).apply()
+    var enableScrollingText: Boolean by store.boolean(SCROLLING_TEXT, true)
 
-    var userSpecifiedSelectorQueries: String
-        get() = prefs.getString(USER_SPECIFIED_SELECTOR_QUERIES, "") ?: ""
-        set(value) = prefs.edit().putString(USER_SPECIFIED_SELECTOR_QUERIES, value).apply()
+    var userSpecifiedSelectorQueries: String by store.string(USER_SPECIFIED_SELECTOR_QUERIES, "")
 
-    var dohProvider: Int
-        get() = prefs.getInt(DOH_PROVIDER, PREF_DOH_CLOUDFLARE)
-        set(value) = prefs.edit().putInt(DOH_PROVIDER, value).apply()
+    var dohProvider: Int by store.int(DOH_PROVIDER, PREF_DOH_CLOUDFLARE)
 
-    var htmlCleanerSelectorQueries: ArrayList<SelectorQuery>
-        get() = Gson().fromJson(prefs.getString(SELECTOR_QUERIES, "[]"), object : TypeToken<ArrayList<SelectorQuery>>() {}.type)
-        set(value) = prefs.edit().putString(SELECTOR_QUERIES, Gson().toJson(value)).apply()
+    /**
+     * The same instance until the queries change, see [io.github.gmathi.novellibrary.cleaner.HtmlCleaner].
+     */
+    var htmlCleanerSelectorQueries: List<SelectorQuery> by store.json<List<SelectorQuery>>(SELECTOR_QUERIES, emptyList())
 
-    var automaticExtUpdates: Boolean
-        get() = prefs.getBoolean(AUTOMATIC_EXT_UPDATES, false)
-        set(value) = prefs.edit().putBoolean(AUTOMATIC_EXT_UPDATES, value).apply()
+    var automaticExtUpdates: Boolean by store.boolean(AUTOMATIC_EXT_UPDATES, false)
 
-    var extensionUpdatesCount: Int
-        get() = prefs.getInt("extensionUpdatesCount", Color.WHITE)
-        set(value) = prefs.edit().putInt("extensionUpdatesCount", value).apply()
+    var extensionUpdatesCount: Int by store.int("extensionUpdatesCount", Color.WHITE)
 
-    var showNSFWSource: Boolean
-        get() = prefs.getBoolean("showNSFWSource", false)
-        set(value) = prefs.edit().putBoolean("showNSFWSource", value).apply()
+    var showNSFWSource: Boolean by store.boolean("showNSFWSource", false)
 
     var trustedSignatures: MutableSet<String>
         get() = prefs.getStringSet("trustedSignatures", emptySet())!!
@@ -485,27 +396,15 @@ class DataCenter(context: Context) {
     fun isSourceEnabled(sourceKey: String): Boolean = prefs.getBoolean(sourceKey, true)
     fun enableSource(sourceKey: String, enable: Boolean) = prefs.edit().putBoolean(sourceKey, enable).apply()
 
-    var enableAutoScroll: Boolean
-        get() = prefs.getBoolean(ENABLE_AUTO_SCROLL, true)
-        set(value) = prefs.edit().putBoolean(ENABLE_AUTO_SCROLL, value).apply()
+    var enableAutoScroll: Boolean by store.boolean(ENABLE_AUTO_SCROLL, true)
 
-    var autoScrollLength: Int
-        get() = prefs.getInt(AUTO_SCROLL_LENGTH, Constants.AUTO_SCROLL_LENGTH_DEFAULT)
-        set(value) = prefs.edit().putInt(AUTO_SCROLL_LENGTH, value).apply()
+    var autoScrollLength: Int by store.int(AUTO_SCROLL_LENGTH, Constants.AUTO_SCROLL_LENGTH_DEFAULT)
 
-    var autoScrollInterval: Int
-        get() = prefs.getInt(AUTO_SCROLL_INTERVAL, Constants.AUTO_SCROLL_INTERVAL_DEFAULT)
-        set(value) = prefs.edit().putInt(AUTO_SCROLL_INTERVAL, value).apply()
+    var autoScrollInterval: Int by store.int(AUTO_SCROLL_INTERVAL, Constants.AUTO_SCROLL_INTERVAL_DEFAULT)
 
-    var useNUAPIFetch: Boolean
-        get() = prefs.getBoolean(USE_NU_API_FETCH, true)
-        set(value) = prefs.edit().putBoolean(USE_NU_API_FETCH, value).apply()
+    var useNUAPIFetch: Boolean by store.boolean(USE_NU_API_FETCH, true)
 
-    var useAiTts: Boolean
-        get() = prefs.getBoolean("useAiTts", false)
-        set(value) = prefs.edit().putBoolean("useAiTts", value).apply()
+    var useAiTts: Boolean by store.boolean("useAiTts", false)
 
-    var enableAutoAppUpdate: Boolean
-        get() = prefs.getBoolean(ENABLE_AUTO_APP_UPDATE, true)
-        set(value) = prefs.edit().putBoolean(ENABLE_AUTO_APP_UPDATE, value).apply()
+    var enableAutoAppUpdate: Boolean by store.boolean(ENABLE_AUTO_APP_UPDATE, true)
 }
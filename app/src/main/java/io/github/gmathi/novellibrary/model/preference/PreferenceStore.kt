@@ -0,0 +1,168 @@
+package io.github.gmathi.novellibrary.model.preference
+
+import android.content.SharedPreferences
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.filter
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.onSubscription
+import java.lang.reflect.Type
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.properties.ReadWriteProperty
+import kotlin.reflect.KProperty
+
+/**
+ * Typed preferences over [prefs]. A value is decoded once, the first time it's read, and kept in memory until its key
+ * changes: reading a preference that holds JSON doesn't parse it again, however often it's read.
+ *
+ * Changes made through the store update the values in memory right away. Changes made to [prefs] directly (settings
+ * screens, [DataCenter.internalPut]) drop them once the change listener runs, on the main thread.
+ *
+ * Values are shared by every reader: the lists and maps they hold must not be changed in place, write a new value.
+ */
+class PreferenceStore(private val prefs: SharedPreferences) {
+
+    private val gson = Gson()
+
+    private val preferences = ConcurrentHashMap<String, Preference<*>>()
+
+    // A key, or null when all the preferences were cleared
+    private val changes = MutableSharedFlow<String?>(extraBufferCapacity = 64)
+
+    // Kept in a field, SharedPreferences only holds weak references to its listeners
+    private val listener = SharedPreferences.OnSharedPreferenceChangeListener { _, key ->
+        if (key == null) preferences.values.forEach { it.invalidate() } else preferences[key]?.invalidate()
+        changes.tryEmit(key)
+    }
+
+    init {
+        prefs.registerOnSharedPreferenceChangeListener(listener)
+    }
+
+    fun boolean(key: String, default: Boolean): Preference<Boolean> =
+        register(key, default, { getBoolean(key, default) }, { putBoolean(key, it) })
+
+    fun int(key: String, default: Int): Preference<Int> =
+        register(key, default, { getInt(key, default) }, { putInt(key, it) })
+
+    fun long(key: String, default: Long): Preference<Long> =
+        register(key, default, { getLong(key, default) }, { putLong(key, it) })
+
+    fun float(key: String, default: Float): Preference<Float> =
+        register(key, default, { getFloat(key, default) }, { putFloat(key, it) })
+
+    fun string(key: String, default: String): Preference<String> =
+        register(key, default, { getString(key, default) ?: default }, { putString(key, it) })
+
+    fun stringSet(key: String, default: Set<String>): Preference<Set<String>> =
+        // getStringSet returns the instance it holds, which must not be changed
+        register(key, default, { getStringSet(key, null)?.toSet() ?: default }, { putStringSet(key, it) })
+
+    /**
+     * A preference stored as JSON, in the format of the Gson preferences of [DataCenter].
+     */
+    inline fun <reified T> json(key: String, default: T): Preference<T> = json(key, default, object : TypeToken<T>() {}.type)
+
+    fun <T> json(key: String, default: T, type: Type): Preference<T> =
+        register(key, default, { getString(key, null)?.let { gson.fromJson<T>(it, type) } ?: default }, { putString(key, gson.toJson(it, type)) })
+
+    /**
+     * A preference with its own encoding.
+     */
+    fun <T> custom(key: String, default: T, read: SharedPreferences.() -> T, write: SharedPreferences.Editor.(T) -> Unit): Preference<T> =
+        register(key, default, read, write)
+
+    /**
+     * Writes several preferences at once: readers see either none or all of the new values.
+     */
+    fun edit(block: Editor.() -> Unit) {
+        val editor = Editor(prefs.edit())
+        editor.block()
+        editor.apply()
+    }
+
+    private fun <T> register(key: String, default: T, read: SharedPreferences.() -> T, write: SharedPreferences.Editor.(T) -> Unit): Preference<T> {
+        val preference = Preference(key, default, read, write)
+        check(preferences.putIfAbsent(key, preference) == null) { "Preference $key is already defined" }
+        return preference
+    }
+
+    inner class Editor internal constructor(private val editor: SharedPreferences.Editor) {
+
+        private val updates = ArrayList<() -> Unit>()
+
+        operator fun <T> set(preference: Preference<T>, value: T) {
+            preference.write(editor, value)
+            updates.add { preference.update(value) }
+        }
+
+        fun remove(preference: Preference<*>) {
+            editor.remove(preference.key)
+            updates.add { preference.invalidate() }
+        }
+
+        internal fun apply() {
+            editor.apply()
+            updates.forEach { it() }
+        }
+    }
+
+    inner class Preference<T> internal constructor(
+        val key: String,
+        val default: T,
+        private val read: SharedPreferences.() -> T,
+        internal val write: SharedPreferences.Editor.(T) -> Unit
+    ) : ReadWriteProperty<Any?, T> {
+
+        private inner class Cached(val value: T)
+
+        @Volatile
+        private var cached: Cached? = null
+
+        // Bumped by every change, so that a value read before a change isn't kept after it
+        private var version = 0
+
+        fun get(): T {
+            cached?.let { return it.value }
+            val readVersion = synchronized(this) { version }
+            val value = prefs.read()
+            synchronized(this) { if (version == readVersion) cached = Cached(value) }
+            return value
+        }
+
+        fun set(value: T) = edit { this[this@Preference] = value }
+
+        fun delete() = edit { remove(this@Preference) }
+
+        fun isSet() = prefs.contains(key)
+
+        /**
+         * The value, then the new value each time it changes.
+         */
+        fun asFlow(): Flow<T> =
+            // Subscribed before the first value is read, so that no change is missed in between
+            changes.onSubscription { emit(key) }
+                .filter { it == null || it == key }
+                .map { get() }
+                .distinctUntilChanged()
+
+        override fun getValue(thisRef: Any?, property: KProperty<*>): T = get()
+
+        override fun setValue(thisRef: Any?, property: KProperty<*>, value: T) = set(value)
+
+        @Synchronized
+        internal fun update(value: T) {
+            version++
+            cached = Cached(value)
+        }
+
+        @Synchronized
+        internal fun invalidate() {
+            version++
+            cached = null
+        }
+    }
+}
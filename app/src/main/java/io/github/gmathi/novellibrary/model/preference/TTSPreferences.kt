@@ -2,141 +2,108 @@ package io.github.gmathi.novellibrary.model.preference
 
 import android.content.Context
 import android.content.SharedPreferences
-import com.google.gson.Gson
 import io.github.gmathi.novellibrary.model.other.TTSFilter
 import io.github.gmathi.novellibrary.model.other.TTSFilterList
-import io.github.gmathi.novellibrary.util.system.getJson
-import io.github.gmathi.novellibrary.util.system.putJson
 import java.util.*
 
-data class TTSPreferences(val context: Context, val prefs: SharedPreferences) {
+data class TTSPreferences(val context: Context, val prefs: SharedPreferences, private val store: PreferenceStore) {
 
     //#region Processing
     // Whether to attempt detection and merging of pages.
-    var mergeBufferChapters: Boolean
-        get() = prefs.getBoolean("ttsMergeBufferChapters", false)
-        set(value) = prefs.edit().putBoolean("ttsMergeBufferChapters", value).apply()
+    var mergeBufferChapters: Boolean by store.boolean("ttsMergeBufferChapters", false)
 
-    var discardInitialBufferPage: Boolean
-        get() = prefs.getBoolean("ttsDiscardInitialBufferPage", false)
-        set(value) = prefs.edit().putBoolean("ttsDiscardInitialBufferPage", value).apply()
+    var discardInitialBufferPage: Boolean by store.boolean("ttsDiscardInitialBufferPage", false)
 
-    var useLongestPage: Boolean
-        get() = prefs.getBoolean("ttsUseLongestPage", false)
-        set(value) = prefs.edit().putBoolean("ttsUseLongestPage", value).apply()
+    var useLongestPage: Boolean by store.boolean("ttsUseLongestPage", false)
 
-    var markChaptersRead: Boolean
-        get() = prefs.getBoolean("ttsMarkChaptersRead", true)
-        set(value) = prefs.edit().putBoolean("ttsMarkChaptersRead", value).apply()
+    var markChaptersRead: Boolean by store.boolean("ttsMarkChaptersRead", true)
 
-    var moveBookmark: Boolean
-        get() = prefs.getBoolean("ttsMoveBookmark", false)
-        set(value) = prefs.edit().putBoolean("ttsMoveBookmark", value).apply()
+    var moveBookmark: Boolean by store.boolean("ttsMoveBookmark", false)
 
-    var stripHeader: Boolean
-        get() = prefs.getBoolean("ttsStripHeader", false)
-        set(value) = prefs.edit().putBoolean("ttsStripHeader", value).apply()
+    var stripHeader: Boolean by store.boolean("ttsStripHeader", false)
+
+    // How many of the following chapters to load in the background while reading aloud.
+    var prefetchChapters: Int by store.int("ttsPrefetchChapters", 1)
 
     //#endregion
 
     //#region UI
 
-    var keepScreenOn: Boolean
-        get() = prefs.getBoolean("ttsKeepScreenOn", false)
-        set(value) = prefs.edit().putBoolean("ttsKeepScreenOn", value).apply()
+    var keepScreenOn: Boolean by store.boolean("ttsKeepScreenOn", false)
 
     //#endregion
 
     //#region FX/Playback
 
-    var useLegacyPlayer: Boolean
-        get() = prefs.getBoolean("ttsUseLegacyPlayer", false)
-        set(value) = prefs.edit().putBoolean("ttsUseLegacyPlayer", value).apply()
+    var useLegacyPlayer: Boolean by store.boolean("ttsUseLegacyPlayer", false)
 
     var language: Locale?
         get() = prefs.getString("ttsLanguage", null)?.let { Locale.forLanguageTag(it) }
         set(value) = prefs.edit().putString("ttsLanguage", value?.toLanguageTag()).apply()
 
-    var pitch: Float
-        get() = prefs.getFloat("ttsPitch", 1.0f)
-        set(value) = prefs.edit().putFloat("ttsPitch", value).apply()
+    var pitch: Float by store.float("ttsPitch", 1.0f)
 
-    var speechRate: Float
-        get() = prefs.getFloat("ttsSpeechRate", 1.0f)
-        set(value) = prefs.edit().putFloat("ttsSpeechRate", value).apply()
+    var speechRate: Float by store.float("ttsSpeechRate", 1.0f)
 
     // TODO: 3-state: off, downpitch dialogue, downpitch speaker
-    var downpitchDialogue: Boolean
-        get() = prefs.getBoolean("ttsDownpitchDialogue", false)
-        set(value) = prefs.edit().putBoolean("ttsDownpitchDialogue", value).apply()
+    var downpitchDialogue: Boolean by store.boolean("ttsDownpitchDialogue", false)
 
-    var downpitchAmount: Float
-        get() = prefs.getFloat("ttsDownpitchAmount", 0.95f)
-        set(value) = prefs.edit().putFloat("ttsDownpitchAmount", value).apply()
+    var downpitchAmount: Float by store.float("ttsDownpitchAmount", 0.95f)
 
-    var echoEffect: Boolean
-        get() = prefs.getBoolean("ttsEchoEffect", false)
-        set(value) = prefs.edit().putBoolean("ttsEchoEffect", value).apply()
+    var echoEffect: Boolean by store.boolean("ttsEchoEffect", false)
 
-    var chapterChangeSFX: Boolean
-        get() = prefs.getBoolean("ttsChapterChangeSFX", true)
-        set(value) = prefs.edit().putBoolean("ttsChapterChangeSFX", value).apply()
+    var chapterChangeSFX: Boolean by store.boolean("ttsChapterChangeSFX", true)
 
-    var announceFinalChapter: Boolean
-        get() = prefs.getBoolean("ttsAnnounceFinalChapter", true)
-        set(value) = prefs.edit().putBoolean("ttsAnnounceFinalChapter", value).apply()
+    var announceFinalChapter: Boolean by store.boolean("ttsAnnounceFinalChapter", true)
 
     //#endregion
 
     //#region Remote control
 
-    var rewindSentences: Int
-        get() = prefs.getInt("ttsRewindSentences", 1)
-        set(value) = prefs.edit().putInt("ttsRewindSentences", value).apply()
+    var rewindSentences: Int by store.int("ttsRewindSentences", 1)
 
-    var forwardSentences: Int
-        get() = prefs.getInt("ttsForwardSentences", 1)
-        set(value) = prefs.edit().putInt("ttsForwardSentences", value).apply()
+    var forwardSentences: Int by store.int("ttsForwardSentences", 1)
 
-    var swapRewindSkip: Boolean
-        get() = prefs.getBoolean("ttsSwapRewindSkip", false)
-        set(value) = prefs.edit().putBoolean("ttsSwapRewindSkip", value).apply()
+    var swapRewindSkip: Boolean by store.boolean("ttsSwapRewindSkip", false)
 
-    var rewindToSkip: Boolean
-        get() = prefs.getBoolean("ttsRewindToSkip", true)
-        set(value) = prefs.edit().putBoolean("ttsRewindToSkip", value).apply()
+    var rewindToSkip: Boolean by store.boolean("ttsRewindToSkip", true)
 
     //#endregion
 
     //#region Filters
 
+    private val filtersPreference = store.json<List<String>>("ttsFilters", emptyList())
+    private val filterCachePreference = store.json<Map<String, TTSFilterList>>("ttsFilterCache", emptyMap())
+    private val filterListPreference = store.json<List<TTSFilter>>("ttsFilterList", emptyList())
+
     // The names of currently active filter sets.
-    var filters: List<String>
-        get() = prefs.getJson("ttsFilters", "[]")
-        set(value) = prefs.edit().putJson("ttsFilters", value).apply()
+    val filters: List<String> by filtersPreference
 
     // The cached filter sets. Because they are not built-in and rather sourced from outside,
     // we want to keep them cached for offline usage even if user would want to enable them.
-    var filterCache: Map<String, TTSFilterList>
-        get() = prefs.getJson("ttsFilterCache", Gson().toJson(emptyMap<String, TTSFilterList>()))
-        set(value) = prefs.edit().putJson("ttsFilterCache", value).apply()
-
-    // The currently active filter list composed of all enabled filter sets.
-    var filterList: List<TTSFilter>
-        get() = prefs.getJson("ttsFilterList", "[]")
-        set(value) = prefs.edit().putJson("ttsFilterList", value).apply()
+    val filterCache: Map<String, TTSFilterList> by filterCachePreference
+
+    // The currently active filter list composed of all enabled filter sets, read for every chapter read aloud.
+    val filterList: List<TTSFilter> by filterListPreference
+
+    // Saves the active filter sets and the cache along with the filter list made of them, so that the filter list
+    // never goes out of sync with them.
+    fun setFilters(filters: List<String>, filterCache: Map<String, TTSFilterList>) {
+        val filterList = filters.flatMap { name -> filterCache[name]?.list ?: emptyList() }
+        store.edit {
+            this[filtersPreference] = filters
+            this[filterCachePreference] = filterCache
+            this[filterListPreference] = filterList
+        }
+    }
 
     //#endregion
 
     //#region Misc
 
-    var stopTimer: Long
-        get() = prefs.getLong("ttsStopTimer", 60L)
-        set(value) = prefs.edit().putLong("ttsStopTimer", value).apply()
+    var stopTimer: Long by store.long("ttsStopTimer", 60L)
 
-    var stopOnLoadError: Boolean
-        get() = prefs.getBoolean("ttsStopOnLoadError", true)
-        set(value) = prefs.edit().putBoolean("ttsStopOnLoadError", value).apply()
+    var stopOnLoadError: Boolean by store.boolean("ttsStopOnLoadError", true)
 
     //#endregion
 }
@@ -5,7 +5,8 @@ import io.github.gmathi.novellibrary.extension.ExtensionManager
 import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.model.database.WebPage
 import io.github.gmathi.novellibrary.util.lang.awaitSingle
-import io.github.gmathi.novellibrary.util.logging.Logs
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
 import rx.Observable
 import uy.kohesive.injekt.Injekt
 import uy.kohesive.injekt.api.get
@@ -36,11 +37,7 @@ interface Source {
      * [1.x API] Get all the available chapters for a novel.
      */
     suspend fun getNovelDetails(novel: Novel): Novel {
-        val detailsStart = System.currentTimeMillis()
-        val downloadedNovel = fetchNovelDetails(novel).awaitSingle()
-        val detailsElapsed = System.currentTimeMillis() - detailsStart
-        Logs.info("Source", "⏱ [getNovelDetails] fetchNovelDetails for '${novel.name}': ${detailsElapsed}ms")
-        return downloadedNovel
+        return Injekt.get<Tracer>().trace(Tracer.NOVEL_DETAILS) { fetchNovelDetails(novel).awaitSingle() }
     }
 
     /**
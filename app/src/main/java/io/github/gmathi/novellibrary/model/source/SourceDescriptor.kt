@@ -0,0 +1,38 @@
+package io.github.gmathi.novellibrary.model.source
+
+import io.github.gmathi.novellibrary.model.source.online.HttpSource
+
+/**
+ * What [SourceManager] knows about a source before the source itself is created: the extensions register one per
+ * source and the [source] is only instantiated (class loading included) the first time it's needed.
+ *
+ * @param isOnline Whether the source is an [HttpSource].
+ * @param create Creates the source; called at most once.
+ */
+class SourceDescriptor(
+    val id: Long,
+    val name: String,
+    val lang: String,
+    val isOnline: Boolean,
+    create: () -> Source
+) {
+
+    val source: Source by lazy(create)
+
+    override fun toString(): String = name
+
+    companion object {
+
+        /**
+         * Wraps a source that already exists.
+         */
+        fun of(source: Source) = SourceDescriptor(
+            source.id,
+            source.name,
+            (source as? CatalogueSource)?.lang.orEmpty(),
+            source is HttpSource
+        ) { source }
+    }
+}
+
+fun SourceDescriptor.getPreferenceKey(): String = "source_$id"
@@ -6,43 +6,111 @@ import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.model.database.WebPage
 import io.github.gmathi.novellibrary.model.source.online.HttpSource
 import io.github.gmathi.novellibrary.model.source.online.NovelUpdatesSource
+import io.github.gmathi.novellibrary.util.logging.Logs
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.update
 import rx.Observable
-
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Holds the internal sources and the ones of the installed extensions. The extensions are loaded in the background
+ * after startup (see [io.github.gmathi.novellibrary.util.system.AppStartup]), so [get] only sees them once [isLoaded]
+ * is true; code that may run right after a cold start should use [awaitSource] instead.
+ *
+ * Extension sources are registered as [SourceDescriptor]s and only created when they are first looked up.
+ */
 open class SourceManager(private val context: Context) {
 
-    private val sourcesMap = mutableMapOf<Long, Source>()
+    companion object {
+        private const val TAG = "SourceManager"
+    }
+
+    // Copied on write: sources change only when extensions are loaded, installed or removed
+    private val sourcesMap = MutableStateFlow<Map<Long, SourceDescriptor>>(emptyMap())
+
+    private val stubSourcesMap = ConcurrentHashMap<Long, StubSource>()
+
+    private val loaded = MutableStateFlow(false)
 
-    private val stubSourcesMap = mutableMapOf<Long, StubSource>()
+    /**
+     * Whether the installed extensions have been loaded.
+     */
+    val isLoaded: StateFlow<Boolean> = loaded.asStateFlow()
 
     init {
         createInternalSources().forEach { registerSource(it) }
     }
 
     open fun get(sourceKey: Long): Source? {
-        return sourcesMap[sourceKey]
+        return sourcesMap.value[sourceKey]?.let { create(it) }
+    }
+
+    /**
+     * Waits for the installed extensions to be loaded before looking up the source.
+     */
+    suspend fun awaitSource(sourceKey: Long): Source? {
+        awaitSources()
+        return get(sourceKey)
+    }
+
+    suspend fun awaitSources() {
+        loaded.first { it }
     }
 
     fun getOrStub(sourceKey: Long): Source {
-        return sourcesMap[sourceKey] ?: stubSourcesMap.getOrPut(sourceKey) {
+        return get(sourceKey) ?: stubSourcesMap.getOrPut(sourceKey) {
             StubSource(sourceKey)
         }
     }
 
-    fun getOnlineSources() = sourcesMap.values.filterIsInstance<HttpSource>()
+    /**
+     * The online sources that pass [filter]. Only those are created, so filter on the descriptor (enabled sources,
+     * language...) rather than on the returned list.
+     */
+    fun getOnlineSources(filter: (SourceDescriptor) -> Boolean = { true }) =
+        sourcesMap.value.values.filter { it.isOnline && filter(it) }.mapNotNull { create(it) as? HttpSource }
 
-    fun getCatalogueSources() = sourcesMap.values.filterIsInstance<CatalogueSource>()
+    /**
+     * The online sources as registered, none of them created, e.g. to list them.
+     */
+    fun getOnlineSourceDescriptors(): List<SourceDescriptor> = sourcesMap.value.values.filter { it.isOnline }
+
+    fun getCatalogueSources() = sourcesMap.value.values.mapNotNull { create(it) as? CatalogueSource }
 
     internal fun registerSource(source: Source, overwrite: Boolean = false) {
-        if (overwrite || !sourcesMap.containsKey(source.id)) {
-            sourcesMap[source.id] = source
+        registerSource(SourceDescriptor.of(source), overwrite)
+    }
+
+    internal fun registerSource(descriptor: SourceDescriptor, overwrite: Boolean = false) {
+        sourcesMap.update { sources ->
+            if (overwrite || !sources.containsKey(descriptor.id)) sources + (descriptor.id to descriptor) else sources
         }
-        if (overwrite || !stubSourcesMap.containsKey(source.id)) {
-            stubSourcesMap[source.id] = StubSource(source.id)
+        if (overwrite || !stubSourcesMap.containsKey(descriptor.id)) {
+            stubSourcesMap[descriptor.id] = StubSource(descriptor.id)
         }
     }
 
-    internal fun unregisterSource(source: Source) {
-        sourcesMap.remove(source.id)
+    internal fun unregisterSource(descriptor: SourceDescriptor) {
+        sourcesMap.update { it - descriptor.id }
+    }
+
+    internal fun onExtensionsLoaded() {
+        loaded.value = true
+    }
+
+    /**
+     * The source of [descriptor], created on first use. Null if its extension failed to create it.
+     */
+    private fun create(descriptor: SourceDescriptor): Source? {
+        return try {
+            descriptor.source
+        } catch (e: Throwable) {
+            Logs.error(TAG, "Unable to create source ${descriptor.name} (${descriptor.id})", e)
+            null
+        }
     }
 
     private fun createInternalSources(): List<Source> = listOf(
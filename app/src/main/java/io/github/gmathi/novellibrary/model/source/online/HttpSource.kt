@@ -9,7 +9,8 @@ import io.github.gmathi.novellibrary.model.source.filter.FilterList
 import io.github.gmathi.novellibrary.network.GET
 import io.github.gmathi.novellibrary.network.NetworkHelper
 import io.github.gmathi.novellibrary.network.asObservableSuccess
-import io.github.gmathi.novellibrary.util.logging.Logs
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
 import okhttp3.Headers
 import okhttp3.OkHttpClient
 import okhttp3.Request
@@ -37,6 +38,8 @@ abstract class HttpSource : CatalogueSource {
      */
     protected val dataCenter: DataCenter by injectLazy()
 
+    private val tracer: Tracer by injectLazy()
+
     /**
      * Base url of the website without the trailing slash, like: http://mysite.com
      */
@@ -182,17 +185,11 @@ abstract class HttpSource : CatalogueSource {
      * @param novel the novel to be updated.
      */
     override fun fetchNovelDetails(novel: Novel): Observable<Novel> {
-        val networkStart = System.currentTimeMillis()
+        // The request itself is traced by the client, see NetworkHelper
         return client.newCall(novelDetailsRequest(novel))
             .asObservableSuccess()
             .map { response ->
-                val networkElapsed = System.currentTimeMillis() - networkStart
-                Logs.info("HttpSource", "⏱ [fetchNovelDetails] Network request for '${novel.name}' (${novel.url}): ${networkElapsed}ms")
-                val parseStart = System.currentTimeMillis()
-                val result = novelDetailsParse(novel, response)
-                val parseElapsed = System.currentTimeMillis() - parseStart
-                Logs.info("HttpSource", "⏱ [fetchNovelDetails] Parse time for '${novel.name}': ${parseElapsed}ms")
-                result
+                tracer.trace(Tracer.NOVEL_DETAILS_PARSE) { novelDetailsParse(novel, response) }
             }
     }
 
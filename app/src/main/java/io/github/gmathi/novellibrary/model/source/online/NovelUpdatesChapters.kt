@@ -0,0 +1,49 @@
+package io.github.gmathi.novellibrary.model.source.online
+
+import io.github.gmathi.novellibrary.model.database.WebPage
+import org.jsoup.nodes.Document
+import org.jsoup.nodes.Element
+
+/**
+ * Reads the chapters out of the pages Novel Updates serves: the list of its chapters endpoint, and the releases table
+ * of a series page. Apart from [NovelUpdatesSource] so it only needs jsoup, and the benchmark module can compile it.
+ */
+internal object NovelUpdatesChapters {
+
+    const val CHAPTER_LIST_SELECTOR = "[data-id]"
+
+    fun chapterFromElement(element: Element): WebPage {
+        val url = "https:" + element.attr("href")
+        val name = element.getElementsByAttribute("title").attr("title")
+        return WebPage(url, name)
+    }
+
+    /**
+     * The chapters of a list from the chapters endpoint, oldest first. The endpoint lists the latest chapter first.
+     */
+    fun parseChapterList(document: Document, novelId: Long, translatorSourceName: String?): List<WebPage> {
+        return document.select(CHAPTER_LIST_SELECTOR).reversed().mapIndexed { index, element ->
+            val chapter = chapterFromElement(element)
+            chapter.novelId = novelId
+            chapter.orderId = index.toLong()
+            chapter.translatorSourceName = translatorSourceName
+            chapter
+        }
+    }
+
+    /**
+     * The releases in the table of one page of a series, in the order of the table.
+     */
+    fun parseReleasesTable(doc: Document): ArrayList<WebPage> {
+        val chapters = ArrayList<WebPage>()
+        val tableRowElements = doc.body().select("table#myTable > tbody > tr")
+        tableRowElements.mapTo(chapters) {
+            val translatorSource = it.select("a").firstOrNull()?.text()
+            val chapElement = it.select("a.chp-release")
+            val webPage = WebPage(chapElement.attr("abs:href"), chapElement.text())
+            webPage.translatorSourceName = translatorSource
+            webPage
+        }
+        return chapters
+    }
+}
@@ -265,12 +265,8 @@ class NovelUpdatesSource : ParsedHttpSource() {
         return map
     }
 
-    override fun chapterListSelector() = "[data-id]"
-    override fun chapterFromElement(element: Element): WebPage {
-        val url = "https:" + element.attr("href")
-        val name = element.getElementsByAttribute("title").attr("title")
-        return WebPage(url, name)
-    }
+    override fun chapterListSelector() = NovelUpdatesChapters.CHAPTER_LIST_SELECTOR
+    override fun chapterFromElement(element: Element): WebPage = NovelUpdatesChapters.chapterFromElement(element)
 
     override fun chapterListRequest(novel: Novel): Request {
         val novelUpdatesNovelId = novel.externalNovelId ?: novel.metadata["PostId"] ?: throw Exception(INVALID_NOVEL)
@@ -344,14 +340,7 @@ class NovelUpdatesSource : ParsedHttpSource() {
     }
 
     private fun chapterListParse(novel: Novel, response: Response, translatorSource: TranslatorSource?): List<WebPage> {
-        val document = response.asJsoup()
-        return document.select(chapterListSelector()).reversed().mapIndexed { index, element ->
-            val chapter = chapterFromElement(element)
-            chapter.novelId = novel.id
-            chapter.orderId = index.toLong()
-            chapter.translatorSourceName = translatorSource?.name
-            chapter
-        }
+        return NovelUpdatesChapters.parseChapterList(response.asJsoup(), novel.id, translatorSource?.name)
     }
 
     //endregion
@@ -543,7 +532,7 @@ class NovelUpdatesSource : ParsedHttpSource() {
         val chapters = ArrayList<WebPage>()
         try {
             val document = fetchChapterListForPage(novel.url).awaitSingle()
-            chapters.addAll(getNUChapterUrlsFromDoc(document))
+            chapters.addAll(NovelUpdatesChapters.parseReleasesTable(document))
             val pageUrls = getNUPageUrlsNew(document)
             if (pageUrls.isNotEmpty()) {
                 val observableList = pageUrls.map { fetchChapterListForPage(it) }
@@ -551,7 +540,7 @@ class NovelUpdatesSource : ParsedHttpSource() {
                     .from(observableList)
                     .flatMap { task -> task.observeOn(Schedulers.io()) }
                     .toList().awaitSingle()
-                allChaptersFromPagesList.forEach { chapters.addAll(getNUChapterUrlsFromDoc(it)) }
+                allChaptersFromPagesList.forEach { chapters.addAll(NovelUpdatesChapters.parseReleasesTable(it)) }
             }
         } catch (e: Exception) {
             // Do Nothing
@@ -564,19 +553,6 @@ class NovelUpdatesSource : ParsedHttpSource() {
         return chapters.reversed()
     }
 
-    private fun getNUChapterUrlsFromDoc(doc: Document): ArrayList<WebPage> {
-        val chapters = ArrayList<WebPage>()
-        val tableRowElements = doc.body().select("table#myTable > tbody > tr")
-        tableRowElements.mapTo(chapters) {
-            val translatorSource = it.select("a").firstOrNull()?.text()
-            val chapElement = it.select("a.chp-release")
-            val webPage = WebPage(chapElement.attr("abs:href"), chapElement.text())
-            webPage.translatorSourceName = translatorSource
-            webPage
-        }
-        return chapters
-    }
-
     private fun getNUPageUrlsNew(doc: Document): ArrayList<String> {
         val uri = URI(doc.location())
         val basePath = "${uri.scheme}://${uri.host}${uri.path}"
@@ -4,12 +4,15 @@ import android.content.Context
 import android.net.ConnectivityManager
 import coil.ImageLoader
 import coil.disk.DiskCache
-import coil.util.CoilUtils
+import coil.memory.MemoryCache
 import io.github.gmathi.novellibrary.BuildConfig
+import io.github.gmathi.novellibrary.NovelLibraryApplication
 import io.github.gmathi.novellibrary.network.cloudflare.CloudflareInterceptor
 import io.github.gmathi.novellibrary.network.cloudflare.CloudflareCookieManager
+import io.github.gmathi.novellibrary.network.interceptor.TracingInterceptor
 import io.github.gmathi.novellibrary.network.interceptor.UserAgentInterceptor
 import io.github.gmathi.novellibrary.model.preference.DataCenter
+import io.github.gmathi.novellibrary.util.trace.Tracer
 import okhttp3.Cache
 import okhttp3.OkHttpClient
 import okhttp3.logging.HttpLoggingInterceptor
@@ -20,8 +23,11 @@ import java.util.concurrent.TimeUnit
 class NetworkHelper(private val context: Context) {
 
     private val dataCenter: DataCenter by injectLazy()
+    private val tracer: Tracer by injectLazy()
     private val cacheDir = File(context.cacheDir, "network_cache")
     private val cacheSize = 5L * 1024 * 1024 // 5 MiB
+    private val imageCacheDir = File(context.cacheDir, "image_cache")
+    private val imageCacheSize = 100L * 1024 * 1024 // 100 MiB
 
     val cookieManager = AndroidCookieJar()
     val cloudflareCookieManager = CloudflareCookieManager()
@@ -32,6 +38,7 @@ class NetworkHelper(private val context: Context) {
                 .cookieJar(cookieManager)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
+                .addInterceptor(TracingInterceptor(tracer))
                 .addInterceptor(UserAgentInterceptor())
 
             if (BuildConfig.DEBUG) {
@@ -58,6 +65,22 @@ class NetworkHelper(private val context: Context) {
             .build()
     }
 
+    /**
+     * The image loader of the whole app (see [NovelLibraryApplication.newImageLoader]).
+     *
+     * Images are fetched with [cloudflareClient], so they get the same cookies, user agent, Cloudflare handling and
+     * connections as pages. They are kept in the loader's own disk cache rather than in the HTTP cache, whatever
+     * their cache headers say: covers hardly ever change.
+     */
+    val imageLoader: ImageLoader by lazy {
+        ImageLoader.Builder(context)
+            .okHttpClient { cloudflareClient.newBuilder().cache(null).build() }
+            .memoryCache { MemoryCache.Builder(context).maxSizePercent(0.25).build() }
+            .diskCache { DiskCache.Builder().directory(imageCacheDir).maxSizeBytes(imageCacheSize).build() }
+            .respectCacheHeaders(false)
+            .build()
+    }
+
     /**
      * returns - True - if there is connection to the internet
      */
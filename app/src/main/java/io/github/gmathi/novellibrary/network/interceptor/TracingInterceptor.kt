@@ -0,0 +1,24 @@
+package io.github.gmathi.novellibrary.network.interceptor
+
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
+import okhttp3.Interceptor
+import okhttp3.Response
+
+/**
+ * Times the requests of a client, from the app's point of view: cache hits and Cloudflare challenges included. The body
+ * is read after the span ends, only the time to the response headers is measured.
+ */
+class TracingInterceptor(private val tracer: Tracer) : Interceptor {
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val response = tracer.trace(Tracer.NETWORK_FETCH) { chain.proceed(chain.request()) }
+        when {
+            response.cacheResponse != null && response.networkResponse == null -> tracer.count("network.cache_hit")
+            response.isSuccessful -> tracer.count("network.success")
+            else -> tracer.count("network.http_${response.code}")
+        }
+        response.body.contentLength().takeIf { it >= 0 }?.let { tracer.record("network.response_bytes", it) }
+        return response
+    }
+}
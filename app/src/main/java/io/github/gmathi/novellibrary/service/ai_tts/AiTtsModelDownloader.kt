@@ -0,0 +1,198 @@
+package io.github.gmathi.novellibrary.service.ai_tts
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.withContext
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.security.MessageDigest
+import kotlin.coroutines.coroutineContext
+
+/**
+ * Downloads AI TTS model files.
+ *
+ * Files are downloaded concurrently into `<name>.part` files next to their destination. An interrupted download is
+ * resumed from where it stopped with a `Range` request, on the next attempt or the next call. The data is streamed
+ * through an MD5 digest as it is written, so a checksum is verified without reading the file again, and a part file
+ * is only renamed to its destination once it is complete and verified.
+ */
+class AiTtsModelDownloader(
+    private val client: OkHttpClient,
+    private val maxAttempts: Int = 3,
+    private val progressIntervalMillis: Long = 250L
+) {
+
+    companion object {
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val RETRY_DELAY_MILLIS = 1_000L
+        private val CONTENT_RANGE = """bytes (\d+)-\d+/(\d+|\*)""".toRegex()
+        private val UNSATISFIED_RANGE = """bytes \*/(\d+)""".toRegex()
+    }
+
+    /**
+     * @param md5 Expected MD5 of the file as a hex string, or empty to skip verification.
+     */
+    data class FileSpec(val url: String, val dest: File, val md5: String = "")
+
+    class ChecksumMismatchException(file: File, expected: String, actual: String) :
+        IOException("Checksum mismatch for ${file.name}: expected $expected, got $actual")
+
+    /**
+     * Downloads all [files], skipping the ones already in place. [onProgress] is called with the overall progress
+     * (0 to 1) from the download threads, at most once every `progressIntervalMillis`, and once more when done.
+     */
+    suspend fun download(files: List<FileSpec>, onProgress: (Float) -> Unit = {}) {
+        val progress = Progress(files.size, onProgress)
+        coroutineScope {
+            files.mapIndexed { index, file ->
+                async(Dispatchers.IO) { downloadWithRetry(file, index, progress) }
+            }.awaitAll()
+        }
+        progress.finish()
+    }
+
+    private suspend fun downloadWithRetry(file: FileSpec, index: Int, progress: Progress) {
+        var attempt = 1
+        while (true) {
+            try {
+                downloadFile(file, index, progress)
+                return
+            } catch (e: ChecksumMismatchException) {
+                throw e
+            } catch (e: IOException) {
+                if (attempt >= maxAttempts) throw e
+                // The part file is kept, so the next attempt resumes from where this one stopped.
+                delay(RETRY_DELAY_MILLIS * attempt)
+                attempt++
+            }
+        }
+    }
+
+    private suspend fun downloadFile(file: FileSpec, index: Int, progress: Progress) = withContext(Dispatchers.IO) {
+        val dest = file.dest
+        if (dest.isFile && dest.length() > 0 && (file.md5.isEmpty() || md5Of(dest).equals(file.md5, ignoreCase = true))) {
+            progress.update(index, 1, 1)
+            return@withContext
+        }
+        dest.parentFile?.mkdirs()
+        val part = File(dest.path + ".part")
+
+        val digest = MessageDigest.getInstance("MD5")
+        var offset = if (part.isFile) part.length() else 0L
+        if (offset > 0) digestFile(part, digest)
+
+        val request = Request.Builder()
+            .url(file.url)
+            // Byte offsets must refer to the file itself, not to a compressed response.
+            .header("Accept-Encoding", "identity")
+            .apply { if (offset > 0) header("Range", "bytes=$offset-") }
+            .build()
+
+        client.newCall(request).execute().use { response ->
+            val total: Long
+            when (response.code) {
+                206 -> {
+                    val range = response.header("Content-Range")?.let { CONTENT_RANGE.matchEntire(it) }
+                    if (range == null || range.groupValues[1].toLong() != offset) {
+                        part.delete()
+                        throw IOException("Unexpected Content-Range for ${dest.name}: ${response.header("Content-Range")}")
+                    }
+                    total = range.groupValues[2].toLongOrNull() ?: -1L
+                }
+                200 -> {
+                    // The server doesn't do ranges, start over.
+                    if (offset > 0) {
+                        offset = 0
+                        digest.reset()
+                    }
+                    total = response.body.contentLength()
+                }
+                416 -> {
+                    // Nothing left to request: the part file is either complete or bigger than the file.
+                    val length = response.header("Content-Range")?.let { UNSATISFIED_RANGE.matchEntire(it) }?.groupValues?.get(1)?.toLong()
+                    if (length != offset) {
+                        part.delete()
+                        throw IOException("Partial download of ${dest.name} doesn't match the file, restarting")
+                    }
+                    total = offset
+                }
+                else -> throw IOException("HTTP ${response.code} while downloading ${dest.name}")
+            }
+
+            if (response.code != 416) {
+                var downloaded = offset
+                progress.update(index, downloaded, total)
+                response.body.byteStream().use { input ->
+                    FileOutputStream(part, offset > 0).use { output ->
+                        val buffer = ByteArray(BUFFER_SIZE)
+                        var n: Int
+                        while (input.read(buffer).also { n = it } != -1) {
+                            coroutineContext.ensureActive()
+                            output.write(buffer, 0, n)
+                            digest.update(buffer, 0, n)
+                            downloaded += n
+                            progress.update(index, downloaded, total)
+                        }
+                    }
+                }
+                if (total >= 0 && downloaded != total) {
+                    throw IOException("Download of ${dest.name} ended early: $downloaded of $total bytes")
+                }
+            }
+        }
+
+        if (file.md5.isNotEmpty()) {
+            val actual = digest.digest().toHex()
+            if (!actual.equals(file.md5, ignoreCase = true)) {
+                part.delete()
+                throw ChecksumMismatchException(dest, file.md5, actual)
+            }
+        }
+        dest.delete()
+        if (!part.renameTo(dest)) throw IOException("Could not move ${part.name} into place")
+        progress.update(index, 1, 1)
+    }
+
+    private fun md5Of(file: File): String =
+        MessageDigest.getInstance("MD5").also { digestFile(file, it) }.digest().toHex()
+
+    private fun digestFile(file: File, digest: MessageDigest) {
+        file.inputStream().use { input ->
+            val buffer = ByteArray(BUFFER_SIZE)
+            var n: Int
+            while (input.read(buffer).also { n = it } != -1) digest.update(buffer, 0, n)
+        }
+    }
+
+    private fun ByteArray.toHex(): String = joinToString("") { "%02x".format(it) }
+
+    /**
+     * Overall progress is the average of the files' progress; a file of unknown length counts as 0 until it's done.
+     */
+    private inner class Progress(fileCount: Int, private val listener: (Float) -> Unit) {
+        private val fractions = FloatArray(fileCount)
+        private var lastReport = 0L
+
+        @Synchronized
+        fun update(index: Int, downloaded: Long, total: Long) {
+            fractions[index] = if (total > 0) (downloaded.toFloat() / total).coerceIn(0f, 1f) else 0f
+            val now = System.nanoTime() / 1_000_000
+            if (now - lastReport >= progressIntervalMillis) {
+                lastReport = now
+                listener(fractions.average().toFloat())
+            }
+        }
+
+        @Synchronized
+        fun finish() {
+            listener(1f)
+        }
+    }
+}
@@ -1,20 +1,30 @@
 package io.github.gmathi.novellibrary.service.ai_tts
 
+import android.app.ActivityManager
+import android.content.ComponentCallbacks2
 import android.content.Context
 import android.os.Build
+import android.os.SystemClock
 import com.k2fsa.sherpa.onnx.OfflineTts
 import com.k2fsa.sherpa.onnx.OfflineTtsConfig
 import com.k2fsa.sherpa.onnx.OfflineTtsKokoroModelConfig
 import com.k2fsa.sherpa.onnx.OfflineTtsModelConfig
 import com.k2fsa.sherpa.onnx.OfflineTtsVitsModelConfig
+import io.github.gmathi.novellibrary.BuildConfig
+import io.github.gmathi.novellibrary.network.NetworkHelper
 import io.github.gmathi.novellibrary.util.logging.Logs
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import uy.kohesive.injekt.injectLazy
 import java.io.File
 import java.io.FileOutputStream
-import java.net.URL
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 import java.util.zip.ZipEntry
 import java.util.zip.ZipInputStream
 
@@ -40,10 +50,18 @@ data class AiTtsVoiceInfo(
     val tokensUrl: String,
     /** Only required for Kokoro models. */
     val voicesBinUrl: String = "",
+    /** MD5 of the model file (hex), verified after download when set. */
     val checksumMd5: String = "",
     val supportedAbis: Set<String> = emptySet()
 )
 
+/**
+ * Downloads, verifies and loads the AI TTS voice models.
+ *
+ * There is one instance per process (see `AppModule`), so loaded models outlive the service that used them: the last
+ * few voices stay loaded within a memory budget and switching back to one of them is instant. All native calls,
+ * including loading and releasing models, run on [nativeDispatcher].
+ */
 class AiTtsModelManager(private val context: Context) {
 
     val primaryAbi: String = Build.SUPPORTED_ABIS.firstOrNull() ?: "arm64-v8a"
@@ -53,35 +71,56 @@ class AiTtsModelManager(private val context: Context) {
         Thread(r, "ai-tts-native").also { it.isDaemon = true }
     }
     val nativeDispatcher = nativeExecutor.asCoroutineDispatcher()
+    private val scope = CoroutineScope(SupervisorJob() + nativeDispatcher)
 
-    private var currentTts: OfflineTts? = null
-    private var currentVoiceId: String? = null
+    // Loaded models, keyed by [sessionKey].
+    private val sessions = AiTtsSessionPool<OfflineTts>(::release)
+    private val sessionBudgetBytes: Long by lazy { computeSessionBudget() }
+
+    // Voices whose files were already verified, so the files are not checked again on every call.
+    private val verifiedModels: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    private val loadLatencies = ConcurrentHashMap<String, Long>()
+
+    @Volatile
+    private var espeakDataPath: String? = null
+
+    private val networkHelper: NetworkHelper by injectLazy()
 
     fun getModelDir(voiceId: String): File =
         File(context.filesDir, "ai_tts/models/$voiceId")
 
     fun isModelDownloaded(voiceId: String): Boolean {
+        if (voiceId in verifiedModels) return true
         val voice = ALL_VOICES.find { it.id == voiceId } ?: return false
         val dir = getModelDir(voiceId)
         val onnx = File(dir, "model.onnx")
         val tokens = File(dir, "tokens.txt")
         val baseOk = onnx.exists() && onnx.length() > 0 && tokens.exists() && tokens.length() > 0
-        return if (voice.engineType == TtsEngineType.KOKORO) {
+        val ok = if (voice.engineType == TtsEngineType.KOKORO) {
             val voices = File(dir, "voices.bin")
             baseOk && voices.exists() && voices.length() > 0
         } else {
             baseOk
         }
+        if (ok) verifiedModels.add(voiceId)
+        return ok
     }
 
     fun verifyModel(voiceId: String): Boolean = isModelDownloaded(voiceId)
 
     fun deleteModel(voiceId: String) {
+        evictVoice(voiceId)
         getModelDir(voiceId).deleteRecursively()
-        if (currentVoiceId == voiceId) {
-            currentTts = null
-            currentVoiceId = null
-        }
+    }
+
+    /**
+     * Forgets everything known about the voice: unloads it and drops its verified state. Call this whenever the
+     * model files are changed or removed outside of [deleteModel].
+     */
+    fun evictVoice(voiceId: String) {
+        verifiedModels.remove(voiceId)
+        // A model still in use is released once the player lets go of it.
+        sessions.evictVoice(voiceId)
     }
 
     /** Returns the engine type for a given voice ID. */
@@ -100,25 +139,46 @@ class AiTtsModelManager(private val context: Context) {
     }
 
     // ── espeak-ng-data extraction ────────────────────────────────────────────
+
+    /**
+     * Makes sure the espeak-ng data is extracted and returns its path, or an empty string if extraction failed.
+     *
+     * The data is extracted once per app version: a marker file records the version code it was extracted for, and
+     * the asset is only unpacked again after an install or update. Extraction goes to a temporary directory that is
+     * renamed into place, so an interrupted extraction is never mistaken for a complete one.
+     */
+    fun prepareEspeakData(): String {
+        espeakDataPath?.let { return it }
+        synchronized(this) {
+            espeakDataPath?.let { return it }
+            val path = extractEspeakData()
+            if (path.isNotEmpty()) espeakDataPath = path
+            return path
+        }
+    }
+
     private fun extractEspeakData(): String {
         val destDir = File(context.filesDir, "espeak-ng-data")
-        val existing = destDir.list()
-        if (destDir.exists() && existing != null && existing.isNotEmpty()) {
-            // Handle nested espeak-ng-data/espeak-ng-data structure
-            val nestedDir = File(destDir, "espeak-ng-data")
-            val resolved = if (File(nestedDir, "phontab").exists()) nestedDir.absolutePath
-            else destDir.absolutePath
-            Logs.debug(TAG, "extractEspeakData: already extracted at '$resolved'")
-            return resolved
+        val marker = File(context.filesDir, ESPEAK_VERSION_MARKER)
+        val version = BuildConfig.VERSION_CODE.toString()
+        if (destDir.isDirectory && marker.isFile && marker.readText() == version) {
+            return resolveEspeakDir(destDir)
         }
+
+        val start = SystemClock.elapsedRealtime()
+        val tempDir = File(context.filesDir, "espeak-ng-data.tmp")
         return try {
+            tempDir.deleteRecursively()
+            tempDir.mkdirs()
             context.assets.open("espeak-ng-data.zip").use { inputStream ->
-                destDir.mkdirs()
-                ZipInputStream(inputStream).use { zis ->
+                ZipInputStream(inputStream.buffered()).use { zis ->
                     val buffer = ByteArray(32768)
                     var ze: ZipEntry? = zis.nextEntry
                     while (ze != null) {
-                        val newFile = File(destDir, ze.name)
+                        val newFile = File(tempDir, ze.name)
+                        if (!newFile.canonicalPath.startsWith(tempDir.canonicalPath + File.separator)) {
+                            throw SecurityException("Zip entry outside of the target directory: ${ze.name}")
+                        }
                         if (ze.isDirectory) {
                             newFile.mkdirs()
                         } else {
@@ -135,17 +195,26 @@ class AiTtsModelManager(private val context: Context) {
                     }
                 }
             }
-            val nestedDir = File(destDir, "espeak-ng-data")
-            val resolved = if (File(nestedDir, "phontab").exists()) nestedDir.absolutePath
-            else destDir.absolutePath
-            Logs.debug(TAG, "extractEspeakData: extracted to '$resolved'")
+            marker.delete()
+            destDir.deleteRecursively()
+            if (!tempDir.renameTo(destDir)) throw IllegalStateException("Could not move espeak-ng-data into place")
+            marker.writeText(version)
+            val resolved = resolveEspeakDir(destDir)
+            Logs.info(TAG, "extractEspeakData: extracted to '$resolved' in ${SystemClock.elapsedRealtime() - start}ms")
             resolved
         } catch (e: Exception) {
             Logs.error(TAG, "extractEspeakData: failed to extract espeak-ng-data.zip: ${e.message}", e)
+            tempDir.deleteRecursively()
             ""
         }
     }
 
+    // Handle nested espeak-ng-data/espeak-ng-data structure
+    private fun resolveEspeakDir(destDir: File): String {
+        val nestedDir = File(destDir, "espeak-ng-data")
+        return if (File(nestedDir, "phontab").exists()) nestedDir.absolutePath else destDir.absolutePath
+    }
+
     // ── Provider fallback for VITS ───────────────────────────────────────────
     private fun createVitsTtsWithFallback(modelDirPath: String, espeakDataPath: String): OfflineTts? {
         for (provider in listOf("xnnpack", "cpu")) {
@@ -218,18 +287,28 @@ class AiTtsModelManager(private val context: Context) {
     }
 
     // ── Load model (dispatches to correct engine) ────────────────────────────
-    fun loadModel(voiceId: String, kokoroSpeakerId: Int = 0, kokoroLangCode: String = "en"): OfflineTts {
-        if (currentVoiceId == voiceId && currentTts != null) {
+
+    /**
+     * Returns the loaded model for the voice, loading it if needed, and marks it as the one in use until
+     * [unloadModel]. Must be called on [nativeDispatcher].
+     */
+    fun loadModel(voiceId: String, kokoroSpeakerId: Int = 0, kokoroLangCode: String = "en"): OfflineTts =
+        acquireModel(voiceId, kokoroSpeakerId, kokoroLangCode, use = true)
+
+    private fun acquireModel(voiceId: String, kokoroSpeakerId: Int, kokoroLangCode: String, use: Boolean): OfflineTts {
+        val key = sessionKey(voiceId, kokoroLangCode)
+        sessions.get(key, use)?.let {
             Logs.debug(TAG, "loadModel($voiceId): returning cached model")
-            return currentTts!!
+            return it
         }
-        unloadModel()
+
+        val start = SystemClock.elapsedRealtime()
         val modelDir = getModelDir(voiceId)
         val voice = ALL_VOICES.find { it.id == voiceId }
         val engineType = voice?.engineType ?: TtsEngineType.VITS
         Logs.debug(TAG, "loadModel($voiceId): engine=$engineType dir=${modelDir.absolutePath}")
 
-        val espeakDataPath = extractEspeakData()
+        val espeakDataPath = prepareEspeakData()
         Logs.debug(TAG, "loadModel($voiceId): espeakDataPath='$espeakDataPath'")
 
         if (espeakDataPath.isEmpty()) {
@@ -245,22 +324,106 @@ class AiTtsModelManager(private val context: Context) {
             TtsEngineType.VITS -> createVitsTtsWithFallback(modelDir.absolutePath, espeakDataPath)
         } ?: throw IllegalStateException("Model load failed on all providers for voiceId=$voiceId ($engineType)")
 
-        Logs.debug(TAG, "loadModel($voiceId): created, sampleRate=${tts.sampleRate()}")
-        currentTts = tts
-        currentVoiceId = voiceId
+        val elapsed = SystemClock.elapsedRealtime() - start
+        loadLatencies[voiceId] = elapsed
+        Logs.info(TAG, "loadModel($voiceId): created in ${elapsed}ms, sampleRate=${tts.sampleRate()}")
+
+        sessions.put(key, voiceId, tts, modelSizeBytes(modelDir), use, sessionBudgetBytes, MAX_SESSIONS)
         return tts
     }
 
+    /**
+     * Loads the voice in the background so that playback can start right away, e.g. when the reader is opened.
+     * Does nothing if the voice isn't downloaded or is already loaded.
+     */
+    fun prewarm(voiceId: String, kokoroSpeakerId: Int = 0, kokoroLangCode: String = "en") {
+        if (!isNativelySupported) return
+        scope.launch {
+            if (!isModelDownloaded(voiceId)) return@launch
+            val key = sessionKey(voiceId, kokoroLangCode)
+            if (key in sessions) return@launch
+            try {
+                acquireModel(voiceId, kokoroSpeakerId, kokoroLangCode, use = false)
+            } catch (e: Exception) {
+                Logs.warning(TAG, "prewarm($voiceId): ${e.message}")
+            }
+        }
+    }
+
+    /** How long the last load of the voice took, in milliseconds, or null if it hasn't been loaded yet. */
+    fun lastLoadLatencyMillis(voiceId: String): Long? = loadLatencies[voiceId]
+
+    /**
+     * Marks the model in use as no longer needed. It stays loaded until it's evicted, unless it was evicted while in
+     * use, then it's released now.
+     */
     fun unloadModel() {
-        currentTts = null
-        currentVoiceId = null
+        sessions.unuse()
+    }
+
+    /**
+     * Releases loaded models in response to memory pressure (see [ComponentCallbacks2]), all but the model in use.
+     */
+    fun onTrimMemory(level: Int) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) return
+        val released = sessions.trimAll()
+        if (released > 0) Logs.info(TAG, "onTrimMemory($level): released $released model(s)")
     }
 
-    fun close() {
-        nativeDispatcher.close()
+    private fun release(voiceId: String, tts: OfflineTts) {
+        // Release on the native thread, so it can't happen in the middle of a generate call.
+        nativeExecutor.execute {
+            try {
+                tts.release()
+            } catch (e: Exception) {
+                Logs.warning(TAG, "release($voiceId): ${e.message}")
+            }
+        }
+    }
+
+    // Kokoro bakes the language into the model config; the speaker is chosen per generate call.
+    private fun sessionKey(voiceId: String, kokoroLangCode: String): String =
+        if (getEngineType(voiceId) == TtsEngineType.KOKORO) "$voiceId:$kokoroLangCode" else voiceId
+
+    // A loaded model takes about as much native memory as its files.
+    private fun modelSizeBytes(modelDir: File): Long =
+        modelDir.listFiles()?.sumOf { it.length() } ?: 0L
+
+    private fun computeSessionBudget(): Long {
+        val activityManager = context.getSystemService(Context.ACTIVITY_SERVICE) as ActivityManager
+        if (activityManager.isLowRamDevice) return 0L
+        val memoryInfo = ActivityManager.MemoryInfo()
+        activityManager.getMemoryInfo(memoryInfo)
+        return memoryInfo.totalMem / 8
     }
 
     // ── Download ─────────────────────────────────────────────────────────────
+
+    private val downloader by lazy {
+        // Shares the app's connection pool, but model files are too big for the HTTP cache.
+        AiTtsModelDownloader(networkHelper.client.newBuilder().cache(null).readTimeout(60, TimeUnit.SECONDS).build())
+    }
+
+    /** The files making up the voice's model, to be stored in [dir]. */
+    fun modelFiles(voice: AiTtsVoiceInfo, dir: File): List<AiTtsModelDownloader.FileSpec> {
+        val files = mutableListOf(
+            AiTtsModelDownloader.FileSpec(voice.downloadUrl, File(dir, "model.onnx"), voice.checksumMd5),
+            AiTtsModelDownloader.FileSpec(voice.tokensUrl, File(dir, "tokens.txt"))
+        )
+        // Kokoro models also need voices.bin
+        if (voice.engineType == TtsEngineType.KOKORO && voice.voicesBinUrl.isNotEmpty()) {
+            files.add(AiTtsModelDownloader.FileSpec(voice.voicesBinUrl, File(dir, "voices.bin")))
+        }
+        return files
+    }
+
+    /**
+     * Downloads the voice's model files into [dir], resuming any earlier partial download there.
+     * [onProgress] is called from background threads.
+     */
+    suspend fun downloadModelFiles(voice: AiTtsVoiceInfo, dir: File, onProgress: (Float) -> Unit) =
+        downloader.download(modelFiles(voice, dir), onProgress)
+
     suspend fun downloadModel(
         voice: AiTtsVoiceInfo,
         onProgress: (Float) -> Unit,
@@ -268,43 +431,18 @@ class AiTtsModelManager(private val context: Context) {
         onError: (String) -> Unit
     ) = withContext(Dispatchers.IO) {
         val modelDir = getModelDir(voice.id)
-        modelDir.mkdirs()
-
-        val filesToDownload = mutableListOf(
-            voice.downloadUrl to File(modelDir, "model.onnx"),
-            voice.tokensUrl to File(modelDir, "tokens.txt")
-        )
-        // Kokoro models also need voices.bin
-        if (voice.engineType == TtsEngineType.KOKORO && voice.voicesBinUrl.isNotEmpty()) {
-            filesToDownload.add(voice.voicesBinUrl to File(modelDir, "voices.bin"))
-        }
-        val totalFiles = filesToDownload.size
-
+        evictVoice(voice.id)
         try {
-            filesToDownload.forEachIndexed { fileIndex, (url, destFile) ->
-                val connection = URL(url).openConnection().apply { connect() }
-                val contentLength = connection.contentLengthLong
-                connection.getInputStream().use { input ->
-                    destFile.outputStream().use { output ->
-                        val buffer = ByteArray(8 * 1024)
-                        var bytesRead = 0L
-                        var n: Int
-                        while (input.read(buffer).also { n = it } != -1) {
-                            output.write(buffer, 0, n)
-                            bytesRead += n
-                            if (contentLength > 0) {
-                                val fileProgress = bytesRead.toFloat() / contentLength
-                                val overall = (fileIndex + fileProgress) / totalFiles
-                                withContext(Dispatchers.Main) { onProgress(overall) }
-                            }
-                        }
-                    }
-                }
+            downloadModelFiles(voice, modelDir) { progress ->
+                launch(Dispatchers.Main) { onProgress(progress) }
             }
             withContext(Dispatchers.Main) { onComplete() }
-        } catch (e: Exception) {
+        } catch (e: AiTtsModelDownloader.ChecksumMismatchException) {
             modelDir.deleteRecursively()
             withContext(Dispatchers.Main) { onError(e.message ?: "Download failed") }
+        } catch (e: Exception) {
+            // Keep what was downloaded so far, the next attempt resumes it.
+            withContext(Dispatchers.Main) { onError(e.message ?: "Download failed") }
         }
     }
 
@@ -315,6 +453,10 @@ class AiTtsModelManager(private val context: Context) {
         availableVoices().firstOrNull()?.id ?: ALL_VOICES.first().id
 
     companion object {
+        // Loaded models kept around, including the one in use, e.g. two favourite voices.
+        private const val MAX_SESSIONS = 2
+        private const val ESPEAK_VERSION_MARKER = "espeak-ng-data.version"
+
         private const val KOKORO_BASE =
             "https://huggingface.co/CodeBySonu95/Sherpa-onnx-models/resolve/main/kokoro-multi-lang"
         private const val VITS_BASE =
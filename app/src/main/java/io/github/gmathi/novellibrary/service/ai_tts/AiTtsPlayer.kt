@@ -7,12 +7,15 @@ import android.media.AudioTrack
 import android.os.Process
 import io.github.gmathi.novellibrary.model.preference.AiTtsPreferences
 import io.github.gmathi.novellibrary.util.logging.Logs
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
 import kotlinx.coroutines.*
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.sync.Mutex
 import kotlinx.coroutines.sync.withLock
+import uy.kohesive.injekt.injectLazy
 import java.util.Random
 import java.util.concurrent.LinkedBlockingQueue
 import java.util.concurrent.atomic.AtomicBoolean
@@ -58,6 +61,7 @@ class AiTtsPlayer(
     private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Main)
     private var playbackJob: Job? = null
     private val synthesisLock = Mutex()
+    private val tracer: Tracer by injectLazy()
 
     // --- Audio ---
     private var audioTrack: AudioTrack? = null
@@ -177,8 +181,8 @@ class AiTtsPlayer(
         Logs.debug(TAG, "destroy: releasing resources")
         scope.cancel()
         stopPlayerThread()
+        // The model stays loaded in the model manager, so playing again later starts right away.
         runBlocking { synthesisLock.withLock { modelManager.unloadModel() } }
-        modelManager.close()
     }
 
     // ── Player thread management ─────────────────────────────────────────────
@@ -349,18 +353,21 @@ class AiTtsPlayer(
     ): List<AudioChunk> {
         if (sentence.isBlank()) return emptyList()
 
-        return if (preferences.emotionTags) {
-            synthesizeWithEmotionTags(tts, sentence, sentenceIndex)
-        } else {
-            val pcm = synthesizeToPcm(tts, sentence) ?: return emptyList()
-            val chunks = mutableListOf(AudioChunk(sentenceIndex, pcm.first, pcm.second))
-            if (preferences.smartPunctuation) {
-                val silenceMs = getSentenceTrailingSilenceMs(sentence)
-                if (silenceMs > 0) {
-                    chunks.add(AudioChunk(sentenceIndex, createSilence(silenceMs, pcm.second), pcm.second))
+        tracer.record("tts.sentence_chars", sentence.length.toLong())
+        return tracer.trace(Tracer.TTS_SYNTHESIS) {
+            if (preferences.emotionTags) {
+                synthesizeWithEmotionTags(tts, sentence, sentenceIndex)
+            } else {
+                val pcm = synthesizeToPcm(tts, sentence) ?: return emptyList()
+                val chunks = mutableListOf(AudioChunk(sentenceIndex, pcm.first, pcm.second))
+                if (preferences.smartPunctuation) {
+                    val silenceMs = getSentenceTrailingSilenceMs(sentence)
+                    if (silenceMs > 0) {
+                        chunks.add(AudioChunk(sentenceIndex, createSilence(silenceMs, pcm.second), pcm.second))
+                    }
                 }
+                chunks
             }
-            chunks
         }
     }
 
@@ -5,8 +5,6 @@ import android.content.BroadcastReceiver
 import android.content.ComponentName
 import android.content.Context
 import android.content.Intent
-import android.graphics.Bitmap
-import android.graphics.drawable.Drawable
 import android.media.AudioFocusRequest
 import android.media.AudioManager
 import android.os.Build
@@ -17,22 +15,25 @@ import android.support.v4.media.session.MediaSessionCompat
 import android.support.v4.media.session.PlaybackStateCompat
 import android.view.KeyEvent
 import androidx.core.content.ContextCompat
+import androidx.core.graphics.drawable.toBitmap
 import androidx.media.MediaBrowserServiceCompat
 import androidx.media.session.MediaButtonReceiver
-import com.bumptech.glide.Glide
-import com.bumptech.glide.request.target.CustomTarget
-import com.bumptech.glide.request.transition.Transition
+import coil.imageLoader
+import coil.request.ImageRequest
 import io.github.gmathi.novellibrary.activity.AiTtsControlsActivity
 import io.github.gmathi.novellibrary.cleaner.HtmlCleaner
 import io.github.gmathi.novellibrary.database.*
 import io.github.gmathi.novellibrary.model.database.WebPageSettings
+import io.github.gmathi.novellibrary.model.other.TTSCleanDocument
 import io.github.gmathi.novellibrary.model.preference.DataCenter
 import io.github.gmathi.novellibrary.network.WebPageDocumentFetcher
+import io.github.gmathi.novellibrary.service.cache.ChapterTextCache
 import io.github.gmathi.novellibrary.util.Constants.FILE_PROTOCOL
 import io.github.gmathi.novellibrary.util.Utils.getFormattedText
-import io.github.gmathi.novellibrary.util.lang.getGlideUrl
 import io.github.gmathi.novellibrary.util.logging.Logs
 import io.github.gmathi.novellibrary.util.notification.Notifications
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
 import org.jsoup.Jsoup
 import java.io.File
 import io.github.gmathi.novellibrary.worker.AiTtsModelDownloadWorker
@@ -49,6 +50,8 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
 
     private val dataCenter: DataCenter by injectLazy()
     private val dbHelper: DBHelper by injectLazy()
+    private val chapterTextCache: ChapterTextCache by injectLazy()
+    private val tracer: Tracer by injectLazy()
 
     companion object {
         /** Non-null while the service is running. UI can observe [instance] to access player state. */
@@ -71,7 +74,7 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
     }
 
     lateinit var player: AiTtsPlayer
-    private lateinit var modelManager: AiTtsModelManager
+    private val modelManager: AiTtsModelManager by injectLazy()
     private lateinit var notificationBuilder: AiTtsNotificationBuilder
     private lateinit var mediaSession: MediaSessionCompat
     private lateinit var stateBuilder: PlaybackStateCompat.Builder
@@ -87,6 +90,8 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
     private var chapterIndex: Int = 0
     private var novelId: Long = -1L
     private var translatorSourceName: String? = null
+    @Volatile
+    private var chapters: ChapterIndex? = null
 
     // BroadcastReceiver for MODEL_READY
     private val modelReadyReceiver = object : BroadcastReceiver() {
@@ -200,7 +205,6 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
         val mbrIntent = PendingIntent.getBroadcast(this, 0, mediaButtonIntent, pendingIntentFlags)
         val mbrComponent = ComponentName(this, MediaButtonReceiver::class.java)
 
-        modelManager = AiTtsModelManager(this)
         val prefs = dataCenter.aiTtsPreferences
         player = AiTtsPlayer(modelManager, prefs, this)
         Logs.info(LOG_TAG, "onCreate: service created, voiceId='${prefs.voiceId}' abi=${modelManager.primaryAbi}")
@@ -355,6 +359,7 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
 
         this.novelId = novelId
         this.translatorSourceName = translatorSource
+        this.chapters = null
 
         Logs.debug(LOG_TAG,"actionStartup: title='$title' chapterIdx=$chapterIdx textLength=${text?.length ?: -1} linkedPages=${linkedPages.size}")
         Logs.debug(LOG_TAG, "actionStartup: instance=$instance, player=${instance?.player}")
@@ -432,43 +437,29 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
     }
 
     /**
-     * Loads chapter content from the database, parses the HTML, extracts text,
-     * and feeds it to the player for playback.
+     * Loads chapter content through the shared chapter text cache (parsing the HTML and extracting the text
+     * when it is not cached yet), feeds it to the player for playback and prefetches the following chapters.
      */
-    private fun loadChapter(chapterIndex: Int) {
+    private suspend fun loadChapter(chapterIndex: Int) {
         if (novelId == -1L) {
             Logs.warning(LOG_TAG, "loadChapter: novelId not set, cannot load chapter")
             return
         }
 
-        val webPage = dbHelper.getWebPage(novelId, translatorSourceName, chapterIndex)
-        if (webPage == null) {
-            Logs.warning(LOG_TAG, "loadChapter: no web page for novelId=$novelId chapterIndex=$chapterIndex")
-            scope.launch(Dispatchers.Main) { player.stop() }
-            return
-        }
-
-        val webPageSettings = dbHelper.getWebPageSettings(webPage.url)
-        if (webPageSettings == null) {
-            Logs.warning(LOG_TAG, "loadChapter: no settings for url=${webPage.url}")
-            scope.launch(Dispatchers.Main) { player.stop() }
-            return
-        }
-
+        val novelId = novelId
+        val translatorSourceName = translatorSourceName
+        val key = ChapterTextCache.Key(novelId, translatorSourceName, chapterIndex, ChapterTextCache.TextVariant.Plain)
         try {
-            val doc = loadDocument(webPageSettings)
-            if (doc == null) {
-                Logs.warning(LOG_TAG, "loadChapter: could not load document for chapter $chapterIndex")
+            val clean = chapterTextCache.get(key) { loadChapterText(novelId, translatorSourceName, chapterIndex) }
+            if (clean == null) {
+                Logs.warning(LOG_TAG, "loadChapter: could not load chapter $chapterIndex")
                 scope.launch(Dispatchers.Main) { player.stop() }
                 return
             }
 
-            val htmlHelper = HtmlCleaner.getInstance(doc)
-            htmlHelper.removeJS(doc)
-            htmlHelper.additionalProcessing(doc)
-            val text = doc.getFormattedText()
-            val title = doc.title()
-            val linkedPageUrls = ArrayList(htmlHelper.getLinkedChapters(doc).map { it.href })
+            val text = clean.text
+            val title = clean.title
+            val linkedPageUrls = ArrayList(clean.bufferLinks.map { it.href })
 
             Logs.debug(LOG_TAG, "loadChapter: loaded chapter $chapterIndex title='$title' textLength=${text.length}")
 
@@ -477,12 +468,56 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
                 updateMediaSessionMetadata(title, "Chapter ${chapterIndex + 1}", novelId)
                 player.start()
             }
+
+            chapterTextCache.prefetch(key, dataCenter.ttsPreferences.prefetchChapters) { index ->
+                try {
+                    loadChapterText(novelId, translatorSourceName, index)
+                } catch (e: Exception) {
+                    Logs.warning(LOG_TAG, "loadChapter: failed to prefetch chapter $index: ${e.message}")
+                    null
+                }
+            }
         } catch (e: Exception) {
             Logs.error(LOG_TAG, "loadChapter: failed to load chapter: ${e.message}", e)
             scope.launch(Dispatchers.Main) { player.stop() }
         }
     }
 
+    /**
+     * Loads a chapter from the database and extracts its text. Returns null when the chapter does not exist
+     * or its document could not be loaded.
+     */
+    private fun loadChapterText(novelId: Long, translatorSourceName: String?, chapterIndex: Int): TTSCleanDocument? {
+        val webPage = dbHelper.getWebPage(chapterIndexFor(novelId, translatorSourceName), chapterIndex)
+        if (webPage == null) {
+            Logs.warning(LOG_TAG, "loadChapterText: no web page for novelId=$novelId chapterIndex=$chapterIndex")
+            return null
+        }
+
+        val webPageSettings = dbHelper.getWebPageSettings(webPage.url)
+        if (webPageSettings == null) {
+            Logs.warning(LOG_TAG, "loadChapterText: no settings for url=${webPage.url}")
+            return null
+        }
+
+        val doc = loadDocument(webPageSettings) ?: return null
+        val htmlHelper = HtmlCleaner.getInstance(doc)
+        tracer.trace(Tracer.HTML_CLEAN) {
+            htmlHelper.removeJS(doc)
+            htmlHelper.additionalProcessing(doc)
+        }
+        return TTSCleanDocument(doc.getFormattedText(), htmlHelper.getLinkedChapters(doc), doc.title(), chapterIndex)
+    }
+
+    /**
+     * The chapter index of the novel being read, loaded once per startup instead of running an offset query
+     * for every chapter.
+     */
+    private fun chapterIndexFor(novelId: Long, translatorSourceName: String?): ChapterIndex {
+        chapters?.let { if (it.novelId == novelId && it.translatorSourceName == translatorSourceName) return it }
+        return dbHelper.getChapterIndex(novelId, translatorSourceName).also { chapters = it }
+    }
+
     /**
      * Loads the HTML document for a chapter — from offline file first, falling back to web.
      */
@@ -512,18 +547,23 @@ class AiTtsService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChang
         // Load novel cover art asynchronously, like the regular TTS player does
         val novel = dbHelper.getNovel(novelId)
         if (novel != null && !novel.imageUrl.isNullOrBlank()) {
-            Glide.with(this).asBitmap().load(novel.imageUrl!!.getGlideUrl()).into(object : CustomTarget<Bitmap>() {
-                override fun onResourceReady(resource: Bitmap, transition: Transition<in Bitmap>?) {
-                    Logs.debug(LOG_TAG, "updateMediaSessionMetadata: novel art loaded")
-                    metadataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, resource)
-                    metadataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ART, resource)
-                    mediaSession.setMetadata(metadataBuilder.build())
-                }
-                override fun onLoadCleared(placeholder: Drawable?) {}
-                override fun onLoadFailed(errorDrawable: Drawable?) {
-                    Logs.debug(LOG_TAG, "updateMediaSessionMetadata: failed to load novel art")
-                }
-            })
+            val request = ImageRequest.Builder(this)
+                .data(novel.imageUrl)
+                .allowHardware(false)
+                .target(
+                    onSuccess = { result ->
+                        Logs.debug(LOG_TAG, "updateMediaSessionMetadata: novel art loaded")
+                        val bitmap = result.toBitmap()
+                        metadataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, bitmap)
+                        metadataBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ART, bitmap)
+                        mediaSession.setMetadata(metadataBuilder.build())
+                    },
+                    onError = {
+                        Logs.debug(LOG_TAG, "updateMediaSessionMetadata: failed to load novel art")
+                    }
+                )
+                .build()
+            imageLoader.enqueue(request)
         }
     }
 
@@ -0,0 +1,108 @@
+package io.github.gmathi.novellibrary.service.ai_tts
+
+/**
+ * The loaded voice models of [AiTtsModelManager], in LRU order, and which of them the player is using.
+ *
+ * The model in use is never released under the player: when it's evicted it's only set aside, and released once the
+ * player lets go of it ([unuse]) or takes another model. [release] is always called outside of the pool's lock.
+ */
+internal class AiTtsSessionPool<T>(private val release: (voiceId: String, model: T) -> Unit) {
+
+    private class Entry<T>(val voiceId: String, val model: T, val bytes: Long)
+
+    // Guarded by itself.
+    private val sessions = LinkedHashMap<String, Entry<T>>(4, 0.75f, true)
+    // The model handed out to the player; never evicted while in use.
+    private var activeKey: String? = null
+    // The model in use when it was evicted, released as soon as the player no longer uses it.
+    private var pendingRelease: Entry<T>? = null
+
+    operator fun contains(key: String): Boolean = synchronized(sessions) { sessions.containsKey(key) }
+
+    /** Returns the loaded model, marking it as the one in use when [use] is set. */
+    fun get(key: String, use: Boolean): T? {
+        val released = ArrayList<Entry<T>>()
+        val model = synchronized(sessions) {
+            val entry = sessions[key] ?: return null
+            if (use) use(key, released)
+            entry.model
+        }
+        released.forEach { release(it.voiceId, it.model) }
+        return model
+    }
+
+    /**
+     * Adds a newly loaded model, then releases the least recently used others until at most [maxSessions] models of
+     * at most [budgetBytes] together are left.
+     */
+    fun put(key: String, voiceId: String, model: T, bytes: Long, use: Boolean, budgetBytes: Long, maxSessions: Int) {
+        val released = ArrayList<Entry<T>>()
+        synchronized(sessions) {
+            sessions.put(key, Entry(voiceId, model, bytes))?.let { replaced ->
+                if (key == activeKey) setAside(replaced, released) else released.add(replaced)
+            }
+            if (use) use(key, released)
+            trim(budgetBytes, maxSessions, keepKey = key, evicted = released)
+        }
+        released.forEach { release(it.voiceId, it.model) }
+    }
+
+    /** Releases every model of the voice; the one in use only once the player no longer uses it. */
+    fun evictVoice(voiceId: String) {
+        val released = ArrayList<Entry<T>>()
+        synchronized(sessions) {
+            val iterator = sessions.entries.iterator()
+            while (iterator.hasNext()) {
+                val entry = iterator.next()
+                if (entry.value.voiceId != voiceId) continue
+                iterator.remove()
+                if (entry.key == activeKey) setAside(entry.value, released) else released.add(entry.value)
+            }
+        }
+        released.forEach { release(it.voiceId, it.model) }
+    }
+
+    /** Marks the model in use as no longer needed, releasing it if it was evicted meanwhile. */
+    fun unuse() {
+        val released = synchronized(sessions) {
+            activeKey = null
+            pendingRelease.also { pendingRelease = null }
+        }
+        released?.let { release(it.voiceId, it.model) }
+    }
+
+    /** Releases all models but the one in use. Returns how many models were released. */
+    fun trimAll(): Int {
+        val released = ArrayList<Entry<T>>()
+        synchronized(sessions) { trim(0L, 0, keepKey = null, evicted = released) }
+        released.forEach { release(it.voiceId, it.model) }
+        return released.size
+    }
+
+    // Caller holds the lock. The player only ever uses one model, so a model set aside earlier is done with.
+    private fun use(key: String, released: MutableList<Entry<T>>) {
+        activeKey = key
+        pendingRelease?.let { released.add(it) }
+        pendingRelease = null
+    }
+
+    // Caller holds the lock. The player may still be using the model, so it's only released once it lets go.
+    private fun setAside(entry: Entry<T>, released: MutableList<Entry<T>>) {
+        pendingRelease?.let { released.add(it) }
+        pendingRelease = entry
+        activeKey = null
+    }
+
+    // Caller holds the lock.
+    private fun trim(budgetBytes: Long, maxSessions: Int, keepKey: String?, evicted: MutableList<Entry<T>>) {
+        val iterator = sessions.entries.iterator()
+        var totalBytes = sessions.values.sumOf { it.bytes }
+        while (iterator.hasNext() && (sessions.size > maxSessions || totalBytes > budgetBytes)) {
+            val entry = iterator.next()
+            if (entry.key == activeKey || entry.key == keepKey) continue
+            totalBytes -= entry.value.bytes
+            evicted.add(entry.value)
+            iterator.remove()
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.gmathi.novellibrary.service.cache
+
+import io.github.gmathi.novellibrary.model.other.TTSCleanDocument
+import io.github.gmathi.novellibrary.util.logging.Logs
+import kotlinx.coroutines.*
+
+/**
+ * Process-wide cache of extracted chapter text, shared by the TTS player and the AI TTS service.
+ *
+ * Entries are kept in LRU order within a byte budget. Loads for the same chapter are de-duplicated: while a chapter
+ * is being loaded, every other request for it awaits the same load instead of fetching it again. Loads run in the
+ * cache's own scope, so a load keeps going (and ends up cached) when the caller that started it goes away.
+ */
+class ChapterTextCache(private val maxBytes: Long = DEFAULT_MAX_BYTES) {
+
+    companion object {
+        private const val TAG = "ChapterTextCache"
+
+        const val DEFAULT_MAX_BYTES = 8L * 1024 * 1024
+
+        // Rough fixed cost of an entry: key, document object, lists and map node.
+        private const val ENTRY_OVERHEAD_BYTES = 256L
+    }
+
+    /**
+     * A chapter, and how its text was made: producers that make the text of a chapter differently don't share entries.
+     */
+    data class Key(val novelId: Long, val translatorSourceName: String?, val chapterIndex: Int, val variant: TextVariant)
+
+    sealed class TextVariant {
+
+        /**
+         * The chapter cleaned by its [io.github.gmathi.novellibrary.cleaner.HtmlCleaner] and extracted on its own.
+         */
+        data object Plain : TextVariant()
+
+        /**
+         * [Plain] followed by the text of the chapter's buffer pages, merged with these TTS settings.
+         */
+        data class MergedBuffers(val discardInitialPage: Boolean, val useLongestPage: Boolean) : TextVariant()
+    }
+
+    private class Entry(val document: TTSCleanDocument, val bytes: Long)
+
+    private val entries = LinkedHashMap<Key, Entry>(16, 0.75f, true)
+    private val loading = HashMap<Key, Deferred<TTSCleanDocument?>>()
+    private var currentBytes = 0L
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    /**
+     * Returns the cached chapter without loading it.
+     */
+    @Synchronized
+    fun peek(key: Key): TTSCleanDocument? = entries[key]?.document
+
+    @Synchronized
+    fun isLoading(key: Key): Boolean = loading.containsKey(key)
+
+    @Synchronized
+    fun put(key: Key, document: TTSCleanDocument) {
+        val bytes = sizeOf(document)
+        if (bytes > maxBytes) {
+            Logs.debug(TAG, "Not caching $key, $bytes bytes is over the budget")
+            return
+        }
+        entries.put(key, Entry(document, bytes))?.let { currentBytes -= it.bytes }
+        currentBytes += bytes
+        trimToBudget()
+    }
+
+    /**
+     * Returns the cached chapter, or loads it with [loader]. Concurrent calls for the same [key] share one load.
+     * A loader returning null (chapter not available) is not cached; exceptions are rethrown to every waiter.
+     */
+    suspend fun get(key: Key, loader: suspend () -> TTSCleanDocument?): TTSCleanDocument? =
+        load(key, loader).await()
+
+    /**
+     * Starts loading the chapters following [key] within [window] in the background, skipping cached and in-flight
+     * ones. [loader] is called with the chapter index to load.
+     */
+    fun prefetch(key: Key, window: Int, loader: suspend (Int) -> TTSCleanDocument?) {
+        for (offset in 1..window) {
+            val next = key.copy(chapterIndex = key.chapterIndex + offset)
+            load(next) { loader(next.chapterIndex) }
+        }
+    }
+
+    @Synchronized
+    private fun load(key: Key, loader: suspend () -> TTSCleanDocument?): Deferred<TTSCleanDocument?> {
+        entries[key]?.let { return CompletableDeferred(it.document) }
+        loading[key]?.let { return it }
+
+        val deferred = scope.async(start = CoroutineStart.LAZY) {
+            try {
+                loader()?.also { put(key, it) }
+            } finally {
+                synchronized(this@ChapterTextCache) { loading.remove(key) }
+            }
+        }
+        loading[key] = deferred
+        deferred.start()
+        return deferred
+    }
+
+    /**
+     * Drops every cached chapter of the novel, e.g. after the TTS filters changed or the chapter was reloaded.
+     */
+    @Synchronized
+    fun invalidate(novelId: Long) {
+        val iterator = entries.entries.iterator()
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (entry.key.novelId == novelId) {
+                currentBytes -= entry.value.bytes
+                iterator.remove()
+            }
+        }
+    }
+
+    @Synchronized
+    fun invalidate(key: Key) {
+        entries.remove(key)?.let { currentBytes -= it.bytes }
+    }
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        currentBytes = 0L
+    }
+
+    private fun trimToBudget() {
+        val iterator = entries.values.iterator()
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            currentBytes -= iterator.next().bytes
+            iterator.remove()
+        }
+    }
+
+    private fun sizeOf(document: TTSCleanDocument): Long {
+        // Strings are UTF-16 in memory.
+        var chars = document.text.length.toLong() + document.title.length
+        document.bufferLinks.forEach { chars += it.href.length + it.label.length }
+        return chars * 2 + ENTRY_OVERHEAD_BYTES
+    }
+}
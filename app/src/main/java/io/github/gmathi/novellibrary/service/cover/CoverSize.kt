@@ -0,0 +1,42 @@
+package io.github.gmathi.novellibrary.service.cover
+
+import kotlin.math.roundToInt
+
+/**
+ * The sizes the cover thumbnails are made in, the size of the views that show them.
+ *
+ * @param key Names the thumbnail files of this size.
+ */
+enum class CoverSize(val key: String, val widthDp: Int, val heightDp: Int) {
+    LIST("list", 56, 56),
+    GRID("grid", 120, 180),
+    DETAILS("details", 240, 360);
+
+    fun widthPx(density: Float) = (widthDp * density).roundToInt()
+
+    fun heightPx(density: Float) = (heightDp * density).roundToInt()
+
+    companion object {
+
+        /**
+         * The largest power of two a [width] x [height] image can be subsampled by while still covering
+         * [targetWidth] x [targetHeight].
+         */
+        fun sampleSize(width: Int, height: Int, targetWidth: Int, targetHeight: Int): Int {
+            var sampleSize = 1
+            while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight)
+                sampleSize *= 2
+            return sampleSize
+        }
+
+        /**
+         * The size a [width] x [height] image is scaled down to so that it just covers [targetWidth] x [targetHeight],
+         * keeping its aspect ratio. Smaller images keep their size.
+         */
+        fun scaledSize(width: Int, height: Int, targetWidth: Int, targetHeight: Int): Pair<Int, Int> {
+            val scale = maxOf(targetWidth / width.toFloat(), targetHeight / height.toFloat())
+            if (scale >= 1f) return width to height
+            return maxOf(1, (width * scale).roundToInt()) to maxOf(1, (height * scale).roundToInt())
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.gmathi.novellibrary.service.cover
+
+import io.github.gmathi.novellibrary.util.lang.Hash
+import io.github.gmathi.novellibrary.util.logging.Logs
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Keeps the covers of the library novels on disk, so that they show without network access.
+ *
+ * A cover is downloaded once and made into a thumbnail of each [CoverSize], in [dir]`/<novelId>/`. The thumbnails are
+ * named after the hash of the cover they were made from: a cover that changed gets new file names, so images cached
+ * by their file don't outlive it, while the same cover moved to a new url is kept as it is. The url the cover came from
+ * is written last, a novel whose archive was interrupted is archived again.
+ *
+ * Archives run in the store's own scope, at most [MAX_CONCURRENT_ARCHIVES] at a time, and the archives of the same
+ * novel share one download.
+ */
+class CoverStore(
+    private val dir: File,
+    private val client: OkHttpClient,
+    private val thumbnailer: Thumbnailer,
+    private val maxCoverBytes: Long = MAX_COVER_BYTES
+) {
+
+    companion object {
+        private const val TAG = "CoverStore"
+
+        const val MAX_COVER_BYTES = 16L * 1024 * 1024
+        const val MAX_CONCURRENT_ARCHIVES = 4
+
+        private const val SOURCE_FILE_NAME = "source"
+        private const val EXTENSION = "webp"
+        private const val HASH_LENGTH = 16
+    }
+
+    fun interface Thumbnailer {
+
+        /**
+         * The [size] thumbnail of the [source] image, or null if it can't be decoded.
+         */
+        fun thumbnail(source: ByteArray, size: CoverSize): ByteArray?
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val permits = Semaphore(MAX_CONCURRENT_ARCHIVES)
+    private val archiving = HashMap<Long, Deferred<Unit>>()
+
+    /**
+     * What is on disk for a novel: the url its cover was archived from and the thumbnails.
+     */
+    private class Archived(val source: String?, val covers: Map<CoverSize, File>)
+
+    /**
+     * What is on disk, by novel id. Novels without any thumbnail are kept too, so that lists don't look for them on
+     * every bind.
+     */
+    private val index = ConcurrentHashMap<Long, Archived>()
+
+    /**
+     * The [size] thumbnail of the novel, or null if its cover wasn't archived yet.
+     */
+    fun cover(novelId: Long, size: CoverSize): File? = archived(novelId).covers[size]
+
+    /**
+     * What to load for the cover of a novel: its thumbnail when it has one of the cover at [imageUrl], its [imageUrl]
+     * otherwise, e.g. until a changed cover is archived again. Novels that aren't in the library (id -1) always use
+     * their url.
+     */
+    fun imageOf(novelId: Long, imageUrl: String?, size: CoverSize): Any? {
+        if (novelId == -1L) return imageUrl
+        val archived = archived(novelId)
+        if (imageUrl != null && archived.source != imageUrl) return imageUrl
+        return archived.covers[size] ?: imageUrl
+    }
+
+    /**
+     * Archives the cover of the novel in the background, if it isn't already. Failures are logged.
+     */
+    fun archiveAsync(novelId: Long, imageUrl: String?) {
+        if (novelId == -1L || imageUrl.isNullOrBlank()) return
+        start(novelId, imageUrl).invokeOnCompletion { e ->
+            if (e != null && e !is CancellationException) Logs.warning(TAG, "Unable to archive the cover of novel $novelId", e)
+        }
+    }
+
+    /**
+     * Archives the cover of the novel, unless the cover at [imageUrl] already is.
+     *
+     * @throws IOException If the cover can't be downloaded or decoded.
+     */
+    suspend fun archive(novelId: Long, imageUrl: String) = start(novelId, imageUrl).await()
+
+    fun delete(novelId: Long) {
+        synchronized(this) { archiving.remove(novelId) }?.cancel()
+        File(dir, novelId.toString()).deleteRecursively()
+        index.remove(novelId)
+    }
+
+    /**
+     * Forgets what is on disk, e.g. after a restore replaced the covers.
+     */
+    fun invalidate() = index.clear()
+
+    @Synchronized
+    private fun start(novelId: Long, imageUrl: String): Deferred<Unit> {
+        archiving[novelId]?.let { return it }
+        val deferred = scope.async(start = CoroutineStart.LAZY) {
+            try {
+                archiveNow(novelId, imageUrl)
+            } finally {
+                synchronized(this@CoverStore) { archiving.remove(novelId) }
+            }
+        }
+        archiving[novelId] = deferred
+        deferred.start()
+        return deferred
+    }
+
+    private suspend fun archiveNow(novelId: Long, imageUrl: String) {
+        val novelDir = File(dir, novelId.toString())
+        if (isArchived(novelId, imageUrl)) return
+
+        permits.withPermit {
+            val source = download(imageUrl)
+            val hash = Hash.sha256(source).take(HASH_LENGTH)
+            val thumbnails = withContext(Dispatchers.Default) {
+                CoverSize.values().map { size -> async { size to thumbnailer.thumbnail(source, size) } }.awaitAll()
+            }
+            if (thumbnails.any { it.second == null }) throw IOException("Unable to decode the cover at $imageUrl")
+
+            novelDir.mkdirs()
+            val names = HashSet<String>()
+            thumbnails.forEach { (size, data) ->
+                val file = File(novelDir, "${size.key}-$hash.$EXTENSION")
+                names.add(file.name)
+                if (!file.exists()) write(file, data!!)
+            }
+            novelDir.listFiles()?.filter { it.name !in names && it.name != SOURCE_FILE_NAME }?.forEach { it.delete() }
+            write(File(novelDir, SOURCE_FILE_NAME), imageUrl.toByteArray())
+            index.remove(novelId)
+        }
+    }
+
+    private fun isArchived(novelId: Long, imageUrl: String): Boolean {
+        val archived = archived(novelId)
+        return archived.source == imageUrl && archived.covers.size == CoverSize.values().size
+    }
+
+    private fun archived(novelId: Long): Archived = index.getOrPut(novelId) {
+        val files = File(dir, novelId.toString()).listFiles() ?: return@getOrPut Archived(null, emptyMap())
+        val source = files.firstOrNull { it.name == SOURCE_FILE_NAME }?.readText()
+        Archived(source, CoverSize.values().mapNotNull { size ->
+            files.firstOrNull { it.name.startsWith("${size.key}-") && it.name.endsWith(".$EXTENSION") }?.let { size to it }
+        }.toMap())
+    }
+
+    private fun download(url: String): ByteArray {
+        client.newCall(Request.Builder().url(url).build()).execute().use { response ->
+            if (!response.isSuccessful) throw IOException("HTTP ${response.code}")
+            val source = response.body.source()
+            if (source.request(maxCoverBytes + 1)) throw IOException("The cover is larger than $maxCoverBytes bytes")
+            return source.buffer.readByteArray()
+        }
+    }
+
+    /**
+     * Writes next to [file] and renames, a failed write doesn't leave half a file behind.
+     */
+    private fun write(file: File, data: ByteArray) {
+        val tmp = File(file.parentFile, "${file.name}.tmp")
+        try {
+            tmp.writeBytes(data)
+            if (!tmp.renameTo(file)) throw IOException("Unable to replace $file")
+        } finally {
+            tmp.delete()
+        }
+    }
+}
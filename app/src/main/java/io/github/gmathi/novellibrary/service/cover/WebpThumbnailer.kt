@@ -0,0 +1,48 @@
+package io.github.gmathi.novellibrary.service.cover
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.os.Build
+import java.io.ByteArrayOutputStream
+
+/**
+ * Makes the WebP thumbnails of [CoverStore]. The cover is decoded subsampled, close to the thumbnail size, so that
+ * a multi-megabyte cover never has to be decoded whole.
+ *
+ * @param density The display density the thumbnails are made for.
+ */
+class WebpThumbnailer(private val density: Float) : CoverStore.Thumbnailer {
+
+    companion object {
+        private const val QUALITY = 85
+    }
+
+    override fun thumbnail(source: ByteArray, size: CoverSize): ByteArray? {
+        val targetWidth = size.widthPx(density)
+        val targetHeight = size.heightPx(density)
+
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        BitmapFactory.decodeByteArray(source, 0, source.size, bounds)
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null
+
+        val options = BitmapFactory.Options().apply {
+            inSampleSize = CoverSize.sampleSize(bounds.outWidth, bounds.outHeight, targetWidth, targetHeight)
+        }
+        val decoded = BitmapFactory.decodeByteArray(source, 0, source.size, options) ?: return null
+        val (width, height) = CoverSize.scaledSize(decoded.width, decoded.height, targetWidth, targetHeight)
+        val scaled = if (width != decoded.width || height != decoded.height) Bitmap.createScaledBitmap(decoded, width, height, true) else decoded
+        return try {
+            ByteArrayOutputStream().use { out ->
+                scaled.compress(webpFormat(), QUALITY, out)
+                out.toByteArray()
+            }
+        } finally {
+            if (scaled !== decoded) scaled.recycle()
+            decoded.recycle()
+        }
+    }
+
+    @Suppress("DEPRECATION")
+    private fun webpFormat() =
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) Bitmap.CompressFormat.WEBP_LOSSY else Bitmap.CompressFormat.WEBP
+}
@@ -17,7 +17,11 @@ import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.logging.Logs
 import io.github.gmathi.novellibrary.util.Utils
 import io.github.gmathi.novellibrary.util.network.getFileName
+import io.github.gmathi.novellibrary.util.trace.Span
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
 import org.jsoup.nodes.Document
+import uy.kohesive.injekt.injectLazy
 import java.io.File
 
 
@@ -29,6 +33,7 @@ class DownloadWebPageThread(val context: Context, val download: Download, val db
 
     private lateinit var novelDir: File
     private val networkHelper: NetworkHelper = NetworkHelper(context)
+    private val tracer: Tracer by injectLazy()
 
     override fun run() {
         try {
@@ -42,7 +47,7 @@ class DownloadWebPageThread(val context: Context, val download: Download, val db
             dbHelper.updateDownloadStatusWebPageUrl(Download.STATUS_RUNNING, download.webPageUrl)
             downloadListener.handleEvent(DownloadWebPageEvent(EventType.RUNNING, webPageSettings.url, download))
 
-            val downloadComplete = downloadChapter(webPageSettings, webPage)
+            val downloadComplete = tracer.trace(Tracer.DOWNLOAD_CHAPTER) { span -> downloadChapter(webPageSettings, webPage, span) }
             if (downloadComplete) {
                 dbHelper.deleteDownload(download.webPageUrl)
                 //downloadListener.handleEvent(DownloadWebPageEvent(EventType.COMPLETE, webPageSettings.url, download))
@@ -58,7 +63,7 @@ class DownloadWebPageThread(val context: Context, val download: Download, val db
 
     }
 
-    private fun downloadChapter(webPageSettings: WebPageSettings, webPage: WebPage): Boolean {
+    private fun downloadChapter(webPageSettings: WebPageSettings, webPage: WebPage, span: Span): Boolean {
         val doc: Document
         try {
             doc = WebPageDocumentFetcher.document(webPageSettings.url)
@@ -80,9 +85,11 @@ class DownloadWebPageThread(val context: Context, val download: Download, val db
         webPageSettings.redirectedUrl = doc.location()
 
         // We need to clean up the document to get only valid linked URLS
-        htmlHelper.removeJS(doc)
-        htmlHelper.additionalProcessing(doc)
-        htmlHelper.setProperHrefUrls(doc)
+        span.trace(Tracer.HTML_CLEAN) {
+            htmlHelper.removeJS(doc)
+            htmlHelper.additionalProcessing(doc)
+            htmlHelper.setProperHrefUrls(doc)
+        }
 
         // Now we extract other links from the cleaned doc
         val otherLinks = htmlHelper.getLinkedChapters(doc)
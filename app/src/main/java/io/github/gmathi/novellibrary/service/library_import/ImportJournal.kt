@@ -0,0 +1,52 @@
+package io.github.gmathi.novellibrary.service.library_import
+
+/**
+ * How far the import of one novel got.
+ */
+enum class ImportStatus(val value: Int) {
+    /** Not imported yet. */
+    PENDING(0),
+
+    /** In the library, its chapter list not fetched yet. */
+    DETAILS_IMPORTED(1),
+    IMPORTED(2),
+
+    /** Already in the library. */
+    SKIPPED(3),
+    FAILED(4);
+
+    /** Whether the novel is in the library. */
+    val isImported: Boolean
+        get() = this == DETAILS_IMPORTED || this == IMPORTED
+
+    companion object {
+        fun of(value: Int): ImportStatus = values().firstOrNull { it.value == value } ?: PENDING
+    }
+}
+
+/**
+ * A novel to import, as listed in the [ImportJournal].
+ *
+ * @param error Why the import failed, or why the chapter list couldn't be fetched.
+ */
+data class ImportEntry(
+    val novelUrl: String,
+    val name: String?,
+    val imageUrl: String?,
+    val status: ImportStatus = ImportStatus.PENDING,
+    val error: String? = null
+)
+
+/**
+ * Where the state of every novel of an import is kept, so that an import that was interrupted resumes where it
+ * stopped instead of starting over.
+ */
+interface ImportJournal {
+
+    /**
+     * Every novel of the import, in the order they were added.
+     */
+    fun entries(): List<ImportEntry>
+
+    fun update(novelUrl: String, status: ImportStatus, error: String? = null)
+}
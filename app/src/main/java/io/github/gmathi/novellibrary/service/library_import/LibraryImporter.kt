@@ -0,0 +1,129 @@
+package io.github.gmathi.novellibrary.service.library_import
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
+import java.net.URI
+
+/**
+ * Imports the novels of an [ImportJournal] in two phases: the details of every novel first, so they all show up in the
+ * library as soon as possible, then their chapter lists. Up to [perHostConcurrency] novels of the same host are
+ * fetched at a time.
+ *
+ * The status of each novel is written to the journal as soon as it's known, and only the novels that aren't done are
+ * fetched: running the importer again on the same journal resumes an interrupted import.
+ */
+class LibraryImporter(
+    private val journal: ImportJournal,
+    private val steps: Steps,
+    private val perHostConcurrency: Int = DEFAULT_PER_HOST_CONCURRENCY
+) {
+
+    companion object {
+        const val DEFAULT_PER_HOST_CONCURRENCY = 4
+    }
+
+    /**
+     * How one novel is imported.
+     */
+    interface Steps {
+
+        /**
+         * Adds the novel to the library.
+         *
+         * @return false if it was skipped because it's already in the library.
+         */
+        suspend fun importNovel(entry: ImportEntry): Boolean
+
+        /**
+         * Fetches and stores the chapter list of a novel that [importNovel] added.
+         */
+        suspend fun importChapters(entry: ImportEntry)
+    }
+
+    data class Progress(val total: Int, val imported: Int, val skipped: Int, val failed: Int) {
+        val done: Int
+            get() = imported + skipped + failed
+    }
+
+    private val semaphores = HashMap<String, Semaphore>()
+
+    /**
+     * Imports what is left to import in the journal. [onProgress] is called after each novel, from any thread but
+     * never concurrently.
+     */
+    suspend fun run(onProgress: (Progress) -> Unit = {}): Progress {
+        val entries = journal.entries()
+        val statuses = LinkedHashMap<String, ImportStatus>().apply { entries.forEach { put(it.novelUrl, it.status) } }
+        val lock = Mutex()
+
+        suspend fun record(entry: ImportEntry, status: ImportStatus, error: String? = null) {
+            journal.update(entry.novelUrl, status, error)
+            lock.withLock {
+                statuses[entry.novelUrl] = status
+                onProgress(progressOf(statuses.values))
+            }
+        }
+
+        onProgress(progressOf(statuses.values))
+
+        // Details first
+        forEachConcurrently(entries.filter { it.status == ImportStatus.PENDING }) { entry ->
+            try {
+                if (steps.importNovel(entry)) record(entry, ImportStatus.DETAILS_IMPORTED)
+                else record(entry, ImportStatus.SKIPPED)
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                record(entry, ImportStatus.FAILED, e.message ?: e.javaClass.simpleName)
+            }
+        }
+
+        // Then the chapter lists. A novel whose chapter list can't be fetched is still in the library, the chapters are
+        // fetched again when it's opened.
+        val detailsImported = journal.entries().filter { it.status == ImportStatus.DETAILS_IMPORTED }
+        forEachConcurrently(detailsImported) { entry ->
+            try {
+                steps.importChapters(entry)
+                record(entry, ImportStatus.IMPORTED)
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                record(entry, ImportStatus.IMPORTED, e.message ?: e.javaClass.simpleName)
+            }
+        }
+
+        return lock.withLock { progressOf(statuses.values) }
+    }
+
+    private suspend fun forEachConcurrently(entries: List<ImportEntry>, action: suspend (ImportEntry) -> Unit) = coroutineScope {
+        entries.forEach { entry ->
+            val semaphore = semaphoreOf(entry.novelUrl)
+            launch {
+                semaphore.withPermit { withContext(Dispatchers.IO) { action(entry) } }
+            }
+        }
+    }
+
+    private fun semaphoreOf(url: String): Semaphore {
+        val host = try {
+            URI(url).host
+        } catch (e: Exception) {
+            null
+        } ?: ""
+        return semaphores.getOrPut(host) { Semaphore(perHostConcurrency.coerceAtLeast(1)) }
+    }
+
+    private fun progressOf(statuses: Collection<ImportStatus>) = Progress(
+        total = statuses.size,
+        imported = statuses.count { it.isImported },
+        skipped = statuses.count { it == ImportStatus.SKIPPED },
+        failed = statuses.count { it == ImportStatus.FAILED }
+    )
+}
@@ -0,0 +1,146 @@
+package io.github.gmathi.novellibrary.service.search
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.TimeoutCancellationException
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeout
+import java.text.Normalizer
+
+/**
+ * Searches several sources at once. Each source gets [timeoutMillis] to answer, pages are kept in [cache] so searching
+ * a recent term again doesn't hit the network, and the results of all the sources are merged by title.
+ *
+ * Searches are cancelled with the coroutine that runs them, or that collects [search]: cancel it when the term changes
+ * and the requests still in flight for the previous term are dropped.
+ *
+ * @param titleOf The title results are merged by.
+ */
+class SearchAggregator<T>(
+    private val cache: SearchResultCache<T> = SearchResultCache(),
+    private val timeoutMillis: Long = DEFAULT_TIMEOUT_MILLIS,
+    private val titleOf: (T) -> String?
+) {
+
+    companion object {
+        const val DEFAULT_TIMEOUT_MILLIS = 20_000L
+
+        private val MARKS = Regex("\\p{M}+")
+        private val SEPARATORS = Regex("[^\\p{L}\\p{N}]+")
+
+        /**
+         * The title in lower case, without accents and with any run of punctuation or spaces made a single space.
+         */
+        fun normalizeTitle(title: String): String =
+            Normalizer.normalize(title, Normalizer.Form.NFKD)
+                .replace(MARKS, "")
+                .lowercase()
+                .replace(SEPARATORS, " ")
+                .trim()
+    }
+
+    interface Source<T> {
+        val id: Long
+
+        suspend fun search(term: String, page: Int): Page<T>
+    }
+
+    data class Page<T>(val items: List<T>, val hasNextPage: Boolean)
+
+    /**
+     * What one source answered.
+     */
+    sealed class SourceResult<T> {
+        abstract val sourceId: Long
+
+        data class Success<T>(override val sourceId: Long, val page: Page<T>) : SourceResult<T>()
+
+        data class Failure<T>(override val sourceId: Long, val error: Exception) : SourceResult<T>()
+    }
+
+    /**
+     * An item found by one or more sources, with the ids of the sources that found it in the order they were asked.
+     */
+    data class Merged<T>(val item: T, val sourceIds: List<Long>)
+
+    /**
+     * What the sources answered so far.
+     *
+     * @param pending The ids of the sources that haven't answered yet.
+     */
+    data class Results<T>(val bySource: Map<Long, SourceResult<T>>, val merged: List<Merged<T>>, val pending: Set<Long>)
+
+    class SearchTimeoutException(val sourceId: Long, timeoutMillis: Long) :
+        Exception("No answer within ${timeoutMillis / 1000}s")
+
+    /**
+     * One page of results from [source], from the cache if it was fetched recently and [useCache] is set.
+     *
+     * @throws SearchTimeoutException If the source takes longer than [timeoutMillis].
+     */
+    suspend fun fetch(source: Source<T>, term: String, page: Int = 1, useCache: Boolean = true): Page<T> {
+        if (useCache) cache.get(source.id, term, page)?.let { return it }
+        val result = try {
+            withTimeout(timeoutMillis) { withContext(Dispatchers.IO) { source.search(term, page) } }
+        } catch (e: TimeoutCancellationException) {
+            throw SearchTimeoutException(source.id, timeoutMillis)
+        }
+        cache.put(source.id, term, page, result)
+        return result
+    }
+
+    /**
+     * Searches all [sources] at once and emits the results each time a source answers, the last emission has them all.
+     */
+    fun search(sources: List<Source<T>>, term: String, page: Int = 1): Flow<Results<T>> = channelFlow {
+        val order = sources.map { it.id }
+        val bySource = LinkedHashMap<Long, SourceResult<T>>()
+        val results = Channel<SourceResult<T>>(sources.size)
+
+        sources.forEach { source ->
+            launch {
+                val result = try {
+                    SourceResult.Success(source.id, fetch(source, term, page))
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    SourceResult.Failure<T>(source.id, e)
+                }
+                results.send(result)
+            }
+        }
+
+        repeat(sources.size) {
+            val result = results.receive()
+            bySource[result.sourceId] = result
+            val answered = order.filter { it in bySource }
+            send(Results(LinkedHashMap(bySource), merge(answered.map { bySource.getValue(it) }), (order - bySource.keys).toSet()))
+        }
+    }
+
+    /**
+     * The items of the successful [results], merged by normalized title: an item is listed once, where its first
+     * source listed it. Items without a title are never merged.
+     */
+    fun merge(results: List<SourceResult<T>>): List<Merged<T>> {
+        val merged = ArrayList<Merged<T>>()
+        val indexByTitle = HashMap<String, Int>()
+        results.filterIsInstance<SourceResult.Success<T>>().forEach { result ->
+            result.page.items.forEach { item ->
+                val title = titleOf(item)?.let { normalizeTitle(it) }?.takeIf { it.isNotEmpty() }
+                val index = title?.let { indexByTitle[it] }
+                if (index == null) {
+                    if (title != null) indexByTitle[title] = merged.size
+                    merged.add(Merged(item, listOf(result.sourceId)))
+                } else if (result.sourceId !in merged[index].sourceIds) {
+                    merged[index] = merged[index].copy(sourceIds = merged[index].sourceIds + result.sourceId)
+                }
+            }
+        }
+        return merged
+    }
+}
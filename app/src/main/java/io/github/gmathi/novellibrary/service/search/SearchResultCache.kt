@@ -0,0 +1,53 @@
+package io.github.gmathi.novellibrary.service.search
+
+/**
+ * Search results by source, term and page. Holds up to [maxEntries] pages, the least recently used ones are dropped
+ * first, and a page is only returned for [ttlMillis] after it was fetched.
+ *
+ * Terms are compared ignoring case and surrounding spaces.
+ */
+class SearchResultCache<T>(
+    private val maxEntries: Int = DEFAULT_MAX_ENTRIES,
+    private val ttlMillis: Long = DEFAULT_TTL_MILLIS,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    companion object {
+        const val DEFAULT_MAX_ENTRIES = 64
+        const val DEFAULT_TTL_MILLIS = 10 * 60 * 1000L
+    }
+
+    private data class Key(val sourceId: Long, val term: String, val page: Int)
+
+    private class Entry<T>(val page: SearchAggregator.Page<T>, val fetchedAt: Long)
+
+    // Access order, the eldest entry is the least recently used one
+    private val entries = object : LinkedHashMap<Key, Entry<T>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, Entry<T>>): Boolean = size > maxEntries
+    }
+
+    @Synchronized
+    fun get(sourceId: Long, term: String, page: Int): SearchAggregator.Page<T>? {
+        val key = Key(sourceId, normalize(term), page)
+        val entry = entries[key] ?: return null
+        if (clock() - entry.fetchedAt >= ttlMillis) {
+            entries.remove(key)
+            return null
+        }
+        return entry.page
+    }
+
+    @Synchronized
+    fun put(sourceId: Long, term: String, page: Int, result: SearchAggregator.Page<T>) {
+        entries[Key(sourceId, normalize(term), page)] = Entry(result, clock())
+    }
+
+    @Synchronized
+    fun clear() = entries.clear()
+
+    @get:Synchronized
+    val size: Int
+        get() = entries.size
+
+    private fun normalize(term: String) = term.trim().lowercase()
+}
@@ -24,12 +24,14 @@ import io.github.gmathi.novellibrary.model.database.WebPage
 import io.github.gmathi.novellibrary.model.database.WebPageSettings
 import io.github.gmathi.novellibrary.model.source.SourceManager
 import io.github.gmathi.novellibrary.network.NetworkHelper
+import io.github.gmathi.novellibrary.service.cover.CoverStore
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.logging.Logs
 import io.github.gmathi.novellibrary.util.Utils
 import io.github.gmathi.novellibrary.util.lang.launchUI
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
+import uy.kohesive.injekt.injectLazy
 import java.util.concurrent.TimeUnit
 
 class BackgroundNovelSyncTask(val context: Context, params: WorkerParameters) :
@@ -63,6 +65,9 @@ class BackgroundNovelSyncTask(val context: Context, params: WorkerParameters) :
             val totalChaptersMap: HashMap<Novel, ArrayList<WebPage>> = HashMap()
             val sourceManager = withContext(Dispatchers.IO) { SourceManager(context) }
             val novels = dbHelper.getAllNovels()
+            // Covers that are missing or changed since they were archived are fetched alongside the chapters
+            val coverStore: CoverStore by injectLazy()
+            novels.forEach { coverStore.archiveAsync(it.id, it.imageUrl) }
             novels.forEach { novel ->
                 try {
                     val newChaptersList = withContext(Dispatchers.IO) { sourceManager.get(novel.sourceId)?.getChapterList(novel) } ?: ArrayList()
@@ -83,25 +88,27 @@ class BackgroundNovelSyncTask(val context: Context, params: WorkerParameters) :
 
             if (totalCountMap.isEmpty()) return@launchUI
 
-            //Update DB with new chapters
-            totalChaptersMap.forEach {
-                val novel = it.key
-                val chapters = it.value
-                novel.metadata[Constants.MetaDataKeys.LAST_UPDATED_DATE] = Utils.getCurrentFormattedDate()
-
-                dbHelper.writableDatabase.runTransaction { writableDatabase ->
-                    dbHelper.updateNovelMetaData(novel, writableDatabase)
-                    var newChaptersCount = chapters.size - novel.chaptersCount
-                    if (newChaptersCount <= 0) { //Check if the chapters were deleted or updated.
-                        newChaptersCount = 0
-                    }
-                    val newReleasesCount = novel.newReleasesCount + newChaptersCount
-                    dbHelper.updateChaptersAndReleasesCount(novel.id, chapters.size.toLong(), newReleasesCount, writableDatabase)
-                    //Don't Auto-delete chapters, as they might be the one's that are downloaded.
-                    //dbHelper.deleteWebPages(novel.id, writableDatabase)
-                    for (i in 0 until chapters.size) {
-                        dbHelper.createWebPage(chapters[i], writableDatabase)
-                        dbHelper.createWebPageSettings(WebPageSettings(chapters[i].url, novel.id), writableDatabase)
+            //Update DB with new chapters, off the main thread
+            withContext(Dispatchers.IO) {
+                totalChaptersMap.forEach {
+                    val novel = it.key
+                    val chapters = it.value
+                    novel.metadata[Constants.MetaDataKeys.LAST_UPDATED_DATE] = Utils.getCurrentFormattedDate()
+
+                    dbHelper.writableDatabase.runTransaction { writableDatabase ->
+                        dbHelper.updateNovelMetaData(novel, writableDatabase)
+                        var newChaptersCount = chapters.size - novel.chaptersCount
+                        if (newChaptersCount <= 0) { //Check if the chapters were deleted or updated.
+                            newChaptersCount = 0
+                        }
+                        val newReleasesCount = novel.newReleasesCount + newChaptersCount
+                        dbHelper.updateChaptersAndReleasesCount(novel.id, chapters.size.toLong(), newReleasesCount, writableDatabase)
+                        //Don't Auto-delete chapters, as they might be the one's that are downloaded.
+                        //dbHelper.deleteWebPages(novel.id, writableDatabase)
+                        for (i in 0 until chapters.size) {
+                            dbHelper.createWebPage(chapters[i], writableDatabase)
+                            dbHelper.createWebPageSettings(WebPageSettings(chapters[i].url, novel.id), writableDatabase)
+                        }
                     }
                 }
             }
@@ -0,0 +1,23 @@
+package io.github.gmathi.novellibrary.service.tts
+
+/**
+ * The text line that marks a scene change, read as an earcon instead of spoken.
+ */
+const val SCENE_CHANGE_EARCON = "◇ ◇ ◇"
+
+/**
+ * One line of a chapter as [TTSPlayer] reads it, made by [TTSLineSegmenter].
+ */
+data class TTSLine(val line: String, val mode: TTSReadMode = TTSReadMode.ModeRegular, val speaker: String? = null, val sequential: Boolean = false) {
+    fun getDisplayString(): String {
+        return if (mode == TTSReadMode.ModeDialogue && speaker != null) {
+            "$line $speaker"
+        } else line
+    }
+}
+
+enum class TTSReadMode {
+    ModeRegular,
+    ModeDialogue,
+    ModeSceneChange,
+}
@@ -0,0 +1,150 @@
+package io.github.gmathi.novellibrary.service.tts
+
+import io.github.gmathi.novellibrary.model.other.CompiledTTSFilter
+
+/**
+ * Splits chapter text into [TTSLine]s lazily, one line at a time.
+ *
+ * Each text line is filtered with the `Line` TTS filters, and lines longer than [characterLimit] are broken up,
+ * preferring sentence endings, then commas, then spaces. Splitting works on offsets into the line instead of
+ * repeatedly taking substrings of the remainder, so a chapter is segmented in linear time and the first lines are
+ * available before the rest of the chapter has been looked at.
+ */
+class TTSLineSegmenter(
+    private val text: String,
+    private val characterLimit: Int,
+    private val filters: List<CompiledTTSFilter>
+) : Iterator<TTSLine> {
+
+    companion object {
+        // TODO: Detect dialogue prior line-splitting
+        // TODO: Handle <div><i></i></div> as "inner dialogue"
+        // TODO: Improve dialogue detection
+        // Detects:
+        // "dialogue"
+        // "dialogue" [speaker]
+        private val dialogueRegex = """^\s*("+.+"+|\p{Pi}+.+\p{Pf}+|\p{Ps}+.+\p{Pe}+)(?: *(\p{Ps}+.{1,30}\p{Pe}+))?\s*$""".toRegex()
+
+        // Permit line splits only when sentence ending character is followed by a space or a line end.
+        // Also include common sentence ending characters for dialogue or TN notes.
+        // Same as matching `[.!?;"'」』”»“‘)\]](?>[\s\r]|$)`, without running a regex over the line.
+        private const val SENTENCE_END_CHARACTERS = ".!?;\"'」』”»“‘)]"
+
+        private fun isRegexWhitespace(c: Char) = c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\u000C' || c == '\r'
+    }
+
+    // Position of the next unread text line.
+    private var textPosition = 0
+
+    // The filtered line currently being broken up, and the start of its unspoken part.
+    private var longLine: String? = null
+    private var linePosition = 0
+    private var cutting = false
+
+    private var next: TTSLine? = null
+
+    override fun hasNext(): Boolean {
+        if (next == null) next = advance()
+        return next != null
+    }
+
+    override fun next(): TTSLine {
+        if (!hasNext()) throw NoSuchElementException()
+        return next!!.also { next = null }
+    }
+
+    private fun advance(): TTSLine? {
+        while (true) {
+            val line = longLine
+            if (line != null) {
+                nextPiece(line)?.let { return it }
+                longLine = null
+                continue
+            }
+
+            var lineToBreak = nextTextLine()?.trim() ?: return null
+            filters.forEach { lineToBreak = it.apply(lineToBreak) }
+            lineToBreak = lineToBreak.trim()
+
+            if (lineToBreak.length < characterLimit) return makeLine(lineToBreak, false)
+
+            longLine = lineToBreak
+            linePosition = 0
+            cutting = false
+        }
+    }
+
+    private fun nextTextLine(): String? {
+        while (textPosition <= text.length) {
+            var end = text.indexOf('\n', textPosition)
+            if (end == -1) end = text.length
+            val start = textPosition
+            textPosition = end + 1
+            for (i in start until end) {
+                if (!text[i].isWhitespace()) return text.substring(start, end)
+            }
+        }
+        return null
+    }
+
+    /**
+     * Returns the next piece of [line], or null once all of it has been returned.
+     */
+    private fun nextPiece(line: String): TTSLine? {
+        val remaining = line.length - linePosition
+        if (remaining <= 0) return null
+        val sequential = linePosition > 0
+
+        if (cutting) {
+            // Last ditch: Couldn't find any way to split, just cut it.
+            val end = if (remaining > characterLimit) linePosition + characterLimit else line.length
+            return makeLine(line.substring(linePosition, end), sequential).also { linePosition = end }
+        }
+
+        if (sequential && remaining < characterLimit) {
+            return makeLine(line.substring(linePosition), true).also { linePosition = line.length }
+        }
+
+        // If we can't split the sentence within boundaries by using common sentence finishers
+        // first try to split on a comma, and fall back to space if none found.
+        var index = findSentenceEnd(line, linePosition)
+        if (index == -1) index = findLast(line, linePosition, ',')
+        if (index == -1) index = findLast(line, linePosition, ' ')
+        if (index == -1) {
+            cutting = true
+            return nextPiece(line)
+        }
+
+        val piece = makeLine(line.substring(linePosition, index + 1), sequential)
+        linePosition = index + 1
+        while (linePosition < line.length && line[linePosition].isWhitespace()) linePosition++
+        return piece
+    }
+
+    private fun findSentenceEnd(line: String, from: Int): Int {
+        var i = minOf(from + characterLimit, line.length) - 1
+        while (i >= from) {
+            if (SENTENCE_END_CHARACTERS.indexOf(line[i]) != -1 && (i + 1 == line.length || isRegexWhitespace(line[i + 1])))
+                return i
+            i--
+        }
+        return -1
+    }
+
+    private fun findLast(line: String, from: Int, char: Char): Int {
+        val index = line.lastIndexOf(char, minOf(from + characterLimit, line.length) - 1)
+        return if (index >= from) index else -1
+    }
+
+    private fun makeLine(text: String, sequential: Boolean): TTSLine {
+        val dialogue = dialogueRegex.matchEntire(text)
+        return if (dialogue != null) {
+            TTSLine(dialogue.groupValues[1], TTSReadMode.ModeDialogue, dialogue.groupValues[2], sequential)
+        } else {
+            TTSLine(text,
+                mode = if (text == SCENE_CHANGE_EARCON) TTSReadMode.ModeSceneChange else TTSReadMode.ModeRegular,
+                sequential = sequential
+            )
+        }
+    }
+}
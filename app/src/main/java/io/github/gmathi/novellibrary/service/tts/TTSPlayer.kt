@@ -2,7 +2,6 @@ package io.github.gmathi.novellibrary.service.tts
 
 import android.content.Context
 import android.graphics.Bitmap
-import android.graphics.drawable.Drawable
 import android.media.*
 import android.os.Bundle
 import android.speech.tts.TextToSpeech
@@ -14,16 +13,15 @@ import android.support.v4.media.session.PlaybackStateCompat
 import android.util.Log
 import android.widget.Toast
 import androidx.collection.CircularArray
+import androidx.core.graphics.drawable.toBitmap
 import androidx.lifecycle.Lifecycle
-import com.bumptech.glide.Glide
-import com.bumptech.glide.request.target.CustomTarget
-import com.bumptech.glide.request.transition.Transition
+import coil.imageLoader
+import coil.request.ImageRequest
 import com.google.firebase.analytics.FirebaseAnalytics
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.cleaner.HtmlCleaner
 import io.github.gmathi.novellibrary.database.*
 import io.github.gmathi.novellibrary.model.database.Novel
-import io.github.gmathi.novellibrary.model.database.WebPage
 import io.github.gmathi.novellibrary.model.database.WebPageSettings
 import io.github.gmathi.novellibrary.model.other.*
 import io.github.gmathi.novellibrary.model.source.SourceManager
@@ -32,10 +30,14 @@ import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.Constants.FILE_PROTOCOL
 import io.github.gmathi.novellibrary.model.preference.DataCenter
 import io.github.gmathi.novellibrary.network.WebPageDocumentFetcher
+import io.github.gmathi.novellibrary.service.cache.ChapterTextCache
 import io.github.gmathi.novellibrary.util.Utils.getFormattedText
 import io.github.gmathi.novellibrary.util.lang.*
 import io.github.gmathi.novellibrary.util.*
 import io.github.gmathi.novellibrary.util.system.*
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.android.awaitFrame
 import kotlinx.coroutines.runBlocking
@@ -73,10 +75,11 @@ class TTSPlayer(private val context: Context,
         const val TYPE_SPECIAL = "special"
         const val TYPE_FINAL_CHAPTER = "final_chapter"
 
-        const val SCENE_CHANGE_EARCON = "◇ ◇ ◇"
         const val CHAPTER_CHANGE_EARCON = "##next_chapter##"
 
         const val QUEUE_SIZE = 0
+
+        private const val INITIAL_SEGMENTED_LINES = 16
     }
 
     override val firebaseAnalytics: FirebaseAnalytics = FirebaseAnalytics.getInstance(context)
@@ -84,6 +87,8 @@ class TTSPlayer(private val context: Context,
     override val dbHelper: DBHelper by injectLazy()
     override val sourceManager: SourceManager by injectLazy()
     override val networkHelper: NetworkHelper by injectLazy()
+    private val chapterTextCache: ChapterTextCache by injectLazy()
+    private val tracer: Tracer by injectLazy()
 
     override fun getContext(): Context = this.context
 
@@ -105,6 +110,9 @@ class TTSPlayer(private val context: Context,
     var translatorSourceName: String? = null
     var chapterIndex: Int = 0
     var chapterCount: Int = 0
+    /** Maps chapter positions to order ids, so that chapters are looked up with an index seek. */
+    var chapters: ChapterIndex = ChapterIndex(-1L, null, LongArray(0))
+        private set
     var albumArt: Bitmap? = null
     var linkedPages: ArrayList<LinkedPage> = ArrayList()
     private val metadata = MediaMetadataCompat.Builder()
@@ -115,27 +123,14 @@ class TTSPlayer(private val context: Context,
         get() = desiredState == STATE_PLAY
 
     // Player state
-    private val chapterCache: MutableList<TTSCleanDocument> = mutableListOf()
-
     private lateinit var title: String
     private lateinit var rawText: String
     var lineNumber: Int = 0
     var queuedLine: Int = 0
     var lines: MutableList<TTSLine> = mutableListOf()
     var cacheNextChapterLine: Int = -1
+    private var segmenter: TTSLineSegmenter? = null
 
-    data class TTSLine(val line: String, val mode: TTSReadMode = TTSReadMode.ModeRegular, val speaker: String? = null, val sequential: Boolean = false) {
-        fun getDisplayString(): String {
-            return if (mode == TTSReadMode.ModeDialogue && speaker != null) {
-                "$line $speaker"
-            } else line
-        }
-    }
-    enum class TTSReadMode {
-        ModeRegular,
-        ModeDialogue,
-        ModeSceneChange,
-    }
     enum class TTSLoadStatus {
         Cached,
         Loaded,
@@ -151,11 +146,8 @@ class TTSPlayer(private val context: Context,
     private val client: OkHttpClient
         get() = networkHelper.cloudflareClient
 
-    private inner class LoadingJob(val index: Int, var forCaching: Boolean) {
-        var job: Job? = null
-    }
-    private val webLoadingJobs = mutableListOf<LoadingJob>()
-    private var primaryWebLoadingJob: LoadingJob? = null
+    // The web load of the chapter the player is waiting for. Prefetches and in-flight loads are tracked by the cache.
+    private var primaryWebLoadingJob: Job? = null
     //private var webLoadingJobIndex = -1
     //private var webLoadingJob: Job? = null
 
@@ -187,7 +179,7 @@ class TTSPlayer(private val context: Context,
     override fun onStop(utteranceId: String, interrupted: Boolean) {}
     override fun onDone(utteranceId: String) {
         when (utteranceId) {
-            TYPE_CHAPTER_CHANGE_EARCON -> if (primaryWebLoadingJob == null) speakLine()
+            TYPE_CHAPTER_CHANGE_EARCON -> if (primaryWebLoadingJob?.isActive != true) speakLine()
             TYPE_DIALOGUE_PARTIAL -> {
                 // Do nothing
             }
@@ -214,7 +206,7 @@ class TTSPlayer(private val context: Context,
 
     fun setFrom(other: TTSPlayer) {
         Log.d(TAG, "Copying metadata from another player instance")
-        setMetadata(other.novel, other.translatorSourceName, other.chapterIndex, other.chapterCount)
+        setMetadata(other.novel, other.translatorSourceName, other.chapterIndex, other.chapters)
         setData(other.rawText, other.title, other.linkedPages)
     }
 
@@ -227,19 +219,19 @@ class TTSPlayer(private val context: Context,
             return null
         }
         val translatorSourceName = extras.getString(TTSService.TRANSLATOR_SOURCE_NAME, null)
-        val allPages:List<WebPage> = dbHelper.getAllWebPages(novel.id, translatorSourceName)
+        val chapters = dbHelper.getChapterIndex(novel.id, translatorSourceName)
         val chapterIndex =
                 if (extras.containsKey(TTSService.CHAPTER_INDEX)) extras.getInt(TTSService.CHAPTER_INDEX, 0)
                 else {
                     val webPage =
                             if (novel.currentChapterUrl != null) dbHelper.getWebPage(novel.currentChapterUrl!!)
-                            else dbHelper.getWebPage(novelId, translatorSourceName, 0)
+                            else dbHelper.getWebPage(chapters, 0)
                     if (webPage?.url == null) 0
-                    else allPages.indexOfFirst { it.url == webPage.url }
+                    else chapters.positionOf(webPage.orderId)
                 }
 
         val title = extras.getString(TTSService.TITLE) ?: ""
-        setMetadata(novel, translatorSourceName, chapterIndex, allPages.count())
+        setMetadata(novel, translatorSourceName, chapterIndex, chapters)
 
         fun buildQueue() {
             // Chapter Queue
@@ -256,21 +248,25 @@ class TTSPlayer(private val context: Context,
 //            mediaSession.setQueue(queue)
         }
         if (!novel.imageUrl.isNullOrBlank()) {
-            Glide.with(context).asBitmap().load(novel.imageUrl!!.getGlideUrl()).into(object : CustomTarget<Bitmap>() {
-                override fun onResourceReady(resource: Bitmap, transition: Transition<in Bitmap>?) {
-                    Log.d(TAG, "Novel art loaded successfully")
-                    albumArt = resource
-                    metadata.albumArt = resource
-                    mediaSession.setMetadata(metadata.build())
-                    buildQueue()
-                }
-
-                override fun onLoadCleared(placeholder: Drawable?) {}
-                override fun onLoadFailed(errorDrawable: Drawable?) {
-                    Log.d(TAG, "Failed to load novel art")
-                    buildQueue()
-                }
-            })
+            val request = ImageRequest.Builder(context)
+                .data(novel.imageUrl)
+                .allowHardware(false)
+                .target(
+                    onSuccess = { result ->
+                        Log.d(TAG, "Novel art loaded successfully")
+                        val bitmap = result.toBitmap()
+                        albumArt = bitmap
+                        metadata.albumArt = bitmap
+                        mediaSession.setMetadata(metadata.build())
+                        buildQueue()
+                    },
+                    onError = {
+                        Log.d(TAG, "Failed to load novel art")
+                        buildQueue()
+                    }
+                )
+                .build()
+            context.imageLoader.enqueue(request)
         } else {
             buildQueue()
         }
@@ -281,11 +277,13 @@ class TTSPlayer(private val context: Context,
         }
     }
 
-    private fun setMetadata(novel: Novel, source: String?, chapterIndex: Int, trackCount: Int) {
+    private fun setMetadata(novel: Novel, source: String?, chapterIndex: Int, chapters: ChapterIndex) {
+        val trackCount = chapters.size
         this.novel = novel
         this.translatorSourceName = source
         this.chapterIndex = chapterIndex
         this.chapterCount = trackCount
+        this.chapters = chapters
 //        Log.d(TAG, "Loaded novel data: ${novel.name}, $source, $chapterIndex, $trackCount")
 
         dataCenter.internalPut {
@@ -301,7 +299,6 @@ class TTSPlayer(private val context: Context,
         metadata.putLong(TTSService.NOVEL_ID, novel.id)
         metadata.putString(TTSService.TRANSLATOR_SOURCE_NAME, source ?: "")
         metadata.putLong(TTSService.CHAPTER_INDEX, chapterIndex.toLong())
-        chapterCache.clear() // Ensure our cache is properly discarded.
         mediaSession.setMetadata(metadata.build())  // TODO: Omit?
     }
 
@@ -310,13 +307,12 @@ class TTSPlayer(private val context: Context,
         this.rawText = text
         this.title = title
         this.linkedPages = linkedPages
+        cacheNextChapterLine = -1
+        metadata.duration = 0L
         processRawText()
         if (ttsReady) selectLanguage()
         metadata.displaySubtitle = title
-        metadata.duration = lines.count().toLong() * 1000L
         metadata.trackNumber = (chapterIndex+1).toLong()
-        // Enable caching only for chapters longer than 42 lines
-        cacheNextChapterLine = if (lines.count() > 42) lines.count() shr 1 else -1
     }
 
     //#endregion
@@ -332,6 +328,7 @@ class TTSPlayer(private val context: Context,
         // Have to wait for TTS to initialize
         if (!ttsReady) {
             Log.d(TAG, "Attempting to start prior TTS initialization: Waiting for init")
+            finishSegmentation()
             return
         }
         currentState = STATE_PLAY
@@ -340,10 +337,16 @@ class TTSPlayer(private val context: Context,
         mediaSession.setMetadata(metadata.build())
         queuedLine = lineNumber
         speakLine(TextToSpeech.QUEUE_ADD)
+        // The first line is already with the TTS engine, segment the rest of the chapter while it speaks.
+        if (segmenter != null) {
+            finishSegmentation()
+            mediaSession.setMetadata(metadata.build())
+        }
     }
 
     fun goto(line:Int) {
         if (isDisposed) return
+        ensureLines(line)
         if (dataCenter.ttsPreferences.rewindToSkip) {
             if (line < 0 && lineNumber == 0) {
                 previousChapter() // TODO: Skip to last sentences?
@@ -386,10 +389,8 @@ class TTSPlayer(private val context: Context,
         tts.stop()
         tts.shutdown()
 
-        webLoadingJobs.forEach {
-            it.job?.cancel()
-        }
-        webLoadingJobs.clear()
+        primaryWebLoadingJob?.cancel()
+        primaryWebLoadingJob = null
 
         desiredState = STATE_DISPOSE
         currentState = STATE_DISPOSE
@@ -451,7 +452,7 @@ class TTSPlayer(private val context: Context,
         desiredState = STATE_PLAY
         setPlaybackState(PlaybackStateCompat.STATE_BUFFERING)
         // TODO: Preserve list of linked pages
-        when(loadChapter(chapterIndex, false, url)) {
+        when(loadChapter(chapterIndex, url)) {
             TTSLoadStatus.ErrNoChapter -> {
                 doSpeak("Somehow failed to load linked page!", TextToSpeech.QUEUE_ADD, TYPE_FINAL_CHAPTER)
                 stop()
@@ -511,7 +512,7 @@ class TTSPlayer(private val context: Context,
     }
 
     fun clearChapterCache() {
-        chapterCache.clear()
+        if (::novel.isInitialized) chapterTextCache.invalidate(novel.id)
     }
 
     //#endregion
@@ -519,10 +520,10 @@ class TTSPlayer(private val context: Context,
     //#region Playback
 
     private fun speakLine(queueMode:Int = TextToSpeech.QUEUE_ADD) {
-        if (lines.isNotEmpty() && lineNumber < lines.size) {
-            if (lineNumber == cacheNextChapterLine) loadChapter(chapterIndex+1, true)
+        if (ensureLines(lineNumber)) {
+            if (lineNumber == cacheNextChapterLine) prefetchChapters()
             var mode = queueMode
-            while (queuedLine < lines.size && lineNumber + QUEUE_SIZE >= queuedLine) {
+            while (lineNumber + QUEUE_SIZE >= queuedLine && ensureLines(queuedLine)) {
                 val line = lines[queuedLine]
                 when (line.mode) {
                     TTSReadMode.ModeRegular -> doSpeak(line.line, mode, TYPE_SENTENCE)
@@ -556,7 +557,7 @@ class TTSPlayer(private val context: Context,
 
     private fun onLastLine() {
         if (dataCenter.ttsPreferences.markChaptersRead) {
-            dbHelper.getWebPage(novel.id, translatorSourceName, chapterIndex)?.let {
+            dbHelper.getWebPage(chapters, chapterIndex)?.let {
                 markChapterRead(it, true)
             }
         }
@@ -594,46 +595,76 @@ class TTSPlayer(private val context: Context,
 
     //#region Chapter loading
 
-    private fun loadChapter(index: Int, forCaching: Boolean = false, url: String? = null): TTSLoadStatus {
-        chapterCache.find { it.chapterIndex == index }?.let {
-            if (!forCaching) {
-//                Log.d(TAG, "Already cached chapter $index")
-                updateChapterIndex(index)
-                setData(it.text, it.title, it.bufferLinks)
-                //start()
-            }
+    private fun cacheKey(index: Int): ChapterTextCache.Key {
+        val preferences = dataCenter.ttsPreferences
+        val variant = if (preferences.mergeBufferChapters)
+            ChapterTextCache.TextVariant.MergedBuffers(preferences.discardInitialBufferPage, preferences.useLongestPage)
+        else ChapterTextCache.TextVariant.Plain
+        return ChapterTextCache.Key(novel.id, translatorSourceName, index, variant)
+    }
+
+    private fun loadChapter(index: Int, url: String? = null): TTSLoadStatus {
+        // Linked pages are not the chapter itself, so they are neither served from nor stored in the chapter cache.
+        if (url == null) chapterTextCache.peek(cacheKey(index))?.let {
+//            Log.d(TAG, "Already cached chapter $index")
+            updateChapterIndex(index)
+            setData(it.text, it.title, it.bufferLinks)
             return@loadChapter TTSLoadStatus.Cached
         }
-        val webPage = dbHelper.getWebPage(novel.id, translatorSourceName, index) ?: return TTSLoadStatus.ErrNoChapter
+        val webPage = dbHelper.getWebPage(chapters, index) ?: return TTSLoadStatus.ErrNoChapter
         val webPageSettings = dbHelper.getWebPageSettings(webPage.url) ?: return TTSLoadStatus.ErrNoChapter
 
         if (webPageSettings.filePath != null) {
             val clean = loadFromFile(webPageSettings, index, url)
             if (clean == null) {
-                return if (networkHelper.isConnectedToNetwork()) loadFromWeb(webPageSettings, index, url, forCaching)
+                return if (networkHelper.isConnectedToNetwork()) loadFromWeb(webPageSettings, index, url)
                 else TTSLoadStatus.ErrOffline
             } else {
-                cacheChapter(clean)
-                if (!forCaching) {
-                    updateChapterIndex(index)
-                    setData(clean.text, clean.title, clean.bufferLinks)
-                    //start()
-                    return TTSLoadStatus.Loaded
-                }
-                return TTSLoadStatus.Cached
+                if (url == null) chapterTextCache.put(cacheKey(index), clean)
+                updateChapterIndex(index)
+                setData(clean.text, clean.title, clean.bufferLinks)
+                return TTSLoadStatus.Loaded
             }
         } else if (!networkHelper.isConnectedToNetwork()) {
             // Can't load chapter if no network
             return TTSLoadStatus.ErrOffline
         } else {
-            if (!forCaching) {
-                updateChapterIndex(index)
-                mediaSession.setMetadata(metadata.build())
+            updateChapterIndex(index)
+            mediaSession.setMetadata(metadata.build())
+            return loadFromWeb(webPageSettings, index, url)
+        }
+    }
+
+    /**
+     * Loads the next chapters in the background, as many as configured in the TTS preferences.
+     */
+    private fun prefetchChapters() {
+        val window = dataCenter.ttsPreferences.prefetchChapters
+        if (window <= 0) return
+        val chapters = chapters
+        chapterTextCache.prefetch(cacheKey(chapterIndex), window) { index ->
+            try {
+                loadChapterText(chapters, index)
+            } catch (e: Exception) {
+                Log.e(TAG, "Unable to cache chapter $index", e)
+                null
             }
-            return loadFromWeb(webPageSettings, index, url, forCaching)
         }
     }
 
+    /**
+     * Loads a chapter from offline storage, or from the web when it is not downloaded. Blocking.
+     */
+    private fun loadChapterText(chapters: ChapterIndex, index: Int): TTSCleanDocument? {
+        val webPage = dbHelper.getWebPage(chapters, index) ?: return null
+        val webPageSettings = dbHelper.getWebPageSettings(webPage.url) ?: return null
+        if (webPageSettings.filePath != null) {
+            loadFromFile(webPageSettings, index, null)?.let { return it }
+        }
+        if (!networkHelper.isConnectedToNetwork()) return null
+        return fetchFromWeb(webPageSettings, index, null)
+    }
+
     private fun updateChapterIndex(index: Int) {
         metadata.trackNumber = (index+1).toLong()
         metadata.putLong(TTSService.CHAPTER_INDEX, index.toLong())
@@ -641,7 +672,7 @@ class TTSPlayer(private val context: Context,
             putInt(TTSService.STATE_CHAPTER_INDEX, index)
         }
         chapterIndex = index
-        if (dataCenter.ttsPreferences.moveBookmark) dbHelper.getWebPage(novel.id, translatorSourceName, index)?.let {
+        if (dataCenter.ttsPreferences.moveBookmark) dbHelper.getWebPage(chapters, index)?.let {
             updateNovelBookmark(novel, it, false)
         }
     }
@@ -703,93 +734,69 @@ class TTSPlayer(private val context: Context,
         }
     }
 
-    private fun loadFromWeb(webPageSettings: WebPageSettings, index: Int, linkedUrl:String?, forCaching: Boolean): TTSLoadStatus {
-        val existingJob = webLoadingJobs.find { it.index == index }
-        if (!forCaching) {
-            // Cancel and remove current primary job
-            if (primaryWebLoadingJob != null && primaryWebLoadingJob != existingJob) {
-                primaryWebLoadingJob!!.job?.cancel()
-                primaryWebLoadingJob!!.forCaching = true
-                webLoadingJobs.remove(primaryWebLoadingJob!!)
-                // TODO: Don't cancel but rather mark as caching job?
-            }
-            setPlaybackState(PlaybackStateCompat.STATE_BUFFERING)
-        }
-        if (existingJob != null) {
-            // Unmark it as caching job in order to properly switch to it when job finishes
-            if (!forCaching) {
-                existingJob.forCaching = false
-                primaryWebLoadingJob = existingJob
-            }
-            return TTSLoadStatus.Fetching
-        }
+    private fun loadFromWeb(webPageSettings: WebPageSettings, index: Int, linkedUrl: String?): TTSLoadStatus {
+        // Stop waiting for the previous chapter. Its load keeps going in the cache if it was for a chapter.
+        primaryWebLoadingJob?.cancel()
+        setPlaybackState(PlaybackStateCompat.STATE_BUFFERING)
 
-        val url = linkedUrl ?: webPageSettings.url
         Log.d(TAG, "Loading from web $index ${webPageSettings.title} ${webPageSettings.url}")
-
-        val job = LoadingJob(index, forCaching)
-        primaryWebLoadingJob = job
-        webLoadingJobs.add(job)
-        job.job = launchIO {
+        val key = cacheKey(index)
+        primaryWebLoadingJob = launchIO {
             try {
-                val doc = withIOContext { getWebPageDocument(url) }
-                val clean = cleanDocumentText(doc, index)
-                var text: String = clean.text
-                if (dataCenter.ttsPreferences.mergeBufferChapters && linkedUrl == null) {
-                    if (dataCenter.ttsPreferences.discardInitialBufferPage && clean.bufferLinks.size > 0) {
-                        text = ""
-                    }
-                    val pageTexts = clean.bufferLinks.map { linkedUrl ->
-                        val pageDoc = withIOContext { getWebPageDocument(linkedUrl.href) }
-                        val cleanPage = cleanDocumentText(pageDoc, index)
-                        cleanPage.text
-                    }
-                    if (dataCenter.ttsPreferences.useLongestPage) {
-                        var longest: String? = null
-                        var longestSize = -1
-                        pageTexts.forEach { s ->
-                            if (s.length > longestSize) {
-                                longest = s
-                                longestSize = s.length
-                            }
-                        }
-                        if (longest != null) text += "\r\n\r\n" + longest
-                    } else {
-                        pageTexts.forEach { s -> text += "\r\n\r\n" + s }
-                    }
-                }
-                if (job == primaryWebLoadingJob) primaryWebLoadingJob = null
-                webLoadingJobs.remove(job)
-                cacheChapter(TTSCleanDocument(text, clean.bufferLinks, clean.title, clean.chapterIndex))
+                // Requests for a chapter that is already being loaded (e.g. prefetched) join that load.
+                val clean = if (linkedUrl == null) chapterTextCache.get(key) { fetchFromWeb(webPageSettings, index, null) }
+                else fetchFromWeb(webPageSettings, index, linkedUrl)
 
-                if (chapterIndex == index && desiredState == STATE_PLAY) {
+                if (clean != null && chapterIndex == index && desiredState == STATE_PLAY) {
                     // TODO: linkedPages handling
                     // In theory it should have an interface for user to click and load, but right now
                     // we don't have any handling of linkedPages outside of merge option
-                    setData(text, doc.title(), clean.bufferLinks)
+                    setData(clean.text, clean.title, clean.bufferLinks)
                     start()
-                } // else -> loaded for caching
+                }
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 Log.e(TAG, "Unable to load chapter ${webPageSettings.url}", e)
-                if (job == primaryWebLoadingJob) primaryWebLoadingJob = null
-                webLoadingJobs.remove(job)
-                if (!job.forCaching) {
-                    context.showToastWithMain("Unable to read chapter", Toast.LENGTH_LONG)
-                    doSpeak("Unable to read next chapter!", TextToSpeech.QUEUE_FLUSH, TYPE_SPECIAL)
-                } else {
-                    context.showToastWithMain("Unable to cache next chapter", Toast.LENGTH_LONG)
-                }
+                context.showToastWithMain("Unable to read chapter", Toast.LENGTH_LONG)
+                doSpeak("Unable to read next chapter!", TextToSpeech.QUEUE_FLUSH, TYPE_SPECIAL)
             }
         }
         return TTSLoadStatus.Fetching
     }
 
-    private fun cacheChapter(clean: TTSCleanDocument) {
-        while (chapterCache.size > 5) {
-            chapterCache.removeAt(0)
+    /**
+     * Fetches and cleans a chapter from the web, merging its buffer pages when enabled. Blocking.
+     */
+    private fun fetchFromWeb(webPageSettings: WebPageSettings, index: Int, linkedUrl: String?): TTSCleanDocument {
+        val url = linkedUrl ?: webPageSettings.url
+        val doc = getWebPageDocument(url)
+        val clean = cleanDocumentText(doc, index)
+        var text: String = clean.text
+        if (dataCenter.ttsPreferences.mergeBufferChapters && linkedUrl == null) {
+            if (dataCenter.ttsPreferences.discardInitialBufferPage && clean.bufferLinks.size > 0) {
+                text = ""
+            }
+            val pageTexts = clean.bufferLinks.map { bufferLink ->
+                val pageDoc = getWebPageDocument(bufferLink.href)
+                val cleanPage = cleanDocumentText(pageDoc, index)
+                cleanPage.text
+            }
+            if (dataCenter.ttsPreferences.useLongestPage) {
+                var longest: String? = null
+                var longestSize = -1
+                pageTexts.forEach { s ->
+                    if (s.length > longestSize) {
+                        longest = s
+                        longestSize = s.length
+                    }
+                }
+                if (longest != null) text += "\r\n\r\n" + longest
+            } else {
+                pageTexts.forEach { s -> text += "\r\n\r\n" + s }
+            }
         }
-        chapterCache.indexOfFirst { it.chapterIndex == clean.chapterIndex }.let { if (it != -1) chapterCache.removeAt(it) }
-        chapterCache.add(clean)
+        return TTSCleanDocument(text, clean.bufferLinks, clean.title, clean.chapterIndex)
     }
 
     private fun getWebPageDocument(url: String): Document {
@@ -798,8 +805,10 @@ class TTSPlayer(private val context: Context,
 
     private fun cleanDocumentText(doc: Document, index: Int): TTSCleanDocument {
         val htmlHelper = HtmlCleaner.getInstance(doc)
-        htmlHelper.removeJS(doc)
-        htmlHelper.additionalProcessing(doc)
+        tracer.trace(Tracer.HTML_CLEAN) {
+            htmlHelper.removeJS(doc)
+            htmlHelper.additionalProcessing(doc)
+        }
         return TTSCleanDocument(doc.getFormattedText(), htmlHelper.getLinkedChapters(doc), doc.title(), index)
     }
 
@@ -811,98 +820,39 @@ class TTSPlayer(private val context: Context,
         lines.clear()
         lineNumber = 0
         queuedLine = 0
-        val extractedLines: ArrayList<String> = ArrayList()
-        rawText.split("\n").filter { it.isNotBlank() }.mapTo(extractedLines) { it.trim() }
 
         // TODO: Avoid doing JSON parsing every time
         // Also it's done twice, because Utils.getDocumentText also parses it
         val filters = dataCenter.ttsPreferences.filterList.filter { it.target == TTSFilterTarget.Line }.map { it.compile(null) }
 
-
-        fun findSplitIndex(text:String, maxLength:Int, regex: Regex):Int {
-            var index = -1
-            while (index < maxLength) {
-                val next = regex.find(text, index+1)?.range?.start
-                if (next != null && next < maxLength) index = next
-                else break
-            }
-            return index
-        }
-
-        fun findSplitIndex(text:String, maxLength:Int, char: Char):Int {
-            var index = -1
-            while (index < maxLength) {
-                val next = text.indexOf(char, index+1)
-                if (next != -1 && next < maxLength) index = next
-                else break
-            }
-            return index
-        }
-
-        // TODO: Detect dialogue prior line-splitting
-        // TODO: Handle <div><i></i></div> as "inner dialogue"
-        // TODO: Improve dialogue detection
-        // Detects:
-        // "dialogue"
-        // "dialogue" [speaker]
-        val dialogueRegex = """^\s*("+.+"+|\p{Pi}+.+\p{Pf}+|\p{Ps}+.+\p{Pe}+)(?: *(\p{Ps}+.{1,30}\p{Pe}+))?\s*$""".toRegex()
-        fun makeLine(text: String, sequential: Boolean) {
-            val dialogue = dialogueRegex.matchEntire(text)
-            if (dialogue != null) {
-                lines.add(TTSLine(dialogue.groupValues[1], TTSReadMode.ModeDialogue, dialogue.groupValues[2], sequential))
-            } else {
-                lines.add(TTSLine(text,
-                    mode = if(text == SCENE_CHANGE_EARCON) TTSReadMode.ModeSceneChange else TTSReadMode.ModeRegular,
-                    sequential = sequential
-                ))
-            }
-        }
-
         // Limit the character count to manageable and reasonable values.
         // Even if TTS engine says it can process more at once, it doesn't mean we want it to,
         // since it will produce audible pauses. Processing in smaller chunks is better.
         val characterLimit = TextToSpeech.getMaxSpeechInputLength().coerceAtMost(500)
-        extractedLines.forEach { extractedLine ->
-            var lineToBreak = extractedLine.trim()
-            filters.forEach { lineToBreak = it.apply(lineToBreak) }
-            lineToBreak = lineToBreak.trim()
-
-            if (lineToBreak.length < characterLimit) {
-                makeLine(lineToBreak, false)
-                return@forEach
-            }
+        segmenter = TTSLineSegmenter(rawText, characterLimit, filters)
+        // Only the first lines are needed to start speaking, the rest is segmented once playback is underway.
+        ensureLines(INITIAL_SEGMENTED_LINES - 1)
+    }
 
-            // Permit line splits only when sentence ending character is followed by a space or a line end.
-            // Also include common sentence ending characters for dialogue or TN notes.
-            val sentenceEndRegex = """[.!?;"'」』”»“‘)\]](?>[\s\r]|$)""".toRegex()
-
-            //Break a single big line in to multiple lines
-            var sequentialMarker = false
-            while (lineToBreak.isNotEmpty()) {
-                var index = findSplitIndex(lineToBreak, characterLimit, sentenceEndRegex)
-                // If we can't split the sentence within boundaries by using common sentence finishers
-                // first try to split on a comma, and fall back to space if none found.
-                if (index == -1) index = findSplitIndex(lineToBreak, characterLimit, ',')
-                if (index == -1) index = findSplitIndex(lineToBreak, characterLimit, ' ')
-                if (index == -1) {
-                    // Last ditch: Couldn't find any way to split, just cut it.
-                    while (lineToBreak.length > characterLimit) {
-                        makeLine(lineToBreak.substring(0, characterLimit), sequentialMarker)
-                        sequentialMarker = true
-                        lineToBreak = lineToBreak.substring(characterLimit)
-                    }
-                    return@forEach
-                } else {
-                    makeLine(lineToBreak.substring(0, index + 1), sequentialMarker)
-                    sequentialMarker = true
-                    lineToBreak = lineToBreak.substring(index + 1).trim()
-                    if (lineToBreak.length < characterLimit) {
-                        makeLine(lineToBreak, true)
-                        return@forEach
-                    }
-                }
-            }
-        }
+    /**
+     * Segments lines up to [index]. Returns whether the line at [index] exists.
+     */
+    private fun ensureLines(index: Int): Boolean {
+        val pending = segmenter ?: return index < lines.size
+        while (lines.size <= index && pending.hasNext()) lines.add(pending.next())
+        if (!pending.hasNext()) onSegmentationFinished()
+        return index < lines.size
+    }
+
+    private fun finishSegmentation() {
+        ensureLines(Int.MAX_VALUE - 1)
+    }
+
+    private fun onSegmentationFinished() {
+        segmenter = null
+        metadata.duration = lines.count().toLong() * 1000L
+        // Enable caching only for chapters longer than 42 lines
+        cacheNextChapterLine = if (lines.count() > 42) lines.count() shr 1 else -1
         sendSentences()
     }
 
@@ -911,6 +861,11 @@ class TTSPlayer(private val context: Context,
     //#region Configuration
 
     fun sendSentences() {
+        if (segmenter != null) {
+            // Sends the sentences once segmentation finishes.
+            finishSegmentation()
+            return
+        }
         mediaSession.sendSessionEvent(TTSService.EVENT_SENTENCE_LIST, Bundle().apply {
             putStringArrayList(TTSService.KEY_SENTENCES, lines.mapTo(ArrayList()) { it.getDisplayString() })
         })
@@ -233,7 +233,7 @@ class TTSService : MediaBrowserServiceCompat(), AudioManager.OnAudioFocusChangeL
             }
             ACTION_OPEN_READER -> {
                 val novel = player.novel
-                player.dbHelper.getWebPage(novel.id, player.translatorSourceName, player.chapterIndex)?.let { chapter ->
+                player.dbHelper.getWebPage(player.chapters, player.chapterIndex)?.let { chapter ->
                     player.updateNovelBookmark(novel, chapter, false)
                 }
 
@@ -115,6 +115,7 @@ object Constants {
     const val SIMPLE_NOVEL_BACKUP_FILE_NAME = "SimpleNovelBackup.txt"
     const val DATABASES_DIR = "databases"
     const val FILES_DIR = "files"
+    const val COVERS_DIR = "covers"
     const val SHARED_PREFS_DIR = "shared_prefs"
     const val DATA_SUBFOLDER = """/data/${BuildConfig.APPLICATION_ID}"""
 
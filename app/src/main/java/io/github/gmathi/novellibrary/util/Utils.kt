@@ -27,19 +27,13 @@ import io.github.gmathi.novellibrary.BuildConfig
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.database.DBHelper
 import io.github.gmathi.novellibrary.model.database.Novel
-import io.github.gmathi.novellibrary.model.other.CompiledTTSFilter
-import io.github.gmathi.novellibrary.model.other.TTSFilterTarget
-import io.github.gmathi.novellibrary.model.other.TTSFilterType
 import io.github.gmathi.novellibrary.model.preference.DataCenter
+import io.github.gmathi.novellibrary.util.lang.TTSTextExtractor
 import io.github.gmathi.novellibrary.util.lang.writableFileName
 import io.github.gmathi.novellibrary.util.storage.createFileIfNotExists
 import io.github.gmathi.novellibrary.util.storage.getOrCreateDirectory
 import io.github.gmathi.novellibrary.util.storage.getOrCreateFile
-import io.github.gmathi.novellibrary.util.logging.Logs
 import org.jsoup.nodes.Document
-import org.jsoup.nodes.Element
-import org.jsoup.safety.Cleaner
-import org.jsoup.safety.Safelist
 import uy.kohesive.injekt.injectLazy
 import java.io.*
 import java.net.MalformedURLException
@@ -380,88 +374,13 @@ object Utils {
 
     fun getUniqueNotificationId() = NotificationId.notificationIdCounter.getAndIncrement()
 
-    fun measureTime(codeBlock: () -> Unit) {
-        val startTime = System.currentTimeMillis()
-        codeBlock()
-        val diff = (System.currentTimeMillis() - startTime) / 1000f
-        Logs.info("MeasuredTime", "$diff")
+    private val ttsTextExtractor = object : ThreadLocal<TTSTextExtractor>() {
+        override fun initialValue() = TTSTextExtractor()
     }
 
     fun Document.getFormattedText(): String {
-        val doc = clone()
-        val body = doc.body()
-        body.select("[tts-disable=\"true\"]").remove()
-        val content = body.select("[data-role=\"RContent\"]")
-        if (content.isNotEmpty()) {
-            content.select("[data-role=\"RHeader\"]").remove()
-            content.select("[data-role=\"RFooter\"]").remove()
-            content.select("[data-role=\"RNavigation\"]").remove()
-            content.select("[data-role=\"RPage\"]").remove()
-            content.select("[data-role=\"RChapterLink\"]").remove()
-            content.select("[data-role=\"RRealChapter\"]").remove()
-            content.select("select,input,button").remove()
-            body.children().remove()
-            if (!dataCenter.ttsPreferences.stripHeader) body.append(doc.title())
-            content.forEach { body.appendChild(it) }
-            doc.head().children().remove()
-//            doc.head().html("")
-        }
-        doc.select("br,p,hr").forEach {
-            it.after("\n")
-        }
-
-        val filters = dataCenter.ttsPreferences.filterList
-
-        filters.forEach {
-            if (it.type == TTSFilterType.Selector) {
-                doc.select(it.lookup).remove()
-            }
-        }
-
-        // Unwrap various notation to simplify processing.
-        val notations = doc.select("em,strong,italic,s,i,a")
-        // HACK: unwrap seem to strip whitespaces before/after the tag, so we have to ensure they have spacing within the tag.
-        notations.forEach { el -> el.prependText(" "); el.appendText(" ") }
-        notations.unwrap()
-
-        val textFilters = filters.filter { it.target == TTSFilterTarget.TextChunk }.map { it.compile(doc) }
-
-        applyFilters(doc.body(), filters.filter { it.target == TTSFilterTarget.Element }.map { it.compile(doc) })
-        val cleaner = Cleaner(Safelist.none())
-        val cleanDoc = cleaner.clean(doc)
-        cleanDoc.outputSettings(Document.OutputSettings().prettyPrint(false))
-        var text = cleanDoc.body().html()
-            // Replace no-break spaces with a regular space
-            .replace("&nbsp;", " ")
-            .replace("&lt;", "<")
-            .replace("&gt;", ">")
-            .replace("&amp;", " and ")
-            .replace("&quot;", "\"")
-            .replace("&apos;", "'")
-            // Perform a limited trim operation on excessive spacing, causing "     " to turn into just " " as well as changing \n\n\n\n into \n
-            .replace("""([\s ])+""".toRegex(RegexOption.MULTILINE)) { it.groups[0]?.value ?: "" }
-            // Shorten long repeating characters such as =====, -----, -=-=-=-=-, ***** or !!!!!!!!
-            .replace("""((?>[◆◇＝_~=*#|+<>\-─＊] ?){4,}|\.{4,}|!{4,}|\?{4,})""".toRegex()) { it.value.replace(" ", "").substring(0, 3) }
-            .trim()
-
-        textFilters.forEach { filter ->
-            text = filter.apply(text)
-        }
-//        val htmlString: String = html()//.replace("\\\\n", "\n")
-//        return Jsoup.clean(htmlString, "", Whitelist.none(), Document.OutputSettings().prettyPrint(false)).replace("&nbsp", "")
-        return text
-    }
-
-    private fun applyFilters(element: Element, filters: List<CompiledTTSFilter>) {
-        if (element.childrenSize() == 0 && element.hasText()) {
-            var text = element.ownText()
-            filters.forEach { filter -> text = filter.apply(text) }
-            element.text(text)
-        } else {
-            element.children().forEach {
-                applyFilters(it, filters)
-            }
-        }
+        val ttsPreferences = dataCenter.ttsPreferences
+        return ttsTextExtractor.get()!!.extract(this, ttsPreferences.stripHeader, ttsPreferences.filterList)
     }
 
     fun copyErrorToClipboard(e: Exception, activity: AppCompatActivity) {
@@ -0,0 +1,243 @@
+package io.github.gmathi.novellibrary.util.lang
+
+import io.github.gmathi.novellibrary.model.other.CompiledTTSFilter
+import io.github.gmathi.novellibrary.model.other.TTSFilter
+import io.github.gmathi.novellibrary.model.other.TTSFilterTarget
+import io.github.gmathi.novellibrary.model.other.TTSFilterType
+import org.jsoup.internal.StringUtil
+import org.jsoup.nodes.*
+import org.jsoup.parser.Parser
+import org.jsoup.select.NodeFilter
+import org.jsoup.select.NodeTraversor
+import java.util.*
+
+/**
+ * Single-pass HTML to TTS text extractor.
+ *
+ * Produces the same text as the old clone-and-clean implementation of `Document.getFormattedText()`, but instead of
+ * cloning the document, removing nodes, unwrapping notation tags, running a jsoup `Cleaner` and post-processing the
+ * serialized HTML with string replacements, it walks the (unmodified) document once and writes the already-decoded
+ * text into a reusable [StringBuilder].
+ *
+ * Instances are not thread-safe; `Utils` keeps one per thread.
+ */
+class TTSTextExtractor {
+
+    companion object {
+        private val NOTATION_TAGS = hashSetOf("em", "strong", "italic", "s", "i", "a")
+        private val LINE_BREAK_TAGS = hashSetOf("br", "p", "hr")
+
+        private const val CONTENT_QUERY = "[data-role=\"RContent\"]"
+        private const val TTS_DISABLED_QUERY = "[tts-disable=\"true\"]"
+        private const val CONTENT_NOISE_QUERY = "[data-role=\"RHeader\"],[data-role=\"RFooter\"],[data-role=\"RNavigation\"]," +
+                "[data-role=\"RPage\"],[data-role=\"RChapterLink\"],[data-role=\"RRealChapter\"],select,input,button"
+
+        // Shorten long repeating characters such as =====, -----, -=-=-=-=-, ***** or !!!!!!!!
+        private val REPEATING_CHARACTERS = """((?>[◆◇＝_~=*#|+<>\-─＊] ?){4,}|\.{4,}|!{4,}|\?{4,})""".toRegex()
+
+        private const val INITIAL_CAPACITY = 16 * 1024
+        private const val MAX_RETAINED_CAPACITY = 512 * 1024
+    }
+
+    private val out = StringBuilder(INITIAL_CAPACITY)
+    private val leafText = StringBuilder(1024)
+
+    // Per-call state. Elements are compared by identity, same as the nodes jsoup would have removed.
+    private val removed: MutableSet<Element> = Collections.newSetFromMap(IdentityHashMap())
+    private val filtered: MutableSet<Element> = Collections.newSetFromMap(IdentityHashMap())
+    private val contentRoots: MutableSet<Element> = Collections.newSetFromMap(IdentityHashMap())
+    private var currentRoot: Element? = null
+    private var elementFilters: List<CompiledTTSFilter> = emptyList()
+
+    private val visitor = object : NodeFilter {
+        override fun head(node: Node, depth: Int): NodeFilter.FilterResult {
+            if (node is TextNode) {
+                appendEscaped(node.wholeText)
+                return NodeFilter.FilterResult.CONTINUE
+            }
+            if (node !is Element) return NodeFilter.FilterResult.CONTINUE
+
+            if (node in removed || (node !== currentRoot && node in contentRoots))
+                return NodeFilter.FilterResult.SKIP_ENTIRELY
+            if (node in filtered) {
+                // The line break was inserted next to the element before the selector filters removed it.
+                if (node.normalName() in LINE_BREAK_TAGS) out.append('\n')
+                return NodeFilter.FilterResult.SKIP_ENTIRELY
+            }
+
+            val name = node.normalName()
+            if (name in NOTATION_TAGS) {
+                out.append(' ')
+                return NodeFilter.FilterResult.CONTINUE
+            }
+
+            if (isLeaf(node) && hasText(node)) {
+                appendLeaf(node)
+                if (name in LINE_BREAK_TAGS) out.append('\n')
+                return NodeFilter.FilterResult.SKIP_ENTIRELY
+            }
+            return NodeFilter.FilterResult.CONTINUE
+        }
+
+        override fun tail(node: Node, depth: Int): NodeFilter.FilterResult {
+            if (node is Element) {
+                val name = node.normalName()
+                if (name in NOTATION_TAGS) out.append(' ')
+                else if (name in LINE_BREAK_TAGS) out.append('\n')
+            }
+            return NodeFilter.FilterResult.CONTINUE
+        }
+    }
+
+    /**
+     * Extracts TTS-ready text from [doc]. The document is not modified.
+     *
+     * @param stripHeader Whether to omit the document title when the page has a `RContent` block.
+     * @param filters User TTS filters; `Selector`, `Element` and `TextChunk` targets are applied here.
+     */
+    fun extract(doc: Document, stripHeader: Boolean, filters: List<TTSFilter>): String {
+        try {
+            val body = doc.body()
+            removed.addAll(body.select(TTS_DISABLED_QUERY))
+
+            val content = body.select(CONTENT_QUERY).filterNot { isRemoved(it) }
+            content.forEach { root ->
+                contentRoots.add(root)
+                removed.addAll(root.select(CONTENT_NOISE_QUERY))
+            }
+
+            filters.forEach {
+                if (it.type == TTSFilterType.Selector) filtered.addAll(doc.select(it.lookup))
+            }
+            elementFilters = filters.filter { it.target == TTSFilterTarget.Element }.map { it.compile(doc) }
+            val textFilters = filters.filter { it.target == TTSFilterTarget.TextChunk }.map { it.compile(doc) }
+
+            if (content.isNotEmpty()) {
+                // Only the text directly under body survives, followed by the title and the content blocks.
+                body.childNodes().forEach { if (it is TextNode) appendEscaped(it.wholeText) }
+                if (!stripHeader) appendEscaped(titleAsBodyText(doc.title()))
+                content.forEach { root ->
+                    currentRoot = root
+                    NodeTraversor.filter(visitor, root)
+                }
+            } else {
+                currentRoot = body
+                NodeTraversor.filter(visitor, body)
+            }
+
+            var text = REPEATING_CHARACTERS.replace(out) { it.value.replace(" ", "").substring(0, 3) }.trim()
+            textFilters.forEach { filter ->
+                text = filter.apply(text)
+            }
+            return text
+        } finally {
+            reset()
+        }
+    }
+
+    private fun reset() {
+        out.setLength(0)
+        if (out.capacity() > MAX_RETAINED_CAPACITY) out.trimToSize()
+        leafText.setLength(0)
+        removed.clear()
+        filtered.clear()
+        contentRoots.clear()
+        currentRoot = null
+        elementFilters = emptyList()
+    }
+
+    private fun isRemoved(element: Element): Boolean {
+        var el: Element? = element
+        while (el != null) {
+            if (el in removed) return true
+            el = el.parent()
+        }
+        return false
+    }
+
+    /**
+     * Whether the element has no element children once notation tags are unwrapped and removed elements are gone.
+     */
+    private fun isLeaf(element: Element): Boolean {
+        for (child in element.childNodes()) {
+            if (child !is Element || child in removed || child in filtered || child in contentRoots) continue
+            if (child.normalName() !in NOTATION_TAGS || !isLeaf(child)) return false
+        }
+        return true
+    }
+
+    private fun hasText(element: Element): Boolean {
+        for (child in element.childNodes()) {
+            when {
+                child is TextNode -> if (!child.isBlank) return true
+                child is Element && child.normalName() in NOTATION_TAGS && child !in removed && child !in filtered
+                        && child !in contentRoots -> if (hasText(child)) return true
+            }
+        }
+        return false
+    }
+
+    /**
+     * A leaf element's own text is whitespace-normalised and run through the `Element` filters, exactly like
+     * `element.text(element.ownText())` would have done.
+     */
+    private fun appendLeaf(element: Element) {
+        leafText.setLength(0)
+        collectLeafText(element, preserveWhitespace(element))
+        var text = leafText.toString().trim()
+        elementFilters.forEach { filter -> text = filter.apply(text) }
+        appendEscaped(text)
+    }
+
+    private fun collectLeafText(element: Element, preserveWhitespace: Boolean) {
+        for (child in element.childNodes()) {
+            if (child is TextNode) {
+                appendLeafText(child.wholeText, preserveWhitespace || child is CDataNode)
+            } else if (child is Element) {
+                if (child in removed || child in contentRoots) continue
+                if (child in filtered) {
+                    if (child.normalName() in LINE_BREAK_TAGS) appendLeafText("\n", preserveWhitespace)
+                    continue
+                }
+                // Notation tags were padded with a space on each side before being unwrapped.
+                appendLeafText(" ", preserveWhitespace)
+                collectLeafText(child, preserveWhitespace)
+                appendLeafText(" ", preserveWhitespace)
+            }
+        }
+    }
+
+    private fun appendLeafText(text: String, preserveWhitespace: Boolean) {
+        if (preserveWhitespace) leafText.append(text)
+        else StringUtil.appendNormalisedWhitespace(leafText, text, leafText.isNotEmpty() && leafText[leafText.length - 1] == ' ')
+    }
+
+    private fun preserveWhitespace(element: Element): Boolean {
+        var el: Element? = element
+        var i = 0
+        while (el != null && i < 6) {
+            if (el.tag().preserveWhitespace()) return true
+            el = el.parent()
+            i++
+        }
+        return false
+    }
+
+    // The title used to be appended to the body as HTML, so any entities in it were decoded a second time.
+    private fun titleAsBodyText(title: String): String =
+        if (title.indexOf('&') >= 0) Parser.unescapeEntities(title, false) else title
+
+    /**
+     * Appends [text] the way it used to come out of serializing the cleaned body and decoding its entities.
+     */
+    private fun appendEscaped(text: String) {
+        for (c in text) {
+            when {
+                c == '\u00A0' -> out.append(' ')
+                c == '&' -> out.append(" and ")
+                c < ' ' && c != '\t' && c != '\n' && c != '\r' -> out.append("&#x").append(Integer.toHexString(c.code)).append(';')
+                else -> out.append(c)
+            }
+        }
+    }
+}
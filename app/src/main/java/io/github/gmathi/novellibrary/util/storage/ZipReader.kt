@@ -0,0 +1,223 @@
+package io.github.gmathi.novellibrary.util.storage
+
+import java.io.BufferedInputStream
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.util.zip.CRC32
+import java.util.zip.Inflater
+import java.util.zip.InflaterInputStream
+import java.util.zip.ZipException
+
+/**
+ * Reads a zip archive through its central directory, like [java.util.zip.ZipFile] but from a [FileChannel], which is
+ * what a document opened with `openFileDescriptor` gives. Entries that are in the archive but not in its central
+ * directory (left behind when [ZipWriter] continued the archive) are not listed.
+ *
+ * Reads are positional, the channel's position is never changed.
+ */
+class ZipReader(private val channel: FileChannel) {
+
+    companion object {
+        private const val LOCAL_HEADER_SIGNATURE = 0x04034b50
+        private const val CENTRAL_HEADER_SIGNATURE = 0x02014b50
+        private const val ZIP64_END_SIGNATURE = 0x06064b50
+        private const val ZIP64_LOCATOR_SIGNATURE = 0x07064b50
+        private const val END_SIGNATURE = 0x06054b50
+
+        private const val END_LENGTH = 22
+        private const val MAX_COMMENT_LENGTH = 0xFFFF
+        private const val ZIP64_EXTRA_ID = 0x0001
+        private const val MAX_32 = 0xFFFFFFFFL
+        private const val MAX_16 = 0xFFFF
+    }
+
+    /**
+     * The entries of the central directory, in the order they were written. The [ZipWriter.Record.span] of an entry
+     * goes up to the next entry, or to the central directory for the last one.
+     */
+    val records: List<ZipWriter.Record> by lazy { readCentralDirectory() }
+
+    /**
+     * The uncompressed content of [record]. The checksum is verified once the stream is read to the end.
+     */
+    fun open(record: ZipWriter.Record): InputStream {
+        val header = read(record.offset, 30)
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) throw ZipException("No entry at ${record.offset} for ${record.name}")
+        val dataOffset = record.offset + 30 + header.getShort(26).toUnsigned() + header.getShort(28).toUnsigned()
+        val data = BufferedInputStream(ChannelInputStream(dataOffset, record.compressedSize), 64 * 1024)
+        val content = when (record.method) {
+            ZipWriter.STORED -> data
+            ZipWriter.DEFLATED -> RawInflaterInputStream(data)
+            else -> throw ZipException("Unsupported compression method ${record.method} for ${record.name}")
+        }
+        return CheckedInputStream(content, record)
+    }
+
+    private fun readCentralDirectory(): List<ZipWriter.Record> {
+        val size = channel.size()
+        val tailLength = minOf(size, (END_LENGTH + MAX_COMMENT_LENGTH).toLong()).toInt()
+        val tail = read(size - tailLength, tailLength)
+        // The end record is followed by its comment, and nothing else
+        val endPosition = (tailLength - END_LENGTH downTo 0).firstOrNull {
+            tail.getInt(it) == END_SIGNATURE && it + END_LENGTH + tail.getShort(it + 20).toUnsigned() == tailLength
+        } ?: throw ZipException("Not a zip archive")
+
+        var count = tail.getShort(endPosition + 10).toUnsigned().toLong()
+        var centralDirectorySize = tail.getInt(endPosition + 12).toUnsigned()
+        var centralDirectoryOffset = tail.getInt(endPosition + 16).toUnsigned()
+        if (count == MAX_16.toLong() || centralDirectorySize == MAX_32 || centralDirectoryOffset == MAX_32) {
+            val locator = read(size - tailLength + endPosition - 20, 20)
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                val zip64End = read(locator.getLong(8), 56)
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) throw ZipException("Invalid Zip64 end record")
+                count = zip64End.getLong(32)
+                centralDirectorySize = zip64End.getLong(40)
+                centralDirectoryOffset = zip64End.getLong(48)
+            }
+        }
+        if (centralDirectorySize > Int.MAX_VALUE) throw ZipException("Central directory too large")
+
+        val buffer = read(centralDirectoryOffset, centralDirectorySize.toInt())
+        val records = ArrayList<ZipWriter.Record>(minOf(count, 1L shl 16).toInt())
+        var position = 0
+        while (records.size < count) {
+            if (buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) throw ZipException("Invalid central directory")
+            val nameLength = buffer.getShort(position + 28).toUnsigned()
+            val extraLength = buffer.getShort(position + 30).toUnsigned()
+            val commentLength = buffer.getShort(position + 32).toUnsigned()
+            val nameBytes = ByteArray(nameLength)
+            buffer.position(position + 46)
+            buffer.get(nameBytes)
+
+            var compressedSize = buffer.getInt(position + 20).toUnsigned()
+            var entrySize = buffer.getInt(position + 24).toUnsigned()
+            var offset = buffer.getInt(position + 42).toUnsigned()
+            // Only the values that don't fit are in the Zip64 extra field, in this order
+            var extra = position + 46 + nameLength
+            val extraEnd = extra + extraLength
+            while (extra + 4 <= extraEnd) {
+                val id = buffer.getShort(extra).toUnsigned()
+                val length = buffer.getShort(extra + 2).toUnsigned()
+                if (id == ZIP64_EXTRA_ID) {
+                    var value = extra + 4
+                    if (entrySize == MAX_32) entrySize = buffer.getLong(value).also { value += 8 }
+                    if (compressedSize == MAX_32) compressedSize = buffer.getLong(value).also { value += 8 }
+                    if (offset == MAX_32) offset = buffer.getLong(value)
+                }
+                extra += 4 + length
+            }
+
+            records.add(
+                ZipWriter.Record(
+                    name = String(nameBytes, Charsets.UTF_8),
+                    method = buffer.getShort(position + 10).toUnsigned(),
+                    flags = buffer.getShort(position + 8).toUnsigned(),
+                    dosTime = buffer.getInt(position + 12).toUnsigned(),
+                    crc = buffer.getInt(position + 16).toUnsigned(),
+                    compressedSize = compressedSize,
+                    size = entrySize,
+                    offset = offset,
+                    span = 0
+                )
+            )
+            position += 46 + nameLength + extraLength + commentLength
+        }
+
+        val ends = (records.map { it.offset } + centralDirectoryOffset).sorted()
+        return records.map { record ->
+            record.copy(span = ends[ends.binarySearch(record.offset) + 1] - record.offset)
+        }
+    }
+
+    private fun read(position: Long, length: Int): ByteBuffer {
+        val buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN)
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) throw ZipException("Unexpected end of archive")
+        }
+        buffer.flip()
+        return buffer
+    }
+
+    private fun Short.toUnsigned() = toInt() and 0xFFFF
+
+    private fun Int.toUnsigned() = toLong() and MAX_32
+
+    /**
+     * The [length] bytes of the archive starting at [position].
+     */
+    private inner class ChannelInputStream(private var position: Long, length: Long) : InputStream() {
+        private val end = position + length
+
+        override fun read(): Int {
+            val byte = ByteArray(1)
+            return if (read(byte, 0, 1) == -1) -1 else byte[0].toInt() and 0xFF
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (position >= end) return -1
+            val count = channel.read(ByteBuffer.wrap(b, off, minOf(len.toLong(), end - position).toInt()), position)
+            if (count == -1) throw ZipException("Unexpected end of archive")
+            position += count
+            return count
+        }
+    }
+
+    /**
+     * Inflates raw deflate data. The inflater may want one byte past the end of the data to finish, like in
+     * [java.util.zip.ZipFile].
+     */
+    private class RawInflaterInputStream(input: InputStream) : InflaterInputStream(input, Inflater(true), 8192) {
+        private var eof = false
+
+        override fun fill() {
+            if (eof) throw ZipException("Unexpected end of entry")
+            len = `in`.read(buf, 0, buf.size)
+            if (len == -1) {
+                buf[0] = 0
+                len = 1
+                eof = true
+            }
+            inf.setInput(buf, 0, len)
+        }
+
+        override fun close() {
+            try {
+                super.close()
+            } finally {
+                inf.end()
+            }
+        }
+    }
+
+    private class CheckedInputStream(input: InputStream, private val record: ZipWriter.Record) : FilterInputStream(input) {
+        private val crc = CRC32()
+        private var size = 0L
+
+        override fun read(): Int {
+            val byte = ByteArray(1)
+            return if (read(byte, 0, 1) == -1) -1 else byte[0].toInt() and 0xFF
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            val count = `in`.read(b, off, len)
+            if (count == -1) {
+                if (size != record.size || crc.value != record.crc) throw ZipException("Corrupted entry ${record.name}")
+            } else {
+                crc.update(b, off, count)
+                size += count
+            }
+            return count
+        }
+
+        override fun skip(n: Long): Long {
+            val buffer = ByteArray(minOf(n, 8192L).toInt())
+            val count = read(buffer, 0, buffer.size)
+            return if (count == -1) 0 else count.toLong()
+        }
+
+        override fun markSupported() = false
+    }
+}
@@ -0,0 +1,330 @@
+package io.github.gmathi.novellibrary.util.storage
+
+import java.io.ByteArrayOutputStream
+import java.io.FilterOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.Calendar
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+
+/**
+ * A zip archive writer for when [java.util.zip.ZipOutputStream] is not enough: entries can be written from data that
+ * was already compressed (on another thread), and an archive can be continued after its last entry, keeping the
+ * entries listed in [records] without rewriting them.
+ *
+ * Archives are readable by [java.util.zip.ZipInputStream] and [java.util.zip.ZipFile]; Zip64 records are only
+ * written when the archive needs them (more than 65535 entries or offsets past 4GB).
+ *
+ * @param out Where the archive is written, positioned at [startOffset].
+ * @param startOffset Where the first new entry goes: 0 for a new archive, or the central directory offset of the
+ * archive being continued.
+ * @param records The entries of the archive being continued that should stay in it.
+ */
+class ZipWriter(
+    out: OutputStream,
+    startOffset: Long = 0,
+    records: Collection<Record> = emptyList()
+) : AutoCloseable {
+
+    companion object {
+        const val STORED = 0
+        const val DEFLATED = 8
+
+        private const val LOCAL_HEADER_SIGNATURE = 0x04034b50
+        private const val DATA_DESCRIPTOR_SIGNATURE = 0x08074b50
+        private const val CENTRAL_HEADER_SIGNATURE = 0x02014b50
+        private const val ZIP64_END_SIGNATURE = 0x06064b50
+        private const val ZIP64_LOCATOR_SIGNATURE = 0x07064b50
+        private const val END_SIGNATURE = 0x06054b50
+
+        private const val FLAG_DATA_DESCRIPTOR = 0x0008
+        private const val FLAG_UTF8 = 0x0800
+
+        private const val VERSION = 20
+        private const val VERSION_ZIP64 = 45
+        private const val ZIP64_EXTRA_ID = 0x0001
+        private const val MAX_32 = 0xFFFFFFFFL
+        private const val MAX_16 = 0xFFFF
+
+        /**
+         * Converts a timestamp to the MS-DOS date (high 16 bits) and time (low 16 bits) used by zip entries.
+         */
+        fun dosTime(millis: Long): Long {
+            val calendar = Calendar.getInstance().apply { timeInMillis = millis }
+            val year = calendar.get(Calendar.YEAR)
+            if (year < 1980) return (1 shl 21 or (1 shl 16)).toLong()
+            return ((year - 1980) shl 25 or
+                    ((calendar.get(Calendar.MONTH) + 1) shl 21) or
+                    (calendar.get(Calendar.DAY_OF_MONTH) shl 16) or
+                    (calendar.get(Calendar.HOUR_OF_DAY) shl 11) or
+                    (calendar.get(Calendar.MINUTE) shl 5) or
+                    (calendar.get(Calendar.SECOND) shr 1)).toLong()
+        }
+
+        /**
+         * Compresses [data] the way [DEFLATED] entries store it.
+         */
+        fun deflate(data: ByteArray, length: Int = data.size): ByteArray {
+            val deflater = Deflater(Deflater.DEFAULT_COMPRESSION, true)
+            try {
+                deflater.setInput(data, 0, length)
+                deflater.finish()
+                val out = ByteArrayOutputStream(maxOf(64, length / 2))
+                val buffer = ByteArray(8192)
+                while (!deflater.finished()) {
+                    val count = deflater.deflate(buffer)
+                    out.write(buffer, 0, count)
+                }
+                return out.toByteArray()
+            } finally {
+                deflater.end()
+            }
+        }
+    }
+
+    /**
+     * A central directory record: where an entry is in the archive and what it holds.
+     *
+     * @param span How many bytes of the archive the entry takes, headers included.
+     */
+    data class Record(
+        val name: String,
+        val method: Int,
+        val flags: Int,
+        val dosTime: Long,
+        val crc: Long,
+        val compressedSize: Long,
+        val size: Long,
+        val offset: Long,
+        val span: Long
+    )
+
+    private val out = CountingOutputStream(out, startOffset)
+
+    private val entries = LinkedHashMap<String, Record>().apply { records.forEach { put(it.name, it) } }
+
+    private var finished = false
+
+    /**
+     * The entries written so far, kept ones included, in central directory order.
+     */
+    val records: Collection<Record>
+        get() = entries.values
+
+    /**
+     * Writes an entry whose data is known in advance; [writeData] must write exactly [compressedSize] bytes. An entry
+     * with the same name as an existing one replaces it in the central directory.
+     */
+    fun writeEntry(
+        name: String,
+        dosTime: Long,
+        method: Int,
+        crc: Long,
+        compressedSize: Long,
+        size: Long,
+        writeData: (OutputStream) -> Unit
+    ) {
+        check(!finished) { "Archive already finished" }
+        require(compressedSize < MAX_32 && size < MAX_32) { "Entry $name is too large to be written in advance" }
+        val offset = out.count
+        writeLocalHeader(name, FLAG_UTF8, method, dosTime, crc, compressedSize, size)
+        val dataStart = out.count
+        writeData(out)
+        if (out.count - dataStart != compressedSize) throw IOException("Entry $name: wrote ${out.count - dataStart} bytes instead of $compressedSize")
+        entries.remove(name)
+        entries[name] = Record(name, method, FLAG_UTF8, dosTime, crc, compressedSize, size, offset, out.count - offset)
+    }
+
+    /**
+     * Writes a [DEFLATED] entry from [input], compressing it on the calling thread.
+     */
+    fun writeEntry(name: String, dosTime: Long, input: InputStream) {
+        writeEntry(name, dosTime) { output -> input.copyTo(output) }
+    }
+
+    /**
+     * Writes a [DEFLATED] entry whose content is produced by [writeContent], compressing it on the calling thread.
+     * The sizes and checksum go in a data descriptor after the data, so the content doesn't have to be known in
+     * advance. Closing the stream given to [writeContent] only ends the entry.
+     */
+    fun writeEntry(name: String, dosTime: Long, writeContent: (OutputStream) -> Unit) {
+        check(!finished) { "Archive already finished" }
+        val flags = FLAG_UTF8 or FLAG_DATA_DESCRIPTOR
+        val offset = out.count
+        writeLocalHeader(name, flags, DEFLATED, dosTime, 0, 0, 0)
+
+        val crc = CRC32()
+        val deflater = Deflater(Deflater.DEFAULT_COMPRESSION, true)
+        var size = 0L
+        val dataStart = out.count
+        try {
+            val deflating = object : DeflaterOutputStream(NonClosingOutputStream(out), deflater, 8192) {
+                override fun write(b: ByteArray, off: Int, len: Int) {
+                    crc.update(b, off, len)
+                    size += len
+                    super.write(b, off, len)
+                }
+
+                override fun write(b: Int) {
+                    write(byteArrayOf(b.toByte()), 0, 1)
+                }
+            }
+            deflating.use { writeContent(it) }
+        } finally {
+            deflater.end()
+        }
+        val compressedSize = out.count - dataStart
+
+        // ZipInputStream reads 8-byte sizes when either size doesn't fit in 4 bytes
+        val zip64 = size >= MAX_32 || compressedSize >= MAX_32
+        writeInt(DATA_DESCRIPTOR_SIGNATURE.toLong())
+        writeInt(crc.value)
+        if (zip64) {
+            writeLong(compressedSize)
+            writeLong(size)
+        } else {
+            writeInt(compressedSize)
+            writeInt(size)
+        }
+        entries.remove(name)
+        entries[name] = Record(name, DEFLATED, flags, dosTime, crc.value, compressedSize, size, offset, out.count - offset)
+    }
+
+    /**
+     * Writes the central directory. The archive ends at the returned offset.
+     */
+    fun finish(): Long {
+        if (finished) return out.count
+        finished = true
+        val centralDirectoryOffset = out.count
+        entries.values.forEach { writeCentralHeader(it) }
+        val centralDirectorySize = out.count - centralDirectoryOffset
+        val count = entries.size.toLong()
+
+        if (count >= MAX_16 || centralDirectoryOffset >= MAX_32 || centralDirectorySize >= MAX_32) {
+            val zip64EndOffset = out.count
+            writeInt(ZIP64_END_SIGNATURE.toLong())
+            writeLong(44)
+            writeShort(VERSION_ZIP64)
+            writeShort(VERSION_ZIP64)
+            writeInt(0)
+            writeInt(0)
+            writeLong(count)
+            writeLong(count)
+            writeLong(centralDirectorySize)
+            writeLong(centralDirectoryOffset)
+
+            writeInt(ZIP64_LOCATOR_SIGNATURE.toLong())
+            writeInt(0)
+            writeLong(zip64EndOffset)
+            writeInt(1)
+        }
+
+        writeInt(END_SIGNATURE.toLong())
+        writeShort(0)
+        writeShort(0)
+        writeShort(minOf(count, MAX_16.toLong()).toInt())
+        writeShort(minOf(count, MAX_16.toLong()).toInt())
+        writeInt(minOf(centralDirectorySize, MAX_32))
+        writeInt(minOf(centralDirectoryOffset, MAX_32))
+        writeShort(0)
+        out.flush()
+        return out.count
+    }
+
+    /**
+     * Finishes the archive if needed and closes the underlying stream.
+     */
+    override fun close() {
+        try {
+            finish()
+        } finally {
+            out.close()
+        }
+    }
+
+    private fun writeLocalHeader(name: String, flags: Int, method: Int, dosTime: Long, crc: Long, compressedSize: Long, size: Long) {
+        val nameBytes = name.toByteArray(Charsets.UTF_8)
+        writeInt(LOCAL_HEADER_SIGNATURE.toLong())
+        writeShort(VERSION)
+        writeShort(flags)
+        writeShort(method)
+        writeInt(dosTime)
+        writeInt(crc)
+        writeInt(compressedSize)
+        writeInt(size)
+        writeShort(nameBytes.size)
+        writeShort(0)
+        out.write(nameBytes)
+    }
+
+    private fun writeCentralHeader(record: Record) {
+        val nameBytes = record.name.toByteArray(Charsets.UTF_8)
+        // Only the values that don't fit go in the Zip64 extra field, in this order
+        val zip64Values = listOf(record.size, record.compressedSize, record.offset).filter { it >= MAX_32 }
+        val extraLength = if (zip64Values.isEmpty()) 0 else 4 + 8 * zip64Values.size
+
+        writeInt(CENTRAL_HEADER_SIGNATURE.toLong())
+        writeShort(VERSION_ZIP64)
+        writeShort(if (zip64Values.isEmpty()) VERSION else VERSION_ZIP64)
+        writeShort(record.flags)
+        writeShort(record.method)
+        writeInt(record.dosTime)
+        writeInt(record.crc)
+        writeInt(minOf(record.compressedSize, MAX_32))
+        writeInt(minOf(record.size, MAX_32))
+        writeShort(nameBytes.size)
+        writeShort(extraLength)
+        writeShort(0)
+        writeShort(0)
+        writeShort(0)
+        writeInt(0)
+        writeInt(minOf(record.offset, MAX_32))
+        out.write(nameBytes)
+        if (zip64Values.isNotEmpty()) {
+            writeShort(ZIP64_EXTRA_ID)
+            writeShort(8 * zip64Values.size)
+            zip64Values.forEach { writeLong(it) }
+        }
+    }
+
+    private fun writeShort(value: Int) {
+        out.write(value and 0xff)
+        out.write(value ushr 8 and 0xff)
+    }
+
+    private fun writeInt(value: Long) {
+        writeShort((value and 0xffff).toInt())
+        writeShort((value ushr 16 and 0xffff).toInt())
+    }
+
+    private fun writeLong(value: Long) {
+        writeInt(value and MAX_32)
+        writeInt(value ushr 32)
+    }
+
+    private class CountingOutputStream(out: OutputStream, var count: Long) : FilterOutputStream(out) {
+        override fun write(b: Int) {
+            out.write(b)
+            count++
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            out.write(b, off, len)
+            count += len
+        }
+    }
+
+    private class NonClosingOutputStream(out: OutputStream) : FilterOutputStream(out) {
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            out.write(b, off, len)
+        }
+
+        override fun close() {
+            flush()
+        }
+    }
+}
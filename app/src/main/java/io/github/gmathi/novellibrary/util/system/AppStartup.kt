@@ -0,0 +1,44 @@
+package io.github.gmathi.novellibrary.util.system
+
+import io.github.gmathi.novellibrary.util.logging.Logs
+import io.github.gmathi.novellibrary.util.trace.Tracer
+import io.github.gmathi.novellibrary.util.trace.trace
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import uy.kohesive.injekt.injectLazy
+
+/**
+ * Runs the app startup in stages. [critical] stages run on the calling thread and should only hold what the first
+ * screen can't do without; everything else goes to a [deferred] stage that runs on a background thread once the
+ * stages it depends on are done.
+ *
+ * Each stage is traced as a `startup.<stage>` span, so it can only be used once the app module is imported.
+ */
+object AppStartup {
+
+    private const val TAG = "AppStartup"
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private val tracer: Tracer by injectLazy()
+
+    fun <T> critical(name: String, block: () -> T): T = tracer.trace("${Tracer.STARTUP}.$name") { block() }
+
+    /**
+     * Starts [block] in the background after [dependsOn]. A stage that fails is logged and completes exceptionally, so
+     * the stages depending on it fail too instead of running on a half-initialized app.
+     */
+    fun <T> deferred(name: String, vararg dependsOn: Deferred<*>, block: suspend () -> T): Deferred<T> = scope.async {
+        dependsOn.toList().awaitAll()
+        try {
+            tracer.trace("${Tracer.STARTUP}.$name") { block() }
+        } catch (e: Exception) {
+            Logs.error(TAG, "Startup stage $name failed", e)
+            throw e
+        }
+    }
+}
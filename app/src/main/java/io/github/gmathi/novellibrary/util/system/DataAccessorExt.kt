@@ -8,11 +8,13 @@ import io.github.gmathi.novellibrary.model.database.Novel
 import io.github.gmathi.novellibrary.model.database.NovelSection
 import io.github.gmathi.novellibrary.model.database.WebPage
 import io.github.gmathi.novellibrary.model.database.WebPageSettings
+import io.github.gmathi.novellibrary.service.cover.CoverStore
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.analytics.FAC
 import io.github.gmathi.novellibrary.util.Utils
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
+import uy.kohesive.injekt.injectLazy
 
 /**
  * Logs a simple Firebase event for a given novel.
@@ -27,11 +29,14 @@ fun FirebaseAnalytics.logNovelEvent(eventName: String, novel: Novel) {
 /**
  * Adds a new novel instance to the DB.
  * Adds novel to the NovelSync
+ * Archives the novel cover.
  * Logs novel addition to Firebase.
  */
 fun DataAccessor.addNewNovel(novel: Novel) {
     if (novel.id == -1L) {
         novel.id = dbHelper.insertNovel(novel)
+        val coverStore: CoverStore by injectLazy()
+        coverStore.archiveAsync(novel.id, novel.imageUrl)
         //NovelSync.getInstance(novel)?.applyAsync(lifecycleScope) { if (dataCenter.getSyncAddNovels(it.host)) it.addNovel(novel, null) }
         firebaseAnalytics.logNovelEvent(FAC.Event.ADD_NOVEL, novel)
     }
@@ -40,11 +45,14 @@ fun DataAccessor.addNewNovel(novel: Novel) {
 /**
  * Deletes the novel from the DB
  * Deletes all downloaded chapters of the novel
+ * Deletes the archived novel cover
  * Logs novel deletion to Firebase.
  * Removes novel in NovelSync
  */
 fun DataAccessor.deleteNovel(novel: Novel, context: Context) {
     Utils.deleteDownloadedChapters(context, novel)
+    val coverStore: CoverStore by injectLazy()
+    coverStore.delete(novel.id)
     dbHelper.cleanupNovelData(novel)
     //NovelSync.getInstance(novel)?.applyAsync(lifecycleScope) { if (dataCenter.getSyncAddNovels(it.host)) it.removeNovel(novel, null) }
     firebaseAnalytics.logNovelEvent(FAC.Event.REMOVE_NOVEL, novel)
@@ -57,6 +65,8 @@ fun DataAccessor.deleteNovel(novel: Novel) = getContext()?.let { deleteNovel(nov
  * Perform a hard reset on a novel.
  */
 suspend fun DataAccessor.resetNovel(novel: Novel) {
+    val coverStore: CoverStore by injectLazy()
+    coverStore.delete(novel.id)
     dbHelper.resetNovel(novel)
 }
 
@@ -175,6 +175,8 @@ fun AppCompatActivity.startTTSSettingsActivity() = startActivity<TTSSettingsActi
 
 fun AppCompatActivity.startAiTtsSettingsActivity() = startActivity<AiTtsSettingsActivity>()
 
+fun AppCompatActivity.startTraceStatsActivity() = startActivity<TraceStatsActivity>()
+
 //fun AppCompatActivity.startCloudFlareBypassActivity(hostName: String) {
 //    val intent = Intent(this, CloudFlareBypassActivity::class.java)
 //    val bundle = Bundle()
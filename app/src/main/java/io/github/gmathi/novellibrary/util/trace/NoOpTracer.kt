@@ -0,0 +1,24 @@
+package io.github.gmathi.novellibrary.util.trace
+
+/**
+ * The [Tracer] of release builds: records nothing, and spans cost no more than a call.
+ */
+object NoOpTracer : Tracer {
+
+    private object NoOpSpan : Span {
+        override val name = ""
+        override fun child(name: String): Span = this
+        override fun fail(error: Throwable) {}
+        override fun end() {}
+    }
+
+    override fun start(name: String, parent: Span?): Span = NoOpSpan
+
+    override fun count(name: String, delta: Long) {}
+
+    override fun record(name: String, value: Long) {}
+
+    override fun snapshot() = TraceSnapshot.EMPTY
+
+    override fun clear() {}
+}
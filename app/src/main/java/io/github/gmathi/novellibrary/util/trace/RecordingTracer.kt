@@ -0,0 +1,159 @@
+package io.github.gmathi.novellibrary.util.trace
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.ceil
+
+/**
+ * A [Tracer] that keeps what it records in memory: the latest [maxSpans] spans, and the latest [window] durations of
+ * each operation and values of each histogram, which the percentiles are taken over. Older ones are dropped, so the
+ * memory it takes doesn't grow with the time the app runs.
+ */
+class RecordingTracer(
+    private val clock: Clock = Clock { System.nanoTime() },
+    private val maxSpans: Int = MAX_SPANS,
+    private val window: Int = WINDOW
+) : Tracer {
+
+    companion object {
+        const val MAX_SPANS = 500
+        const val WINDOW = 200
+
+        private const val NANOS_PER_MILLI = 1_000_000.0
+    }
+
+    fun interface Clock {
+
+        /**
+         * A monotonic time, in nanoseconds.
+         */
+        fun nanoTime(): Long
+    }
+
+    private val origin = clock.nanoTime()
+    private val ids = AtomicLong()
+
+    private val spans = ArrayDeque<SpanRecord>()
+    private val operations = HashMap<String, Operation>()
+    private val histograms = HashMap<String, Window>()
+    private val counters = ConcurrentHashMap<String, AtomicLong>()
+
+    override fun start(name: String, parent: Span?): Span =
+        RecordingSpan(name, ids.incrementAndGet(), (parent as? RecordingSpan)?.id, clock.nanoTime(), Thread.currentThread().name)
+
+    override fun count(name: String, delta: Long) {
+        counters.getOrPut(name) { AtomicLong() }.addAndGet(delta)
+    }
+
+    @Synchronized
+    override fun record(name: String, value: Long) {
+        histograms.getOrPut(name) { Window(window) }.add(value)
+    }
+
+    @Synchronized
+    override fun snapshot() = TraceSnapshot(
+        operations = operations.entries.sortedBy { it.key }.map { (name, operation) ->
+            val durations = operation.durations
+            OperationStats(
+                name,
+                durations.count,
+                operation.failures,
+                durations.percentile(0.50) / NANOS_PER_MILLI,
+                durations.percentile(0.95) / NANOS_PER_MILLI,
+                durations.max() / NANOS_PER_MILLI
+            )
+        },
+        counters = counters.entries.sortedBy { it.key }.associateTo(LinkedHashMap()) { it.key to it.value.get() },
+        histograms = histograms.entries.sortedBy { it.key }.map { (name, values) ->
+            HistogramStats(name, values.count, values.percentile(0.50), values.percentile(0.95), values.max())
+        },
+        spans = spans.toList()
+    )
+
+    @Synchronized
+    override fun clear() {
+        spans.clear()
+        operations.clear()
+        histograms.clear()
+        counters.clear()
+    }
+
+    @Synchronized
+    private fun finish(span: RecordingSpan, endNanos: Long, error: Throwable?) {
+        val duration = endNanos - span.startNanos
+        val operation = operations.getOrPut(span.name) { Operation(Window(window)) }
+        operation.durations.add(duration)
+        if (error != null) operation.failures++
+
+        if (spans.size == maxSpans) spans.removeFirst()
+        spans.addLast(
+            SpanRecord(
+                span.id,
+                span.parentId,
+                span.name,
+                (span.startNanos - origin) / NANOS_PER_MILLI,
+                duration / NANOS_PER_MILLI,
+                span.thread,
+                error?.let { it::class.java.simpleName }
+            )
+        )
+    }
+
+    private inner class RecordingSpan(
+        override val name: String,
+        val id: Long,
+        val parentId: Long?,
+        val startNanos: Long,
+        val thread: String
+    ) : Span {
+
+        private val ended = AtomicBoolean()
+
+        @Volatile
+        private var error: Throwable? = null
+
+        override fun child(name: String): Span = start(name, this)
+
+        override fun fail(error: Throwable) {
+            this.error = error
+        }
+
+        override fun end() {
+            if (ended.compareAndSet(false, true)) finish(this, clock.nanoTime(), error)
+        }
+    }
+
+    private class Operation(val durations: Window) {
+        var failures = 0L
+    }
+
+    /**
+     * The latest [size] values, and how many were added in all.
+     */
+    private class Window(size: Int) {
+
+        private val values = LongArray(size)
+        var count = 0L
+            private set
+
+        fun add(value: Long) {
+            values[(count % values.size).toInt()] = value
+            count++
+        }
+
+        /**
+         * The nearest-rank percentile [p] of the values kept, 0 when there are none.
+         */
+        fun percentile(p: Double): Long {
+            val kept = kept()
+            if (kept.isEmpty()) return 0
+            kept.sort()
+            return kept[(ceil(p * kept.size).toInt() - 1).coerceIn(0, kept.size - 1)]
+        }
+
+        fun max(): Long = kept().maxOrNull() ?: 0
+
+        private fun kept(): LongArray = values.copyOf(minOf(count, values.size.toLong()).toInt())
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.gmathi.novellibrary.util.trace
+
+import com.google.gson.GsonBuilder
+
+/**
+ * What a [Tracer] recorded, as of [RecordingTracer.snapshot]. Times are in milliseconds, span starts are counted from
+ * the start of the tracer.
+ */
+data class TraceSnapshot(
+    val operations: List<OperationStats>,
+    val counters: Map<String, Long>,
+    val histograms: List<HistogramStats>,
+    val spans: List<SpanRecord>
+) {
+
+    companion object {
+        val EMPTY = TraceSnapshot(emptyList(), emptyMap(), emptyList(), emptyList())
+    }
+
+    fun toJson(): String = GsonBuilder().setPrettyPrinting().create().toJson(this)
+}
+
+/**
+ * The durations of the spans named [name]. [count] and [failures] are counted since the tracer started, the
+ * percentiles are taken over the latest spans only.
+ */
+data class OperationStats(
+    val name: String,
+    val count: Long,
+    val failures: Long,
+    val p50Millis: Double,
+    val p95Millis: Double,
+    val maxMillis: Double
+)
+
+data class HistogramStats(
+    val name: String,
+    val count: Long,
+    val p50: Long,
+    val p95: Long,
+    val max: Long
+)
+
+data class SpanRecord(
+    val id: Long,
+    val parentId: Long?,
+    val name: String,
+    val startMillis: Double,
+    val durationMillis: Double,
+    val thread: String,
+    val error: String?
+)
@@ -0,0 +1,75 @@
+package io.github.gmathi.novellibrary.util.trace
+
+/**
+ * Measures how long the app's operations take: [spans][Span] time one run of an operation and can nest, counters count
+ * events and histograms keep the spread of values (sizes, lengths...).
+ *
+ * Spans don't follow the current thread or coroutine, a nested span is started from its parent: [Span.trace].
+ */
+interface Tracer {
+
+    companion object {
+        const val NETWORK_FETCH = "network.fetch"
+        const val NOVEL_DETAILS = "source.novel_details"
+        const val NOVEL_DETAILS_PARSE = "source.novel_details.parse"
+        const val HTML_CLEAN = "html.clean"
+        const val DB_TRANSACTION = "db.transaction"
+        const val TTS_SYNTHESIS = "tts.synthesis"
+        const val DOWNLOAD_CHAPTER = "download.chapter"
+        const val STARTUP = "startup"
+    }
+
+    /**
+     * Starts a span, it is timed until [Span.end].
+     */
+    fun start(name: String, parent: Span? = null): Span
+
+    fun count(name: String, delta: Long = 1)
+
+    fun record(name: String, value: Long)
+
+    fun snapshot(): TraceSnapshot
+
+    fun clear()
+}
+
+interface Span {
+
+    val name: String
+
+    /**
+     * Starts a span nested in this one.
+     */
+    fun child(name: String): Span
+
+    /**
+     * Marks the span as failed, with the [error] that ended it.
+     */
+    fun fail(error: Throwable)
+
+    /**
+     * Ends the span, ending it again does nothing.
+     */
+    fun end()
+}
+
+/**
+ * Runs [block] in a new span. The span is ended when [block] returns or throws, and marked as failed if it throws.
+ */
+inline fun <T> Tracer.trace(name: String, parent: Span? = null, block: (Span) -> T): T = start(name, parent).use(block)
+
+/**
+ * Runs [block] in a new span nested in this one, see [Tracer.trace].
+ */
+inline fun <T> Span.trace(name: String, block: (Span) -> T): T = child(name).use(block)
+
+inline fun <T> Span.use(block: (Span) -> T): T {
+    try {
+        return block(this)
+    } catch (e: Throwable) {
+        fail(e)
+        throw e
+    } finally {
+        end()
+    }
+}
@@ -14,10 +14,11 @@ import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
+import uy.kohesive.injekt.injectLazy
 
 class AiTtsManageModelsViewModel(application: Application) : AndroidViewModel(application) {
 
-    val modelManager = AiTtsModelManager(application)
+    val modelManager: AiTtsModelManager by injectLazy()
     private val workManager = WorkManager.getInstance(application)
 
     val allVoices: List<AiTtsVoiceInfo> = modelManager.availableVoices()
@@ -93,7 +94,7 @@ class AiTtsManageModelsViewModel(application: Application) : AndroidViewModel(ap
         current[voiceId] = ModelDownloadState.NotDownloaded
         _downloadStates.value = current
         viewModelScope.launch(kotlinx.coroutines.Dispatchers.IO) {
-            modelManager.getModelDir(voiceId).deleteRecursively()
+            modelManager.deleteModel(voiceId)
         }
     }
 
@@ -142,7 +142,7 @@ class ChaptersViewModel(private val state: SavedStateHandle) : ViewModel(), Life
             else
                 loadingStatus.postValue("Downloading Chapters…")
 
-            val source = sourceManager.get(novel.sourceId) ?: throw Exception(MISSING_SOURCE_ID)
+            val source = sourceManager.awaitSource(novel.sourceId) ?: throw Exception(MISSING_SOURCE_ID)
             val fetchedChapters = source.getChapterList(novel)
             if (novel.id != -1L)
                 fetchedChapters.forEach { it.novelId = novel.id }
@@ -2,7 +2,6 @@ package io.github.gmathi.novellibrary.viewmodel
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.google.gson.Gson
 import io.github.gmathi.novellibrary.database.DBHelper
 import io.github.gmathi.novellibrary.domain.usecase.ClearRecentlyViewedNovelsUseCase
 import io.github.gmathi.novellibrary.domain.usecase.GetRecentlyUpdatedNovelsUseCase
@@ -35,10 +34,9 @@ class RecentNovelsViewModel : ViewModel() {
 
     private val networkHelper: NetworkHelper by injectLazy()
     private val dbHelper: DBHelper by injectLazy()
-    private val gson: Gson by injectLazy()
 
     private val getRecentlyUpdatedNovelsUseCase = GetRecentlyUpdatedNovelsUseCase()
-    private val getRecentlyViewedNovelsUseCase = GetRecentlyViewedNovelsUseCase(dbHelper, gson)
+    private val getRecentlyViewedNovelsUseCase = GetRecentlyViewedNovelsUseCase(dbHelper)
     private val clearRecentlyViewedNovelsUseCase = ClearRecentlyViewedNovelsUseCase(dbHelper)
 
     private val _recentlyUpdatedState = MutableStateFlow<RecentlyUpdatedUiState>(RecentlyUpdatedUiState.Loading)
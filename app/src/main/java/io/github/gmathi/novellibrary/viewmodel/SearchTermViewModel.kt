@@ -11,12 +11,14 @@ import io.github.gmathi.novellibrary.model.other.NovelsPage
 import io.github.gmathi.novellibrary.network.NetworkHelper
 import io.github.gmathi.novellibrary.model.preference.DataCenter
 import io.github.gmathi.novellibrary.model.source.online.NovelUpdatesSource
-import kotlinx.coroutines.Dispatchers
+import io.github.gmathi.novellibrary.service.search.SearchAggregator
+import io.github.gmathi.novellibrary.service.search.SearchResultCache
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.withContext
 import io.github.gmathi.novellibrary.BuildConfig
 import uy.kohesive.injekt.injectLazy
 
@@ -38,6 +40,16 @@ data class SourceSearchState(
     val isLoadingMore: Boolean = false
 )
 
+/**
+ * What all the sources found, each novel listed once.
+ *
+ * @param pendingSourceIds The sources still searching, when all of them are being searched at once.
+ */
+data class MergedSearchState(
+    val novels: List<SearchAggregator.Merged<Novel>> = emptyList(),
+    val pendingSourceIds: Set<Long> = emptySet()
+)
+
 class SearchTermViewModel : ViewModel() {
 
     companion object {
@@ -52,6 +64,11 @@ class SearchTermViewModel : ViewModel() {
          * When false, all sources are fetched immediately on search.
          */
         const val LAZY_LOAD_SOURCES = true
+
+        /**
+         * Shared by the search screens, so that a term searched again shortly after is answered from memory.
+         */
+        private val resultCache = SearchResultCache<Novel>()
     }
 
     private val sourceManager: SourceManager by injectLazy()
@@ -64,16 +81,35 @@ class SearchTermViewModel : ViewModel() {
     private val _isSearching = MutableStateFlow(false)
     val isSearching: StateFlow<Boolean> = _isSearching.asStateFlow()
 
+    private val _mergedResults = MutableStateFlow(MergedSearchState())
+    val mergedResults: StateFlow<MergedSearchState> = _mergedResults.asStateFlow()
+
+    private val aggregator = SearchAggregator(resultCache) { novel: Novel -> novel.name }
+
     private var currentSearchTerm: String? = null
 
+    /**
+     * The searches in flight by source index, all cancelled when the search term changes.
+     */
+    private val sourceJobs = HashMap<Int, Job>()
+    private var searchAllJob: Job? = null
+    private var searchJob: Job? = null
+
     fun search(searchTerm: String) {
+        cancelSearches()
         currentSearchTerm = searchTerm
         _isSearching.value = true
+        _mergedResults.value = MergedSearchState()
+        _sourceStates.value = emptyList()
 
-        val sources = sourceManager.getOnlineSources().filter {
-            dataCenter.isSourceEnabled(it.getPreferenceKey())
+        searchJob = viewModelScope.launch {
+            // Right after a cold start the extensions may still be loading, search them all once they are
+            sourceManager.awaitSources()
+            startSearch(sourceManager.getOnlineSources { dataCenter.isSourceEnabled(it.getPreferenceKey()) }, searchTerm)
         }
+    }
 
+    private fun startSearch(sources: List<HttpSource>, searchTerm: String) {
         if (LAZY_LOAD_SOURCES) {
             // Initialize all sources as Idle; only the visible tab will trigger a fetch
             _sourceStates.value = sources.map { source ->
@@ -96,8 +132,55 @@ class SearchTermViewModel : ViewModel() {
                     sourceId = source.id
                 )
             }
-            sources.forEachIndexed { index, source ->
-                searchSource(index, source, searchTerm, page = 1)
+            searchAll(sources, searchTerm)
+        }
+    }
+
+    /**
+     * Searches all the sources at once for the merged results, unless they are being searched already. The sources
+     * that answered before answer from the cache. Called when the user switches to the tab of all the sources.
+     */
+    fun searchAllIfNeeded() {
+        if (searchAllJob?.isActive == true) return
+        val searchTerm = currentSearchTerm ?: return
+        val sources = _sourceStates.value.mapNotNull { sourceOf(it) }
+        searchAll(sources, searchTerm)
+    }
+
+    /**
+     * Streams the answers of all the [sources] into the merged results as they come. A source tab not answered yet
+     * shows its answer too; the tabs already answered are left as they are, and their pages come from the cache.
+     */
+    private fun searchAll(sources: List<HttpSource>, searchTerm: String) {
+        searchAllJob = viewModelScope.launch {
+            val unanswered = _sourceStates.value.withIndex()
+                .filter { (index, state) ->
+                    (state.uiState == SearchTermUiState.Idle || state.uiState == SearchTermUiState.Loading) && index !in sourceJobs
+                }
+                .map { it.value.sourceId }
+                .toHashSet()
+            if (!networkHelper.isConnectedToNetwork()) {
+                _sourceStates.value = _sourceStates.value.map {
+                    if (it.sourceId in unanswered) it.copy(uiState = SearchTermUiState.NoInternet) else it
+                }
+                return@launch
+            }
+            _sourceStates.value = _sourceStates.value.map {
+                if (it.sourceId in unanswered) it.copy(uiState = SearchTermUiState.Loading) else it
+            }
+            _mergedResults.value = MergedSearchState(_mergedResults.value.novels, sources.map { it.id }.toSet())
+
+            aggregator.search(sources.map { it.asSearchSource() }, searchTerm).collect { results ->
+                results.bySource.forEach { (sourceId, result) ->
+                    if (!unanswered.remove(sourceId)) return@forEach
+                    val index = _sourceStates.value.indexOfFirst { it.sourceId == sourceId }
+                    when (result) {
+                        is SearchAggregator.SourceResult.Success -> onPageLoaded(index, result.page, page = 1)
+                        is SearchAggregator.SourceResult.Failure ->
+                            onPageFailed(index, sources.first { it.id == sourceId }, result.error, page = 1)
+                    }
+                }
+                _mergedResults.value = MergedSearchState(results.merged, results.pending)
             }
         }
     }
@@ -114,80 +197,122 @@ class SearchTermViewModel : ViewModel() {
         if (state.uiState != SearchTermUiState.Idle) return
 
         val searchTerm = currentSearchTerm ?: return
-        val source = sourceManager.getOnlineSources().filter {
-            dataCenter.isSourceEnabled(it.getPreferenceKey())
-        }.getOrNull(sourceIndex) ?: return
+        val source = sourceOf(state) ?: return
 
         updateSourceState(sourceIndex) { it.copy(uiState = SearchTermUiState.Loading) }
         searchSource(sourceIndex, source, searchTerm, page = 1)
     }
 
-    private fun searchSource(index: Int, source: HttpSource, searchTerm: String, page: Int) {
-        viewModelScope.launch {
+    private fun searchSource(index: Int, source: HttpSource, searchTerm: String, page: Int, useCache: Boolean = true) {
+        sourceJobs.remove(index)?.cancel()
+        sourceJobs[index] = viewModelScope.launch {
             if (!networkHelper.isConnectedToNetwork()) {
                 updateSourceState(index) { it.copy(uiState = SearchTermUiState.NoInternet) }
                 return@launch
             }
 
             try {
-                val novelsPage = withContext(Dispatchers.IO) {
-                    if (source is NovelUpdatesSource) {
-                        // Skip NovelUpdates search in debug builds when dev flag is enabled
-                        if (BuildConfig.DEBUG && SKIP_NOVEL_UPDATES_SEARCH) {
-                            NovelsPage(emptyList(), false)
-                        } else {
-                            // Use series-finder API for NovelUpdates
-                            source.searchSeriesFinder(searchTerm, page)
-                        }
-                    } else {
-                        val catalogueSource = source as? CatalogueSource
-                            ?: throw Exception("Source ${source.name} is not a CatalogueSource")
-                        catalogueSource.getSearchNovels(page, searchTerm)
-                    }
-                }
+                onPageLoaded(index, aggregator.fetch(source.asSearchSource(), searchTerm, page, useCache), page)
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                onPageFailed(index, source, e, page)
+            }
+            updateMergedResults()
+        }
+    }
 
-                updateSourceState(index) { state ->
-                    val updatedNovels = if (page == 1) {
-                        novelsPage.novels
-                    } else {
-                        val existingUrls = state.novels.map { it.url }.toSet()
-                        state.novels + novelsPage.novels.filter { it.url !in existingUrls }
-                    }
-                    state.copy(
-                        novels = updatedNovels,
-                        currentPage = page,
-                        isLoadingMore = false,
-                        uiState = if (updatedNovels.isEmpty()) {
-                            SearchTermUiState.Empty
-                        } else {
-                            SearchTermUiState.Success(hasMore = novelsPage.hasNextPage)
-                        }
-                    )
+    private fun onPageLoaded(index: Int, novelsPage: SearchAggregator.Page<Novel>, page: Int) {
+        updateSourceState(index) { state ->
+            val updatedNovels = if (page == 1) {
+                novelsPage.items
+            } else {
+                val existingUrls = state.novels.map { it.url }.toSet()
+                state.novels + novelsPage.items.filter { it.url !in existingUrls }
+            }
+            state.copy(
+                novels = updatedNovels,
+                currentPage = page,
+                isLoadingMore = false,
+                uiState = if (updatedNovels.isEmpty()) {
+                    SearchTermUiState.Empty
+                } else {
+                    SearchTermUiState.Success(hasMore = novelsPage.hasNextPage)
                 }
-            } catch (e: Exception) {
-                updateSourceState(index) { state ->
-                    if (page == 1) {
-                        val isCloudflare = e.localizedMessage?.contains("503") == true ||
-                                e.localizedMessage?.contains("403") == true ||
-                                e.localizedMessage?.contains("cloudflare", ignoreCase = true) == true
-                        val sourceBaseUrl = source.baseUrl
-                        state.copy(
-                            uiState = SearchTermUiState.Error(
-                                message = e.localizedMessage ?: "Search failed",
-                                isCloudflare = isCloudflare,
-                                cloudflareUrl = if (isCloudflare) sourceBaseUrl else null
-                            ),
-                            isLoadingMore = false
-                        )
+            )
+        }
+    }
+
+    private fun onPageFailed(index: Int, source: HttpSource, e: Exception, page: Int) {
+        updateSourceState(index) { state ->
+            if (page == 1) {
+                val isCloudflare = e.localizedMessage?.contains("503") == true ||
+                        e.localizedMessage?.contains("403") == true ||
+                        e.localizedMessage?.contains("cloudflare", ignoreCase = true) == true
+                val sourceBaseUrl = source.baseUrl
+                state.copy(
+                    uiState = SearchTermUiState.Error(
+                        message = e.localizedMessage ?: "Search failed",
+                        isCloudflare = isCloudflare,
+                        cloudflareUrl = if (isCloudflare) sourceBaseUrl else null
+                    ),
+                    isLoadingMore = false
+                )
+            } else {
+                // Keep existing results on load-more failure
+                state.copy(isLoadingMore = false)
+            }
+        }
+    }
+
+    /**
+     * Merges again what the source tabs list, after one of them changed on its own.
+     */
+    private fun updateMergedResults() {
+        val results = _sourceStates.value.filter { it.novels.isNotEmpty() }.map {
+            SearchAggregator.SourceResult.Success(it.sourceId, SearchAggregator.Page(it.novels, hasNextPage = false))
+        }
+        _mergedResults.value = _mergedResults.value.copy(novels = aggregator.merge(results))
+    }
+
+    private fun HttpSource.asSearchSource(): SearchAggregator.Source<Novel> {
+        val source = this
+        return object : SearchAggregator.Source<Novel> {
+            override val id: Long = source.id
+
+            override suspend fun search(term: String, page: Int): SearchAggregator.Page<Novel> {
+                val novelsPage = if (source is NovelUpdatesSource) {
+                    // Skip NovelUpdates search in debug builds when dev flag is enabled
+                    if (BuildConfig.DEBUG && SKIP_NOVEL_UPDATES_SEARCH) {
+                        NovelsPage(emptyList(), false)
                     } else {
-                        // Keep existing results on load-more failure
-                        state.copy(isLoadingMore = false)
+                        // Use series-finder API for NovelUpdates
+                        source.searchSeriesFinder(term, page)
                     }
+                } else {
+                    val catalogueSource = source as? CatalogueSource
+                        ?: throw Exception("Source ${source.name} is not a CatalogueSource")
+                    catalogueSource.getSearchNovels(page, term)
                 }
+                return SearchAggregator.Page(novelsPage.novels, novelsPage.hasNextPage)
             }
         }
     }
 
+    /**
+     * The source of a tab, by its id: the sources listed can change once the extensions are loaded.
+     */
+    private fun sourceOf(state: SourceSearchState): HttpSource? = sourceManager.get(state.sourceId) as? HttpSource
+
+    private fun cancelSearches() {
+        searchJob?.cancel()
+        searchJob = null
+        searchAllJob?.cancel()
+        searchAllJob = null
+        sourceJobs.values.forEach { it.cancel() }
+        sourceJobs.clear()
+    }
+
     fun loadMore(sourceIndex: Int) {
         val states = _sourceStates.value
         if (sourceIndex !in states.indices) return
@@ -197,9 +322,7 @@ class SearchTermViewModel : ViewModel() {
         if (uiState !is SearchTermUiState.Success || !uiState.hasMore) return
 
         val searchTerm = currentSearchTerm ?: return
-        val source = sourceManager.getOnlineSources().filter {
-            dataCenter.isSourceEnabled(it.getPreferenceKey())
-        }.getOrNull(sourceIndex) ?: return
+        val source = sourceOf(state) ?: return
 
         updateSourceState(sourceIndex) { it.copy(isLoadingMore = true) }
         searchSource(sourceIndex, source, searchTerm, page = state.currentPage + 1)
@@ -207,17 +330,17 @@ class SearchTermViewModel : ViewModel() {
 
     fun retrySource(sourceIndex: Int) {
         val searchTerm = currentSearchTerm ?: return
-        val source = sourceManager.getOnlineSources().filter {
-            dataCenter.isSourceEnabled(it.getPreferenceKey())
-        }.getOrNull(sourceIndex) ?: return
+        val source = _sourceStates.value.getOrNull(sourceIndex)?.let { sourceOf(it) } ?: return
 
         updateSourceState(sourceIndex) { it.copy(uiState = SearchTermUiState.Loading, novels = emptyList()) }
-        searchSource(sourceIndex, source, searchTerm, page = 1)
+        searchSource(sourceIndex, source, searchTerm, page = 1, useCache = false)
     }
 
     fun clearSearch() {
+        cancelSearches()
         _isSearching.value = false
         _sourceStates.value = emptyList()
+        _mergedResults.value = MergedSearchState()
         currentSearchTerm = null
     }
 
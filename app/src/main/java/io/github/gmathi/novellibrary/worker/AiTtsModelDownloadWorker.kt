@@ -6,14 +6,15 @@ import android.content.pm.ServiceInfo
 import android.os.Build
 import androidx.core.app.NotificationCompat
 import androidx.work.*
+import io.github.gmathi.novellibrary.service.ai_tts.AiTtsModelDownloader
 import io.github.gmathi.novellibrary.service.ai_tts.AiTtsModelManager
-import io.github.gmathi.novellibrary.service.ai_tts.TtsEngineType
 import io.github.gmathi.novellibrary.util.notification.Notifications
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
+import uy.kohesive.injekt.Injekt
+import uy.kohesive.injekt.api.get
 import java.io.File
-import java.net.HttpURLConnection
-import java.net.URL
+import java.io.IOException
 
 class AiTtsModelDownloadWorker(
     context: Context,
@@ -56,7 +57,7 @@ class AiTtsModelDownloadWorker(
             }
         )
 
-        val modelManager = AiTtsModelManager(applicationContext)
+        val modelManager: AiTtsModelManager = Injekt.get()
 
         // Find voice info
         val voiceInfo = modelManager.availableVoices().find { it.id == voiceId }
@@ -69,32 +70,17 @@ class AiTtsModelDownloadWorker(
         tempDir.mkdirs()
 
         try {
-            // Build the list of files to download based on engine type
-            val filesToDownload = mutableListOf(
-                voiceInfo.downloadUrl to "model.onnx",
-                voiceInfo.tokensUrl to "tokens.txt"
-            )
-            if (voiceInfo.engineType == TtsEngineType.KOKORO && voiceInfo.voicesBinUrl.isNotEmpty()) {
-                filesToDownload.add(voiceInfo.voicesBinUrl to "voices.bin")
-            }
-            val totalFiles = filesToDownload.size
-
-            filesToDownload.forEachIndexed { fileIndex, (url, fileName) ->
-                val basePercent = (fileIndex * 100) / totalFiles
-                val filePercent = 100 / totalFiles
-                postProgress(voiceId, basePercent, "Downloading $fileName...")
-                downloadFile(
-                    url = url,
-                    dest = File(tempDir, fileName)
-                ) { progress ->
-                    postProgress(voiceId, basePercent + (progress * filePercent / 100), "Downloading $fileName...")
-                }
+            postProgress(voiceId, 0, "Downloading…")
+            modelManager.downloadModelFiles(voiceInfo, tempDir) { progress ->
+                postProgress(voiceId, (progress * 100).toInt(), "Downloading…")
             }
 
             // Move atomically to final location
+            modelManager.evictVoice(voiceId)
             modelDir.mkdirs()
             tempDir.listFiles()?.forEach { file ->
-                file.copyTo(File(modelDir, file.name), overwrite = true)
+                val target = File(modelDir, file.name)
+                if (!file.renameTo(target)) file.copyTo(target, overwrite = true)
             }
             tempDir.deleteRecursively()
 
@@ -109,6 +95,16 @@ class AiTtsModelDownloadWorker(
 
             postComplete(voiceId)
             Result.success(workDataOf(KEY_VOICE_ID to voiceId))
+        } catch (e: AiTtsModelDownloader.ChecksumMismatchException) {
+            tempDir.deleteRecursively()
+            postError(voiceId, e.message ?: "Download failed")
+            Result.failure(workDataOf("error" to e.message))
+        } catch (e: IOException) {
+            // Partial files are kept in tempDir, the retry resumes them.
+            if (runAttemptCount < MAX_ATTEMPTS) return@withContext Result.retry()
+            tempDir.deleteRecursively()
+            postError(voiceId, e.message ?: "Download failed")
+            Result.failure(workDataOf("error" to e.message))
         } catch (e: Exception) {
             tempDir.deleteRecursively()
             postError(voiceId, e.message ?: "Download failed")
@@ -116,24 +112,6 @@ class AiTtsModelDownloadWorker(
         }
     }
 
-    private fun downloadFile(url: String, dest: File, onProgress: (Int) -> Unit) {
-        val connection = URL(url).openConnection() as HttpURLConnection
-        connection.connect()
-        val total = connection.contentLengthLong
-        var downloaded = 0L
-        connection.inputStream.use { input ->
-            dest.outputStream().use { output ->
-                val buffer = ByteArray(8 * 1024)
-                var bytes: Int
-                while (input.read(buffer).also { bytes = it } != -1) {
-                    output.write(buffer, 0, bytes)
-                    downloaded += bytes
-                    if (total > 0) onProgress((downloaded * 100 / total).toInt())
-                }
-            }
-        }
-    }
-
     private fun postProgress(voiceId: String, percent: Int, message: String) {
         // Report progress via WorkManager so observers (e.g. Manage Models screen) can track it
         setProgressAsync(workDataOf(KEY_VOICE_ID to voiceId, KEY_PROGRESS to percent))
@@ -187,6 +165,8 @@ class AiTtsModelDownloadWorker(
         const val ACTION_MODEL_READY = "io.github.gmathi.novellibrary.AI_TTS_MODEL_READY"
         const val ACTION_MODEL_DOWNLOAD_PROGRESS = "io.github.gmathi.novellibrary.AI_TTS_MODEL_DOWNLOAD_PROGRESS"
 
+        private const val MAX_ATTEMPTS = 3
+
         fun enqueue(context: Context, voiceId: String): androidx.work.Operation {
             val request = OneTimeWorkRequestBuilder<AiTtsModelDownloadWorker>()
                 .setInputData(workDataOf(KEY_VOICE_ID to voiceId))
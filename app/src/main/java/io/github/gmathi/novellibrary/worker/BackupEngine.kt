@@ -0,0 +1,367 @@
+package io.github.gmathi.novellibrary.worker
+
+import android.content.Context
+import android.net.Uri
+import android.os.ParcelFileDescriptor
+import androidx.documentfile.provider.DocumentFile
+import com.google.gson.Gson
+import io.github.gmathi.novellibrary.database.DBHelper
+import io.github.gmathi.novellibrary.database.DBKeys
+import io.github.gmathi.novellibrary.database.forEachNovel
+import io.github.gmathi.novellibrary.database.getAllNovelSections
+import io.github.gmathi.novellibrary.model.database.Novel
+import io.github.gmathi.novellibrary.model.database.NovelSection
+import io.github.gmathi.novellibrary.util.Constants.COVERS_DIR
+import io.github.gmathi.novellibrary.util.Constants.DATABASES_DIR
+import io.github.gmathi.novellibrary.util.Constants.FILES_DIR
+import io.github.gmathi.novellibrary.util.Constants.SHARED_PREFS_DIR
+import io.github.gmathi.novellibrary.util.Constants.SIMPLE_NOVEL_BACKUP_FILE_NAME
+import io.github.gmathi.novellibrary.util.logging.Logs
+import io.github.gmathi.novellibrary.util.storage.ZipWriter
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
+import java.io.BufferedOutputStream
+import java.io.BufferedWriter
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.io.OutputStream
+import java.io.OutputStreamWriter
+import java.nio.channels.FileChannel
+import java.util.zip.CRC32
+
+/**
+ * Writes the backup archive of [BackupWorker].
+ *
+ * Downloaded files are compressed in parallel, a window of files ahead of the one being written, and the formats that
+ * are already compressed (images, archives, audio) are stored as they are. The novel list is streamed straight into
+ * its entry.
+ *
+ * Downloaded files go first in the archive, so that an incremental backup can continue the previous archive after the
+ * last file that didn't change: the manifest of the last backup remembers where each file is in the archive along with
+ * its size, modification time and CRC32, the files that changed are appended and the databases, preferences and
+ * novel list are written again after them. Files deleted since then are dropped from the archive's directory, but
+ * their bytes stay in the archive until the next full backup, which happens once the unused bytes reach half of the
+ * used ones.
+ *
+ * The archived covers are files too, but they go with the databases: they are named after the novel ids of the library.
+ *
+ * @param baseDir The app data directory, entries are named after their path in it.
+ */
+internal class BackupEngine(private val context: Context, private val dbHelper: DBHelper, private val baseDir: File) {
+
+    companion object {
+        private const val TAG = "BackupEngine"
+
+        private const val MANIFEST_FILE_NAME = "backup_manifest.json"
+        private const val MANIFEST_FORMAT_VERSION = 1
+
+        // Files up to this size are read and compressed in memory, in parallel
+        private const val IN_MEMORY_LIMIT = 1L shl 20
+        private const val MAX_STORED_SIZE = 0xFFFFFFFFL
+
+        private val STORED_EXTENSIONS = setOf("jpg", "jpeg", "png", "webp", "gif", "zip", "gz", "7z", "mp3", "m4a", "ogg", "mp4")
+    }
+
+    class Options(
+        val simpleText: Boolean,
+        val databases: Boolean,
+        val preferences: Boolean,
+        val files: Boolean,
+        val incremental: Boolean
+    )
+
+    enum class Stage { FILES, DATABASES, PREFERENCES, SIMPLE_TEXT }
+
+    private class Manifest(
+        val formatVersion: Int,
+        val uri: String,
+        val archiveLength: Long,
+        val archiveLastModified: Long,
+        val files: List<FileState>
+    )
+
+    private class FileState(val lastModified: Long, val record: ZipWriter.Record)
+
+    /**
+     * A file ready to be written: [data] holds its (compressed) content, or is null when the file is streamed as it's
+     * written.
+     */
+    private class Prepared(
+        val file: File,
+        val lastModified: Long,
+        val method: Int,
+        val crc: Long,
+        val size: Long,
+        val data: ByteArray?
+    )
+
+    private val gson = Gson()
+
+    private val manifestFile = File(context.noBackupFilesDir, MANIFEST_FILE_NAME)
+
+    private val windowSize = Runtime.getRuntime().availableProcessors() * 2
+
+    /**
+     * Modification time of the downloaded files in the archive being written, by entry name.
+     */
+    private val fileTimes = HashMap<String, Long>()
+
+    suspend fun backup(uri: Uri, options: Options, onStage: (Stage) -> Unit) {
+        fileTimes.clear()
+        val files = when {
+            options.files -> listFiles(FILES_DIR).filter { options.databases || !isCover(it) }
+            options.databases -> listFiles("$FILES_DIR/$COVERS_DIR")
+            else -> emptyList()
+        }
+        val manifest = if (options.incremental && files.isNotEmpty()) readManifest(uri) else null
+        val lastModified = DocumentFile.fromSingleUri(context, uri)?.lastModified() ?: 0L
+
+        val descriptor = try {
+            context.contentResolver.openFileDescriptor(uri, "rw")
+        } catch (e: Exception) {
+            Logs.warning(TAG, "Unable to open $uri for random access", e)
+            null
+        }
+        if (descriptor == null) {
+            manifestFile.delete()
+            ZipWriter(BufferedOutputStream(context.contentResolver.openOutputStream(uri)!!)).use {
+                writeArchive(it, files, options, onStage)
+            }
+            return
+        }
+
+        val archiveLength = descriptor.statSize
+        val (end, records) = ParcelFileDescriptor.AutoCloseOutputStream(descriptor).use { stream ->
+            val channel = stream.channel
+            if (!isSeekable(channel)) {
+                manifestFile.delete()
+                ZipWriter(BufferedOutputStream(stream)).use { writeArchive(it, files, options, onStage) }
+                return
+            }
+
+            var kept = emptyList<ZipWriter.Record>()
+            if (manifest != null && manifest.archiveLength == archiveLength && manifest.archiveLastModified == lastModified)
+                kept = keptRecords(manifest, files)
+            var offset = kept.maxOfOrNull { it.offset + it.span } ?: 0L
+            val live = kept.sumOf { it.span }
+            if (offset - live > live / 2) {
+                Logs.info(TAG, "Rewriting the backup, ${offset - live} of its $offset bytes are unused")
+                kept = emptyList()
+                offset = 0L
+            }
+            Logs.info(TAG, "Backing up ${files.size - kept.size} of ${files.size} files after $offset bytes")
+
+            channel.truncate(offset)
+            channel.position(offset)
+            val writer = ZipWriter(BufferedOutputStream(stream), offset, kept)
+            val keptNames = kept.mapTo(HashSet()) { it.name }
+            writeArchive(writer, files.filter { entryName(it) !in keptNames }, options, onStage)
+            writer.finish() to writer.records.toList()
+        }
+        saveManifest(uri, end, records)
+    }
+
+    private suspend fun writeArchive(writer: ZipWriter, files: List<File>, options: Options, onStage: (Stage) -> Unit) {
+        if (files.isNotEmpty()) {
+            onStage(Stage.FILES)
+            writeFiles(writer, files)
+        }
+        if (options.databases) {
+            onStage(Stage.DATABASES)
+            writeDatabaseSnapshot(writer)
+            // Whatever else is in databases/ is copied as it is
+            writeFiles(writer, listFiles(DATABASES_DIR).filterNot { it.name == DBKeys.DATABASE_NAME || it.name.startsWith("${DBKeys.DATABASE_NAME}-") })
+        }
+        if (options.preferences) {
+            onStage(Stage.PREFERENCES)
+            writeFiles(writer, listFiles(SHARED_PREFS_DIR))
+        }
+        if (options.simpleText) {
+            onStage(Stage.SIMPLE_TEXT)
+            writeSimpleText(writer)
+        }
+        writer.finish()
+    }
+
+    /**
+     * Writes [files] in order, while the next ones are being read and compressed on other threads.
+     */
+    private suspend fun writeFiles(writer: ZipWriter, files: List<File>) = coroutineScope {
+        val window = ArrayDeque<Deferred<Prepared?>>()
+        files.forEach { file ->
+            window.addLast(async(Dispatchers.Default) { prepare(file) })
+            if (window.size >= windowSize) write(writer, window.removeFirst().await())
+        }
+        while (window.isNotEmpty()) write(writer, window.removeFirst().await())
+    }
+
+    private fun prepare(file: File): Prepared? = try {
+        val lastModified = file.lastModified()
+        val size = file.length()
+        val isCompressed = file.extension.lowercase() in STORED_EXTENSIONS
+        when {
+            size <= IN_MEMORY_LIMIT -> {
+                val bytes = file.readBytes()
+                val crc = CRC32().apply { update(bytes) }.value
+                val deflated = if (isCompressed) null else ZipWriter.deflate(bytes)
+                if (deflated != null && deflated.size < bytes.size)
+                    Prepared(file, lastModified, ZipWriter.DEFLATED, crc, bytes.size.toLong(), deflated)
+                else
+                    Prepared(file, lastModified, ZipWriter.STORED, crc, bytes.size.toLong(), bytes)
+            }
+            isCompressed && size < MAX_STORED_SIZE -> Prepared(file, lastModified, ZipWriter.STORED, crc(file), size, null)
+            else -> Prepared(file, lastModified, ZipWriter.DEFLATED, 0, size, null)
+        }
+    } catch (e: FileNotFoundException) {
+        Logs.debug(TAG, "Skipping ${file.path}, it was deleted")
+        null
+    }
+
+    private fun write(writer: ZipWriter, prepared: Prepared?) {
+        prepared ?: return
+        val name = entryName(prepared.file)
+        val dosTime = ZipWriter.dosTime(prepared.lastModified)
+        val data = prepared.data
+        if (data != null) {
+            writer.writeEntry(name, dosTime, prepared.method, prepared.crc, data.size.toLong(), prepared.size) { it.write(data) }
+        } else {
+            val input = try {
+                FileInputStream(prepared.file)
+            } catch (e: FileNotFoundException) {
+                Logs.debug(TAG, "Skipping ${prepared.file.path}, it was deleted")
+                return
+            }
+            input.use {
+                if (prepared.method == ZipWriter.STORED)
+                    writer.writeEntry(name, dosTime, ZipWriter.STORED, prepared.crc, prepared.size, prepared.size) { out -> copy(input, out, prepared.size) }
+                else
+                    writer.writeEntry(name, dosTime, input)
+            }
+        }
+        if (name.startsWith("$FILES_DIR/")) fileTimes[name] = prepared.lastModified
+    }
+
+    /**
+     * Writes a consistent copy of the library database in place of its live files, which may be written to as they are
+     * read and whose write-ahead log may hold the latest transactions.
+     */
+    private fun writeDatabaseSnapshot(writer: ZipWriter) {
+        val snapshot = File(context.cacheDir, DBKeys.DATABASE_NAME)
+        try {
+            dbHelper.snapshot(snapshot)
+            FileInputStream(snapshot).use {
+                writer.writeEntry("$DATABASES_DIR/${DBKeys.DATABASE_NAME}", ZipWriter.dosTime(System.currentTimeMillis()), it)
+            }
+        } finally {
+            snapshot.delete()
+        }
+    }
+
+    private fun writeSimpleText(writer: ZipWriter) {
+        // Written on a single line, the restore reads it with readLine()
+        writer.writeEntry(SIMPLE_NOVEL_BACKUP_FILE_NAME, ZipWriter.dosTime(System.currentTimeMillis())) { out ->
+            gson.newJsonWriter(BufferedWriter(OutputStreamWriter(out, Charsets.UTF_8))).use { json ->
+                json.beginObject()
+                // Sections first, the restore needs them to place the novels as it reads them
+                json.name("novelSections").beginArray()
+                dbHelper.getAllNovelSections().forEach { gson.toJson(it, NovelSection::class.java, json) }
+                json.endArray()
+                json.name("novels").beginArray()
+                dbHelper.forEachNovel { gson.toJson(it, Novel::class.java, json) }
+                json.endArray()
+                json.endObject()
+            }
+        }
+    }
+
+    /**
+     * The records of the previous archive that can stay: files that still have the same size, and either the same
+     * modification time or the same content.
+     */
+    private fun keptRecords(manifest: Manifest, files: List<File>): List<ZipWriter.Record> {
+        val current = files.associateBy { entryName(it) }
+        return manifest.files.filter { state ->
+            val file = current[state.record.name] ?: return@filter false
+            val lastModified = file.lastModified()
+            val unchanged = try {
+                file.length() == state.record.size && (lastModified == state.lastModified || crc(file) == state.record.crc)
+            } catch (e: IOException) {
+                false
+            }
+            if (unchanged) fileTimes[state.record.name] = lastModified
+            unchanged
+        }.map { it.record }
+    }
+
+    private fun readManifest(uri: Uri): Manifest? {
+        if (!manifestFile.exists()) return null
+        return try {
+            gson.fromJson(manifestFile.readText(), Manifest::class.java)
+                ?.takeIf { it.formatVersion == MANIFEST_FORMAT_VERSION && it.uri == uri.toString() }
+        } catch (e: Exception) {
+            Logs.warning(TAG, "Ignoring unreadable backup manifest", e)
+            null
+        }
+    }
+
+    private fun saveManifest(uri: Uri, archiveLength: Long, records: Collection<ZipWriter.Record>) {
+        try {
+            val files = records.mapNotNull { record -> fileTimes[record.name]?.let { FileState(it, record) } }
+            val lastModified = DocumentFile.fromSingleUri(context, uri)?.lastModified() ?: 0L
+            val tmp = File(manifestFile.parentFile, "$MANIFEST_FILE_NAME.tmp")
+            tmp.writeText(gson.toJson(Manifest(MANIFEST_FORMAT_VERSION, uri.toString(), archiveLength, lastModified, files)))
+            if (!tmp.renameTo(manifestFile)) throw IOException("Unable to replace $manifestFile")
+        } catch (e: Exception) {
+            Logs.error(TAG, "Unable to save the backup manifest", e)
+            manifestFile.delete()
+        }
+    }
+
+    private fun listFiles(dirName: String): List<File> {
+        val dir = File(baseDir, dirName)
+        if (!dir.isDirectory) return emptyList()
+        return dir.walkTopDown().filter { it.isFile }.toList()
+    }
+
+    private fun entryName(file: File) = file.path.substring(baseDir.path.length + 1)
+
+    private fun isCover(file: File) = entryName(file).startsWith("$FILES_DIR/$COVERS_DIR/")
+
+    private fun isSeekable(channel: FileChannel) = try {
+        channel.position(0)
+        true
+    } catch (e: IOException) {
+        false
+    }
+
+    private fun crc(file: File): Long {
+        val crc = CRC32()
+        val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+        FileInputStream(file).use { input ->
+            var count = input.read(buffer)
+            while (count != -1) {
+                crc.update(buffer, 0, count)
+                count = input.read(buffer)
+            }
+        }
+        return crc.value
+    }
+
+    /**
+     * Copies exactly [size] bytes, so that a file that grew since it was prepared doesn't corrupt the archive.
+     */
+    private fun copy(input: FileInputStream, out: OutputStream, size: Long) {
+        val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+        var remaining = size
+        while (remaining > 0) {
+            val count = input.read(buffer, 0, minOf(buffer.size.toLong(), remaining).toInt())
+            if (count == -1) throw IOException("File shrank while being backed up")
+            out.write(buffer, 0, count)
+            remaining -= count
+        }
+    }
+}
@@ -12,16 +12,12 @@ import androidx.core.app.NotificationCompat
 import androidx.core.app.NotificationManagerCompat
 import androidx.documentfile.provider.DocumentFile
 import androidx.work.*
-import com.google.gson.Gson
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.database.DBHelper
-import io.github.gmathi.novellibrary.database.getAllNovelSections
-import io.github.gmathi.novellibrary.database.getAllNovels
 import io.github.gmathi.novellibrary.util.Constants.DATABASES_DIR
 import io.github.gmathi.novellibrary.util.Constants.DATA_SUBFOLDER
 import io.github.gmathi.novellibrary.util.Constants.FILES_DIR
 import io.github.gmathi.novellibrary.util.Constants.SHARED_PREFS_DIR
-import io.github.gmathi.novellibrary.util.Constants.SIMPLE_NOVEL_BACKUP_FILE_NAME
 import io.github.gmathi.novellibrary.util.Constants.WORK_KEY_RESULT
 import io.github.gmathi.novellibrary.model.preference.DataCenter
 import io.github.gmathi.novellibrary.util.Utils
@@ -31,8 +27,7 @@ import io.github.gmathi.novellibrary.util.view.ProgressNotificationManager
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import uy.kohesive.injekt.injectLazy
-import java.io.*
-import java.util.zip.ZipOutputStream
+import java.io.File
 
 internal class BackupWorker(context: Context, workerParameters: WorkerParameters) : CoroutineWorker(context, workerParameters) {
 
@@ -43,6 +38,7 @@ internal class BackupWorker(context: Context, workerParameters: WorkerParameters
         internal const val KEY_SHOULD_BACKUP_DATA_BASE = "shouldBackupDatabase"
         internal const val KEY_SHOULD_BACKUP_PREFERENCES = "shouldBackupPreferences"
         internal const val KEY_SHOULD_BACKUP_FILES = "shouldBackupFiles"
+        internal const val KEY_INCREMENTAL = "incremental"
 
         const val UNIQUE_WORK_NAME = "backup_work"
     }
@@ -53,9 +49,6 @@ internal class BackupWorker(context: Context, workerParameters: WorkerParameters
     private val contentResolver
         get() = applicationContext.contentResolver
 
-    private val cacheDir
-        get() = applicationContext.cacheDir
-
     // region Context wrapper (to improve readability)
     private fun getString(@StringRes resId: Int, vararg formatArgs: Any): String =
         if (formatArgs.isEmpty())
@@ -119,49 +112,23 @@ internal class BackupWorker(context: Context, workerParameters: WorkerParameters
                 if (uri != null && DocumentFile.fromSingleUri(applicationContext, uri)
                         .notNullAndExists()
                 ) {
-                    ZipOutputStream(BufferedOutputStream(contentResolver.openOutputStream(uri)!!)).use {
-                        nm.newProgress(16) { setContentText(getString(R.string.simple_text_backup)) }
-
-                        // Backup To TextFile
-                        if (shouldSimpleTextBackup) {
-                            val novelsArray = dbHelper.getAllNovels()
-                            val novelSectionsArray = dbHelper.getAllNovelSections()
-                            val map = HashMap<String, Any>()
-                            map["novels"] = novelsArray
-                            map["novelSections"] = novelSectionsArray
-                            nm.updateProgress(1)
-                            val jsonString = Gson().toJson(map)
-                            nm.updateProgress(2)
-                            val simpleTextFile = File(cacheDir, SIMPLE_NOVEL_BACKUP_FILE_NAME)
-                            val writer =
-                                BufferedWriter(OutputStreamWriter(FileOutputStream(simpleTextFile)))
-                            writer.use { writer.write(jsonString) }
-                            nm.updateProgress(3)
-                            Utils.zip(simpleTextFile, it)
-                        }
-                        nm.updateProgress(4)
-
-                        // Backup Databases
-                        if (shouldBackupDatabase && currentDBsDir.exists() && currentDBsDir.isDirectory) {
-                            nm.updateProgress(6) { setContentText(getString(R.string.title_library)) }
-                            Utils.zip(currentDBsDir, it)
-                        }
-                        nm.updateProgress(8)
-
-                        // Backup Shared Preferences
-                        if (shouldBackupPreferences && currentSharedPrefsDir.exists() && currentSharedPrefsDir.isDirectory) {
-                            nm.updateProgress(10) { setContentText(getString(R.string.preferences)) }
-                            Utils.zip(currentSharedPrefsDir, it)
-                        }
-                        nm.updateProgress(12)
-
-                        // Backup Files
-                        if (shouldBackupFiles && currentFilesDir.exists() && currentFilesDir.isDirectory) {
-                            nm.updateProgress(14) { setContentText(getString(R.string.downloaded_files)) }
-                            Utils.zip(currentFilesDir, it)
+                    nm.newProgress(16) { setContentText(getString(R.string.downloaded_files)) }
+                    val options = BackupEngine.Options(
+                        simpleText = shouldSimpleTextBackup,
+                        databases = shouldBackupDatabase,
+                        preferences = shouldBackupPreferences,
+                        files = shouldBackupFiles,
+                        incremental = inputData.getBoolean(KEY_INCREMENTAL, false)
+                    )
+                    BackupEngine(applicationContext, dbHelper, baseDir).backup(uri, options) { stage ->
+                        when (stage) {
+                            BackupEngine.Stage.FILES -> nm.updateProgress(2) { setContentText(getString(R.string.downloaded_files)) }
+                            BackupEngine.Stage.DATABASES -> nm.updateProgress(10) { setContentText(getString(R.string.title_library)) }
+                            BackupEngine.Stage.PREFERENCES -> nm.updateProgress(12) { setContentText(getString(R.string.preferences)) }
+                            BackupEngine.Stage.SIMPLE_TEXT -> nm.updateProgress(14) { setContentText(getString(R.string.simple_text_backup)) }
                         }
-                        nm.updateProgress(16)
                     }
+                    nm.updateProgress(16)
 
                     message = getString(R.string.backup_success)
                     nm.closeProgress { setContentText(message) }
@@ -0,0 +1,120 @@
+package io.github.gmathi.novellibrary.worker
+
+import android.content.Context
+import android.content.pm.ServiceInfo
+import android.os.Build
+import androidx.core.app.NotificationCompat
+import androidx.work.*
+import io.github.gmathi.novellibrary.R
+import io.github.gmathi.novellibrary.database.DBHelper
+import io.github.gmathi.novellibrary.database.createWebPage
+import io.github.gmathi.novellibrary.database.createWebPageSettings
+import io.github.gmathi.novellibrary.database.getNovelByUrl
+import io.github.gmathi.novellibrary.database.importJournal
+import io.github.gmathi.novellibrary.database.insertNovel
+import io.github.gmathi.novellibrary.database.runTransaction
+import io.github.gmathi.novellibrary.database.updateChaptersCount
+import io.github.gmathi.novellibrary.model.database.Novel
+import io.github.gmathi.novellibrary.model.database.WebPageSettings
+import io.github.gmathi.novellibrary.model.preference.DataCenter
+import io.github.gmathi.novellibrary.model.source.SourceManager
+import io.github.gmathi.novellibrary.service.cover.CoverStore
+import io.github.gmathi.novellibrary.service.library_import.ImportEntry
+import io.github.gmathi.novellibrary.service.library_import.LibraryImporter
+import io.github.gmathi.novellibrary.util.Constants
+import io.github.gmathi.novellibrary.util.Constants.WORK_KEY_RESULT
+import io.github.gmathi.novellibrary.util.error.Exceptions.MISSING_SOURCE_ID
+import io.github.gmathi.novellibrary.util.logging.Logs
+import io.github.gmathi.novellibrary.util.view.ProgressNotificationManager
+import uy.kohesive.injekt.injectLazy
+
+/**
+ * Imports the novels of the import journal with a [LibraryImporter]. The journal is kept in the database, so the work
+ * resumes where it stopped if it's interrupted; novels added to the journal while it runs are imported by the next run.
+ */
+internal class LibraryImportWorker(context: Context, workerParameters: WorkerParameters) : CoroutineWorker(context, workerParameters) {
+
+    companion object {
+        private const val TAG = "LibraryImportWorker"
+
+        const val KEY_TOTAL = "total"
+        const val KEY_IMPORTED = "imported"
+        const val KEY_SKIPPED = "skipped"
+        const val KEY_FAILED = "failed"
+
+        const val UNIQUE_WORK_NAME = "library_import_work"
+    }
+
+    private val dbHelper: DBHelper by injectLazy()
+    private val dataCenter: DataCenter by injectLazy()
+    private val sourceManager: SourceManager by injectLazy()
+    private val coverStore: CoverStore by injectLazy()
+
+    private val steps = object : LibraryImporter.Steps {
+        override suspend fun importNovel(entry: ImportEntry): Boolean {
+            if (dbHelper.getNovelByUrl(entry.novelUrl) != null) return false
+            val novel = Novel(entry.name, entry.novelUrl, Constants.SourceId.NOVEL_UPDATES)
+            val source = sourceManager.awaitSource(Constants.SourceId.NOVEL_UPDATES) ?: throw Exception(MISSING_SOURCE_ID)
+            val details = source.getNovelDetails(novel)
+            coverStore.archiveAsync(dbHelper.insertNovel(details), details.imageUrl)
+            return true
+        }
+
+        override suspend fun importChapters(entry: ImportEntry) {
+            val novel = dbHelper.getNovelByUrl(entry.novelUrl) ?: return
+            val source = sourceManager.awaitSource(novel.sourceId) ?: throw Exception(MISSING_SOURCE_ID)
+            val chapters = source.getChapterList(novel)
+            dbHelper.writableDatabase.runTransaction { writableDatabase ->
+                chapters.forEach { chapter ->
+                    chapter.novelId = novel.id
+                    dbHelper.createWebPage(chapter, writableDatabase)
+                    dbHelper.createWebPageSettings(WebPageSettings(chapter.url, novel.id), writableDatabase)
+                }
+                dbHelper.updateChaptersCount(novel.id, chapters.size.toLong(), writableDatabase)
+            }
+        }
+    }
+
+    override suspend fun doWork(): Result {
+        ProgressNotificationManager(applicationContext).use { nm ->
+            val title = applicationContext.getString(R.string.importing, applicationContext.getString(R.string.title_library))
+            nm.builder
+                .setLocalOnly(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setSmallIcon(R.drawable.ic_library_add_white_vector)
+                .setContentTitle(title)
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                setForeground(ForegroundInfo(nm.notificationId, nm.builder.build(), ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE))
+            } else {
+                setForeground(ForegroundInfo(nm.notificationId, nm.builder.build()))
+            }
+            val journal = dbHelper.importJournal()
+            nm.newProgress(journal.entries().size)
+
+            val progress = try {
+                LibraryImporter(journal, steps, dataCenter.importConcurrency).run { progress ->
+                    setProgressAsync(progress.toData())
+                    nm.updateProgress(progress.done)
+                }
+            } catch (e: Exception) {
+                Logs.error(TAG, "Library import failed", e)
+                nm.closeProgress { setContentText(applicationContext.getString(R.string.failed_to_import)) }
+                nm.waitForQueue()
+                return Result.failure(workDataOf(WORK_KEY_RESULT to e.localizedMessage))
+            }
+
+            val message = applicationContext.getString(R.string.import_summary, progress.imported, progress.skipped, progress.failed)
+            nm.closeProgress { setContentText(message) }
+            nm.waitForQueue()
+            return Result.success(Data.Builder().putAll(progress.toData()).putString(WORK_KEY_RESULT, message).build())
+        }
+    }
+
+    private fun LibraryImporter.Progress.toData() = workDataOf(
+        KEY_TOTAL to total,
+        KEY_IMPORTED to imported,
+        KEY_SKIPPED to skipped,
+        KEY_FAILED to failed
+    )
+}
@@ -0,0 +1,386 @@
+package io.github.gmathi.novellibrary.worker
+
+import android.content.Context
+import android.net.Uri
+import android.os.ParcelFileDescriptor
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import io.github.gmathi.novellibrary.database.DBHelper
+import io.github.gmathi.novellibrary.database.DBKeys
+import io.github.gmathi.novellibrary.database.createNovel
+import io.github.gmathi.novellibrary.database.createNovelSection
+import io.github.gmathi.novellibrary.database.runTransaction
+import io.github.gmathi.novellibrary.model.database.Novel
+import io.github.gmathi.novellibrary.util.Constants.COVERS_DIR
+import io.github.gmathi.novellibrary.util.Constants.DATABASES_DIR
+import io.github.gmathi.novellibrary.util.Constants.FILES_DIR
+import io.github.gmathi.novellibrary.util.Constants.SHARED_PREFS_DIR
+import io.github.gmathi.novellibrary.util.Constants.SIMPLE_NOVEL_BACKUP_FILE_NAME
+import io.github.gmathi.novellibrary.util.logging.Logs
+import io.github.gmathi.novellibrary.util.storage.ZipReader
+import java.io.BufferedInputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.util.zip.ZipInputStream
+
+/**
+ * Restores a backup archive for [RestoreWorker], writing each entry straight to where it belongs: nothing is extracted
+ * to the cache directory first, so a restore only needs the space of what it restores.
+ *
+ * When the archive can be read in random access, only the selected entries of its central directory are read, and the
+ * databases go first so that the novel list is added to the restored library. Otherwise the archive is read in order
+ * and the entries that weren't selected are skipped.
+ *
+ * The database files only replace the live ones once they are all read and the library database is known to be one this
+ * version of the app can open. The novel list is parsed as it's read and the novels are added in batches, one
+ * transaction per batch.
+ *
+ * @param baseDir The app data directory, entries are named after their path in it.
+ */
+internal class RestoreEngine(private val context: Context, private val dbHelper: DBHelper, private val baseDir: File) {
+
+    companion object {
+        private const val TAG = "RestoreEngine"
+        private const val BATCH_SIZE = 200
+
+        /**
+         * The novels of the novel list of the backup at [uri], in backup order, for the user to choose the ones to
+         * restore. Empty if the backup has no novel list.
+         */
+        fun readNovelList(context: Context, uri: Uri): List<BackupNovel> =
+            readEntry(context, uri, SIMPLE_NOVEL_BACKUP_FILE_NAME) { input ->
+                // Closed with the archive
+                val reader = JsonReader(InputStreamReader(input, Charsets.UTF_8))
+                val novels = ArrayList<BackupNovel>()
+                reader.beginObject()
+                while (reader.hasNext()) {
+                    if (reader.nextName() != "novels") {
+                        reader.skipValue()
+                        continue
+                    }
+                    reader.beginArray()
+                    while (reader.hasNext()) {
+                        val json = JsonParser.parseReader(reader).asJsonObject
+                        val url = json.get("url")?.takeUnless { it.isJsonNull }?.asString ?: continue
+                        val name = json.get("name")?.takeUnless { it.isJsonNull }?.asString ?: url
+                        novels.add(BackupNovel(name, url))
+                    }
+                    reader.endArray()
+                }
+                novels
+            } ?: emptyList()
+
+        /**
+         * Reads the entry [name] of the archive, from its central directory when it can be read in random access, or
+         * null if the archive has no such entry.
+         */
+        private fun <T> readEntry(context: Context, uri: Uri, name: String, read: (InputStream) -> T): T? {
+            val descriptor = try {
+                context.contentResolver.openFileDescriptor(uri, "r")
+            } catch (e: Exception) {
+                null
+            }
+            if (descriptor != null) {
+                ParcelFileDescriptor.AutoCloseInputStream(descriptor).use { stream ->
+                    val reader = ZipReader(stream.channel)
+                    val records = try {
+                        reader.records
+                    } catch (e: IOException) {
+                        null
+                    }
+                    if (records != null) return records.find { it.name == name }?.let { reader.open(it).use(read) }
+                }
+            }
+            ZipInputStream(BufferedInputStream(context.contentResolver.openInputStream(uri)!!)).use { zip ->
+                var entry = zip.nextEntry
+                while (entry != null) {
+                    if (entry.name == name) return read(zip)
+                    entry = zip.nextEntry
+                }
+            }
+            return null
+        }
+    }
+
+    class BackupNovel(val name: String, val url: String)
+
+    /**
+     * @param novelUrls When set, only these novels of the novel list are added to the library.
+     */
+    class Options(
+        val simpleText: Boolean,
+        val databases: Boolean,
+        val preferences: Boolean,
+        val files: Boolean,
+        val novelUrls: Set<String>? = null
+    )
+
+    enum class Stage { DATABASES, SIMPLE_TEXT, PREFERENCES, FILES }
+
+    private val gson = Gson()
+    private val metadataType = object : TypeToken<HashMap<String, String?>>() {}.type
+
+    /**
+     * The restored database files, written next to the live ones, by live file. They replace the live files together
+     * once the whole database stage is read and the library database checked.
+     */
+    private val restoredDatabases = LinkedHashMap<File, File>()
+
+    /**
+     * Whether the covers of the library were deleted: they are named after the novel ids, which a restored database
+     * gives to other novels.
+     */
+    private var coversCleared = false
+
+    fun restore(uri: Uri, options: Options, onStage: (Stage) -> Unit) {
+        var current: Stage? = null
+        fun enter(stage: Stage) {
+            if (current == Stage.DATABASES && stage != Stage.DATABASES) replaceDatabases()
+            if (stage != current) onStage(stage)
+            current = stage
+        }
+
+        try {
+            if (!restoreFromCentralDirectory(uri, options, ::enter)) restoreInOrder(uri, options, ::enter)
+            replaceDatabases()
+        } finally {
+            restoredDatabases.values.forEach { it.delete() }
+            restoredDatabases.clear()
+        }
+    }
+
+    /**
+     * Restores the selected entries in stage order, or returns false if the archive can't be read in random access.
+     */
+    private fun restoreFromCentralDirectory(uri: Uri, options: Options, enter: (Stage) -> Unit): Boolean {
+        val descriptor = try {
+            context.contentResolver.openFileDescriptor(uri, "r")
+        } catch (e: Exception) {
+            Logs.warning(TAG, "Unable to open $uri for random access", e)
+            null
+        } ?: return false
+        ParcelFileDescriptor.AutoCloseInputStream(descriptor).use { stream ->
+            val reader = ZipReader(stream.channel)
+            val records = try {
+                reader.records
+            } catch (e: IOException) {
+                Logs.warning(TAG, "Reading $uri in order, its central directory can't be read", e)
+                return false
+            }
+            records.mapNotNull { record -> stageOf(record.name, options)?.let { it to record } }
+                .sortedBy { it.first.ordinal }
+                .forEach { (stage, record) ->
+                    enter(stage)
+                    reader.open(record).use { restoreEntry(stage, record.name, it, options) }
+                }
+        }
+        return true
+    }
+
+    private fun restoreInOrder(uri: Uri, options: Options, enter: (Stage) -> Unit) {
+        ZipInputStream(BufferedInputStream(context.contentResolver.openInputStream(uri)!!)).use { zip ->
+            var entry = zip.nextEntry
+            while (entry != null) {
+                val stage = stageOf(entry.name, options)
+                if (stage != null) {
+                    enter(stage)
+                    restoreEntry(stage, entry.name, zip, options)
+                }
+                entry = zip.nextEntry
+            }
+        }
+    }
+
+    /**
+     * The stage [name] is restored in, or null if it isn't restored.
+     */
+    private fun stageOf(name: String, options: Options): Stage? = when {
+        name.endsWith("/") -> null
+        name == SIMPLE_NOVEL_BACKUP_FILE_NAME -> Stage.SIMPLE_TEXT.takeIf { options.simpleText }
+        // The shared memory index belongs to the database that was open when the backup was made
+        name.startsWith("$DATABASES_DIR/") -> Stage.DATABASES.takeIf { options.databases && !name.endsWith("-shm") }
+        name.startsWith("$SHARED_PREFS_DIR/") -> Stage.PREFERENCES.takeIf { options.preferences }
+        // The covers are named after the novel ids, they go with the databases
+        name.startsWith("$FILES_DIR/$COVERS_DIR/") -> Stage.FILES.takeIf { options.databases }
+        name.startsWith("$FILES_DIR/") -> Stage.FILES.takeIf { options.files }
+        else -> null
+    }
+
+    /**
+     * Restores one entry, reading [input] up to the end of the entry without closing it.
+     */
+    private fun restoreEntry(stage: Stage, name: String, input: InputStream, options: Options) {
+        if (stage == Stage.SIMPLE_TEXT) {
+            restoreSimpleText(input, options.novelUrls)
+            return
+        }
+
+        // Backups list the covers before the databases they go with
+        if (name.startsWith("$FILES_DIR/$COVERS_DIR/")) clearCovers()
+
+        val destination = File(baseDir, name)
+        if (!destination.canonicalPath.startsWith(baseDir.canonicalPath + File.separator)) {
+            Logs.warning(TAG, "Skipping $name, it is outside of the data directory")
+            return
+        }
+        destination.parentFile?.mkdirs()
+        // Written next to the destination and renamed, a failed restore doesn't leave half a file behind
+        val tmp = File(destination.parentFile, "${destination.name}.restoring")
+        var pending = false
+        try {
+            FileOutputStream(tmp).use { input.copyTo(it) }
+            if (stage == Stage.DATABASES) {
+                restoredDatabases[destination] = tmp
+                pending = true
+            } else if (!tmp.renameTo(destination)) {
+                throw IOException("Unable to replace $destination")
+            }
+        } finally {
+            if (!pending) tmp.delete()
+        }
+    }
+
+    /**
+     * Replaces the live database files with the restored ones, provided that the restored library database is one
+     * this version of the app can open: SQLiteOpenHelper refuses to downgrade a database from a newer version, older
+     * ones are upgraded when the database is next opened.
+     */
+    private fun replaceDatabases() {
+        if (restoredDatabases.isEmpty()) return
+        val library = restoredDatabases.entries.firstOrNull { it.key.name == DBKeys.DATABASE_NAME }?.value
+        if (library != null) {
+            val version = DBHelper.schemaVersion(library)
+            if (version == null || version > DBKeys.DATABASE_VERSION) {
+                Logs.error(TAG, "Not restoring the database: version $version, this app supports up to ${DBKeys.DATABASE_VERSION}")
+                throw IOException("Unsupported database version $version")
+            }
+        }
+
+        // The current write-ahead log must not be applied on top of the restored database.
+        dbHelper.closeForReplace()
+        restoredDatabases.forEach { (destination, tmp) ->
+            if (!tmp.renameTo(destination)) throw IOException("Unable to replace $destination")
+        }
+        restoredDatabases.clear()
+        if (library != null) clearCovers()
+    }
+
+    /**
+     * Deletes the covers of the library being replaced, once per restore and before any restored cover is written.
+     */
+    private fun clearCovers() {
+        if (coversCleared) return
+        coversCleared = true
+        File(baseDir, "$FILES_DIR/$COVERS_DIR").deleteRecursively()
+    }
+
+    /**
+     * Adds the novels and sections of the novel list to the library. Backups list the sections first; the novels of
+     * older backups, which list them last, are kept in memory until the sections are read.
+     */
+    private fun restoreSimpleText(input: InputStream, novelUrls: Set<String>?) {
+        // Not closed, that would close the archive
+        val reader = JsonReader(InputStreamReader(input, Charsets.UTF_8))
+        var sectionIds: Map<Long, Long>? = null
+        val pending = ArrayList<Novel>()
+        val batch = ArrayList<Novel>(BATCH_SIZE)
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "novelSections" -> {
+                    val ids = restoreSections(reader)
+                    sectionIds = ids
+                    pending.chunked(BATCH_SIZE).forEach { insertNovels(it, ids) }
+                    pending.clear()
+                }
+                "novels" -> {
+                    reader.beginArray()
+                    while (reader.hasNext()) {
+                        val novel = readNovel(JsonParser.parseReader(reader).asJsonObject) ?: continue
+                        if (novelUrls != null && novel.url !in novelUrls) continue
+                        if (sectionIds == null) {
+                            pending.add(novel)
+                            continue
+                        }
+                        batch.add(novel)
+                        if (batch.size == BATCH_SIZE) {
+                            insertNovels(batch, sectionIds)
+                            batch.clear()
+                        }
+                    }
+                    reader.endArray()
+                    insertNovels(batch, sectionIds ?: emptyMap())
+                    batch.clear()
+                }
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        if (pending.isNotEmpty()) insertNovels(pending, emptyMap())
+    }
+
+    /**
+     * Adds the sections and returns their ids in this library, by their id in the backup.
+     */
+    private fun restoreSections(reader: JsonReader): Map<Long, Long> {
+        val sectionIds = HashMap<Long, Long>()
+        reader.beginArray()
+        dbHelper.writableDatabase.runTransaction {
+            while (reader.hasNext()) {
+                val section = JsonParser.parseReader(reader).asJsonObject
+                val name = section.string("name") ?: continue
+                val id = section.get("id")?.takeUnless { it.isJsonNull }?.asLong ?: continue
+                sectionIds[id] = dbHelper.createNovelSection(name)
+            }
+        }
+        reader.endArray()
+        return sectionIds
+    }
+
+    /**
+     * @param sectionIds The section ids in this library, by section id in the backup.
+     */
+    private fun insertNovels(novels: List<Novel>, sectionIds: Map<Long, Long>) {
+        if (novels.isEmpty()) return
+        dbHelper.writableDatabase.runTransaction {
+            novels.forEach { novel ->
+                novel.novelSectionId = sectionIds[novel.novelSectionId] ?: -1L
+                dbHelper.createNovel(novel)
+            }
+        }
+    }
+
+    private fun readNovel(json: JsonObject): Novel? {
+        val url = json.string("url") ?: return null
+        val sourceId = try {
+            json.get("sourceId").asLong
+        } catch (e: Exception) {
+            dbHelper.getSourceId(url)
+        }
+        val novel = Novel(json.string("name"), url, sourceId)
+        json.string("externalNovelId")?.let { novel.externalNovelId = it }
+        json.string("imageUrl")?.let { novel.imageUrl = it }
+        json.string("currentlyReading")?.let { novel.currentChapterUrl = it }
+        val metadata = json.get("metaData") ?: json.get("metadata")
+        try {
+            novel.metadata = when {
+                metadata == null || metadata.isJsonNull -> HashMap()
+                metadata.isJsonObject -> gson.fromJson(metadata, metadataType)
+                else -> gson.fromJson(metadata.asString, metadataType)
+            } ?: HashMap()
+        } catch (e: Exception) {
+            Logs.warning(TAG, "Ignoring unreadable metadata of $url", e)
+        }
+        novel.novelSectionId = json.get("novelSectionId")?.takeUnless { it.isJsonNull }?.asLong ?: -1L
+        return novel
+    }
+
+    private fun JsonObject.string(name: String): String? = get(name)?.takeUnless { it.isJsonNull }?.asString
+}
@@ -14,29 +14,21 @@ import androidx.work.CoroutineWorker
 import androidx.work.ForegroundInfo
 import androidx.work.WorkerParameters
 import androidx.work.workDataOf
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
 import io.github.gmathi.novellibrary.R
 import io.github.gmathi.novellibrary.database.DBHelper
-import io.github.gmathi.novellibrary.database.createNovel
-import io.github.gmathi.novellibrary.database.createNovelSection
-import io.github.gmathi.novellibrary.model.database.Novel
-import io.github.gmathi.novellibrary.service.tts.TTSNotificationBuilder
+import io.github.gmathi.novellibrary.service.cover.CoverStore
 import io.github.gmathi.novellibrary.util.Constants
 import io.github.gmathi.novellibrary.util.Constants.DATABASES_DIR
 import io.github.gmathi.novellibrary.util.Constants.FILES_DIR
 import io.github.gmathi.novellibrary.util.Constants.SHARED_PREFS_DIR
-import io.github.gmathi.novellibrary.util.Constants.SIMPLE_NOVEL_BACKUP_FILE_NAME
 import io.github.gmathi.novellibrary.util.Constants.WORK_KEY_RESULT
 import io.github.gmathi.novellibrary.util.Utils
-import io.github.gmathi.novellibrary.util.Utils.recursiveCopy
 import io.github.gmathi.novellibrary.util.system.NotificationReceiver
 import io.github.gmathi.novellibrary.util.view.ProgressNotificationManager
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
-import org.json.JSONObject
 import uy.kohesive.injekt.injectLazy
-import java.io.*
+import java.io.File
 
 internal class RestoreWorker(context: Context, workerParameters: WorkerParameters) :
     CoroutineWorker(context, workerParameters) {
@@ -48,18 +40,29 @@ internal class RestoreWorker(context: Context, workerParameters: WorkerParameter
         internal const val KEY_SHOULD_RESTORE_DATA_BASE = "shouldRestoreDatabase"
         internal const val KEY_SHOULD_RESTORE_PREFERENCES = "shouldRestorePreferences"
         internal const val KEY_SHOULD_RESTORE_FILES = "shouldRestoreFiles"
+        internal const val KEY_NOVEL_URLS_FILE = "novelUrlsFile"
 
         const val UNIQUE_WORK_NAME = "restore_work"
+
+        private const val NOVEL_URLS_DIR = "restore"
+
+        /**
+         * Writes the URLs of the novels to restore to a file, to pass as the `novelUrlsFile` of
+         * [oneTimeRestoreWorkRequest]: work input data is limited to 10 KB, which a few hundred URLs already go over.
+         * The worker deletes the file once it's done.
+         */
+        fun writeNovelUrls(context: Context, novelUrls: Collection<String>): File {
+            val dir = File(context.noBackupFilesDir, NOVEL_URLS_DIR).apply { mkdirs() }
+            return File.createTempFile("novels", ".txt", dir).apply { writeText(novelUrls.joinToString("\n")) }
+        }
     }
 
     private val dbHelper: DBHelper by injectLazy()
+    private val coverStore: CoverStore by injectLazy()
 
     private val contentResolver
         get() = applicationContext.contentResolver
 
-    private val cacheDir
-        get() = applicationContext.cacheDir
-
     // region context wrapper (to improve readability)
     private fun getString(@StringRes resId: Int, vararg formatArgs: Any): String =
         if (formatArgs.isEmpty())
@@ -109,6 +112,7 @@ internal class RestoreWorker(context: Context, workerParameters: WorkerParameter
             val shouldRestorePreferences =
                 inputData.getBoolean(KEY_SHOULD_RESTORE_PREFERENCES, true)
             val shouldRestoreFiles = inputData.getBoolean(KEY_SHOULD_RESTORE_FILES, true)
+            val novelUrlsFile = inputData.getString(KEY_NOVEL_URLS_FILE)?.let { File(it) }
 
             val dataDir = Environment.getDataDirectory()
             val baseDir = File(dataDir, Constants.DATA_SUBFOLDER)
@@ -120,93 +124,24 @@ internal class RestoreWorker(context: Context, workerParameters: WorkerParameter
             try {
                 val uri: Uri = Uri.parse(inputData.getString(KEY_URI))
 
-                nm.newIndeterminateProgress { setContentText(getString(R.string.eztracting_zip)) }
-                // TODO: if possible extract selectively, directly to the data directory without using the cache directory
-                Utils.unzip(contentResolver, uri, cacheDir)
-
-                val backupDBsDir = File(cacheDir, DATABASES_DIR)
-                val backupFilesDir = File(cacheDir, FILES_DIR)
-                val backupSharedPrefsDir = File(cacheDir, SHARED_PREFS_DIR)
-
-                nm.newProgress(16) { setContentText(getString(R.string.simple_text_restore)) }
-
-                // Restore From Text File
-                val simpleTextFile = File(cacheDir, SIMPLE_NOVEL_BACKUP_FILE_NAME)
-                if (shouldSimpleTextRestore && simpleTextFile.exists() && simpleTextFile.canRead()) {
-                    val reader = BufferedReader(InputStreamReader(FileInputStream(simpleTextFile)))
-                    val jsonString = reader.readLine()
-                    val jsonObject = JSONObject(jsonString)
-                    nm.updateProgress(1)
-                    val novelsArray = jsonObject.getJSONArray("novels")
-                    val novelSectionsArray = jsonObject.getJSONArray("novelSections")
-                    val oldIdMap = HashMap<Long, String>()
-                    val newIdMap = HashMap<String, Long>()
-                    nm.updateProgress(2)
-                    for (i in 0 until novelSectionsArray.length()) {
-                        val novelSection = novelSectionsArray.getJSONObject(i)
-                        val name = novelSection.getString("name")
-                        oldIdMap[novelSection.getLong("id")] = name
-                        newIdMap[name] = dbHelper.createNovelSection(novelSection.getString("name"))
-                    }
-                    nm.updateProgress(3)
-                    for (i in 0 until novelsArray.length()) {
-                        val novelJson = novelsArray.getJSONObject(i)
-                        val novelUrl = novelJson.getString("url")
-                        val sourceId = try {
-                            novelJson.getLong("sourceId")
-                        } catch (e: Exception) {
-                            dbHelper.getSourceId(novelUrl)
-                        }
-                        val novel = Novel(
-                            name = novelJson.getString("name"),
-                            url = novelUrl,
-                            sourceId = sourceId
-                        )
-                        if (novelJson.has("externalNovelId"))
-                            novel.externalNovelId = novelJson.getString("externalNovelId")
-                        if (novelJson.has("imageUrl"))
-                            novel.imageUrl = novelJson.getString("imageUrl")
-                        if (novelJson.has("currentlyReading"))
-                            novel.currentChapterUrl = novelJson.getString("currentlyReading")
-                        if (novelJson.has("metadata"))
-                            novel.metadata = Gson().fromJson(
-                                novelJson.getString("metadata"),
-                                object : TypeToken<HashMap<String, String?>>() {}.type
-                            ) ?: HashMap()
-                        novel.novelSectionId =
-                            newIdMap[oldIdMap[novelJson.getLong("novelSectionId")]]
-                                ?: -1L
-                        dbHelper.createNovel(novel)
+                nm.newProgress(16) { setContentText(getString(R.string.eztracting_zip)) }
+                val options = RestoreEngine.Options(
+                    simpleText = shouldSimpleTextRestore,
+                    databases = shouldRestoreDatabase,
+                    preferences = shouldRestorePreferences,
+                    files = shouldRestoreFiles,
+                    // A missing file fails the restore rather than restoring every novel
+                    novelUrls = novelUrlsFile?.readLines()?.filter { it.isNotEmpty() }?.toSet()
+                )
+                RestoreEngine(applicationContext, dbHelper, baseDir).restore(uri, options) { stage ->
+                    when (stage) {
+                        RestoreEngine.Stage.DATABASES -> nm.updateProgress(4) { setContentText(getString(R.string.title_library)) }
+                        RestoreEngine.Stage.SIMPLE_TEXT -> nm.updateProgress(8) { setContentText(getString(R.string.simple_text_restore)) }
+                        RestoreEngine.Stage.PREFERENCES -> nm.updateProgress(10) { setContentText(getString(R.string.preferences)) }
+                        RestoreEngine.Stage.FILES -> nm.updateProgress(12) { setContentText(getString(R.string.downloaded_files)) }
                     }
                 }
-                nm.updateProgress(4)
-
-                //Restore Databases
-                if (shouldRestoreDatabase && backupDBsDir.exists() && backupDBsDir.isDirectory) {
-                    if (!currentDBsDir.exists()) currentDBsDir.mkdir()
-                    nm.updateProgress(6) { setContentText(getString(R.string.title_library)) }
-                    backupDBsDir.listFiles()?.forEach {
-                        Utils.copyFile(it, File(currentDBsDir, it.name))
-                    }
-                }
-                nm.updateProgress(8)
-
-                //Restore Shared Preferences
-                if (shouldRestorePreferences && backupSharedPrefsDir.exists() && backupSharedPrefsDir.isDirectory) {
-                    if (!currentSharedPrefsDir.exists()) currentSharedPrefsDir.mkdir()
-                    nm.updateProgress(10) { setContentText(getString(R.string.preferences)) }
-                    backupSharedPrefsDir.listFiles()?.forEach {
-                        Utils.copyFile(it, File(currentSharedPrefsDir, it.name))
-                    }
-                }
-                nm.updateProgress(12)
-
-                //Restore Files
-                if (shouldRestoreFiles && backupFilesDir.exists() && backupFilesDir.isDirectory) {
-                    if (!currentFilesDir.exists()) currentFilesDir.mkdir()
-                    nm.updateProgress(14) { setContentText(getString(R.string.downloaded_files)) }
-                    recursiveCopy(backupFilesDir, currentFilesDir)
-                }
+                coverStore.invalidate()
                 nm.updateProgress(16)
 
                 message = getString(R.string.restore_success)
@@ -230,6 +165,8 @@ internal class RestoreWorker(context: Context, workerParameters: WorkerParameter
 
                 nm.closeProgress { setContentText(message) }
                 result = Result.failure(workDataOf(WORK_KEY_RESULT to message))
+            } finally {
+                novelUrlsFile?.delete()
             }
 
             if (!::result.isInitialized) { // Just in case
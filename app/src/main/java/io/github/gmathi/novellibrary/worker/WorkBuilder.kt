@@ -4,11 +4,13 @@ import android.net.Uri
 import androidx.work.*
 import io.github.gmathi.novellibrary.model.preference.DataCenter
 import uy.kohesive.injekt.injectLazy
+import java.io.File
 import java.util.concurrent.TimeUnit
 
 const val ONE_TIME_BACKUP_WORK_TAG = "backupOnce"
 const val PERIODIC_BACKUP_WORK_TAG = "backupOnce"
 const val ONE_TIME_RESTORE_WORK_TAG = "restoreOnce"
+const val LIBRARY_IMPORT_WORK_TAG = "libraryImport"
 
 fun oneTimeBackupWorkRequest(
     uri: Uri,
@@ -39,7 +41,11 @@ fun oneTimeBackupWorkRequest(
 fun periodicBackupWorkRequest(backupFrequency: Int): PeriodicWorkRequest? {
     val dataCenter: DataCenter by injectLazy()
     val array = dataCenter.backupData ?: return null
-    val data = Data.fromByteArray(array)
+    // Scheduled backups only add what changed since the previous one to the archive
+    val data = Data.Builder()
+        .putAll(Data.fromByteArray(array))
+        .putBoolean(BackupWorker.KEY_INCREMENTAL, true)
+        .build()
 
     var delay = backupFrequency - TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis() - dataCenter.lastBackup)
     if (delay < 0) delay = 0
@@ -56,7 +62,8 @@ fun oneTimeRestoreWorkRequest(
     shouldSimpleTextRestore: Boolean = true,
     shouldRestoreDatabase: Boolean = true,
     shouldRestorePreferences: Boolean = true,
-    shouldRestoreFiles: Boolean = true
+    shouldRestoreFiles: Boolean = true,
+    novelUrlsFile: File? = null
 ): OneTimeWorkRequest {
 
     val data =
@@ -65,11 +72,23 @@ fun oneTimeRestoreWorkRequest(
             RestoreWorker.KEY_SHOULD_RESTORE_SIMPLE_TEX to shouldSimpleTextRestore,
             RestoreWorker.KEY_SHOULD_RESTORE_DATA_BASE to shouldRestoreDatabase,
             RestoreWorker.KEY_SHOULD_RESTORE_PREFERENCES to shouldRestorePreferences,
-            RestoreWorker.KEY_SHOULD_RESTORE_FILES to shouldRestoreFiles
+            RestoreWorker.KEY_SHOULD_RESTORE_FILES to shouldRestoreFiles,
+            RestoreWorker.KEY_NOVEL_URLS_FILE to novelUrlsFile?.path
         )
 
     return OneTimeWorkRequestBuilder<RestoreWorker>()
         .addTag(ONE_TIME_RESTORE_WORK_TAG)
         .setInputData(data)
         .build()
-}
\ No newline at end of file
+}
+
+/**
+ * Imports the novels of the import journal. Enqueue it as [LibraryImportWorker.UNIQUE_WORK_NAME] with
+ * [ExistingWorkPolicy.APPEND_OR_REPLACE], so that novels added while an import runs are picked up right after it.
+ */
+fun libraryImportWorkRequest(): OneTimeWorkRequest {
+    return OneTimeWorkRequestBuilder<LibraryImportWorker>()
+        .addTag(LIBRARY_IMPORT_WORK_TAG)
+        .setConstraints(Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+        .build()
+}
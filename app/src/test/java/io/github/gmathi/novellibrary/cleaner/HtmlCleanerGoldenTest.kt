@@ -0,0 +1,138 @@
+package io.github.gmathi.novellibrary.cleaner
+
+import android.app.Application
+import io.github.gmathi.novellibrary.model.preference.DataCenter
+import io.github.gmathi.novellibrary.util.lang.TTSTextExtractor
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.ParameterizedRobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import uy.kohesive.injekt.Injekt
+import uy.kohesive.injekt.api.addSingleton
+import java.io.File
+import kotlin.reflect.KClass
+
+/**
+ * Runs every [HtmlCleaner] over a stored page of its site the way the reader does, and compares the cleaned DOM and the
+ * text TTS reads from it with the golden files next to the page in `cleaner/`.
+ *
+ * After an intended change to a cleaner, write the golden files again and review their diff:
+ * `./gradlew :app:testNormalDebugUnitTest --tests '*HtmlCleanerGoldenTest' -PupdateGoldens=true`
+ */
+@RunWith(ParameterizedRobolectricTestRunner::class)
+@Config(sdk = [34], application = Application::class)
+class HtmlCleanerGoldenTest(private val page: Page) {
+
+    class Page(val name: String, val url: String, val cleaner: KClass<out HtmlCleaner>) {
+        override fun toString() = name
+    }
+
+    companion object {
+        private const val GOLDEN_DIR = "src/test/resources/cleaner"
+
+        // Cleaning one of these pages takes a few milliseconds once warmed up, so only a cleaner that got many times
+        // slower goes over the budget.
+        private const val CLEAN_BUDGET_MILLIS = 50L
+        private const val WARMUP_RUNS = 10
+        private const val TIMED_RUNS = 7
+
+        private val updateGoldens = System.getProperty("updateGoldens").toBoolean()
+
+        @JvmStatic
+        @ParameterizedRobolectricTestRunner.Parameters(name = "{0}")
+        fun pages() = listOf(
+            Page("wattpad", "https://wattpad.com/1234-the-ledger-chapter-3", WattPadCleaner::class),
+            Page("wuxiaworld", "https://wuxiaworld.com/novel/martial-ledger/chapter-812", WuxiaWorldCleaner::class),
+            Page("qidian", "https://webnovel.com/book/7141795406000005/21895371038980697", QidianCleaner::class),
+            Page("qidian_publisher", "https://webnovel.com/book/7141795406000005/21895371038980698", QidianCleaner::class),
+            Page("google_docs", "https://docs.google.com/document/d/1ledger/pub", GoogleDocsCleaner::class),
+            Page("blue_silver", "https://bluesilvertranslations.wordpress.com/2019/01/01/chapter-5/", BlueSilverTranslationsCleaner::class),
+            Page("baka_tsuki", "https://baka-tsuki.org/project/index.php?title=The_Ledger:Volume1_Chapter1", BakaTsukiCleaner::class),
+            Page("scribblehub", "https://scribblehub.com/read/1-reborn/chapter/33/", ScribbleHubCleaner::class),
+            Page("neovel", "https://neoread.neovel.io/read/1/9", NeovelCleaner::class),
+            Page("chrysanthemumgarden", "https://chrysanthemumgarden.com/novel-tl/ledger/5/", ChrysanthemumgardenCleaner::class),
+            Page("cloudflare", "https://translatorsite.com/novel/chapter-12/", CloudFlareDDoSTagCleaner::class),
+            Page("generic_wordpress", "https://translatorsite.com/novel/chapter-12/", GenericSelectorQueryCleaner::class),
+            Page("generic_legacy", "https://novelsite.example.com/book/ashes/chapter-3", GenericSelectorQueryCleaner::class),
+            Page("fallback", "https://smalltranslations.example.com/chapter-7/", HtmlCleaner::class),
+        ).map { arrayOf<Any>(it) }
+    }
+
+    @Before
+    fun setUp() {
+        val dataCenter = DataCenter(RuntimeEnvironment.getApplication())
+        // The reader settings the cleaners look at, pinned so the golden files don't change with their defaults
+        dataCenter.enableDirectionalLinks = false
+        dataCenter.showChapterComments = false
+        dataCenter.linkifyText = false
+        dataCenter.keepTextColor = false
+        dataCenter.userSpecifiedSelectorQueries = ""
+        dataCenter.htmlCleanerSelectorQueries = emptyList()
+        Injekt.addSingleton(dataCenter)
+    }
+
+    @Test
+    fun dispatchesToItsCleaner() {
+        assertEquals(page.cleaner, HtmlCleaner.getInstance(parse())::class)
+    }
+
+    @Test
+    fun matchesGoldenDom() {
+        assertGolden("golden.html", normalizedHtml(clean(parse())))
+    }
+
+    @Test
+    fun matchesGoldenText() {
+        assertGolden("golden.txt", TTSTextExtractor().extract(clean(parse()), false, emptyList()) + "\n")
+    }
+
+    @Test
+    fun cleansWithinBudget() {
+        repeat(WARMUP_RUNS) { clean(parse()) }
+        val millis = List(TIMED_RUNS) {
+            val doc = parse()
+            val start = System.nanoTime()
+            clean(doc)
+            (System.nanoTime() - start) / 1_000_000.0
+        }.sorted()[TIMED_RUNS / 2]
+        assertTrue("${page.name} took ${millis}ms to clean, the budget is ${CLEAN_BUDGET_MILLIS}ms", millis <= CLEAN_BUDGET_MILLIS)
+    }
+
+    private fun parse(): Document = Jsoup.parse(resource("${page.name}.html")!!, page.url)
+
+    /**
+     * What the reader does to a page before showing it, leaving out the theme.
+     */
+    private fun clean(doc: Document): Document {
+        val cleaner = HtmlCleaner.getInstance(doc)
+        cleaner.removeJS(doc)
+        cleaner.additionalProcessing(doc)
+        cleaner.setProperHrefUrls(doc)
+        return doc
+    }
+
+    private fun normalizedHtml(doc: Document): String {
+        doc.outputSettings().prettyPrint(true).indentAmount(1)
+        return doc.outerHtml().lines().map { it.trimEnd() }.filter { it.isNotEmpty() }.joinToString("\n", postfix = "\n")
+    }
+
+    private fun assertGolden(suffix: String, actual: String) {
+        val name = "${page.name}.$suffix"
+        if (updateGoldens) {
+            File(GOLDEN_DIR, name).writeText(actual)
+            return
+        }
+        val golden = resource(name)
+        assertNotNull("No golden file $name, write it with -PupdateGoldens=true", golden)
+        assertEquals(name, golden, actual)
+    }
+
+    private fun resource(name: String): String? = javaClass.classLoader!!.getResource("cleaner/$name")?.readText()
+}
@@ -0,0 +1,41 @@
+package io.github.gmathi.novellibrary.database
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class ChapterIndexTest {
+
+    @Test
+    fun mapsPositionsToOrderIdsAndBack() {
+        val index = ChapterIndex(1L, null, longArrayOf(0, 2, 5, 9, 10))
+
+        assertEquals(5, index.size)
+        assertEquals(9L, index.orderIdAt(3))
+        assertNull(index.orderIdAt(5))
+        assertEquals(0, index.positionOf(0))
+        assertEquals(3, index.positionOf(9))
+        assertEquals(4, index.positionOf(10))
+        assertEquals(-1, index.positionOf(3))
+        assertEquals(-1, index.positionOf(11))
+    }
+
+    @Test
+    fun duplicateOrderIdsResolveToFirstPositionAndRank() {
+        val index = ChapterIndex(1L, null, longArrayOf(0, 1, 1, 1, 2))
+
+        assertEquals(1, index.positionOf(1))
+        assertEquals(0, index.rankAt(1))
+        assertEquals(2, index.rankAt(3))
+        assertEquals(0, index.rankAt(4))
+    }
+
+    @Test
+    fun emptyIndex() {
+        val index = ChapterIndex(1L, "source", LongArray(0))
+
+        assertEquals(0, index.size)
+        assertNull(index.orderIdAt(0))
+        assertEquals(-1, index.positionOf(0))
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.gmathi.novellibrary.model.preference
+
+import android.content.SharedPreferences
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.yield
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PreferenceStoreTest {
+
+    private val prefs = FakeSharedPreferences()
+    private val store = PreferenceStore(prefs)
+
+    @Test
+    fun decodesAValueOnce() {
+        var decodes = 0
+        val preference = store.custom("ids", emptyList<Int>(), {
+            decodes++
+            getString("ids", null)?.split(',')?.map { it.toInt() } ?: emptyList()
+        }, { putString("ids", it.joinToString(",")) })
+        prefs.edit().putString("ids", "1,2,3").apply()
+
+        repeat(10) { assertEquals(listOf(1, 2, 3), preference.get()) }
+
+        assertEquals(1, decodes)
+    }
+
+    @Test
+    fun decodesJsonValuesOnce() {
+        val preference = store.json<List<String>>("history", emptyList())
+        prefs.edit().putString("history", "[\"a\",\"b\"]").apply()
+
+        assertEquals(listOf("a", "b"), preference.get())
+        assertSame(preference.get(), preference.get())
+    }
+
+    @Test
+    fun writesAreReadBackWithoutDecoding() {
+        val preference = store.json<List<String>>("history", emptyList())
+        val history = listOf("a")
+
+        preference.set(history)
+
+        assertEquals("[\"a\"]", prefs.getString("history", null))
+        assertSame(history, preference.get())
+    }
+
+    @Test
+    fun changesMadeOutsideTheStoreAreRead() {
+        val preference = store.int("size", 16)
+        assertEquals(16, preference.get())
+
+        prefs.edit().putInt("size", 20).apply()
+        assertEquals(20, preference.get())
+
+        prefs.edit().clear().apply()
+        assertEquals(16, preference.get())
+        assertFalse(preference.isSet())
+    }
+
+    @Test
+    fun editsWriteAllTheValuesAtOnce() {
+        val names = store.json<List<String>>("names", emptyList())
+        val count = store.int("count", 0)
+        val flag = store.boolean("flag", true)
+        flag.set(false)
+        var applies = 0
+        prefs.onApply = { applies++ }
+
+        store.edit {
+            this[names] = listOf("a", "b")
+            this[count] = 2
+            remove(flag)
+        }
+
+        assertEquals(1, applies)
+        assertEquals(listOf("a", "b"), names.get())
+        assertEquals(2, prefs.getInt("count", 0))
+        assertTrue(flag.get())
+        assertFalse(flag.isSet())
+    }
+
+    @Test
+    fun delegatesToThePreference() {
+        val holder = object {
+            var size: Int by store.int("size", 16)
+        }
+
+        holder.size = 18
+
+        assertEquals(18, holder.size)
+        assertEquals(18, prefs.getInt("size", 0))
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun aKeyIsDefinedOnce() {
+        store.boolean("flag", true)
+        store.boolean("flag", false)
+    }
+
+    @Test
+    fun flowsEmitTheValueThenItsChanges() = runBlocking {
+        val preference = store.string("theme", "light")
+        val other = store.string("other", "")
+
+        val values = launch {
+            assertEquals(listOf("light", "dark", "light"), preference.asFlow().take(3).toList())
+        }
+        yield()
+        preference.set("dark")
+        yield()
+        other.set("ignored")
+        preference.set("dark")
+        yield()
+        preference.set("light")
+        values.join()
+    }
+
+    /**
+     * In memory preferences, notifying their listeners as soon as the changes are applied.
+     */
+    private class FakeSharedPreferences : SharedPreferences {
+
+        private val values = HashMap<String, Any?>()
+        private val listeners = ArrayList<SharedPreferences.OnSharedPreferenceChangeListener>()
+
+        var onApply: () -> Unit = {}
+
+        override fun getAll(): Map<String, *> = HashMap(values)
+        override fun getString(key: String, defValue: String?) = values[key] as String? ?: defValue
+        @Suppress("UNCHECKED_CAST")
+        override fun getStringSet(key: String, defValues: Set<String>?) = values[key] as Set<String>? ?: defValues
+        override fun getInt(key: String, defValue: Int) = values[key] as Int? ?: defValue
+        override fun getLong(key: String, defValue: Long) = values[key] as Long? ?: defValue
+        override fun getFloat(key: String, defValue: Float) = values[key] as Float? ?: defValue
+        override fun getBoolean(key: String, defValue: Boolean) = values[key] as Boolean? ?: defValue
+        override fun contains(key: String) = values.containsKey(key)
+        override fun edit(): SharedPreferences.Editor = Editor()
+
+        override fun registerOnSharedPreferenceChangeListener(listener: SharedPreferences.OnSharedPreferenceChangeListener) {
+            listeners.add(listener)
+        }
+
+        override fun unregisterOnSharedPreferenceChangeListener(listener: SharedPreferences.OnSharedPreferenceChangeListener) {
+            listeners.remove(listener)
+        }
+
+        private inner class Editor : SharedPreferences.Editor {
+
+            private val changes = HashMap<String, Any?>()
+            private var clear = false
+
+            override fun putString(key: String, value: String?) = apply { changes[key] = value }
+            override fun putStringSet(key: String, values: Set<String>?) = apply { changes[key] = values }
+            override fun putInt(key: String, value: Int) = apply { changes[key] = value }
+            override fun putLong(key: String, value: Long) = apply { changes[key] = value }
+            override fun putFloat(key: String, value: Float) = apply { changes[key] = value }
+            override fun putBoolean(key: String, value: Boolean) = apply { changes[key] = value }
+            override fun remove(key: String) = apply { changes[key] = null }
+            override fun clear() = apply { clear = true }
+
+            override fun commit(): Boolean {
+                if (clear) values.clear()
+                changes.forEach { (key, value) -> if (value == null) values.remove(key) else values[key] = value }
+                onApply()
+                if (clear) listeners.forEach { it.onSharedPreferenceChanged(this@FakeSharedPreferences, null) }
+                changes.keys.forEach { key -> listeners.forEach { it.onSharedPreferenceChanged(this@FakeSharedPreferences, key) } }
+                return true
+            }
+
+            override fun apply() {
+                commit()
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.gmathi.novellibrary.service.ai_tts
+
+import kotlinx.coroutines.runBlocking
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.security.MessageDigest
+import java.util.concurrent.CopyOnWriteArrayList
+import kotlin.random.Random
+
+class AiTtsModelDownloaderTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val server = MockWebServer()
+    private val downloader = AiTtsModelDownloader(OkHttpClient(), maxAttempts = 1, progressIntervalMillis = 0L)
+
+    private val model = Random(1).nextBytes(300_000)
+    private val tokens = "a 0\nb 1\n".toByteArray()
+    private val requests = CopyOnWriteArrayList<RecordedRequest>()
+
+    @Before
+    fun setUp() {
+        server.dispatcher = RangeDispatcher(mapOf("/model.onnx" to model, "/tokens.txt" to tokens))
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun downloadsAllFilesAndVerifiesChecksum() = runBlocking {
+        val dir = folder.newFolder()
+        val progress = CopyOnWriteArrayList<Float>()
+
+        downloader.download(specs(dir, md5(model)), onProgress = { progress.add(it) })
+
+        assertArrayEquals(model, File(dir, "model.onnx").readBytes())
+        assertArrayEquals(tokens, File(dir, "tokens.txt").readBytes())
+        assertFalse(File(dir, "model.onnx.part").exists())
+        assertEquals(1f, progress.last())
+    }
+
+    @Test
+    fun resumesFromPartFile() = runBlocking {
+        val dir = folder.newFolder()
+        File(dir, "model.onnx.part").writeBytes(model.copyOf(120_000))
+
+        downloader.download(specs(dir, md5(model)))
+
+        assertArrayEquals(model, File(dir, "model.onnx").readBytes())
+        val modelRequest = requests.single { it.path == "/model.onnx" }
+        assertEquals("bytes=120000-", modelRequest.getHeader("Range"))
+    }
+
+    @Test
+    fun restartsWhenServerIgnoresRange() = runBlocking {
+        server.dispatcher = RangeDispatcher(mapOf("/model.onnx" to model, "/tokens.txt" to tokens), honourRange = false)
+        val dir = folder.newFolder()
+        File(dir, "model.onnx.part").writeBytes(ByteArray(50_000))
+
+        downloader.download(specs(dir, md5(model)))
+
+        assertArrayEquals(model, File(dir, "model.onnx").readBytes())
+    }
+
+    @Test
+    fun completePartFileIsFinishedWithoutDownloading() = runBlocking {
+        val dir = folder.newFolder()
+        File(dir, "model.onnx.part").writeBytes(model)
+
+        downloader.download(specs(dir, md5(model)))
+
+        assertArrayEquals(model, File(dir, "model.onnx").readBytes())
+    }
+
+    @Test
+    fun skipsFilesAlreadyInPlace() = runBlocking {
+        val dir = folder.newFolder()
+        File(dir, "model.onnx").writeBytes(model)
+
+        downloader.download(specs(dir, md5(model)))
+
+        assertNull(requests.firstOrNull { it.path == "/model.onnx" })
+        assertTrue(File(dir, "tokens.txt").exists())
+    }
+
+    @Test
+    fun checksumMismatchDiscardsDownload() = runBlocking {
+        val dir = folder.newFolder()
+        try {
+            downloader.download(specs(dir, "00000000000000000000000000000000"))
+            fail("Expected a checksum mismatch")
+        } catch (e: AiTtsModelDownloader.ChecksumMismatchException) {
+            // expected
+        }
+        assertFalse(File(dir, "model.onnx").exists())
+        assertFalse(File(dir, "model.onnx.part").exists())
+    }
+
+    private fun specs(dir: File, modelMd5: String) = listOf(
+        AiTtsModelDownloader.FileSpec(server.url("/model.onnx").toString(), File(dir, "model.onnx"), modelMd5),
+        AiTtsModelDownloader.FileSpec(server.url("/tokens.txt").toString(), File(dir, "tokens.txt")),
+    )
+
+    private fun md5(bytes: ByteArray): String =
+        MessageDigest.getInstance("MD5").digest(bytes).joinToString("") { "%02x".format(it) }
+
+    private inner class RangeDispatcher(
+        private val files: Map<String, ByteArray>,
+        private val honourRange: Boolean = true
+    ) : Dispatcher() {
+        override fun dispatch(request: RecordedRequest): MockResponse {
+            requests.add(request)
+            val bytes = files[request.path] ?: return MockResponse().setResponseCode(404)
+            val range = request.getHeader("Range")
+            if (!honourRange || range == null) {
+                return MockResponse().setBody(Buffer().write(bytes))
+            }
+            val start = range.removePrefix("bytes=").removeSuffix("-").toInt()
+            if (start >= bytes.size) {
+                return MockResponse().setResponseCode(416).setHeader("Content-Range", "bytes */${bytes.size}")
+            }
+            return MockResponse().setResponseCode(206)
+                .setHeader("Content-Range", "bytes $start-${bytes.size - 1}/${bytes.size}")
+                .setBody(Buffer().write(bytes, start, bytes.size - start))
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.gmathi.novellibrary.service.ai_tts
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class AiTtsSessionPoolTest {
+
+    private val released = mutableListOf<String>()
+    private val pool = AiTtsSessionPool<String> { _, model -> released.add(model) }
+
+    private fun put(key: String, use: Boolean = false, bytes: Long = 1L) =
+        pool.put(key, key, "model-$key", bytes, use, budgetBytes = 100L, maxSessions = 2)
+
+    @Test
+    fun keepsTheModelInUseWhenTrimming() {
+        put("a", use = true)
+        put("b")
+        put("c")
+
+        assertEquals(listOf("model-b"), released)
+        assertTrue("a" in pool)
+        assertTrue("c" in pool)
+    }
+
+    @Test
+    fun evictingAnUnusedVoiceReleasesIt() {
+        put("a", use = true)
+        put("b")
+
+        pool.evictVoice("b")
+
+        assertEquals(listOf("model-b"), released)
+        assertFalse("b" in pool)
+    }
+
+    @Test
+    fun evictingTheVoiceInUseReleasesItOnceUnused() {
+        put("a", use = true)
+
+        pool.evictVoice("a")
+
+        assertFalse("a" in pool)
+        assertTrue(released.isEmpty())
+
+        pool.unuse()
+
+        assertEquals(listOf("model-a"), released)
+        pool.unuse()
+        assertEquals(listOf("model-a"), released)
+    }
+
+    @Test
+    fun evictingTheVoiceInUseReleasesItOnceAnotherIsUsed() {
+        put("a", use = true)
+        put("b")
+        pool.evictVoice("a")
+
+        assertEquals("model-b", pool.get("b", use = true))
+
+        assertEquals(listOf("model-a"), released)
+    }
+
+    @Test
+    fun trimAllKeepsOnlyTheModelInUse() {
+        put("a")
+        put("b", use = true)
+
+        assertEquals(1, pool.trimAll())
+
+        assertEquals(listOf("model-a"), released)
+        assertNull(pool.get("a", use = false))
+        assertEquals("model-b", pool.get("b", use = false))
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.gmathi.novellibrary.service.cover
+
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.IOException
+import java.util.Collections
+
+class CoverStoreTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val server = MockWebServer()
+
+    /** Cover bodies by path, the other paths are not found. */
+    private val covers = Collections.synchronizedMap(HashMap<String, String>())
+
+    private lateinit var dir: File
+    private lateinit var store: CoverStore
+
+    private val thumbnailer = CoverStore.Thumbnailer { source, size ->
+        String(source).takeIf { it != "not an image" }?.let { "${size.key}:$it".toByteArray() }
+    }
+
+    @Before
+    fun setUp() {
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                Thread.sleep(DELAY_MILLIS)
+                val body = covers[request.path] ?: return MockResponse().setResponseCode(404)
+                return MockResponse().setBody(body)
+            }
+        }
+        server.start()
+        dir = folder.newFolder("covers")
+        store = CoverStore(dir, OkHttpClient(), thumbnailer, maxCoverBytes = 1024)
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun archivesAThumbnailOfEachSize() = runBlocking {
+        covers["/cover.jpg"] = "cover"
+
+        store.archive(1, url("/cover.jpg"))
+
+        CoverSize.values().forEach { size ->
+            val file = store.cover(1, size)!!
+            assertEquals(File(dir, "1"), file.parentFile)
+            assertTrue(file.name, file.name.matches(Regex("${size.key}-[0-9a-f]{16}\\.webp")))
+            assertEquals("${size.key}:cover", file.readText())
+        }
+        assertEquals(store.cover(1, CoverSize.LIST), store.imageOf(1, url("/cover.jpg"), CoverSize.LIST))
+    }
+
+    @Test
+    fun archivedCoversAreNotDownloadedAgain() = runBlocking {
+        covers["/cover.jpg"] = "cover"
+
+        store.archive(1, url("/cover.jpg"))
+        store.archive(1, url("/cover.jpg"))
+        CoverStore(dir, OkHttpClient(), thumbnailer).archive(1, url("/cover.jpg"))
+
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun archivesOfTheSameNovelShareOneDownload() = runBlocking {
+        covers["/cover.jpg"] = "cover"
+
+        (1..5).map { async { store.archive(1, url("/cover.jpg")) } }.awaitAll()
+
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun replacesTheThumbnailsOfAChangedCover() = runBlocking {
+        covers["/old.jpg"] = "old"
+        covers["/new.jpg"] = "new"
+
+        store.archive(1, url("/old.jpg"))
+        val old = store.cover(1, CoverSize.DETAILS)!!
+        store.archive(1, url("/new.jpg"))
+        val new = store.cover(1, CoverSize.DETAILS)!!
+
+        assertNotEquals(old.name, new.name)
+        assertFalse(old.exists())
+        assertEquals("details:new", new.readText())
+        assertEquals(CoverSize.values().size + 1, File(dir, "1").list()!!.size)
+    }
+
+    @Test
+    fun keepsTheSameCoverMovedToANewUrl() = runBlocking {
+        covers["/cover.jpg"] = "cover"
+        covers["/moved.jpg"] = "cover"
+
+        store.archive(1, url("/cover.jpg"))
+        val before = store.cover(1, CoverSize.GRID)!!
+        val lastModified = before.lastModified()
+        store.archive(1, url("/moved.jpg"))
+
+        assertEquals(before, store.cover(1, CoverSize.GRID))
+        assertEquals(lastModified, before.lastModified())
+        store.archive(1, url("/moved.jpg"))
+        assertEquals(2, server.requestCount)
+    }
+
+    @Test
+    fun thumbnailsOfAnotherCoverAreNotShown() = runBlocking {
+        covers["/cover.jpg"] = "cover"
+        store.archive(1, url("/cover.jpg"))
+
+        // E.g. the novel that has the id since a restore, or a cover that changed and isn't archived yet
+        assertEquals(url("/other.jpg"), store.imageOf(1, url("/other.jpg"), CoverSize.LIST))
+        assertEquals(store.cover(1, CoverSize.LIST), store.imageOf(1, url("/cover.jpg"), CoverSize.LIST))
+    }
+
+    @Test
+    fun failuresLeaveTheUrl() = runBlocking {
+        covers["/broken.jpg"] = "not an image"
+        covers["/huge.jpg"] = "x".repeat(2048)
+
+        listOf("/missing.jpg", "/broken.jpg", "/huge.jpg").forEach { path ->
+            try {
+                store.archive(1, url(path))
+                fail("$path was archived")
+            } catch (e: IOException) {
+                // Expected
+            }
+        }
+
+        assertNull(store.cover(1, CoverSize.LIST))
+        assertEquals(url("/huge.jpg"), store.imageOf(1, url("/huge.jpg"), CoverSize.LIST))
+    }
+
+    @Test
+    fun novelsOutsideTheLibraryUseTheirUrl() = runBlocking {
+        covers["/cover.jpg"] = "cover"
+        store.archive(1, url("/cover.jpg"))
+
+        assertEquals(url("/cover.jpg"), store.imageOf(-1, url("/cover.jpg"), CoverSize.LIST))
+        store.delete(1)
+        assertFalse(File(dir, "1").exists())
+        assertEquals(url("/cover.jpg"), store.imageOf(1, url("/cover.jpg"), CoverSize.LIST))
+    }
+
+    @Test
+    fun thumbnailsCoverTheirSize() {
+        assertEquals(16, CoverSize.sampleSize(4000, 6000, 168, 168))
+        assertEquals(1, CoverSize.sampleSize(100, 150, 168, 168))
+        assertEquals(168 to 252, CoverSize.scaledSize(250, 375, 168, 168))
+        assertEquals(100 to 150, CoverSize.scaledSize(100, 150, 168, 168))
+        assertEquals(168, CoverSize.LIST.widthPx(3f))
+    }
+
+    private fun url(path: String) = server.url(path).toString()
+
+    companion object {
+        private const val DELAY_MILLIS = 50L
+    }
+}
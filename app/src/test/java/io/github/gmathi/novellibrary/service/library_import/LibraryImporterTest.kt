@@ -0,0 +1,166 @@
+package io.github.gmathi.novellibrary.service.library_import
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.util.Collections
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+class LibraryImporterTest {
+
+    private val server = MockWebServer()
+    private val client = OkHttpClient()
+
+    private val requests = CopyOnWriteArrayList<String>()
+    private val inFlight = AtomicInteger()
+    private val maxInFlight = AtomicInteger()
+
+    /** Paths answered with an error. */
+    private val failing = Collections.synchronizedSet(HashSet<String>())
+
+    /** Urls of the novels already in the library. */
+    private val library = Collections.synchronizedSet(HashSet<String>())
+
+    @Before
+    fun setUp() {
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val path = request.path!!
+                requests.add(path)
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), ::maxOf)
+                try {
+                    Thread.sleep(DELAY_MILLIS)
+                } finally {
+                    inFlight.decrementAndGet()
+                }
+                return if (path in failing) MockResponse().setResponseCode(500) else MockResponse().setBody("ok")
+            }
+        }
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun importsConcurrentlyWithinTheHostLimit() = runBlocking {
+        val journal = FakeJournal(novels(20))
+
+        val started = System.nanoTime()
+        val progress = LibraryImporter(journal, steps, perHostConcurrency = 4).run()
+        val elapsedMillis = (System.nanoTime() - started) / 1_000_000
+
+        assertEquals(LibraryImporter.Progress(total = 20, imported = 20, skipped = 0, failed = 0), progress)
+        assertTrue(journal.entries().all { it.status == ImportStatus.IMPORTED })
+        assertEquals(4, maxInFlight.get())
+        // 40 requests of 200ms take 8s one at a time, 2s four at a time
+        assertTrue("Took ${elapsedMillis}ms", elapsedMillis < 4_000)
+    }
+
+    @Test
+    fun fetchesChapterListsAfterAllDetails() = runBlocking {
+        val journal = FakeJournal(novels(10))
+
+        LibraryImporter(journal, steps, perHostConcurrency = 3).run()
+
+        val lastDetails = requests.indexOfLast { it.endsWith("/details") }
+        val firstChapters = requests.indexOfFirst { it.endsWith("/chapters") }
+        assertEquals(20, requests.size)
+        assertTrue(lastDetails < firstChapters)
+    }
+
+    @Test
+    fun recordsSkippedAndFailedNovels() = runBlocking {
+        val entries = novels(5)
+        library.add(entries[1].novelUrl)
+        failing.add("/series/2/details")
+        failing.add("/series/3/chapters")
+        val journal = FakeJournal(entries)
+
+        val progress = LibraryImporter(journal, steps).run()
+
+        assertEquals(LibraryImporter.Progress(total = 5, imported = 3, skipped = 1, failed = 1), progress)
+        val statuses = journal.entries().map { it.status }
+        assertEquals(listOf(ImportStatus.IMPORTED, ImportStatus.SKIPPED, ImportStatus.FAILED, ImportStatus.IMPORTED, ImportStatus.IMPORTED), statuses)
+        assertNotNull(journal.entries()[2].error)
+        // The novel is in the library even though its chapter list couldn't be fetched
+        assertNotNull(journal.entries()[3].error)
+        assertTrue(requests.none { it == "/series/1/details" })
+    }
+
+    @Test
+    fun resumesAnInterruptedImport() = runBlocking {
+        val journal = FakeJournal(novels(20))
+
+        val job = launch(Dispatchers.Default) { LibraryImporter(journal, steps, perHostConcurrency = 2).run() }
+        while (journal.entries().count { it.status != ImportStatus.PENDING } < 6) delay(10)
+        job.cancelAndJoin()
+
+        val interrupted = journal.entries()
+        val done = interrupted.filter { it.status != ImportStatus.PENDING }.map { it.novelUrl.removePrefix(server.url("").toString()) }
+        assertTrue(interrupted.any { it.status == ImportStatus.PENDING })
+        requests.clear()
+
+        val progress = LibraryImporter(journal, steps, perHostConcurrency = 2).run()
+
+        assertEquals(20, progress.imported)
+        assertTrue(journal.entries().all { it.status == ImportStatus.IMPORTED })
+        done.forEach { path -> assertTrue("$path fetched again", "/${path}details" !in requests) }
+        assertEquals(20 - done.size, requests.count { it.endsWith("/details") })
+        assertEquals(20, requests.count { it.endsWith("/chapters") })
+    }
+
+    private val steps = object : LibraryImporter.Steps {
+        override suspend fun importNovel(entry: ImportEntry): Boolean {
+            if (entry.novelUrl in library) return false
+            fetch(entry.novelUrl + "details")
+            return true
+        }
+
+        override suspend fun importChapters(entry: ImportEntry) {
+            fetch(entry.novelUrl + "chapters")
+        }
+    }
+
+    private fun fetch(url: String) {
+        client.newCall(Request.Builder().url(url).build()).execute().use { response ->
+            if (!response.isSuccessful) throw IOException("HTTP ${response.code}")
+        }
+    }
+
+    private fun novels(count: Int) = (0 until count).map { ImportEntry(server.url("/series/$it/").toString(), "Novel $it", null) }
+
+    private class FakeJournal(entries: List<ImportEntry>) : ImportJournal {
+        private val entries = LinkedHashMap<String, ImportEntry>().apply { entries.forEach { put(it.novelUrl, it) } }
+
+        @Synchronized
+        override fun entries(): List<ImportEntry> = entries.values.toList()
+
+        @Synchronized
+        override fun update(novelUrl: String, status: ImportStatus, error: String?) {
+            entries[novelUrl] = entries.getValue(novelUrl).copy(status = status, error = error)
+        }
+    }
+
+    companion object {
+        private const val DELAY_MILLIS = 200L
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.gmathi.novellibrary.service.search
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.awaitCancellation
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class SearchAggregatorTest {
+
+    private val cache = SearchResultCache<String>()
+    private val aggregator = SearchAggregator(cache, timeoutMillis = 500) { title: String -> title }
+
+    @Test
+    fun streamsResultsAsSourcesAnswer() = runBlocking {
+        val fast = FakeSource(1, delayMillis = 10, "Solo Leveling", "Overgeared")
+        val slow = FakeSource(2, delayMillis = 200, "solo leveling!", "Lord of the Mysteries")
+
+        val emissions = aggregator.search(listOf(slow, fast), "solo").toList()
+
+        assertEquals(2, emissions.size)
+        assertEquals(setOf(2L), emissions[0].pending)
+        assertEquals(listOf("Solo Leveling", "Overgeared"), emissions[0].merged.map { it.item })
+        assertEquals(emptySet<Long>(), emissions[1].pending)
+        // Merged in the order the sources were given, duplicates listed once
+        val merged = emissions[1].merged
+        assertEquals(listOf("solo leveling!", "Lord of the Mysteries", "Overgeared"), merged.map { it.item })
+        assertEquals(listOf(2L, 1L), merged[0].sourceIds)
+    }
+
+    @Test
+    fun slowSourcesTimeOutWithoutHoldingTheOthers() = runBlocking {
+        val stuck = FakeSource(1, delayMillis = 60_000, "Never")
+        val fast = FakeSource(2, delayMillis = 10, "Overgeared")
+
+        val started = System.nanoTime()
+        val results = aggregator.search(listOf(stuck, fast), "over").toList().last()
+        val elapsedMillis = (System.nanoTime() - started) / 1_000_000
+
+        assertTrue("Took ${elapsedMillis}ms", elapsedMillis < 2_000)
+        val failure = results.bySource[1L] as SearchAggregator.SourceResult.Failure
+        assertTrue(failure.error is SearchAggregator.SearchTimeoutException)
+        assertEquals(listOf("Overgeared"), results.merged.map { it.item })
+    }
+
+    @Test
+    fun recentSearchesAreAnsweredFromTheCache() = runBlocking {
+        val source = FakeSource(1, delayMillis = 0, "Overgeared")
+
+        val first = aggregator.fetch(source, "Over", 1)
+        val second = aggregator.fetch(source, " over ", 1)
+        aggregator.fetch(source, "over", 2)
+        aggregator.fetch(source, "over", 1, useCache = false)
+
+        assertSame(first, second)
+        assertEquals(3, source.calls.get())
+    }
+
+    @Test
+    fun cacheDropsExpiredAndLeastRecentlyUsedPages() {
+        var now = 0L
+        val cache = SearchResultCache<String>(maxEntries = 2, ttlMillis = 1_000, clock = { now })
+        val page = SearchAggregator.Page(listOf("a"), hasNextPage = false)
+
+        cache.put(1, "a", 1, page)
+        cache.put(1, "b", 1, page)
+        cache.get(1, "a", 1)
+        cache.put(1, "c", 1, page)
+        assertNull(cache.get(1, "b", 1))
+        assertSame(page, cache.get(1, "a", 1))
+
+        now = 1_000
+        assertNull(cache.get(1, "a", 1))
+        assertEquals(1, cache.size)
+    }
+
+    @Test
+    fun cancellingTheCollectorCancelsTheSearches() = runBlocking {
+        val started = CompletableDeferred<Unit>()
+        val cancelled = CompletableDeferred<Unit>()
+        val source = object : SearchAggregator.Source<String> {
+            override val id = 1L
+
+            override suspend fun search(term: String, page: Int): SearchAggregator.Page<String> {
+                started.complete(Unit)
+                try {
+                    awaitCancellation()
+                } finally {
+                    cancelled.complete(Unit)
+                }
+            }
+        }
+
+        val job = launch(Dispatchers.Default) { aggregator.search(listOf(source), "superseded").collect { fail("Unexpected $it") } }
+        started.await()
+        job.cancelAndJoin()
+
+        assertTrue(cancelled.isCompleted)
+        assertEquals(0, cache.size)
+    }
+
+    @Test
+    fun normalizesTitles() {
+        assertEquals("re zero kara hajimeru", SearchAggregator.normalizeTitle("Re:Zero − Kara Hajimeru  "))
+        assertEquals("cafe", SearchAggregator.normalizeTitle("Café"))
+    }
+
+    private class FakeSource(override val id: Long, private val delayMillis: Long, vararg titles: String) :
+        SearchAggregator.Source<String> {
+        private val titles = titles.toList()
+        val calls = AtomicInteger()
+
+        override suspend fun search(term: String, page: Int): SearchAggregator.Page<String> {
+            calls.incrementAndGet()
+            delay(delayMillis)
+            return SearchAggregator.Page(titles, hasNextPage = false)
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.gmathi.novellibrary.util.lang
+
+import io.github.gmathi.novellibrary.model.other.CompiledTTSFilter
+import io.github.gmathi.novellibrary.model.other.TTSFilter
+import io.github.gmathi.novellibrary.model.other.TTSFilterTarget
+import io.github.gmathi.novellibrary.model.other.TTSFilterType
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import org.jsoup.nodes.Element
+import org.jsoup.safety.Cleaner
+import org.jsoup.safety.Safelist
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Checks [TTSTextExtractor] against golden text files (produced by the previous clone-and-clean implementation) and
+ * against that implementation directly for filter combinations.
+ */
+class TTSTextExtractorTest {
+
+    private val corpus = listOf("wordpress_chapter", "reader_mode_chapter", "mtl_dump")
+
+    private val filters = listOf(
+        TTSFilter(TTSFilterType.Selector, TTSFilterTarget.Selector, "blockquote,.sharedaddy"),
+        TTSFilter(TTSFilterType.Plaintext, TTSFilterTarget.Element, "Previous Chapter | ToC | Next Chapter", "f", ""),
+        TTSFilter(TTSFilterType.Regex, TTSFilterTarget.Element, "Lin Feng", "i", "Lin-Feng"),
+        TTSFilter(TTSFilterType.Regex, TTSFilterTarget.TextChunk, "Please support the \\w+", "", ""),
+        TTSFilter(TTSFilterType.Plaintext, TTSFilterTarget.TextChunk, "\${host}", "", "the site"),
+    )
+
+    private fun load(name: String): Document {
+        val html = javaClass.classLoader!!.getResource("tts/$name.html")!!.readText()
+        return Jsoup.parse(html, "https://www.example.com/novel/chapter-12/")
+    }
+
+    private fun golden(name: String): String =
+        javaClass.classLoader!!.getResource("tts/$name.txt")!!.readText()
+
+    @Test
+    fun matchesGoldenText() {
+        val extractor = TTSTextExtractor()
+        corpus.forEach { name ->
+            assertEquals(name, golden(name), extractor.extract(load(name), false, emptyList()))
+        }
+    }
+
+    @Test
+    fun matchesLegacyWithFilters() {
+        val extractor = TTSTextExtractor()
+        corpus.forEach { name ->
+            listOf(true, false).forEach { stripHeader ->
+                listOf(emptyList(), filters).forEach { filterList ->
+                    val expected = legacyFormattedText(load(name), stripHeader, filterList)
+                    assertEquals("$name stripHeader=$stripHeader filters=${filterList.size}", expected, extractor.extract(load(name), stripHeader, filterList))
+                }
+            }
+        }
+    }
+
+    @Test
+    fun doesNotModifyDocument() {
+        val doc = load("reader_mode_chapter")
+        val before = doc.outerHtml()
+        TTSTextExtractor().extract(doc, false, filters)
+        assertEquals(before, doc.outerHtml())
+    }
+
+    /**
+     * The original `Utils.getFormattedText()` implementation, kept as the reference for the extractor.
+     */
+    private fun legacyFormattedText(source: Document, stripHeader: Boolean, filters: List<TTSFilter>): String {
+        val doc = source.clone()
+        val body = doc.body()
+        body.select("[tts-disable=\"true\"]").remove()
+        val content = body.select("[data-role=\"RContent\"]")
+        if (content.isNotEmpty()) {
+            content.select("[data-role=\"RHeader\"]").remove()
+            content.select("[data-role=\"RFooter\"]").remove()
+            content.select("[data-role=\"RNavigation\"]").remove()
+            content.select("[data-role=\"RPage\"]").remove()
+            content.select("[data-role=\"RChapterLink\"]").remove()
+            content.select("[data-role=\"RRealChapter\"]").remove()
+            content.select("select,input,button").remove()
+            body.children().remove()
+            if (!stripHeader) body.append(doc.title())
+            content.forEach { body.appendChild(it) }
+            doc.head().children().remove()
+        }
+        doc.select("br,p,hr").forEach {
+            it.after("\n")
+        }
+
+        filters.forEach {
+            if (it.type == TTSFilterType.Selector) {
+                doc.select(it.lookup).remove()
+            }
+        }
+
+        val notations = doc.select("em,strong,italic,s,i,a")
+        notations.forEach { el -> el.prependText(" "); el.appendText(" ") }
+        notations.unwrap()
+
+        val textFilters = filters.filter { it.target == TTSFilterTarget.TextChunk }.map { it.compile(doc) }
+
+        applyFilters(doc.body(), filters.filter { it.target == TTSFilterTarget.Element }.map { it.compile(doc) })
+        val cleaner = Cleaner(Safelist.none())
+        val cleanDoc = cleaner.clean(doc)
+        cleanDoc.outputSettings(Document.OutputSettings().prettyPrint(false))
+        var text = cleanDoc.body().html()
+            .replace("&nbsp;", " ")
+            .replace("&lt;", "<")
+            .replace("&gt;", ">")
+            .replace("&amp;", " and ")
+            .replace("&quot;", "\"")
+            .replace("&apos;", "'")
+            .replace("""([\s ])+""".toRegex(RegexOption.MULTILINE)) { it.groups[0]?.value ?: "" }
+            .replace("""((?>[◆◇＝_~=*#|+<>\-─＊] ?){4,}|\.{4,}|!{4,}|\?{4,})""".toRegex()) { it.value.replace(" ", "").substring(0, 3) }
+            .trim()
+
+        textFilters.forEach { filter ->
+            text = filter.apply(text)
+        }
+        return text
+    }
+
+    private fun applyFilters(element: Element, filters: List<CompiledTTSFilter>) {
+        if (element.childrenSize() == 0 && element.hasText()) {
+            var text = element.ownText()
+            filters.forEach { filter -> text = filter.apply(text) }
+            element.text(text)
+        } else {
+            element.children().forEach {
+                applyFilters(it, filters)
+            }
+        }
+    }
+}
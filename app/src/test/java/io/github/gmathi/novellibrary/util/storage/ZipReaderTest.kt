@@ -0,0 +1,117 @@
+package io.github.gmathi.novellibrary.util.storage
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.File
+import java.io.FileOutputStream
+import java.io.RandomAccessFile
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+import java.util.zip.ZipOutputStream
+
+class ZipReaderTest {
+
+    private val text = "Chapter text ".repeat(500).toByteArray()
+    private val image = ByteArray(3000) { (it * 31).toByte() }
+    private val time = ZipWriter.dosTime(System.currentTimeMillis())
+
+    @Test
+    fun readsArchivesWrittenByZipOutputStream() {
+        withTempFile { file ->
+            ZipOutputStream(FileOutputStream(file)).use { zip ->
+                zip.putNextEntry(ZipEntry("databases/novel_library.db"))
+                zip.write(text)
+                zip.putNextEntry(ZipEntry("files/cover.jpg"))
+                zip.write(image)
+            }
+
+            val entries = readAll(file)
+            assertEquals(listOf("databases/novel_library.db", "files/cover.jpg"), entries.keys.toList())
+            assertArrayEquals(text, entries["databases/novel_library.db"])
+            assertArrayEquals(image, entries["files/cover.jpg"])
+        }
+    }
+
+    @Test
+    fun onlyListsTheEntriesKeptWhenAnArchiveIsContinued() {
+        withTempFile { file ->
+            val first = ZipWriter(FileOutputStream(file))
+            writeStored(first, "files/old.jpg", image)
+            first.writeEntry("files/deleted.html", time) { it.write(text) }
+            first.writeEntry("backup.txt", time) { it.write(text) }
+            val kept = first.records.filter { it.name == "files/old.jpg" }
+            val end = first.records.first { it.name == "files/deleted.html" }.let { it.offset + it.span }
+            first.close()
+
+            RandomAccessFile(file, "rw").use { raf ->
+                raf.setLength(end)
+                raf.seek(end)
+                ZipWriter(FileOutputStream(raf.fd), end, kept).apply {
+                    writeEntry("backup.txt", time) { it.write(image) }
+                    finish()
+                }
+            }
+
+            val entries = readAll(file)
+            assertEquals(setOf("files/old.jpg", "backup.txt"), entries.keys)
+            assertArrayEquals(image, entries["files/old.jpg"])
+            assertArrayEquals(image, entries["backup.txt"])
+        }
+    }
+
+    @Test
+    fun readsZip64Archives() {
+        withTempFile { file ->
+            ZipWriter(FileOutputStream(file)).use { writer ->
+                repeat(70_000) { writeStored(writer, "files/$it", byteArrayOf(it.toByte())) }
+            }
+            RandomAccessFile(file, "r").use { raf ->
+                val reader = ZipReader(raf.channel)
+                assertEquals(70_000, reader.records.size)
+                val last = reader.records.last()
+                assertEquals("files/69999", last.name)
+                assertArrayEquals(byteArrayOf(69_999.toByte()), reader.open(last).readBytes())
+            }
+        }
+    }
+
+    @Test
+    fun detectsCorruptedEntries() {
+        withTempFile { file ->
+            ZipWriter(FileOutputStream(file)).use { writeStored(it, "files/cover.jpg", image) }
+            RandomAccessFile(file, "rw").use { raf ->
+                raf.seek(100)
+                raf.write(raf.read() xor 0xFF)
+                val reader = ZipReader(raf.channel)
+                try {
+                    reader.open(reader.records.single()).readBytes()
+                    fail("Corrupted entry read")
+                } catch (e: ZipException) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    private fun writeStored(writer: ZipWriter, name: String, data: ByteArray) {
+        val crc = CRC32().apply { update(data) }.value
+        writer.writeEntry(name, time, ZipWriter.STORED, crc, data.size.toLong(), data.size.toLong()) { it.write(data) }
+    }
+
+    private fun readAll(file: File): Map<String, ByteArray> = RandomAccessFile(file, "r").use { raf ->
+        val reader = ZipReader(raf.channel)
+        reader.records.associateTo(LinkedHashMap()) { record -> record.name to reader.open(record).use { it.readBytes() } }
+    }
+
+    private fun withTempFile(block: (File) -> Unit) {
+        val file = File.createTempFile("zip_reader", ".zip")
+        try {
+            block(file)
+        } finally {
+            file.delete()
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.gmathi.novellibrary.util.storage
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.RandomAccessFile
+import java.util.zip.CRC32
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+
+class ZipWriterTest {
+
+    private val text = "Chapter text ".repeat(500).toByteArray()
+    private val image = ByteArray(3000) { (it * 31).toByte() }
+    private val time = ZipWriter.dosTime(System.currentTimeMillis())
+
+    @Test
+    fun writesStoredPrecompressedAndStreamedEntries() {
+        val file = File.createTempFile("zip_writer", ".zip")
+        try {
+            ZipWriter(FileOutputStream(file)).use { writer ->
+                writeStored(writer, "files/images/cover.jpg", image)
+                writeDeflated(writer, "files/chapter.html", text)
+                writer.writeEntry("backup.txt", time) { it.write(text) }
+            }
+
+            val expected = mapOf("files/images/cover.jpg" to image, "files/chapter.html" to text, "backup.txt" to text)
+            assertEquals(expected.keys, readWithZipFile(file).keys)
+            readWithZipFile(file).forEach { (name, data) -> assertArrayEquals(name, expected[name], data) }
+            readWithZipInputStream(file).forEach { (name, data) -> assertArrayEquals(name, expected[name], data) }
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun continuesAnArchiveKeepingSelectedEntries() {
+        val file = File.createTempFile("zip_writer", ".zip")
+        try {
+            val first = ZipWriter(FileOutputStream(file))
+            writeStored(first, "files/old.jpg", image)
+            writeDeflated(first, "files/changed.html", text)
+            val end = first.records.maxOf { it.offset + it.span }
+            val kept = first.records.filter { it.name == "files/old.jpg" }
+            first.close()
+
+            val changed = "Updated ".repeat(100).toByteArray()
+            RandomAccessFile(file, "rw").use { raf ->
+                raf.setLength(end)
+                raf.seek(end)
+                val second = ZipWriter(FileOutputStream(raf.fd), end, kept)
+                writeDeflated(second, "files/changed.html", changed)
+                second.finish()
+                raf.setLength(raf.filePointer)
+            }
+
+            val entries = readWithZipFile(file)
+            assertEquals(setOf("files/old.jpg", "files/changed.html"), entries.keys)
+            assertArrayEquals(image, entries["files/old.jpg"])
+            assertArrayEquals(changed, entries["files/changed.html"])
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun writesZip64EndRecordsForManyEntries() {
+        val file = File.createTempFile("zip_writer", ".zip")
+        try {
+            ZipWriter(FileOutputStream(file)).use { writer ->
+                repeat(70_000) { writeStored(writer, "files/$it", byteArrayOf(it.toByte())) }
+            }
+            ZipFile(file).use { assertEquals(70_000, it.size()) }
+        } finally {
+            file.delete()
+        }
+    }
+
+    private fun writeStored(writer: ZipWriter, name: String, data: ByteArray) {
+        writer.writeEntry(name, time, ZipWriter.STORED, crc(data), data.size.toLong(), data.size.toLong()) { it.write(data) }
+    }
+
+    private fun writeDeflated(writer: ZipWriter, name: String, data: ByteArray) {
+        val compressed = ZipWriter.deflate(data)
+        writer.writeEntry(name, time, ZipWriter.DEFLATED, crc(data), compressed.size.toLong(), data.size.toLong()) { it.write(compressed) }
+    }
+
+    private fun crc(data: ByteArray) = CRC32().apply { update(data) }.value
+
+    private fun readWithZipFile(file: File): Map<String, ByteArray> = ZipFile(file).use { zip ->
+        zip.entries().toList().associate { it.name to zip.getInputStream(it).readBytes() }
+    }
+
+    private fun readWithZipInputStream(file: File): Map<String, ByteArray> = ZipInputStream(file.inputStream()).use { zip ->
+        val entries = LinkedHashMap<String, ByteArray>()
+        var entry = zip.nextEntry
+        while (entry != null) {
+            val out = ByteArrayOutputStream()
+            zip.copyTo(out)
+            entries[entry.name] = out.toByteArray()
+            entry = zip.nextEntry
+        }
+        entries
+    }
+}
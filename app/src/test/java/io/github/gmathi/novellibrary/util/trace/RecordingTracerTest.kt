@@ -0,0 +1,159 @@
+package io.github.gmathi.novellibrary.util.trace
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.IOException
+
+class RecordingTracerTest {
+
+    /** Moves only when told to, by whole milliseconds. */
+    private var nowNanos = 0L
+    private val tracer = RecordingTracer(clock = { nowNanos }, maxSpans = 5, window = 10)
+
+    private fun advance(millis: Long) {
+        nowNanos += millis * 1_000_000
+    }
+
+    @Test
+    fun spansAreTimedByTheClock() {
+        advance(3)
+        val result = tracer.trace("fetch") {
+            advance(40)
+            "page"
+        }
+
+        assertEquals("page", result)
+        val span = tracer.snapshot().spans.single()
+        assertEquals("fetch", span.name)
+        assertEquals(3.0, span.startMillis, 0.0)
+        assertEquals(40.0, span.durationMillis, 0.0)
+        assertNull(span.parentId)
+        assertNull(span.error)
+    }
+
+    @Test
+    fun nestedSpansPointToTheirParent() {
+        tracer.trace("download") { download ->
+            download.trace("fetch") { advance(30) }
+            download.trace("clean") { clean ->
+                clean.trace("links") { advance(5) }
+                advance(10)
+            }
+        }
+
+        val spans = tracer.snapshot().spans.associateBy { it.name }
+        val download = spans.getValue("download")
+        assertEquals(download.id, spans.getValue("fetch").parentId)
+        assertEquals(download.id, spans.getValue("clean").parentId)
+        assertEquals(spans.getValue("clean").id, spans.getValue("links").parentId)
+        assertEquals(45.0, download.durationMillis, 0.0)
+        assertEquals(15.0, spans.getValue("clean").durationMillis, 0.0)
+    }
+
+    @Test
+    fun failedSpansAreEndedAndCounted() {
+        try {
+            tracer.trace("fetch") {
+                advance(7)
+                throw IOException("timeout")
+            }
+            @Suppress("UNREACHABLE_CODE")
+            fail("The error was swallowed")
+        } catch (e: IOException) {
+            // Expected
+        }
+        tracer.trace("fetch") { advance(1) }
+
+        val snapshot = tracer.snapshot()
+        assertEquals("IOException", snapshot.spans.first().error)
+        assertEquals(7.0, snapshot.spans.first().durationMillis, 0.0)
+        val fetch = snapshot.operations.single()
+        assertEquals(2, fetch.count)
+        assertEquals(1, fetch.failures)
+    }
+
+    @Test
+    fun percentilesAreTakenOverTheLatestDurations() {
+        (1L..10L).forEach { millis -> tracer.trace("parse") { advance(millis) } }
+
+        var parse = tracer.snapshot().operations.single()
+        assertEquals(5.0, parse.p50Millis, 0.0)
+        assertEquals(10.0, parse.p95Millis, 0.0)
+        assertEquals(10.0, parse.maxMillis, 0.0)
+
+        // Pushes the 1..5ms durations out of the window
+        repeat(5) { tracer.trace("parse") { advance(100) } }
+
+        parse = tracer.snapshot().operations.single()
+        assertEquals(15, parse.count)
+        assertEquals(10.0, parse.p50Millis, 0.0)
+        assertEquals(100.0, parse.p95Millis, 0.0)
+    }
+
+    @Test
+    fun onlyTheLatestSpansAreKept() {
+        (1..8).forEach { i -> tracer.trace("span$i") {} }
+
+        assertEquals((4..8).map { "span$it" }, tracer.snapshot().spans.map { it.name })
+    }
+
+    @Test
+    fun spansEndOnce() {
+        val span = tracer.start("fetch")
+        advance(2)
+        span.end()
+        advance(2)
+        span.end()
+
+        assertEquals(1, tracer.snapshot().operations.single().count)
+        assertEquals(2.0, tracer.snapshot().spans.single().durationMillis, 0.0)
+    }
+
+    @Test
+    fun countersAndHistograms() {
+        tracer.count("cache.hit")
+        tracer.count("cache.hit", 2)
+        tracer.count("cache.miss")
+        listOf(100L, 300L, 200L).forEach { tracer.record("bytes", it) }
+
+        val snapshot = tracer.snapshot()
+        assertEquals(mapOf("cache.hit" to 3L, "cache.miss" to 1L), snapshot.counters)
+        assertEquals(HistogramStats("bytes", 3, 200, 300, 300), snapshot.histograms.single())
+    }
+
+    @Test
+    fun clearForgetsEverything() {
+        tracer.trace("fetch") {}
+        tracer.count("cache.hit")
+        tracer.record("bytes", 1)
+
+        tracer.clear()
+
+        assertEquals(TraceSnapshot.EMPTY, tracer.snapshot())
+    }
+
+    @Test
+    fun snapshotsExportAsJson() {
+        tracer.trace("fetch") { advance(12) }
+        tracer.count("cache.hit")
+
+        val json = tracer.snapshot().toJson()
+
+        assertTrue(json, json.contains("\"name\": \"fetch\""))
+        assertTrue(json, json.contains("\"p95Millis\": 12.0"))
+        assertTrue(json, json.contains("\"cache.hit\": 1"))
+    }
+
+    @Test
+    fun theNoOpTracerRecordsNothing() {
+        val result = NoOpTracer.trace("fetch") { span -> span.trace("parse") { 42 } }
+        NoOpTracer.count("cache.hit")
+
+        assertEquals(42, result)
+        assertSame(TraceSnapshot.EMPTY, NoOpTracer.snapshot())
+    }
+}
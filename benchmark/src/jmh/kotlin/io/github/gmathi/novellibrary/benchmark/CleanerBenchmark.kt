@@ -0,0 +1,46 @@
+package io.github.gmathi.novellibrary.benchmark
+
+import io.github.gmathi.novellibrary.cleaner.HtmlCleaner
+import io.github.gmathi.novellibrary.model.preference.DataCenter
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import org.openjdk.jmh.annotations.*
+import uy.kohesive.injekt.Injekt
+import uy.kohesive.injekt.api.addSingleton
+import java.util.concurrent.TimeUnit
+
+/**
+ * What the reader does to a downloaded chapter before showing it: parsing it, then cleaning it with the cleaner
+ * [HtmlCleaner.getInstance] picks for the page. Cleaning changes the document, so every call parses the page again;
+ * [ParseBenchmark] gives the part of the time and allocations the parse takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class CleanerBenchmark {
+
+    @Param(Corpus.ROYAL_ROAD, Corpus.WUXIAWORLD, Corpus.SCRIBBLE_HUB, Corpus.WORDPRESS, Corpus.GOOGLE_DOCS, Corpus.READER_MODE)
+    lateinit var page: String
+
+    private lateinit var html: String
+    private lateinit var baseUri: String
+    private val dataCenter = DataCenter()
+
+    @Setup
+    fun setUp() {
+        Injekt.addSingleton(dataCenter)
+        html = Corpus.html(page)
+        baseUri = Corpus.baseUri(page)
+    }
+
+    @Benchmark
+    fun clean(): Document {
+        val doc = Jsoup.parse(html, baseUri)
+        val cleaner = HtmlCleaner.getInstance(doc)
+        cleaner.removeJS(doc)
+        cleaner.additionalProcessing(doc)
+        cleaner.setProperHrefUrls(doc)
+        cleaner.toggleTheme(dataCenter.isDarkTheme, doc)
+        return doc
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.gmathi.novellibrary.benchmark
+
+import io.github.gmathi.novellibrary.model.other.TTSFilter
+import io.github.gmathi.novellibrary.model.other.TTSFilterTarget
+import io.github.gmathi.novellibrary.model.other.TTSFilterType
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+
+/**
+ * The chapter pages under `corpus/`, one for each kind of markup the app reads: the hosts it has cleaners for, a
+ * translator's WordPress blog, a Google Docs export and a page the app already cleaned into reader mode. Next to them
+ * are the two Novel Updates pages chapter lists are read from.
+ */
+object Corpus {
+
+    const val ROYAL_ROAD = "royalroad"
+    const val WUXIAWORLD = "wuxiaworld"
+    const val SCRIBBLE_HUB = "scribblehub"
+    const val WORDPRESS = "wordpress"
+    const val GOOGLE_DOCS = "google_docs"
+    const val READER_MODE = "reader_mode"
+    const val NOVEL_UPDATES_CHAPTERS = "novelupdates_chapters"
+    const val NOVEL_UPDATES_SERIES = "novelupdates_series"
+
+    // HtmlCleaner.getInstance matches the whole host, so the hosts with a cleaner go without "www."
+    private val baseUris = mapOf(
+        ROYAL_ROAD to "https://www.royalroad.com/fiction/1/the-last-ledger/chapter/57/chapter-57-the-iron-gate",
+        WUXIAWORLD to "https://wuxiaworld.com/novel/martial-ledger/chapter-812",
+        SCRIBBLE_HUB to "https://scribblehub.com/read/1-reborn-as-a-village-alchemist/chapter/33/",
+        WORDPRESS to "https://blog.translatorsite.com/novel/chapter-12/",
+        GOOGLE_DOCS to "https://docs.google.com/document/d/1ledger/pub",
+        READER_MODE to "https://www.example.com/novel/chapter-90/",
+        NOVEL_UPDATES_CHAPTERS to "https://www.novelupdates.com/wp-admin/admin-ajax.php",
+        NOVEL_UPDATES_SERIES to "https://www.novelupdates.com/series/the-last-ledger-of-the-jade-sect/"
+    )
+
+    /**
+     * A filter list like the ones users set up: a selector, element and text replacements, and line clean-up.
+     */
+    val ttsFilters = listOf(
+        TTSFilter(TTSFilterType.Selector, TTSFilterTarget.Selector, "blockquote,.sharedaddy,.author-note-portlet"),
+        TTSFilter(TTSFilterType.Plaintext, TTSFilterTarget.Element, "Previous Chapter | ToC | Next Chapter", "f", ""),
+        TTSFilter(TTSFilterType.Regex, TTSFilterTarget.Element, "Lin Feng", "i", "Lin-Feng"),
+        TTSFilter(TTSFilterType.Regex, TTSFilterTarget.TextChunk, "Please support the \\w+", "", ""),
+        TTSFilter(TTSFilterType.Plaintext, TTSFilterTarget.TextChunk, "\${host}", "", "the site"),
+        TTSFilter(TTSFilterType.Regex, TTSFilterTarget.Line, "^Unauthorized usage:.*$", "", ""),
+        TTSFilter(TTSFilterType.Plaintext, TTSFilterTarget.Line, "…", "", "..."),
+    )
+
+    fun html(page: String): String =
+        Corpus::class.java.getResource("/corpus/$page.html")?.readText() ?: throw IllegalArgumentException("No corpus page $page")
+
+    fun baseUri(page: String): String = baseUris.getValue(page)
+
+    fun document(page: String): Document = Jsoup.parse(html(page), baseUri(page))
+}
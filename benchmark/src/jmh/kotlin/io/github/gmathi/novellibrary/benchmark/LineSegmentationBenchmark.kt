@@ -0,0 +1,41 @@
+package io.github.gmathi.novellibrary.benchmark
+
+import io.github.gmathi.novellibrary.model.other.CompiledTTSFilter
+import io.github.gmathi.novellibrary.model.other.TTSFilterTarget
+import io.github.gmathi.novellibrary.service.tts.TTSLineSegmenter
+import io.github.gmathi.novellibrary.util.lang.TTSTextExtractor
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Splitting a whole chapter's text into TTS lines at the character limit the player uses, with the `Line` filters of
+ * [Corpus.ttsFilters].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class LineSegmentationBenchmark {
+
+    companion object {
+        // What TTSPlayer caps the engine's limit at
+        private const val CHARACTER_LIMIT = 500
+    }
+
+    @Param(Corpus.ROYAL_ROAD, Corpus.WUXIAWORLD, Corpus.SCRIBBLE_HUB, Corpus.WORDPRESS, Corpus.GOOGLE_DOCS, Corpus.READER_MODE)
+    lateinit var page: String
+
+    private lateinit var text: String
+    private lateinit var filters: List<CompiledTTSFilter>
+
+    @Setup
+    fun setUp() {
+        text = TTSTextExtractor().extract(Corpus.document(page), false, emptyList())
+        filters = Corpus.ttsFilters.filter { it.target == TTSFilterTarget.Line }.map { it.compile(null) }
+    }
+
+    @Benchmark
+    fun segment(blackhole: Blackhole) {
+        TTSLineSegmenter(text, CHARACTER_LIMIT, filters).forEach { blackhole.consume(it) }
+    }
+}
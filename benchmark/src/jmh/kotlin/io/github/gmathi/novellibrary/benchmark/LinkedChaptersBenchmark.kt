@@ -0,0 +1,41 @@
+package io.github.gmathi.novellibrary.benchmark
+
+import io.github.gmathi.novellibrary.cleaner.HtmlCleaner
+import io.github.gmathi.novellibrary.model.other.LinkedPage
+import io.github.gmathi.novellibrary.model.preference.DataCenter
+import org.jsoup.nodes.Document
+import org.openjdk.jmh.annotations.*
+import uy.kohesive.injekt.Injekt
+import uy.kohesive.injekt.api.addSingleton
+import java.util.concurrent.TimeUnit
+
+/**
+ * Finding the pages a cleaned chapter links to, which the reader and the downloads do for every chapter. Only the pages
+ * whose cleaner looks for links are measured: the others return no links without looking at the page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class LinkedChaptersBenchmark {
+
+    @Param(Corpus.ROYAL_ROAD, Corpus.WUXIAWORLD, Corpus.WORDPRESS)
+    lateinit var page: String
+
+    private lateinit var cleaner: HtmlCleaner
+    private lateinit var doc: Document
+
+    @Setup
+    fun setUp() {
+        // Keeping the previous and next chapter links, which are most of the links a chapter has
+        Injekt.addSingleton(DataCenter().apply { enableDirectionalLinks = true })
+        // Finding the links leaves the document as it is, so one cleaned page serves every invocation
+        doc = Corpus.document(page)
+        cleaner = HtmlCleaner.getInstance(doc)
+        cleaner.removeJS(doc)
+        cleaner.additionalProcessing(doc)
+        cleaner.setProperHrefUrls(doc)
+    }
+
+    @Benchmark
+    fun linkedChapters(): List<LinkedPage> = cleaner.getLinkedChapters(doc)
+}
@@ -0,0 +1,32 @@
+package io.github.gmathi.novellibrary.benchmark
+
+import io.github.gmathi.novellibrary.model.database.WebPage
+import io.github.gmathi.novellibrary.model.source.online.NovelUpdatesChapters
+import org.jsoup.nodes.Document
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Reading the chapters of a novel out of the Novel Updates pages: the 1240 chapters list of the chapters endpoint, and
+ * the releases table of a series page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class NovelUpdatesChaptersBenchmark {
+
+    private lateinit var chapterList: Document
+    private lateinit var series: Document
+
+    @Setup
+    fun setUp() {
+        chapterList = Corpus.document(Corpus.NOVEL_UPDATES_CHAPTERS)
+        series = Corpus.document(Corpus.NOVEL_UPDATES_SERIES)
+    }
+
+    @Benchmark
+    fun chapterList(): List<WebPage> = NovelUpdatesChapters.parseChapterList(chapterList, 1L, null)
+
+    @Benchmark
+    fun releasesTable(): List<WebPage> = NovelUpdatesChapters.parseReleasesTable(series)
+}
@@ -0,0 +1,30 @@
+package io.github.gmathi.novellibrary.benchmark
+
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Parsing a downloaded chapter into a jsoup [Document], which every chapter goes through before it is cleaned or read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class ParseBenchmark {
+
+    @Param(Corpus.ROYAL_ROAD, Corpus.WUXIAWORLD, Corpus.SCRIBBLE_HUB, Corpus.WORDPRESS, Corpus.GOOGLE_DOCS, Corpus.READER_MODE)
+    lateinit var page: String
+
+    private lateinit var html: String
+    private lateinit var baseUri: String
+
+    @Setup
+    fun setUp() {
+        html = Corpus.html(page)
+        baseUri = Corpus.baseUri(page)
+    }
+
+    @Benchmark
+    fun parse(): Document = Jsoup.parse(html, baseUri)
+}
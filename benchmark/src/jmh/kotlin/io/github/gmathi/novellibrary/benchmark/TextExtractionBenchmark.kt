@@ -0,0 +1,37 @@
+package io.github.gmathi.novellibrary.benchmark
+
+import io.github.gmathi.novellibrary.model.other.TTSFilter
+import io.github.gmathi.novellibrary.util.lang.TTSTextExtractor
+import org.jsoup.nodes.Document
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Turning a parsed chapter into the text read aloud, with and without user TTS filters. The extractor is reused across
+ * calls, the same as the app keeps one per thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class TextExtractionBenchmark {
+
+    @Param(Corpus.ROYAL_ROAD, Corpus.WUXIAWORLD, Corpus.SCRIBBLE_HUB, Corpus.WORDPRESS, Corpus.GOOGLE_DOCS, Corpus.READER_MODE)
+    lateinit var page: String
+
+    @Param("false", "true")
+    var filtered: Boolean = false
+
+    private val extractor = TTSTextExtractor()
+    private lateinit var doc: Document
+    private lateinit var filters: List<TTSFilter>
+
+    @Setup
+    fun setUp() {
+        // Extraction leaves the document as it is, so one parse serves every invocation
+        doc = Corpus.document(page)
+        filters = if (filtered) Corpus.ttsFilters else emptyList()
+    }
+
+    @Benchmark
+    fun extract(): String = extractor.extract(doc, false, filters)
+}
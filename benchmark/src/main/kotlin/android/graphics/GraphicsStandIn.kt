@@ -0,0 +1,57 @@
+package android.graphics
+
+import java.io.OutputStream
+import java.util.Locale
+
+/**
+ * [Color] as the cleaners use it: the constants and [parseColor], which accepts the same colors as Android's.
+ */
+object Color {
+
+    const val BLACK = 0xFF000000.toInt()
+    const val DKGRAY = 0xFF444444.toInt()
+    const val GRAY = 0xFF888888.toInt()
+    const val LTGRAY = 0xFFCCCCCC.toInt()
+    const val WHITE = 0xFFFFFFFF.toInt()
+    const val RED = 0xFFFF0000.toInt()
+    const val GREEN = 0xFF00FF00.toInt()
+    const val BLUE = 0xFF0000FF.toInt()
+    const val YELLOW = 0xFFFFFF00.toInt()
+    const val CYAN = 0xFF00FFFF.toInt()
+    const val MAGENTA = 0xFFFF00FF.toInt()
+
+    private val colorNames = mapOf(
+        "black" to BLACK, "darkgray" to DKGRAY, "gray" to GRAY, "lightgray" to LTGRAY, "white" to WHITE,
+        "red" to RED, "green" to GREEN, "blue" to BLUE, "yellow" to YELLOW, "cyan" to CYAN, "magenta" to MAGENTA,
+        "aqua" to 0xFF00FFFF.toInt(), "fuchsia" to 0xFFFF00FF.toInt(), "darkgrey" to DKGRAY, "grey" to GRAY,
+        "lightgrey" to LTGRAY, "lime" to 0xFF00FF00.toInt(), "maroon" to 0xFF800000.toInt(),
+        "navy" to 0xFF000080.toInt(), "olive" to 0xFF808000.toInt(), "purple" to 0xFF800080.toInt(),
+        "silver" to 0xFFC0C0C0.toInt(), "teal" to 0xFF008080.toInt()
+    )
+
+    /** `#RRGGBB`, `#AARRGGBB` or one of the color names Android knows. */
+    @JvmStatic
+    fun parseColor(colorString: String): Int {
+        if (colorString.startsWith("#")) {
+            var color = colorString.substring(1).toLong(16)
+            when (colorString.length) {
+                7 -> color = color or 0x00000000FF000000L
+                9 -> {}
+                else -> throw IllegalArgumentException("Unknown color")
+            }
+            return color.toInt()
+        }
+        return colorNames[colorString.lowercase(Locale.ROOT)] ?: throw IllegalArgumentException("Unknown color")
+    }
+}
+
+/**
+ * Only there for the cleaners to compile: downloading images isn't benchmarked.
+ */
+class Bitmap private constructor() {
+
+    enum class CompressFormat { JPEG, PNG, WEBP }
+
+    fun compress(format: CompressFormat, quality: Int, stream: OutputStream): Boolean =
+        throw UnsupportedOperationException("No bitmaps on the JVM")
+}
@@ -0,0 +1,33 @@
+package android.net
+
+import java.net.URI
+import java.net.URISyntaxException
+
+/**
+ * The part of [Uri] the cleaners use, on top of [URI].
+ */
+class Uri private constructor(private val uriString: String) {
+
+    private val uri: URI? = try {
+        URI(uriString)
+    } catch (_: URISyntaxException) {
+        null
+    }
+
+    val scheme: String? get() = uri?.scheme
+    val host: String? get() = uri?.host
+    val path: String? get() = uri?.path
+    val query: String? get() = uri?.query
+    val lastPathSegment: String? get() = uri?.path?.split('/')?.lastOrNull { it.isNotEmpty() }
+
+    override fun toString() = uriString
+
+    override fun equals(other: Any?) = other is Uri && other.uriString == uriString
+
+    override fun hashCode() = uriString.hashCode()
+
+    companion object {
+        @JvmStatic
+        fun parse(uriString: String) = Uri(uriString)
+    }
+}
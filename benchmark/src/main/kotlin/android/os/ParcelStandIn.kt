@@ -0,0 +1,30 @@
+package android.os
+
+/**
+ * Only there for the app's models to compile: nothing is parcelled on the JVM.
+ */
+interface Parcelable {
+
+    fun writeToParcel(dest: Parcel, flags: Int)
+
+    fun describeContents(): Int
+
+    interface Creator<T> {
+        fun createFromParcel(source: Parcel): T
+        fun newArray(size: Int): Array<T?>
+    }
+}
+
+class Parcel private constructor() {
+
+    fun readString(): String? = unsupported()
+    fun readByte(): Byte = unsupported()
+    fun readInt(): Int = unsupported()
+    fun readLong(): Long = unsupported()
+    fun writeString(value: String?): Unit = unsupported()
+    fun writeByte(value: Byte): Unit = unsupported()
+    fun writeInt(value: Int): Unit = unsupported()
+    fun writeLong(value: Long): Unit = unsupported()
+
+    private fun unsupported(): Nothing = throw UnsupportedOperationException("No parcels on the JVM")
+}
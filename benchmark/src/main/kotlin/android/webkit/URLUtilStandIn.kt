@@ -0,0 +1,16 @@
+package android.webkit
+
+import java.util.Locale
+
+object URLUtil {
+
+    private val validPrefixes = listOf("assets:", "resource:", "file:", "about:", "javascript:", "http://", "https://", "content:")
+
+    /** Whether [url] starts with one of the schemes Android's `URLUtil.isValidUrl` accepts. */
+    @JvmStatic
+    fun isValidUrl(url: String?): Boolean {
+        if (url.isNullOrEmpty()) return false
+        val lowerCaseUrl = url.lowercase(Locale.ROOT)
+        return validPrefixes.any { lowerCaseUrl.startsWith(it) }
+    }
+}
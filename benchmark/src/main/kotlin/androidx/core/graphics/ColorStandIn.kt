@@ -0,0 +1,6 @@
+package androidx.core.graphics
+
+inline val Int.alpha: Int get() = (this shr 24) and 0xff
+inline val Int.red: Int get() = (this shr 16) and 0xff
+inline val Int.green: Int get() = (this shr 8) and 0xff
+inline val Int.blue: Int get() = this and 0xff
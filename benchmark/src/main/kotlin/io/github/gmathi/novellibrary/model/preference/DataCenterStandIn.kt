@@ -0,0 +1,38 @@
+package io.github.gmathi.novellibrary.model.preference
+
+import android.graphics.Color
+import io.github.gmathi.novellibrary.model.other.SelectorQuery
+
+/**
+ * The settings the benchmarked code reads, kept in memory with the app's defaults instead of the shared preferences.
+ */
+class DataCenter {
+
+    var isDarkTheme: Boolean = true
+    var showChapterComments: Boolean = false
+    var keepTextColor: Boolean = false
+    var alternativeTextColors: Boolean = false
+    var limitImageWidth: Boolean = false
+    var fontPath: String = ""
+    var enableDirectionalLinks: Boolean = false
+    var linkifyText: Boolean = false
+    var dayModeBackgroundColor: Int = Color.WHITE
+    var nightModeBackgroundColor: Int = Color.BLACK
+    var dayModeTextColor: Int = Color.BLACK
+    var nightModeTextColor: Int = Color.WHITE
+    var userSpecifiedSelectorQueries: String = ""
+    var htmlCleanerSelectorQueries: List<SelectorQuery> = emptyList()
+
+    private var novelSearchHistory: List<String> = emptyList()
+    private var librarySearchHistory: List<String> = emptyList()
+
+    fun loadNovelSearchHistory(): ArrayList<String> = ArrayList(novelSearchHistory)
+    fun saveNovelSearchHistory(history: List<String>) {
+        novelSearchHistory = history.toList()
+    }
+
+    fun loadLibrarySearchHistory(): ArrayList<String> = ArrayList(librarySearchHistory)
+    fun saveLibrarySearchHistory(history: List<String>) {
+        librarySearchHistory = history.toList()
+    }
+}
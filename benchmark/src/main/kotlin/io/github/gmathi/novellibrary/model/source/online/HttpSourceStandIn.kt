@@ -0,0 +1,11 @@
+package io.github.gmathi.novellibrary.model.source.online
+
+/**
+ * Only the user agent, which [io.github.gmathi.novellibrary.network.HostNames] and the cleaners refer to.
+ */
+abstract class HttpSource {
+
+    companion object {
+        const val DEFAULT_USER_AGENT = "Mozilla/5.0 (Linux; Android 10; HD1913) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/145.0.7632.46 Mobile Safari/537.36 EdgA/144.0.3719.115"
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.gmathi.novellibrary.network
+
+import org.jsoup.nodes.Document
+
+/**
+ * Only there for the cleaners to compile: the benchmarks don't go to the network.
+ */
+object WebPageDocumentFetcher {
+    fun document(url: String, useProxy: Boolean = true): Document =
+        throw UnsupportedOperationException("The benchmarks don't fetch $url")
+}
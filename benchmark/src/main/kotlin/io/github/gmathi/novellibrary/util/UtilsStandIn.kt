@@ -0,0 +1,14 @@
+package io.github.gmathi.novellibrary.util
+
+import android.graphics.Bitmap
+
+object Constants {
+    const val FILE_PROTOCOL = "file://"
+}
+
+/**
+ * Only there for the cleaners to compile: downloading images isn't benchmarked.
+ */
+object Utils {
+    fun getImage(image: ByteArray): Bitmap = throw UnsupportedOperationException("No bitmaps on the JVM")
+}
@@ -0,0 +1,26 @@
+package io.github.gmathi.novellibrary.util.logging
+
+/**
+ * Prints warnings and errors to the standard error, where JMH shows them. Debug and info messages are dropped so they
+ * don't weigh on the measurements.
+ */
+object Logs {
+
+    fun debug(tag: String?, message: String?) {}
+
+    fun info(tag: String?, message: String?) {}
+
+    fun warning(tag: String?, message: String?) = System.err.println("W/$tag: $message")
+
+    fun warning(tag: String?, message: String?, throwable: Throwable) {
+        warning(tag, message)
+        throwable.printStackTrace()
+    }
+
+    fun error(tag: String?, message: String?) = System.err.println("E/$tag: $message")
+
+    fun error(tag: String?, message: String?, throwable: Throwable) {
+        error(tag, message)
+        throwable.printStackTrace()
+    }
+}